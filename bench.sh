@@ -0,0 +1,18 @@
+#!/bin/bash
+
+# Create output directory if it doesn't exist
+mkdir -p out-bench
+
+# Compile the application and the benchmarks together
+find src/main/java src/bench/java -name "*.java" -print0 | xargs -0 javac -encoding UTF-8 -d out-bench
+
+# Run the requested benchmark class (defaults to the hot-path suite).
+# Benchmarks generate their data under a scratch working directory so the
+# files in src/main/java are never touched.
+if [ $? -eq 0 ]; then
+    ROOT=$(pwd)
+    mkdir -p out-bench/work
+    cd out-bench/work && java $JAVA_OPTS -cp "$ROOT/out-bench" "${1:-bench.HotPathBenchmark}" "${@:2}"
+else
+    echo "Compilation failed"
+fi
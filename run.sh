@@ -8,7 +8,7 @@ find src/main/java -name "*.java" -print0 | xargs -0 javac -d out
 
 # Run the program if compilation was successful
 if [ $? -eq 0 ]; then
-    java -cp out Main
+    java $JAVA_OPTS -cp out Main
 else
     echo "Compilation failed"
 fi
\ No newline at end of file
@@ -0,0 +1,28 @@
+package bench;
+
+import java.io.File;
+
+/**
+ * Keeps benchmarks from running in the project directory, where the data
+ * files they generate would overwrite the application's own.
+ *
+ * @author Akhilesh Nevatia
+ */
+final class BenchGuard {
+    private BenchGuard() {
+    }
+
+    /**
+     * Checks that the working directory is not the project directory,
+     * explaining how to run the benchmarks if it is
+     * @return True if the benchmark may write its data files here
+     */
+    static boolean requireScratchDir() {
+        if (new File("src/main/java/Main.java").exists()) {
+            System.err.println("Benchmarks overwrite the data files in the working directory.");
+            System.err.println("Run them through ./bench.sh, which uses a scratch directory.");
+            return false;
+        }
+        return true;
+    }
+}
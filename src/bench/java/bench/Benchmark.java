@@ -0,0 +1,18 @@
+package bench;
+
+import java.io.IOException;
+
+/**
+ * One hot path measured by HotPathBenchmark. setUp generates a dataset of
+ * the requested size under the working directory and loads whatever the
+ * operation needs; run performs a single operation against it.
+ *
+ * @author Akhilesh Nevatia
+ */
+interface Benchmark {
+    String name();
+
+    void setUp(int rows) throws IOException;
+
+    void run() throws IOException;
+}
@@ -0,0 +1,185 @@
+package bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import store.model.Money;
+import store.service.CsvReader;
+
+/**
+ * Parse throughput of the generated sales, inventory and energy files,
+ * read with BufferedReader and String.split as the loaders used to and
+ * with CsvReader. Both sides parse every numeric and date field the
+ * loader uses, and keep the id field as a String.
+ *
+ * Run with ./bench.sh bench.CsvParseBenchmark [rows]
+ * Rows default to 1M per file.
+ *
+ * @author Akhilesh Nevatia
+ */
+public class CsvParseBenchmark {
+    private static final long MEASURE_MILLIS = 3000;
+    private static final DateTimeFormatter MINUTES = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    // One way of parsing one file, returning a checksum of what it read
+    private interface Parser {
+        long parse(String file) throws IOException;
+    }
+
+    // Keeps the parsed values live
+    private static long sink;
+
+    public static void main(String[] args) throws IOException {
+        if (!BenchGuard.requireScratchDir()) {
+            return;
+        }
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        DataGenerator generator = new DataGenerator(new File("."), 5);
+        generator.setStores(1);
+        generator.setSkus(rows);
+        generator.setSkusPerStore(rows);
+        generator.setSalesLines(rows);
+        generator.setDevicesPerStore(20);
+        // Readings every 15 minutes for 20 devices come to 1,920 a day
+        generator.setDays(Math.max(1, rows / 1920));
+        generator.setReadingIntervalMinutes(15);
+        generator.writeInventory(0);
+        generator.writeSalesAndOrders(0);
+        generator.writeEnergyReadings(0);
+
+        String storeId = DataGenerator.storeId(0);
+        String sales = DataGenerator.storeFile(storeId, "sales.txt");
+        String inventory = DataGenerator.storeFile(storeId, "inventory.txt");
+        String energy = DataGenerator.ENERGY_DATA + "energy_readings_" + storeId + ".txt";
+
+        System.out.printf("%-10s %-9s %12s %10s %10s %12s%n", "File", "Parser", "Rows", "MB/s", "ns/row", "bytes/row");
+        measure("sales", sales, "split", CsvParseBenchmark::splitSales);
+        measure("sales", sales, "csv", CsvParseBenchmark::csvSales);
+        measure("inventory", inventory, "split", CsvParseBenchmark::splitInventory);
+        measure("inventory", inventory, "csv", CsvParseBenchmark::csvInventory);
+        measure("energy", energy, "split", CsvParseBenchmark::splitEnergy);
+        measure("energy", energy, "csv", CsvParseBenchmark::csvEnergy);
+    }
+
+    private static void measure(String name, String file, String parserName, Parser parser) throws IOException {
+        long bytes = new File(file).length();
+        int rows = countLines(file);
+        // First pass warms up
+        for (int pass = 0; pass < 2; pass++) {
+            long passes = 0;
+            long allocatedBefore = allocatedBytes();
+            long begin = System.nanoTime();
+            long deadline = begin + MEASURE_MILLIS * 1_000_000;
+            do {
+                sink += parser.parse(file);
+                passes++;
+            } while (System.nanoTime() < deadline);
+            long elapsed = System.nanoTime() - begin;
+            long allocated = allocatedBytes() - allocatedBefore;
+            if (pass == 1) {
+                System.out.printf("%-10s %-9s %,12d %10.1f %10.1f %12s%n", name, parserName, rows,
+                    bytes * passes / (elapsed / 1e9) / 1e6,
+                    (double) elapsed / (passes * rows),
+                    allocated < 0 ? "n/a" : String.format("%.1f", (double) allocated / (passes * rows)));
+            }
+        }
+    }
+
+    private static long splitSales(String file) throws IOException {
+        long checksum = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(",");
+                checksum += LocalDate.parse(parts[0]).toEpochDay() + parts[1].length()
+                    + Integer.parseInt(parts[2]) + Money.parse(parts[3]);
+            }
+        }
+        return checksum;
+    }
+
+    private static long csvSales(String file) throws IOException {
+        long checksum = 0;
+        try (CsvReader reader = CsvReader.open(file)) {
+            while (reader.next()) {
+                checksum += reader.parseDate(0).toEpochDay() + reader.intern(1).length()
+                    + reader.parseInt(2) + reader.parseCents(3);
+            }
+        }
+        return checksum;
+    }
+
+    private static long splitInventory(String file) throws IOException {
+        long checksum = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(",");
+                checksum += parts[0].length() + parts[1].length() + Money.parse(parts[2])
+                    + Integer.parseInt(parts[3]) + parts[4].length() + LocalDate.parse(parts[5]).toEpochDay();
+            }
+        }
+        return checksum;
+    }
+
+    private static long csvInventory(String file) throws IOException {
+        long checksum = 0;
+        try (CsvReader reader = CsvReader.open(file)) {
+            while (reader.next()) {
+                checksum += reader.string(0).length() + reader.string(1).length() + reader.parseCents(2)
+                    + reader.parseInt(3) + reader.string(4).length() + reader.parseDate(5).toEpochDay();
+            }
+        }
+        return checksum;
+    }
+
+    private static long splitEnergy(String file) throws IOException {
+        long checksum = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(",");
+                checksum += parts[0].length() + LocalDateTime.parse(parts[1], MINUTES).toEpochSecond(ZoneOffset.UTC)
+                    + (long) Double.parseDouble(parts[2]) + parts[3].length();
+            }
+        }
+        return checksum;
+    }
+
+    private static long csvEnergy(String file) throws IOException {
+        long checksum = 0;
+        try (CsvReader reader = CsvReader.open(file)) {
+            while (reader.next()) {
+                checksum += reader.intern(0).length() + reader.parseDateTime(1, MINUTES).toEpochSecond(ZoneOffset.UTC)
+                    + (long) reader.parseDouble(2) + reader.intern(3).length();
+            }
+        }
+        return checksum;
+    }
+
+    private static int countLines(String file) throws IOException {
+        int lines = 0;
+        try (CsvReader reader = CsvReader.open(file)) {
+            while (reader.next()) {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    // Bytes allocated by this thread so far, or -1 if the JVM cannot tell
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+}
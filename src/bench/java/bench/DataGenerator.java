@@ -0,0 +1,712 @@
+package bench;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generates seeded, production-sized datasets in the exact formats the
+ * application's loaders read: stores, managers, suppliers, inventories,
+ * sales and orders, employees and time records, gas transactions, loyalty
+ * members, promotions, security incidents and alerts, and energy readings
+ * and alerts.
+ *
+ * Files are written under a root directory using the same relative paths
+ * the application resolves (src/main/java/store/data/ST001/...), so the
+ * application or the benchmarks can be run from that root. The same seed
+ * and options always produce the same files; each store draws from its own
+ * random stream, so stores are generated in parallel.
+ *
+ * Run with ./bench.sh bench.DataGenerator [--option value ...], e.g.
+ * ./bench.sh bench.DataGenerator --out large --stores 1000 --skus 100000 --sales 100000000
+ *
+ * @author Akhilesh Nevatia
+ */
+public class DataGenerator {
+    static final String STORE_DATA = "src/main/java/store/data/";
+    static final String EMPLOYEE_DATA = "src/main/java/employee/data/";
+    static final String SECURITY_DATA = "src/main/java/security/data/";
+    static final String ENERGY_DATA = "src/main/java/energy/data/";
+    static final String MARKETING_DATA = "src/main/java/marketing/data/";
+    static final String SUPPLIER_DATA = "src/main/java/supplier/data/";
+    static final String[] DEVICE_TYPES = {"HVAC", "Refrigeration", "Lighting", "Other"};
+
+    private static final String[] DEVICE_PREFIXES = {"HVAC", "REF", "LIGHT", "OTHER"};
+    private static final double[] DEVICE_BASELINES = {45.0, 30.0, 15.0, 8.0};
+    private static final String[] CATEGORIES = {"Milk", "Bread", "Eggs", "Cheese", "Apples", "Bananas",
+        "Coffee", "Tea", "Rice", "Pasta", "Butter", "Juice", "Yogurt", "Cereal", "Chicken", "Beef",
+        "Soap", "Shampoo", "Chips", "Cookies"};
+    private static final String[] FIRST_NAMES = {"John", "Jane", "Bob", "Alice", "Charlie", "Eva",
+        "David", "Priya", "Wei", "Maria", "Omar", "Grace", "Luis", "Nina", "Sam", "Aisha"};
+    private static final String[] LAST_NAMES = {"Smith", "Doe", "Wilson", "Brown", "Davis", "Green",
+        "Miller", "Patel", "Chen", "Garcia", "Khan", "Lee", "Lopez", "Novak", "Reed", "Okafor"};
+    private static final String[] STREETS = {"Main St", "High St", "River Rd", "Oak Ave", "Park Blvd",
+        "Elm St", "Lake Dr", "Hill Rd"};
+    private static final String[] SUPPLIER_NAMES = {"Dairy Farm", "Fresh Produce", "Bakery Co",
+        "Happy Hens", "Local Bakery", "Green Valley", "Ocean Catch", "Sunrise Foods"};
+    private static final String[] PAYMENT_METHODS = {"CASH", "CARD", "MOBILE"};
+    private static final String[] FUEL_TYPES = {"REGULAR_87", "PLUS_89", "PREMIUM_93"};
+    private static final long[] FUEL_PRICE_CENTS = {349, 379, 409};
+    private static final String[] PROMOTION_NAMES = {"Summer Sale", "Weekend Deal", "Clearance",
+        "Holiday Special", "Member Week", "Black Friday"};
+    private static final String[] PROMOTION_TYPES = {"PERCENTAGE_OFF", "BOGO", "LOYALTY_POINTS_MULTIPLIER"};
+    // Most products a generated promotion targets
+    private static final int PROMOTION_PRODUCTS = 5;
+    private static final String[] INCIDENT_TYPES = {"Unauthorized Access", "Theft Attempt", "False Alarm",
+        "Fire Alarm", "Suspicious Activity", "Shoplifting"};
+    private static final String[] ALERT_TYPES = {"Camera Malfunction", "Motion Detected in Restricted Area",
+        "Door Left Open", "Unusual Activity in Parking Lot"};
+    private static final String[] SEVERITIES = {"Low", "Medium", "High", "Severe"};
+    // One in this many energy readings is a spike of roughly twice the baseline
+    private static final int SPIKE_ODDS = 1000;
+    private static final int MAX_THREADS = 8;
+
+    private final File root;
+    private final long seed;
+    private int stores = 10;
+    private int skus = 1_000;
+    private int skusPerStore = 1_000;
+    private long salesLines = 100_000;
+    private LocalDate startDate = LocalDate.of(2024, 1, 1);
+    private int days = 365;
+    private int employeesPerStore = 20;
+    private int gasTransactionsPerDay = 20;
+    private int loyaltyMembers = 10_000;
+    private int incidents = 10_000;
+    private int devicesPerStore = 20;
+    private int readingIntervalMinutes = 60;
+    private int promotions = 100;
+    private int suppliers = 50;
+
+    // Product catalog shared by every store, built on first use
+    private String[] catalogNames;
+    private long[] catalogPriceCents;
+    // Formatted dates and times, so the hot loops never format
+    private String[] dayStrings;
+    private static final String[] MINUTE_STRINGS = new String[24 * 60];
+
+    static {
+        for (int minute = 0; minute < MINUTE_STRINGS.length; minute++) {
+            MINUTE_STRINGS[minute] = String.format("%02d:%02d", minute / 60, minute % 60);
+        }
+    }
+
+    /**
+     * Creates a generator with the default scale
+     * @param root Directory the data tree is written under
+     * @param seed Seed for every random choice
+     */
+    public DataGenerator(File root, long seed) {
+        this.root = root;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) {
+        File root = new File(".");
+        long seed = 42;
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        DataGenerator generator;
+        try {
+            if (options.size() % 2 != 0) {
+                throw new IllegalArgumentException("Missing value for " + options.get(options.size() - 1));
+            }
+            for (int i = 0; i < options.size(); i += 2) {
+                if (options.get(i).equals("--out")) {
+                    root = new File(options.get(i + 1));
+                } else if (options.get(i).equals("--seed")) {
+                    seed = Long.parseLong(options.get(i + 1));
+                }
+            }
+            generator = new DataGenerator(root, seed);
+            for (int i = 0; i < options.size(); i += 2) {
+                generator.setOption(options.get(i), options.get(i + 1));
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            return;
+        }
+        if (new File(root, "src/main/java/Main.java").exists()) {
+            System.err.println("Refusing to overwrite the application's own data files in " + root);
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            generator.generate();
+        } catch (IOException e) {
+            System.err.println("Error generating data: " + e.getMessage());
+            return;
+        }
+        System.out.printf("Generated %d stores, %d SKUs and %d sales lines in %s in %.1f s%n",
+            generator.stores, generator.skus, generator.salesLines, root.getAbsolutePath(),
+            (System.currentTimeMillis() - start) / 1000.0);
+    }
+
+    private static void printUsage() {
+        System.err.println("Options: --out DIR --seed N --stores N --skus N --skus-per-store N --sales N");
+        System.err.println("         --start yyyy-MM-dd --days N --employees N --gas-per-day N --members N");
+        System.err.println("         --incidents N --devices N --reading-interval MINUTES --promotions N --suppliers N");
+    }
+
+    private void setOption(String name, String value) {
+        try {
+            switch (name) {
+                case "--out", "--seed" -> { }
+                case "--stores" -> stores = Integer.parseInt(value);
+                case "--skus" -> skus = Integer.parseInt(value);
+                case "--skus-per-store" -> skusPerStore = Integer.parseInt(value);
+                case "--sales" -> salesLines = Long.parseLong(value);
+                case "--start" -> startDate = LocalDate.parse(value);
+                case "--days" -> days = Integer.parseInt(value);
+                case "--employees" -> employeesPerStore = Integer.parseInt(value);
+                case "--gas-per-day" -> gasTransactionsPerDay = Integer.parseInt(value);
+                case "--members" -> loyaltyMembers = Integer.parseInt(value);
+                case "--incidents" -> incidents = Integer.parseInt(value);
+                case "--devices" -> devicesPerStore = Integer.parseInt(value);
+                case "--reading-interval" -> readingIntervalMinutes = Integer.parseInt(value);
+                case "--promotions" -> promotions = Integer.parseInt(value);
+                case "--suppliers" -> suppliers = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Unknown option " + name);
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid value for " + name + ": " + value);
+        }
+    }
+
+    // Scale settings
+    public void setStores(int stores) { this.stores = stores; }
+    public void setSkus(int skus) { this.skus = skus; this.catalogNames = null; }
+    public void setSkusPerStore(int skusPerStore) { this.skusPerStore = skusPerStore; }
+    public void setSalesLines(long salesLines) { this.salesLines = salesLines; }
+    public void setStartDate(LocalDate startDate) { this.startDate = startDate; this.dayStrings = null; }
+    public void setDays(int days) { this.days = days; this.dayStrings = null; }
+    public void setEmployeesPerStore(int employeesPerStore) { this.employeesPerStore = employeesPerStore; }
+    public void setGasTransactionsPerDay(int gasTransactionsPerDay) { this.gasTransactionsPerDay = gasTransactionsPerDay; }
+    public void setLoyaltyMembers(int loyaltyMembers) { this.loyaltyMembers = loyaltyMembers; }
+    public void setIncidents(int incidents) { this.incidents = incidents; }
+    public void setDevicesPerStore(int devicesPerStore) { this.devicesPerStore = devicesPerStore; }
+    public void setReadingIntervalMinutes(int readingIntervalMinutes) { this.readingIntervalMinutes = readingIntervalMinutes; }
+    public void setPromotions(int promotions) { this.promotions = promotions; }
+    public void setSuppliers(int suppliers) { this.suppliers = suppliers; }
+
+    public static String storeId(int store) {
+        return String.format("ST%03d", store + 1);
+    }
+
+    // Path of one store's file in the per-store layout, e.g. ST001/sales.txt
+    static String storeFile(String storeId, String name) {
+        return STORE_DATA + storeId + "/" + name;
+    }
+
+    public static String productId(int sku) {
+        return String.format("P%06d", sku + 1);
+    }
+
+    public static String productName(int sku) {
+        return CATEGORIES[sku % CATEGORIES.length] + " " + (sku / CATEGORIES.length + 1);
+    }
+
+    public static String employeeId(int employee) {
+        return String.format("EMP%06d", employee + 1);
+    }
+
+    public static String deviceId(int device) {
+        return String.format("%s_%02d", DEVICE_PREFIXES[device % DEVICE_PREFIXES.length],
+            device / DEVICE_PREFIXES.length + 1);
+    }
+
+    public static String deviceType(int device) {
+        return DEVICE_TYPES[device % DEVICE_TYPES.length];
+    }
+
+    /**
+     * Writes the complete dataset: shared files first, then every store's
+     * files on a bounded pool
+     * @throws IOException if a file cannot be written
+     */
+    public void generate() throws IOException {
+        writeStores();
+        writeStoreManagers();
+        writeSuppliers();
+        writeLoyaltyMembers();
+        writePromotions();
+        writeSecurityIncidents();
+
+        int threads = Math.min(MAX_THREADS, Math.min(Runtime.getRuntime().availableProcessors(), stores));
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int store = 0; store < stores; store++) {
+                int index = store;
+                tasks.add(() -> {
+                    writeStoreFiles(index);
+                    return null;
+                });
+            }
+            for (Future<Void> result : pool.invokeAll(tasks)) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Generation interrupted");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Writes every per-store file for one store
+     * @param store Zero-based store index
+     * @throws IOException if a file cannot be written
+     */
+    public void writeStoreFiles(int store) throws IOException {
+        writeInventory(store);
+        writeSalesAndOrders(store);
+        writeEmployees(store);
+        writeTimeRecords(store);
+        if (hasGasStation(store)) {
+            writeGasTransactions(store);
+        }
+        writeEnergyReadings(store);
+    }
+
+    public void writeStores() throws IOException {
+        Random random = random("stores", 0);
+        try (LineWriter writer = new LineWriter(file(STORE_DATA + "stores.txt"))) {
+            for (int store = 0; store < stores; store++) {
+                String name = STREETS[store % STREETS.length].split(" ")[0] + " Market " + (store + 1);
+                writer.text(storeId(store)).comma().text(name).comma()
+                    .number(100 + random.nextInt(900)).text(" ").text(pick(random, STREETS)).comma()
+                    .text(startDate.minusDays(1 + random.nextInt(3650)).toString()).newline();
+            }
+        }
+    }
+
+    public void writeStoreManagers() throws IOException {
+        Random random = random("managers", 0);
+        try (LineWriter writer = new LineWriter(file(STORE_DATA + "storemanagers.txt"))) {
+            for (int store = 0; store < stores; store++) {
+                writer.text(storeId(store)).comma().text(personName(random)).newline();
+            }
+        }
+    }
+
+    public void writeSuppliers() throws IOException {
+        Random random = random("suppliers", 0);
+        try (LineWriter writer = new LineWriter(file(SUPPLIER_DATA + "suppliers.txt"))) {
+            for (int supplier = 0; supplier < suppliers; supplier++) {
+                String contact = personName(random);
+                writer.text(String.format("SUP%03d", supplier + 1)).comma().text(supplierName(supplier)).comma()
+                    .text(contact).comma()
+                    .text(contact.toLowerCase().replace(' ', '.') + "@supplier" + (supplier + 1) + ".com")
+                    .newline();
+            }
+        }
+    }
+
+    /**
+     * Writes the store's stocked products: a contiguous window of the
+     * catalog starting at a store-specific offset
+     */
+    public void writeInventory(int store) throws IOException {
+        Random random = random("inventory", store);
+        buildCatalog();
+        try (LineWriter writer = new LineWriter(file(storeFile(storeId(store), "inventory.txt")))) {
+            for (int sku : stockedSkus(store)) {
+                writer.text(productId(sku)).comma().text(catalogNames[sku]).comma()
+                    .cents(catalogPriceCents[sku]).comma().number(random.nextInt(300)).comma()
+                    .text(supplierName(sku % suppliers)).comma()
+                    .text(startDate.plusDays(30 + random.nextInt(365)).toString()).newline();
+            }
+        }
+    }
+
+    /**
+     * Writes the store's share of the sales lines in date order, grouped
+     * into baskets of one to six lines, with one order row per basket whose
+     * amount is the basket total. Popular products sell far more often.
+     */
+    public void writeSalesAndOrders(int store) throws IOException {
+        Random random = random("sales", store);
+        buildCatalog();
+        int[] stocked = stockedSkus(store);
+        String storeId = storeId(store);
+        long lines = salesLines / stores + (store < salesLines % stores ? 1 : 0);
+        long written = 0;
+        long orderNumber = 0;
+
+        try (LineWriter sales = new LineWriter(file(storeFile(storeId, "sales.txt")));
+             LineWriter orders = new LineWriter(file(storeFile(storeId, "orders.txt")))) {
+            for (int day = 0; day < days; day++) {
+                String date = day(day);
+                long dayEnd = lines * (day + 1) / days;
+                while (written < dayEnd) {
+                    int basket = (int) Math.min(dayEnd - written, 1 + random.nextInt(6));
+                    long totalCents = 0;
+                    for (int line = 0; line < basket; line++) {
+                        int sku = stocked[skewed(random, stocked.length)];
+                        int quantity = 1 + (int) (Math.pow(random.nextDouble(), 3) * 5);
+                        long revenueCents = catalogPriceCents[sku] * quantity;
+                        totalCents += revenueCents;
+                        sales.text(date).comma().text(productId(sku)).comma().number(quantity).comma()
+                            .cents(revenueCents).newline();
+                    }
+                    written += basket;
+                    orders.text(date).comma().text("ORD").number(++orderNumber).comma().text(storeId).comma()
+                        .text(pick(random, PAYMENT_METHODS)).comma().cents(totalCents).newline();
+                }
+            }
+        }
+    }
+
+    public void writeEmployees(int store) throws IOException {
+        Random random = random("employees", store);
+        try (LineWriter writer = new LineWriter(file(EMPLOYEE_DATA + storeId(store) + "_employees.txt"))) {
+            for (int i = 0; i < employeesPerStore; i++) {
+                writer.text(employeeId(store * employeesPerStore + i)).comma().text(personName(random)).comma()
+                    .cents(1500 + random.nextInt(1000)).newline();
+            }
+        }
+    }
+
+    /**
+     * Writes one shift per employee on five days in seven: a start between
+     * 06:00 and 13:30, four to ten hours long, with an optional break.
+     * Shifts over eight hours are overtime, most of them approved.
+     */
+    public void writeTimeRecords(int store) throws IOException {
+        Random random = random("timerecords", store);
+        int[] breaks = {0, 15, 30, 60};
+        try (LineWriter writer = new LineWriter(file(storeFile(storeId(store), "timerecords.txt")))) {
+            for (int day = 0; day < days; day++) {
+                String date = day(day);
+                for (int i = 0; i < employeesPerStore; i++) {
+                    if (random.nextInt(7) >= 5) {
+                        continue;
+                    }
+                    int startMinute = 360 + 30 * random.nextInt(16);
+                    int length = 240 + 15 * random.nextInt(25);
+                    int breakMinutes = breaks[random.nextInt(breaks.length)];
+                    double hours = (length - breakMinutes) / 60.0;
+                    boolean overtime = hours > 8;
+                    writer.text(employeeId(store * employeesPerStore + i)).comma()
+                        .text(date).text("T").text(MINUTE_STRINGS[startMinute]).comma()
+                        .text(date).text("T").text(MINUTE_STRINGS[startMinute + length]).comma()
+                        .text(Double.toString(hours)).comma().text("false").comma()
+                        .text(Boolean.toString(overtime)).comma()
+                        .text(Boolean.toString(overtime && random.nextInt(10) < 7)).newline();
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes pump transactions between 06:00 and 23:00 for stores with a
+     * gas station (every third store)
+     */
+    public void writeGasTransactions(int store) throws IOException {
+        Random random = random("gas", store);
+        int[] seconds = new int[gasTransactionsPerDay];
+        try (LineWriter writer = new LineWriter(file(storeFile(storeId(store), "gas_transactions.txt")))) {
+            for (int day = 0; day < days; day++) {
+                String date = day(day);
+                long dayMillis = startDate.plusDays(day).atStartOfDay().toEpochSecond(ZoneOffset.UTC) * 1000;
+                for (int i = 0; i < seconds.length; i++) {
+                    seconds[i] = 6 * 3600 + random.nextInt(17 * 3600);
+                }
+                Arrays.sort(seconds);
+                for (int i = 0; i < seconds.length; i++) {
+                    int second = seconds[i];
+                    int fuel = random.nextInt(10) < 6 ? 0 : 1 + random.nextInt(2);
+                    long gallonsCents = 500 + random.nextInt(1500);
+                    writer.text("GAS").number(dayMillis + second * 1000L + i % 1000).comma()
+                        .text(date).text("T").text(MINUTE_STRINGS[second / 60]).text(":")
+                        .twoDigits(second % 60).comma()
+                        .number(1 + random.nextInt(8)).comma().text(FUEL_TYPES[fuel]).comma()
+                        .cents(gallonsCents).comma()
+                        .cents((gallonsCents * FUEL_PRICE_CENTS[fuel] + 50) / 100).newline();
+                }
+            }
+        }
+    }
+
+    public void writeLoyaltyMembers() throws IOException {
+        Random random = random("loyalty", 0);
+        try (LineWriter writer = new LineWriter(file(STORE_DATA + "loyalty_members.txt"))) {
+            for (int member = 0; member < loyaltyMembers; member++) {
+                writer.number(2_000_000_000L + member).comma().text(personName(random)).comma()
+                    .number(random.nextInt(5000)).newline();
+            }
+        }
+    }
+
+    public void writePromotions() throws IOException {
+        Random random = random("promotions", 0);
+        try (LineWriter writer = new LineWriter(file(MARKETING_DATA + "promotions.txt"))) {
+            for (int promotion = 0; promotion < promotions; promotion++) {
+                String type = pick(random, PROMOTION_TYPES);
+                long discountCents = switch (type) {
+                    case "PERCENTAGE_OFF" -> 500 + 500 * random.nextInt(10);
+                    case "BOGO" -> 10000;
+                    default -> 200;
+                };
+                int first = random.nextInt(days);
+                int last = Math.min(days - 1, first + random.nextInt(30));
+                writer.text("PROMO").number(promotion + 1).comma().text(pick(random, PROMOTION_NAMES)).comma()
+                    .text(type).comma().cents(discountCents).comma()
+                    .text(day(first)).text(" 00:00").comma().text(day(last)).text(" 23:59").comma();
+                int targets = 1 + random.nextInt(PROMOTION_PRODUCTS);
+                for (int target = 0; target < targets; target++) {
+                    if (target > 0) {
+                        writer.text("|");
+                    }
+                    writer.text(productId(random.nextInt(skus)));
+                }
+                writer.newline();
+            }
+        }
+    }
+
+    /**
+     * Writes incidents in time order across the whole period, and one
+     * alert per ten incidents, in the pipe-separated tables the security
+     * system reads
+     */
+    public void writeSecurityIncidents() throws IOException {
+        Random random = random("security", 0);
+        long periodSeconds = days * 86_400L;
+        try (LineWriter writer = new LineWriter(file(SECURITY_DATA + "security_incidents.txt"))) {
+            writer.text("ID | Description                 | Severity  | Timestamp           | Status").newline();
+            writer.text("---------------------------------------------------------------------------------").newline();
+            for (int incident = 0; incident < incidents; incident++) {
+                long second = periodSeconds * incident / Math.max(1, incidents);
+                writer.number(incident + 1).text(" | ").text(pick(random, INCIDENT_TYPES)).text(" | ")
+                    .text(pick(random, SEVERITIES)).text(" | ").text(timestamp(second)).text(" | ")
+                    .text(random.nextInt(4) == 0 ? "Not Resolved" : "Resolved").newline();
+            }
+        }
+
+        int alerts = incidents / 10;
+        try (LineWriter writer = new LineWriter(file(SECURITY_DATA + "security_alerts.txt"))) {
+            writer.text("ID | Description                        | Severity  | Timestamp").newline();
+            writer.text("------------------------------------------------------------------------").newline();
+            for (int alert = 0; alert < alerts; alert++) {
+                long second = periodSeconds * alert / Math.max(1, alerts);
+                writer.number(alert + 1).text(" | ").text(pick(random, ALERT_TYPES)).text(" | ")
+                    .text(pick(random, SEVERITIES)).text(" | ").text(timestamp(second)).newline();
+            }
+        }
+    }
+
+    /**
+     * Writes a reading per device every interval over the whole period.
+     * HVAC and lighting draw more during opening hours; about one reading
+     * in a thousand is a spike, recorded as a pending alert.
+     */
+    public void writeEnergyReadings(int store) throws IOException {
+        Random random = random("energy", store);
+        String storeId = storeId(store);
+        double[] baselines = new double[devicesPerStore];
+        for (int device = 0; device < devicesPerStore; device++) {
+            baselines[device] = DEVICE_BASELINES[device % DEVICE_BASELINES.length] * (0.8 + random.nextDouble() * 0.4);
+        }
+
+        try (LineWriter readings = new LineWriter(file(ENERGY_DATA + "energy_readings_" + storeId + ".txt"));
+             LineWriter alerts = new LineWriter(file(ENERGY_DATA + "energy_alerts_" + storeId + ".txt"))) {
+            for (long minute = 0; minute < days * 1440L; minute += readingIntervalMinutes) {
+                String date = day((int) (minute / 1440));
+                String time = MINUTE_STRINGS[(int) (minute % 1440)];
+                boolean open = minute % 1440 >= 8 * 60 && minute % 1440 < 21 * 60;
+                for (int device = 0; device < devicesPerStore; device++) {
+                    String type = deviceType(device);
+                    double load = open || type.equals("Refrigeration") || type.equals("Other") ? 1.0 : 0.6;
+                    double consumption = baselines[device] * load * (0.85 + random.nextDouble() * 0.3);
+                    boolean spike = random.nextInt(SPIKE_ODDS) == 0;
+                    if (spike) {
+                        consumption *= 2;
+                    }
+                    String id = deviceId(device);
+                    readings.text(id).comma().text(date).text(" ").text(time).comma()
+                        .cents(Math.round(consumption * 100)).comma().text(type).newline();
+                    if (spike) {
+                        alerts.text(id).comma().text(date).text(" ").text(time).comma()
+                            .text("ENERGY_SPIKE").comma().text("PENDING").newline();
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean hasGasStation(int store) {
+        return store % 3 == 0;
+    }
+
+    private int[] stockedSkus(int store) {
+        int count = Math.min(skusPerStore, skus);
+        int offset = (int) ((long) store * 7919 % skus);
+        int[] stocked = new int[count];
+        for (int i = 0; i < count; i++) {
+            stocked[i] = (offset + i) % skus;
+        }
+        return stocked;
+    }
+
+    private synchronized void buildCatalog() {
+        if (catalogNames != null) {
+            return;
+        }
+        Random random = random("catalog", 0);
+        String[] names = new String[skus];
+        long[] prices = new long[skus];
+        for (int sku = 0; sku < skus; sku++) {
+            names[sku] = productName(sku);
+            prices[sku] = 49 + random.nextInt(2000);
+        }
+        catalogPriceCents = prices;
+        catalogNames = names;
+    }
+
+    private synchronized String day(int day) {
+        if (dayStrings == null) {
+            String[] strings = new String[days];
+            for (int i = 0; i < days; i++) {
+                strings[i] = startDate.plusDays(i).toString();
+            }
+            dayStrings = strings;
+        }
+        return dayStrings[day];
+    }
+
+    // yyyy-MM-dd HH:mm:ss for a second offset from the start date
+    private String timestamp(long second) {
+        return day((int) (second / 86_400)) + " " + MINUTE_STRINGS[(int) (second % 86_400 / 60)]
+            + String.format(":%02d", second % 60);
+    }
+
+    private static String supplierName(int supplier) {
+        String name = SUPPLIER_NAMES[supplier % SUPPLIER_NAMES.length];
+        return supplier < SUPPLIER_NAMES.length ? name : name + " " + (supplier / SUPPLIER_NAMES.length + 1);
+    }
+
+    private static String personName(Random random) {
+        return pick(random, FIRST_NAMES) + " " + pick(random, LAST_NAMES);
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    // Index in [0, size) favouring small indexes, so a few products dominate sales
+    private static int skewed(Random random, int size) {
+        double r = random.nextDouble();
+        return (int) (r * r * size);
+    }
+
+    private Random random(String stream, int store) {
+        return new Random(seed * 31 + stream.hashCode() * 1_000_003L + store);
+    }
+
+    private File file(String path) {
+        File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        return file;
+    }
+
+    /**
+     * Buffered ASCII line writer. The data is plain ASCII and numbers are
+     * written digit by digit, so writing a line allocates nothing.
+     */
+    static class LineWriter implements Closeable {
+        private final OutputStream out;
+        private final byte[] buffer = new byte[1 << 16];
+        private final byte[] digits = new byte[20];
+        private int position;
+
+        LineWriter(File file) throws IOException {
+            this.out = new FileOutputStream(file);
+        }
+
+        LineWriter text(String value) throws IOException {
+            for (int i = 0; i < value.length(); i++) {
+                put((byte) value.charAt(i));
+            }
+            return this;
+        }
+
+        LineWriter number(long value) throws IOException {
+            if (value < 0) {
+                put((byte) '-');
+                value = -value;
+            }
+            int count = 0;
+            do {
+                digits[count++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value > 0);
+            while (count > 0) {
+                put(digits[--count]);
+            }
+            return this;
+        }
+
+        LineWriter twoDigits(long value) throws IOException {
+            put((byte) ('0' + value / 10 % 10));
+            put((byte) ('0' + value % 10));
+            return this;
+        }
+
+        // Writes cents as a decimal amount with two places, as %.2f does
+        LineWriter cents(long cents) throws IOException {
+            if (cents < 0) {
+                put((byte) '-');
+                cents = -cents;
+            }
+            number(cents / 100);
+            put((byte) '.');
+            return twoDigits(cents % 100);
+        }
+
+        LineWriter comma() throws IOException {
+            put((byte) ',');
+            return this;
+        }
+
+        void newline() throws IOException {
+            put((byte) '\n');
+        }
+
+        private void put(byte value) throws IOException {
+            if (position == buffer.length) {
+                out.write(buffer, 0, position);
+                position = 0;
+            }
+            buffer[position++] = value;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.write(buffer, 0, position);
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package bench;
+
+import energy.EnergyConsumptionSystem;
+import energy.service.FileReplaySource;
+import energy.service.MeterSimulator;
+import energy.service.ReadingBatch;
+import energy.service.ReadingIngest;
+import energy.service.ReadingStore;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+/**
+ * Bulk ingestion of energy readings against the 100,000 readings a second
+ * a fleet of meters can send: 1,000 meters reporting once a second for 10
+ * minutes (600,000 readings) by default, fed unpaced from the meter
+ * simulator through the batch pipeline into the reading store and spike
+ * detector. The same feed is then appended one reading at a time for
+ * comparison, and a generated readings file replayed through the
+ * pipeline. The first run, which warms the JIT up, is not reported.
+ *
+ * Run with ./bench.sh bench.EnergyIngestBenchmark [meters] [seconds]
+ *
+ * @author Akhilesh Nevatia
+ */
+public class EnergyIngestBenchmark {
+    private static final double TARGET = 100_000;
+
+    public static void main(String[] args) throws IOException {
+        if (!BenchGuard.requireScratchDir()) {
+            return;
+        }
+        int meters = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 600;
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+        // Simulated meters through the pipeline, as the menu's bulk feed
+        // runs it, after a run of the same size to warm up
+        ingest("INGEST_WARMUP", new MeterSimulator(meters, 1, seconds, start, false, 7));
+        ReadingIngest.Counters counters = ingest("INGEST_BENCH", new MeterSimulator(meters, 1, seconds, start, false, 42));
+        report("simulator, batched", counters.getConsumed(), counters.getElapsedMillis());
+        System.out.printf("  %,d batches; source waited %,d ms on a full queue, store %,d ms for readings%n",
+            counters.getBatches(), counters.getProducerWaitMillis(), counters.getConsumerWaitMillis());
+
+        // The same readings into the store alone, batched and one at a time
+        Path dir = Paths.get(DataGenerator.ENERGY_DATA, "ingest_store");
+        deleteAll(dir);
+        ReadingStore batched = new ReadingStore(dir);
+        counters = new ReadingIngest().run(
+            new MeterSimulator(meters, 1, seconds, start, false, 42), batched::append, null);
+        batched.close();
+        report("store only, batched", counters.getConsumed(), counters.getElapsedMillis());
+        deleteAll(dir);
+        MeterSimulator simulator = new MeterSimulator(meters, 1, seconds, start, false, 42);
+        ReadingBatch batch = new ReadingBatch(ReadingIngest.DEFAULT_BATCH_SIZE);
+        ReadingStore store = new ReadingStore(dir);
+        long begin = System.nanoTime();
+        long readings = 0;
+        boolean more = true;
+        while (more) {
+            batch.clear();
+            more = simulator.fill(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                store.append(batch.getDeviceId(i), batch.getDeviceType(i), batch.getSecond(i), batch.getConsumption(i));
+            }
+            readings += batch.size();
+        }
+        store.close();
+        report("store only, one at a time", readings, (System.nanoTime() - begin) / 1_000_000);
+        deleteAll(dir);
+
+        // Replaying a readings file, parse included
+        DataGenerator generator = new DataGenerator(new File("."), 8);
+        generator.setDevicesPerStore(100);
+        generator.setDays(7);
+        generator.setReadingIntervalMinutes(1);
+        generator.writeEnergyReadings(0);
+        String textFile = DataGenerator.ENERGY_DATA + "energy_readings_" + DataGenerator.storeId(0) + ".txt";
+        FileReplaySource source = new FileReplaySource(textFile);
+        counters = ingest("REPLAY_BENCH", source);
+        report("file replay, batched", counters.getConsumed(), counters.getElapsedMillis());
+        System.out.printf("  %,d lines skipped%n", source.getSkipped());
+    }
+
+    // Ingests into a new store, left empty again afterwards
+    private static ReadingIngest.Counters ingest(String storeId, ReadingIngest.Source source) throws IOException {
+        clear(storeId);
+        EnergyConsumptionSystem system = new EnergyConsumptionSystem(storeId);
+        ReadingIngest.Counters counters = system.ingest(source, null);
+        System.out.printf("  %s: %,d spike alerts%n", storeId, system.getAlertCount());
+        clear(storeId);
+        return counters;
+    }
+
+    private static void clear(String storeId) throws IOException {
+        deleteAll(Paths.get(DataGenerator.ENERGY_DATA, storeId));
+        Files.deleteIfExists(Paths.get(DataGenerator.ENERGY_DATA, "energy_alerts_" + storeId + ".txt"));
+    }
+
+    private static void report(String name, long readings, long millis) {
+        double rate = millis == 0 ? 0 : readings * 1000.0 / millis;
+        System.out.printf("%-26s %,10d readings in %,7d ms: %,10.0f readings/s (%.1fx the %,.0f/s target)%n",
+            name, readings, millis, rate, rate / TARGET, TARGET);
+    }
+
+    private static void deleteAll(Path dir) throws IOException {
+        if (Files.exists(dir)) {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                paths.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+}
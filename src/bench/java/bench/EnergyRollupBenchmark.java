@@ -0,0 +1,111 @@
+package bench;
+
+import energy.EnergyConsumptionSystem;
+import energy.service.MeterSimulator;
+import energy.service.ReadingIngest;
+import energy.service.ReadingStore;
+import energy.service.RetentionPolicy;
+import energy.service.RollupStore;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * A year's energy report from the rollup tiers against the raw readings:
+ * 100 meters reporting every 15 minutes through 2024 (3.5M readings) by
+ * default, ingested with raw retention off so both are there to compare.
+ * Times consumption by device type for the year and for one month, and
+ * opening the store, which reads the rollups instead of every reading.
+ *
+ * Run with ./bench.sh bench.EnergyRollupBenchmark [meters] [days]
+ *
+ * @author Akhilesh Nevatia
+ */
+public class EnergyRollupBenchmark {
+    private static final String STORE = "ROLLUP_BENCH";
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws IOException {
+        if (!BenchGuard.requireScratchDir()) {
+            return;
+        }
+        int meters = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int days = args.length > 1 ? Integer.parseInt(args[1]) : 366;
+        System.setProperty(RetentionPolicy.RAW_DAYS_PROPERTY, "0");
+
+        Path dir = Paths.get(DataGenerator.ENERGY_DATA, STORE);
+        deleteAll(dir);
+        Files.deleteIfExists(Paths.get(DataGenerator.ENERGY_DATA, "energy_alerts_" + STORE + ".txt"));
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        ReadingIngest.Counters counters = new EnergyConsumptionSystem(STORE).ingest(
+            new MeterSimulator(meters, 1.0 / 900, days * 86_400L, start.atStartOfDay(), false, 42), null);
+        System.out.printf("%,d readings ingested in %,d ms (%,.0f readings/s, rollups included)%n",
+            counters.getConsumed(), counters.getElapsedMillis(), counters.getReadingsPerSecond());
+
+        ReadingStore readings = new ReadingStore(dir);
+        Map<String, String> types = readings.getDevices();
+        long yearFrom = start.toEpochDay() * 86_400;
+        long yearTo = start.plusDays(days).withDayOfMonth(1).toEpochDay() * 86_400;
+        long monthFrom = start.plusMonths(1).toEpochDay() * 86_400;
+        long monthTo = start.plusMonths(2).toEpochDay() * 86_400;
+
+        time("year by type (rollups)", () -> {
+            RollupStore rollups = new RollupStore(dir.resolve("rollups"));
+            return rollups.byType(types, yearFrom, yearTo).values().stream().mapToLong(RollupStore.Aggregate::getCount).sum();
+        });
+        time("year by type (readings)", () -> byType(readings, types, yearFrom, yearTo));
+        time("one month by type (rollups)", () -> {
+            RollupStore rollups = new RollupStore(dir.resolve("rollups"));
+            return rollups.byType(types, monthFrom, monthTo).values().stream().mapToLong(RollupStore.Aggregate::getCount).sum();
+        });
+        time("one month by type (readings)", () -> byType(readings, types, monthFrom, monthTo));
+        time("open the store", () -> {
+            new EnergyConsumptionSystem(STORE);
+            return types.size();
+        });
+
+        deleteAll(dir);
+        Files.deleteIfExists(Paths.get(DataGenerator.ENERGY_DATA, "energy_alerts_" + STORE + ".txt"));
+    }
+
+    // The same report from every reading in the range
+    private static long byType(ReadingStore readings, Map<String, String> types, long from, long to)
+            throws IOException {
+        Map<String, long[]> counts = new HashMap<>();
+        Map<String, double[]> totals = new HashMap<>();
+        readings.query(from, to, (deviceId, second, consumption) -> {
+            String type = types.get(deviceId);
+            counts.computeIfAbsent(type, t -> new long[1])[0]++;
+            totals.computeIfAbsent(type, t -> new double[1])[0] += consumption;
+        });
+        return counts.values().stream().mapToLong(count -> count[0]).sum();
+    }
+
+    interface Query {
+        long run() throws IOException;
+    }
+
+    private static void time(String name, Query query) throws IOException {
+        long best = Long.MAX_VALUE;
+        long result = 0;
+        for (int run = 0; run < RUNS; run++) {
+            long begin = System.nanoTime();
+            result = query.run();
+            best = Math.min(best, System.nanoTime() - begin);
+        }
+        System.out.printf("%-30s %,10.2f ms best of %d (%,d readings)%n", name, best / 1e6, RUNS, result);
+    }
+
+    private static void deleteAll(Path dir) throws IOException {
+        if (Files.exists(dir)) {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                paths.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package bench;
+
+import energy.service.ReadingStore;
+import store.service.CsvReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.stream.Stream;
+
+/**
+ * The energy reading store against the text file it replaces: minute
+ * readings from 100 devices over 30 days (4.3M readings) by default.
+ * Times appending every reading, then compares the bytes on disk, reading
+ * one device's last day, and reading everything back with parsing the
+ * whole text file.
+ *
+ * Run with ./bench.sh bench.EnergySeriesBenchmark [devices] [days]
+ *
+ * @author Akhilesh Nevatia
+ */
+public class EnergySeriesBenchmark {
+    private static final DateTimeFormatter TEXT_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws IOException {
+        if (!BenchGuard.requireScratchDir()) {
+            return;
+        }
+        int devices = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int days = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+
+        DataGenerator generator = new DataGenerator(new File("."), 8);
+        generator.setDevicesPerStore(devices);
+        generator.setDays(days);
+        generator.setReadingIntervalMinutes(1);
+        generator.writeEnergyReadings(0);
+        String textFile = DataGenerator.ENERGY_DATA + "energy_readings_" + DataGenerator.storeId(0) + ".txt";
+        Path dir = Paths.get(DataGenerator.ENERGY_DATA, "series_bench");
+        deleteAll(dir);
+
+        // Append every reading, as the meters would
+        long start = System.nanoTime();
+        long readings = 0;
+        ReadingStore store = new ReadingStore(dir);
+        try (CsvReader reader = CsvReader.open(textFile)) {
+            while (reader.next()) {
+                long second = reader.parseDateTime(1, TEXT_TIME).toEpochSecond(ZoneOffset.UTC);
+                store.append(reader.intern(0), reader.intern(3), second, reader.parseDouble(2));
+                readings++;
+            }
+        }
+        store.close();
+        double appendSeconds = (System.nanoTime() - start) / 1e9;
+        long textBytes = Files.size(Paths.get(textFile));
+        long storeBytes;
+        try (Stream<Path> files = Files.walk(dir)) {
+            storeBytes = files.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        }
+        System.out.printf("%,d readings appended in %,.0f ms (%,.0f readings/s, parse included)%n",
+            readings, appendSeconds * 1000, readings / appendSeconds);
+        System.out.printf("text %,d bytes (%.1f a reading), store %,d bytes (%.2f a reading)%n",
+            textBytes, (double) textBytes / readings, storeBytes, (double) storeBytes / readings);
+
+        ReadingStore reopened = new ReadingStore(dir);
+        String device = DataGenerator.deviceId(0);
+        long end = LocalDateTime.of(2024, 1, 1, 0, 0).plusDays(days).toEpochSecond(ZoneOffset.UTC);
+        time("one device, last day (store)", () -> {
+            long[] count = new long[1];
+            reopened.query(device, end - 86_400, end, (id, second, consumption) -> count[0]++);
+            return count[0];
+        });
+        time("everything (store)", () -> {
+            double[] total = new double[1];
+            reopened.query(Long.MIN_VALUE, Long.MAX_VALUE, (id, second, consumption) -> total[0] += consumption);
+            return (long) total[0];
+        });
+        time("everything (text file)", () -> {
+            double total = 0;
+            try (CsvReader reader = CsvReader.open(textFile)) {
+                while (reader.next()) {
+                    reader.parseDateTime(1, TEXT_TIME);
+                    total += reader.parseDouble(2);
+                }
+            }
+            return (long) total;
+        });
+        deleteAll(dir);
+    }
+
+    interface Query {
+        long run() throws IOException;
+    }
+
+    private static void time(String name, Query query) throws IOException {
+        long best = Long.MAX_VALUE;
+        long result = 0;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            result = query.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-30s %,10.2f ms best of %d (%,d)%n", name, best / 1e6, RUNS, result);
+    }
+
+    private static void deleteAll(Path dir) throws IOException {
+        if (Files.exists(dir)) {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                paths.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+}
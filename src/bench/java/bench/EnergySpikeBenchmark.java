@@ -0,0 +1,45 @@
+package bench;
+
+import energy.EnergyConsumptionSystem;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * Recording one reading, and the spike check it triggers, for devices
+ * whose history holds rows readings in total across 50 devices. Recorded
+ * readings stay below every device's average, so no alert is raised.
+ *
+ * @author Akhilesh Nevatia
+ */
+class EnergySpikeBenchmark implements Benchmark {
+    private static final int DEVICES = 50;
+    private static final int DAYS = 365;
+    private EnergyConsumptionSystem energySystem;
+    private Random random;
+    private LocalDateTime timestamp;
+    private int next;
+
+    public String name() {
+        return "energy-spike";
+    }
+
+    public void setUp(int rows) throws IOException {
+        DataGenerator generator = new DataGenerator(new File("."), 7);
+        generator.setDays(DAYS);
+        generator.setDevicesPerStore(DEVICES);
+        generator.setReadingIntervalMinutes((int) Math.max(1, DAYS * 1440L * DEVICES / rows));
+        generator.writeEnergyReadings(0);
+        energySystem = new EnergyConsumptionSystem(DataGenerator.storeId(0));
+        random = new Random(7);
+        timestamp = LocalDateTime.of(2025, 1, 1, 0, 0);
+        next = 0;
+    }
+
+    public void run() {
+        int device = next++ % DEVICES;
+        energySystem.recordReading(DataGenerator.deviceId(device), DataGenerator.deviceType(device),
+            4.5 + random.nextDouble() * 0.5, timestamp.plusMinutes(next));
+    }
+}
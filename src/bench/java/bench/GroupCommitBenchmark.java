@@ -0,0 +1,166 @@
+package bench;
+
+import inventory.model.Product;
+import order.model.Order;
+import order.service.SalesAppender;
+import store.service.StoreDataRepository;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Measures paid-order throughput at 1, 8 and 32 tills, comparing the
+ * previous open-write-close per order (with and without an fsync) against
+ * the group-commit SalesAppender under each durability setting. For the
+ * appender, the commit and fsync latency histograms are printed as well.
+ *
+ * Run with ./bench.sh bench.GroupCommitBenchmark
+ *
+ * @author Akhilesh Nevatia
+ */
+public class GroupCommitBenchmark {
+    private static final int[] THREAD_COUNTS = {1, 8, 32};
+    private static final long WARMUP_MILLIS = 1000;
+    private static final long MEASURE_MILLIS = 3000;
+    private static final int ITEMS_PER_ORDER = 5;
+    private static final AtomicInteger STORES = new AtomicInteger();
+
+    /**
+     * Writes one paid order
+     */
+    interface OrderWriter {
+        void write(Order order) throws IOException;
+    }
+
+    // The previous CheckoutEngine path: both files opened, appended and
+    // closed for every order under one lock, optionally forced to disk
+    static class OpenPerOrderWriter implements OrderWriter {
+        private final String storeId;
+        private final boolean fsync;
+
+        OpenPerOrderWriter(String storeId, boolean fsync) {
+            this.storeId = storeId;
+            this.fsync = fsync;
+        }
+
+        public synchronized void write(Order order) throws IOException {
+            LocalDate today = LocalDate.now();
+            try (FileOutputStream salesOut = new FileOutputStream(StoreDataRepository.store(storeId).path("sales.txt"), true);
+                 FileOutputStream orderOut = new FileOutputStream(StoreDataRepository.store(storeId).path("orders.txt"), true)) {
+                BufferedWriter salesWriter = new BufferedWriter(new OutputStreamWriter(salesOut, StandardCharsets.UTF_8));
+                BufferedWriter orderWriter = new BufferedWriter(new OutputStreamWriter(orderOut, StandardCharsets.UTF_8));
+                orderWriter.write(String.format("%s,%s,%s,%s,%.2f%n", today, order.getOrderId(),
+                    storeId, order.getPaymentMethod(), order.getTotalAmount()));
+                for (int line = 0; line < order.getLineCount(); line++) {
+                    long revenueCents = Math.round(order.getProduct(line).getPrice() * order.getQuantity(line) * 100);
+                    salesWriter.write(String.format("%s,%s,%d,%d.%02d%n", today, order.getProduct(line).getId(),
+                        order.getQuantity(line), revenueCents / 100, revenueCents % 100));
+                }
+                salesWriter.flush();
+                orderWriter.flush();
+                if (fsync) {
+                    salesOut.getFD().sync();
+                    orderOut.getFD().sync();
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (!BenchGuard.requireScratchDir()) {
+            return;
+        }
+        Product[] products = new Product[100];
+        for (int i = 0; i < products.length; i++) {
+            products[i] = new Product(DataGenerator.productId(i), DataGenerator.productName(i),
+                1.99 + i % 20, 1000, "SUP001", null);
+        }
+
+        System.out.printf("%-18s %8s %14s %12s%n", "Writer", "Threads", "Orders/s", "Orders/batch");
+        for (int threads : THREAD_COUNTS) {
+            run("open-per-order", threads, products, id -> new OpenPerOrderWriter(id, false), null);
+            run("open+fsync", threads, products, id -> new OpenPerOrderWriter(id, true), null);
+            run("group per order", threads, products, null, SalesAppender.Durability.perOrder());
+            run("group every 5 ms", threads, products, null, SalesAppender.Durability.everyMillis(5));
+            run("group every 64", threads, products, null, SalesAppender.Durability.everyRecords(64));
+        }
+    }
+
+    // Writers are given a fresh store id, so each run starts from empty files
+    private static void run(String name, int threads, Product[] products, Function<String, OrderWriter> writers,
+                            SalesAppender.Durability durability) throws InterruptedException {
+        String storeId = "GC" + STORES.incrementAndGet();
+        SalesAppender appender = null;
+        OrderWriter orderWriter;
+        if (writers == null) {
+            appender = SalesAppender.forStore(storeId);
+            appender.setDurability(durability);
+            orderWriter = appender::append;
+        } else {
+            orderWriter = writers.apply(storeId);
+        }
+
+        AtomicBoolean measuring = new AtomicBoolean(false);
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder orders = new LongAdder();
+        CountDownLatch finished = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int till = t;
+            Thread worker = new Thread(() -> {
+                long sequence = 0;
+                long count = 0;
+                try {
+                    while (running.get()) {
+                        Order order = new Order("T" + till + "-" + sequence, storeId);
+                        for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+                            order.addItem(products[(int) ((sequence * 7 + i * 13) % products.length)], 1 + i % 3);
+                        }
+                        order.setPaymentMethod("CARD");
+                        order.markAsPaid();
+                        orderWriter.write(order);
+                        sequence++;
+                        if (measuring.get()) {
+                            count++;
+                        }
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error saving data: " + e.getMessage());
+                }
+                orders.add(count);
+                finished.countDown();
+            });
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        Thread.sleep(WARMUP_MILLIS);
+        measuring.set(true);
+        long start = System.nanoTime();
+        Thread.sleep(MEASURE_MILLIS);
+        measuring.set(false);
+        long elapsed = System.nanoTime() - start;
+        running.set(false);
+        finished.await();
+
+        double ordersPerSecond = orders.sum() * 1_000_000_000.0 / elapsed;
+        if (appender == null) {
+            System.out.printf("%-18s %8d %,14.0f %12s%n", name, threads, ordersPerSecond, "-");
+        } else {
+            appender.close();
+            System.out.printf("%-18s %8d %,14.0f %12.1f%n", name, threads, ordersPerSecond,
+                appender.getAverageBatchSize());
+            System.out.println("    commit: " + appender.getCommitLatency().summary());
+            System.out.println("    fsync:  " + appender.getSyncLatency().summary());
+        }
+        StoreDataRepository.store(storeId).file("sales.txt").toFile().delete();
+        StoreDataRepository.store(storeId).file("orders.txt").toFile().delete();
+    }
+}
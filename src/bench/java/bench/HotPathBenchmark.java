@@ -0,0 +1,142 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures the application's data-heavy paths against generated datasets.
+ * Each benchmark is set up once per dataset size, warmed up, then run
+ * repeatedly for a fixed time while each operation is timed.
+ *
+ * Run with ./bench.sh bench.HotPathBenchmark [rows...] [name...]
+ * e.g. ./bench.sh bench.HotPathBenchmark 10000 1000000 sales-report
+ * Sizes default to 10k and 100k rows. Sizes of 10M rows need a larger
+ * heap, passed through JAVA_OPTS (e.g. JAVA_OPTS=-Xmx8g).
+ *
+ * @author Akhilesh Nevatia
+ */
+public class HotPathBenchmark {
+    private static final int[] DEFAULT_SIZES = {10_000, 100_000};
+    private static final long WARMUP_MILLIS = 2000;
+    private static final long MEASURE_MILLIS = 5000;
+    private static final int MIN_OPERATIONS = 5;
+
+    private static final PrintStream CONSOLE = System.out;
+    // The services print progress messages; keep them out of the results
+    private static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+
+    public static void main(String[] args) throws IOException {
+        if (!BenchGuard.requireScratchDir()) {
+            return;
+        }
+
+        List<Integer> sizes = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.matches("\\d+")) {
+                sizes.add(Integer.parseInt(arg));
+            } else {
+                names.add(arg);
+            }
+        }
+        if (sizes.isEmpty()) {
+            Arrays.stream(DEFAULT_SIZES).forEach(sizes::add);
+        }
+
+        List<Benchmark> benchmarks = List.of(
+            new InventoryLoadBenchmark(),
+            new InventorySaveBenchmark(),
+            new SalesReportBenchmark(),
+            new OrderBuildBenchmark(),
+            new PayrollReportBenchmark(),
+            new ReturnAnalyticsBenchmark(),
+            new IncidentRangeBenchmark(),
+            new EnergySpikeBenchmark(),
+            new LoyaltyPointsBenchmark());
+
+        System.out.printf("%-18s %10s %10s %8s %12s %12s %12s%n",
+            "Benchmark", "Rows", "Setup ms", "Ops", "Mean ms/op", "p50 ms/op", "Max ms/op");
+        for (Benchmark benchmark : benchmarks) {
+            if (!names.isEmpty() && !names.contains(benchmark.name())) {
+                continue;
+            }
+            for (int rows : sizes) {
+                measure(benchmark, rows);
+            }
+        }
+    }
+
+    private static void measure(Benchmark benchmark, int rows) throws IOException {
+        clean();
+        System.gc();
+        System.setOut(DISCARD);
+        long[] samples;
+        long setupNanos;
+        try {
+            long start = System.nanoTime();
+            benchmark.setUp(rows);
+            setupNanos = System.nanoTime() - start;
+
+            runFor(benchmark, WARMUP_MILLIS, 1);
+            samples = runFor(benchmark, MEASURE_MILLIS, MIN_OPERATIONS);
+        } finally {
+            System.setOut(CONSOLE);
+        }
+
+        Arrays.sort(samples);
+        double total = 0;
+        for (long sample : samples) {
+            total += sample;
+        }
+        System.out.printf("%-18s %,10d %,10.0f %8d %12.3f %12.3f %12.3f%n",
+            benchmark.name(), rows, setupNanos / 1e6, samples.length,
+            total / samples.length / 1e6,
+            samples[samples.length / 2] / 1e6,
+            samples[samples.length - 1] / 1e6);
+    }
+
+    // Removes the files a previous benchmark generated
+    private static void clean() {
+        String[] dirs = {DataGenerator.STORE_DATA, DataGenerator.EMPLOYEE_DATA, DataGenerator.SECURITY_DATA,
+            DataGenerator.ENERGY_DATA, DataGenerator.MARKETING_DATA, DataGenerator.SUPPLIER_DATA};
+        for (String dir : dirs) {
+            deleteFiles(new File(dir));
+        }
+    }
+
+    // Store directories are kept, since the application caches that they exist
+    private static void deleteFiles(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    deleteFiles(file);
+                } else {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    // Runs until the time is up and at least minOperations have completed,
+    // returning each operation's duration in nanoseconds
+    private static long[] runFor(Benchmark benchmark, long millis, int minOperations) throws IOException {
+        long[] samples = new long[64];
+        int count = 0;
+        long deadline = System.nanoTime() + millis * 1_000_000;
+        while (count < minOperations || System.nanoTime() < deadline) {
+            long start = System.nanoTime();
+            benchmark.run();
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count++] = System.nanoTime() - start;
+        }
+        return Arrays.copyOf(samples, count);
+    }
+}
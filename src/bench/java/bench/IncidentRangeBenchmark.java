@@ -0,0 +1,36 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import security.model.SecurityAlertSystem;
+
+/**
+ * One-day incident lookups over rows incidents spread over a year,
+ * stepping through the year one day per operation.
+ *
+ * @author Akhilesh Nevatia
+ */
+class IncidentRangeBenchmark implements Benchmark {
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+    private SecurityAlertSystem alertSystem;
+    private int day;
+
+    public String name() {
+        return "incident-range";
+    }
+
+    public void setUp(int rows) throws IOException {
+        DataGenerator generator = new DataGenerator(new File("."), 6);
+        generator.setIncidents(rows);
+        generator.writeSecurityIncidents();
+        alertSystem = new SecurityAlertSystem();
+        day = 0;
+    }
+
+    public void run() {
+        LocalDateTime start = FIRST_DAY.plusDays(day++ % 365).atStartOfDay();
+        alertSystem.getIncidentsInRange(start, start.plusDays(1));
+    }
+}
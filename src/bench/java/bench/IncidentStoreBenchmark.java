@@ -0,0 +1,90 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import security.model.SecurityAlertSystem;
+import security.model.SecurityIncident;
+
+/**
+ * Reporting and querying security incidents with a year of history, one
+ * million incidents by default: reporting an issue, a one-day range, a
+ * one-day range of one severity and finding an incident's ID, each against
+ * the full scans they replace.
+ *
+ * Run with JAVA_OPTS=-Xmx2g ./bench.sh bench.IncidentStoreBenchmark [incidents]
+ *
+ * @author Akhilesh Nevatia
+ */
+public class IncidentStoreBenchmark {
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+    private static final int OPERATIONS = 2000;
+
+    public static void main(String[] args) throws IOException {
+        if (!BenchGuard.requireScratchDir()) {
+            return;
+        }
+        int incidents = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        DataGenerator generator = new DataGenerator(new File("."), 6);
+        generator.setIncidents(incidents);
+        generator.writeSecurityIncidents();
+        long start = System.nanoTime();
+        SecurityAlertSystem alertSystem = new SecurityAlertSystem();
+        System.out.printf("%,d incidents loaded and indexed in %,.0f ms%n",
+            alertSystem.getIncidents().size(), (System.nanoTime() - start) / 1e6);
+        List<SecurityIncident> all = alertSystem.getIncidents();
+
+        time("report an issue (store)", day -> {
+            alertSystem.reportSecurityIssue("Benchmark Incident", "Low");
+            return 1;
+        });
+        time("next ID (full scan)", day -> all.stream()
+            .mapToInt(incident -> Integer.parseInt(incident.getId().trim())).max().orElse(0) + 1);
+        time("one day (store)", day -> alertSystem.getIncidentsInRange(
+            day.atStartOfDay(), day.plusDays(1).atStartOfDay()).size());
+        time("one day (full scan)", day -> {
+            LocalDateTime from = day.atStartOfDay();
+            LocalDateTime to = day.plusDays(1).atStartOfDay();
+            return all.stream()
+                .filter(incident -> !incident.getTimestamp().isBefore(from) && !incident.getTimestamp().isAfter(to))
+                .collect(Collectors.toList()).size();
+        });
+        time("one day, Severe (store)", day -> alertSystem.getIncidentsInRange(
+            day.atStartOfDay(), day.plusDays(1).atStartOfDay(), "Severe").size());
+        time("update a status (store)", day -> {
+            alertSystem.updateIncidentStatus(String.valueOf(day.getDayOfYear() * 1000), "Resolved");
+            return 1;
+        });
+    }
+
+    interface Operation {
+        long run(LocalDate day);
+    }
+
+    // Runs an operation for days through the year, a tenth of the runs to
+    // warm up, and prints the average time of the rest
+    private static void time(String name, Operation operation) {
+        int warmup = OPERATIONS / 10;
+        long result = 0;
+        long begin = 0;
+        for (int i = 0; i < OPERATIONS + warmup; i++) {
+            if (i == warmup) {
+                begin = System.nanoTime();
+                result = 0;
+            }
+            result += operation.run(FIRST_DAY.plusDays(i % 365));
+            // Full scans take far longer; a few runs are enough
+            if (name.contains("full scan") && i == warmup + 20) {
+                System.out.printf("%-28s %,12.3f ms an operation (%,d results)%n",
+                    name, (System.nanoTime() - begin) / 1e6 / 21, result);
+                return;
+            }
+        }
+        System.out.printf("%-28s %,12.3f ms an operation (%,d results)%n",
+            name, (System.nanoTime() - begin) / 1e6 / OPERATIONS, result);
+    }
+}
@@ -0,0 +1,36 @@
+package bench;
+
+import inventory.service.HeadOfficeManager;
+import inventory.service.InventoryManager;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Eager start-up load of every store's inventory. Rows are products in
+ * total, split over one store per 10k products.
+ *
+ * @author Akhilesh Nevatia
+ */
+class InventoryLoadBenchmark implements Benchmark {
+    private static final int PRODUCTS_PER_STORE = 10_000;
+
+    public String name() {
+        return "inventory-load";
+    }
+
+    public void setUp(int rows) throws IOException {
+        DataGenerator generator = new DataGenerator(new File("."), 1);
+        int stores = Math.max(1, rows / PRODUCTS_PER_STORE);
+        generator.setStores(stores);
+        generator.setSkus(rows);
+        generator.setSkusPerStore(rows / stores);
+        generator.writeStores();
+        for (int store = 0; store < stores; store++) {
+            generator.writeInventory(store);
+        }
+    }
+
+    public void run() {
+        new InventoryManager(new HeadOfficeManager());
+    }
+}
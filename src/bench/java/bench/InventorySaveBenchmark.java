@@ -0,0 +1,41 @@
+package bench;
+
+import inventory.service.HeadOfficeManager;
+import inventory.service.InventoryManager;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Restock of one product followed by a full snapshot of a store holding
+ * rows products, as the inventory menus save after each change.
+ *
+ * @author Akhilesh Nevatia
+ */
+class InventorySaveBenchmark implements Benchmark {
+    private InventoryManager inventoryManager;
+    private Random random;
+    private int products;
+
+    public String name() {
+        return "inventory-save";
+    }
+
+    public void setUp(int rows) throws IOException {
+        DataGenerator generator = new DataGenerator(new File("."), 2);
+        generator.setStores(1);
+        generator.setSkus(rows);
+        generator.setSkusPerStore(rows);
+        generator.writeStores();
+        generator.writeInventory(0);
+        inventoryManager = new InventoryManager(new HeadOfficeManager(), true);
+        inventoryManager.setCurrentStore(DataGenerator.storeId(0));
+        random = new Random(2);
+        products = rows;
+    }
+
+    public void run() {
+        inventoryManager.restockProduct(DataGenerator.productId(random.nextInt(products)), 1);
+        inventoryManager.updateStock();
+    }
+}
@@ -0,0 +1,221 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import loyalty.service.MemberStore;
+import loyalty.service.PointLedger;
+
+/**
+ * Accrue and redeem throughput of the loyalty point ledger with 1, 8 and 32
+ * tills, acknowledging each change once queued and once synced, against
+ * the previous path of reading and rewriting the member under one lock.
+ * Tills pick members at random from a small hot set, so redemptions for
+ * the same member regularly race. After each run the
+ * balances are checked against the points the tills were granted: no
+ * balance may be negative and none may be lost, in memory, in the member
+ * log once reopened, or in the transaction history.
+ *
+ * Run with ./bench.sh bench.LoyaltyLedgerBenchmark [members]
+ *
+ * @author Akhilesh Nevatia
+ */
+public class LoyaltyLedgerBenchmark {
+    private static final int[] THREAD_COUNTS = {1, 8, 32};
+    private static final long WARMUP_MILLIS = 1000;
+    private static final long MEASURE_MILLIS = 3000;
+    private static final int STARTING_POINTS = 100;
+    private static final AtomicInteger RUNS = new AtomicInteger();
+
+    /**
+     * Changes one member's points, returning the points actually moved
+     */
+    interface PointWriter {
+        int accrue(String phone, int points);
+
+        int redeem(String phone, int points);
+    }
+
+    // The previous LoyaltyManager path: read the member and write the new
+    // balance under the store's lock
+    static class LockedWriter implements PointWriter {
+        private final MemberStore members;
+
+        LockedWriter(MemberStore members) {
+            this.members = members;
+        }
+
+        public int accrue(String phone, int points) {
+            synchronized (members) {
+                MemberStore.Member member = members.get(phone);
+                return members.put(phone, member.getName(), member.getPoints() + points) ? points : 0;
+            }
+        }
+
+        public int redeem(String phone, int points) {
+            synchronized (members) {
+                MemberStore.Member member = members.get(phone);
+                if (member.getPoints() < points) {
+                    return 0;
+                }
+                return members.put(phone, member.getName(), member.getPoints() - points) ? -points : 0;
+            }
+        }
+    }
+
+    static class LedgerWriter implements PointWriter {
+        private final PointLedger ledger;
+
+        LedgerWriter(PointLedger ledger) {
+            this.ledger = ledger;
+        }
+
+        public int accrue(String phone, int points) {
+            return ledger.accrue(phone, points) >= 0 ? points : 0;
+        }
+
+        public int redeem(String phone, int points) {
+            return ledger.redeem(phone, points) >= 0 ? -points : 0;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (!BenchGuard.requireScratchDir()) {
+            return;
+        }
+        int members = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        Path dir = new File(DataGenerator.STORE_DATA).toPath();
+        Files.createDirectories(dir);
+
+        System.out.printf("%-10s %8s %14s  %s%n", "Path", "Threads", "Ops/s", "Check");
+        for (int threads : THREAD_COUNTS) {
+            run("locked", threads, members, dir, null);
+            run("queued", threads, members, dir, PointLedger.Durability.QUEUED);
+            run("synced", threads, members, dir, PointLedger.Durability.CHANGE);
+        }
+    }
+
+    // Each run gets fresh files, so it starts from the same balances
+    private static void run(String name, int threads, int members, Path dir,
+                            PointLedger.Durability durability) throws IOException, InterruptedException {
+        boolean useLedger = durability != null;
+        String prefix = "ledger_bench_" + RUNS.incrementAndGet();
+        Path text = dir.resolve(prefix + ".txt");
+        Path log = dir.resolve(prefix + ".log");
+        Path history = dir.resolve(prefix + "_history.txt");
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < members; i++) {
+            lines.append(phone(i)).append(",Member ").append(i).append(',').append(STARTING_POINTS).append('\n');
+        }
+        Files.writeString(text, lines);
+
+        MemberStore store = MemberStore.forFile(log, text, 100_000);
+        PointLedger ledger = useLedger ? PointLedger.forFile(store, history) : null;
+        if (useLedger) {
+            ledger.setDurability(durability);
+        }
+        PointWriter writer = useLedger ? new LedgerWriter(ledger) : new LockedWriter(store);
+        // A hot set small enough that tills often hit the same member
+        int hot = Math.min(members, 1_000);
+
+        AtomicBoolean measuring = new AtomicBoolean(false);
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder operations = new LongAdder();
+        LongAdder changes = new LongAdder();
+        LongAdder netPoints = new LongAdder();
+        CountDownLatch finished = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread till = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                long changed = 0;
+                long net = 0;
+                while (running.get()) {
+                    String phone = phone(random.nextInt(hot));
+                    int moved = random.nextInt(10) < 6
+                        ? writer.accrue(phone, 10)
+                        : writer.redeem(phone, 15);
+                    net += moved;
+                    if (moved != 0) {
+                        changed++;
+                    }
+                    if (measuring.get()) {
+                        count++;
+                    }
+                }
+                operations.add(count);
+                changes.add(changed);
+                netPoints.add(net);
+                finished.countDown();
+            });
+            till.setDaemon(true);
+            till.start();
+        }
+
+        Thread.sleep(WARMUP_MILLIS);
+        measuring.set(true);
+        long start = System.nanoTime();
+        Thread.sleep(MEASURE_MILLIS);
+        measuring.set(false);
+        long elapsed = System.nanoTime() - start;
+        running.set(false);
+        finished.await();
+
+        // Every balance as the tills left it, then as saved to disk
+        long expected = (long) members * STARTING_POINTS + netPoints.sum();
+        String check = check("memory", useLedger ? ledger.getBalances() : balances(store), expected);
+        if (useLedger) {
+            PointLedger.closeAll();
+        }
+        MemberStore.closeAll();
+        store = MemberStore.forFile(log, text, 100_000);
+        check += ", " + check("reopened", balances(store), expected);
+        if (useLedger) {
+            List<String> historyLines = Files.readAllLines(history);
+            check += historyLines.size() == changes.sum()
+                ? ", history ok"
+                : ", history has " + historyLines.size() + " of " + changes.sum() + " changes";
+        }
+        MemberStore.closeAll();
+
+        System.out.printf("%-10s %8d %,14.0f  %s%n", name, threads,
+            operations.sum() * 1_000_000_000.0 / elapsed, check);
+        Files.deleteIfExists(text);
+        Files.deleteIfExists(log);
+        Files.deleteIfExists(history);
+    }
+
+    private static Map<String, Integer> balances(MemberStore store) {
+        Map<String, Integer> balances = new HashMap<>();
+        store.forEach((phone, member) -> balances.put(phone, member.getPoints()));
+        return balances;
+    }
+
+    private static String check(String label, Map<String, Integer> balances, long expected) {
+        long total = 0;
+        int negative = 0;
+        for (int points : balances.values()) {
+            total += points;
+            if (points < 0) {
+                negative++;
+            }
+        }
+        if (negative > 0) {
+            return label + " has " + negative + " negative balances";
+        }
+        return total == expected ? label + " ok" : label + " off by " + (total - expected) + " points";
+    }
+
+    private static String phone(int member) {
+        return String.valueOf(2_000_000_000L + member);
+    }
+}
@@ -0,0 +1,41 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import loyalty.service.LoyaltyManager;
+import loyalty.service.MemberStore;
+import loyalty.service.PointLedger;
+
+/**
+ * One hundred till point accruals against rows loyalty members.
+ *
+ * @author Akhilesh Nevatia
+ */
+class LoyaltyPointsBenchmark implements Benchmark {
+    private static final int UPDATES = 100;
+    private final Random random = new Random(6);
+    private LoyaltyManager loyaltyManager;
+    private int members;
+
+    public String name() {
+        return "loyalty-points";
+    }
+
+    public void setUp(int rows) throws IOException {
+        DataGenerator generator = new DataGenerator(new File("."), 6);
+        generator.setLoyaltyMembers(rows);
+        generator.writeLoyaltyMembers();
+        // The ledger and member log outlive the previous dataset, so reopen them
+        PointLedger.closeAll();
+        MemberStore.closeAll();
+        loyaltyManager = new LoyaltyManager();
+        members = rows;
+    }
+
+    public void run() {
+        for (int i = 0; i < UPDATES; i++) {
+            loyaltyManager.addPoints(String.valueOf(2_000_000_000L + random.nextInt(members)), 10);
+        }
+    }
+}
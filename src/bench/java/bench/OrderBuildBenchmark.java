@@ -0,0 +1,39 @@
+package bench;
+
+import inventory.model.Product;
+import order.model.Order;
+
+/**
+ * Building one order of rows distinct lines, then adding a second unit to
+ * every tenth line so merging by product id is exercised as well.
+ *
+ * @author Akhilesh Nevatia
+ */
+class OrderBuildBenchmark implements Benchmark {
+    private Product[] products;
+
+    public String name() {
+        return "order-build";
+    }
+
+    public void setUp(int rows) {
+        products = new Product[rows];
+        for (int i = 0; i < rows; i++) {
+            products[i] = new Product(DataGenerator.productId(i), DataGenerator.productName(i),
+                0.99 + i % 50, 1000, "SUP001", null);
+        }
+    }
+
+    public void run() {
+        Order order = new Order("BENCH", DataGenerator.storeId(0));
+        for (Product product : products) {
+            order.addItem(product, 1);
+        }
+        for (int i = 0; i < products.length; i += 10) {
+            order.addItem(products[i], 1);
+        }
+        if (order.getLineCount() != products.length) {
+            throw new IllegalStateException("Lines not merged by product");
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package bench;
+
+import employee.service.PayrollBatch;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Company payroll over many stores (2,000 by default, 20 employees each
+ * with four weeks of shifts). The first run imports every store's text
+ * time records; the runs after it time the batch with one thread, the
+ * processor count and twice that, and check each gives the same company
+ * total.
+ *
+ * Run with ./bench.sh bench.PayrollBatchBenchmark [stores] [employees] [days]
+ *
+ * @author Akhilesh Nevatia
+ */
+public class PayrollBatchBenchmark {
+    public static void main(String[] args) throws IOException {
+        if (!BenchGuard.requireScratchDir()) {
+            return;
+        }
+        int stores = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int employees = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int days = args.length > 2 ? Integer.parseInt(args[2]) : 28;
+
+        long start = System.nanoTime();
+        DataGenerator generator = new DataGenerator(new File("."), 6);
+        generator.setStores(stores);
+        generator.setEmployeesPerStore(employees);
+        generator.setDays(days);
+        generator.writeStores();
+        for (int store = 0; store < stores; store++) {
+            generator.writeEmployees(store);
+            generator.writeTimeRecords(store);
+        }
+        System.out.printf("%,d stores of %d employees over %d days generated in %,.0f ms%n",
+            stores, employees, days, (System.nanoTime() - start) / 1e6);
+
+        // DataGenerator's default start date
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = from.plusDays(days - 1);
+        int processors = Runtime.getRuntime().availableProcessors();
+        Set<Integer> threadCounts = new LinkedHashSet<>();
+        threadCounts.add(1);
+        threadCounts.add(processors);
+        threadCounts.add(processors * 2);
+
+        System.out.printf("%-22s %8s %10s %14s %18s%n", "Run", "Threads", "Elapsed", "Slowest store", "Total");
+        long expected = run("first (imports text)", processors, from, to);
+        for (int threads : threadCounts) {
+            long total = run("warm", threads, from, to);
+            if (total != expected) {
+                System.out.printf("  total differs from first run by %,d cents%n", total - expected);
+            }
+        }
+    }
+
+    private static long run(String name, int threads, LocalDate from, LocalDate to) {
+        PayrollBatch.Result result = new PayrollBatch(threads).run(from, to, null);
+        long slowest = 0;
+        for (PayrollBatch.StoreResult store : result.getStores()) {
+            slowest = Math.max(slowest, store.getLoadMillis() + store.getReportMillis());
+        }
+        System.out.printf("%-22s %8d %,8d ms %,11d ms %,18d%s%n", name, threads, result.getElapsedMillis(),
+            slowest, result.getTotalCents(),
+            (result.getFailedStores() > 0 ? "  " + result.getFailedStores() + " stores failed" : "")
+            + (result.getSkippedStores() > 0 ? "  " + result.getSkippedStores() + " stores skipped" : ""));
+        return result.getTotalCents();
+    }
+}
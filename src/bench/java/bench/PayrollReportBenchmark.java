@@ -0,0 +1,55 @@
+package bench;
+
+import employee.model.Employee;
+import employee.model.TimeRecord;
+import employee.service.PayrollManager;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * One-month payroll report over rows time records, one shift per record,
+ * spread over a year and one employee per 250 records.
+ *
+ * @author Akhilesh Nevatia
+ */
+class PayrollReportBenchmark implements Benchmark {
+    private static final int RECORDS_PER_EMPLOYEE = 250;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+    private PayrollManager payrollManager;
+
+    public String name() {
+        return "payroll-report";
+    }
+
+    public void setUp(int rows) throws IOException {
+        DataGenerator generator = new DataGenerator(new File("."), 4);
+        int employees = Math.max(1, rows / RECORDS_PER_EMPLOYEE);
+        generator.setEmployeesPerStore(employees);
+        generator.writeEmployees(0);
+        payrollManager = new PayrollManager(DataGenerator.storeId(0));
+
+        // Built in memory rather than loaded from the time-record file, so
+        // only the report is measured
+        Random random = new Random(4);
+        for (int i = 0; i < rows; i++) {
+            Employee employee = payrollManager.getEmployee(DataGenerator.employeeId(i % employees));
+            LocalDateTime start = FIRST_DAY.plusDays(random.nextInt(365))
+                .atTime(6 + random.nextInt(6), 0);
+            TimeRecord record = new TimeRecord(start);
+            record.setEndTime(start.plusMinutes(240 + random.nextInt(360)));
+            record.setBreakDuration(30);
+            if (record.getHoursWorked() > 8) {
+                record.setOvertime(true);
+                record.setApproved(random.nextBoolean());
+            }
+            employee.addTimeRecord(record);
+        }
+    }
+
+    public void run() {
+        payrollManager.generatePayrollReport(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31));
+    }
+}
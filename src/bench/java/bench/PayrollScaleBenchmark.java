@@ -0,0 +1,77 @@
+package bench;
+
+import employee.model.Employee;
+import employee.model.TimeRecord;
+import employee.service.PayrollManager;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * Payroll at company scale: a store of employees (50,000 by default) with
+ * a weekday shift each over two years, about 26M time records. Times one
+ * report over the whole history and one over a single month. Needs a heap
+ * of about 3 GB (JAVA_OPTS=-Xmx3g).
+ *
+ * Run with ./bench.sh bench.PayrollScaleBenchmark [employees] [years]
+ *
+ * @author Akhilesh Nevatia
+ */
+public class PayrollScaleBenchmark {
+    private static final LocalDate FIRST_DAY = LocalDate.of(2023, 1, 2);
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws IOException {
+        if (!BenchGuard.requireScratchDir()) {
+            return;
+        }
+        int employees = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int years = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+
+        DataGenerator generator = new DataGenerator(new File("."), 5);
+        generator.setEmployeesPerStore(employees);
+        generator.writeEmployees(0);
+        PayrollManager payrollManager = new PayrollManager(DataGenerator.storeId(0));
+
+        long start = System.nanoTime();
+        Random random = new Random(5);
+        LocalDate lastDay = FIRST_DAY.plusYears(years).minusDays(1);
+        long records = 0;
+        for (int e = 0; e < employees; e++) {
+            Employee employee = payrollManager.getEmployee(DataGenerator.employeeId(e));
+            for (LocalDate day = FIRST_DAY; !day.isAfter(lastDay); day = day.plusDays(1)) {
+                if (day.getDayOfWeek().getValue() > 5) {
+                    continue;
+                }
+                LocalDateTime shiftStart = day.atTime(6 + random.nextInt(6), 0);
+                TimeRecord record = new TimeRecord(shiftStart);
+                record.setEndTime(shiftStart.plusMinutes(240 + random.nextInt(360)));
+                record.setBreakDuration(30);
+                if (record.getHoursWorked() > 8) {
+                    record.setOvertime(true);
+                    record.setApproved(random.nextBoolean());
+                }
+                employee.addTimeRecord(record);
+                records++;
+            }
+        }
+        System.out.printf("%,d employees, %,d time records built in %,.0f ms%n",
+            employees, records, (System.nanoTime() - start) / 1e6);
+
+        time("full history", payrollManager, FIRST_DAY, lastDay);
+        time("one month", payrollManager, lastDay.withDayOfMonth(1), lastDay);
+    }
+
+    private static void time(String name, PayrollManager payrollManager, LocalDate from, LocalDate to) {
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            total = payrollManager.generatePayrollReport(from, to);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-13s %,10.1f ms best of %d, total payroll %,d cents%n", name, best / 1e6, RUNS, total);
+    }
+}
@@ -0,0 +1,98 @@
+package bench;
+
+import marketing.service.PromotionIndex;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures order-line pricing against a generated promotions file, and the
+ * cost of picking up an appended and an edited promotion.
+ *
+ * Run with ./bench.sh bench.PromotionIndexBenchmark [promotions]
+ * Promotions default to 100k over 20k products.
+ *
+ * @author Akhilesh Nevatia
+ */
+public class PromotionIndexBenchmark {
+    private static final String PROMOTIONS_FILE = DataGenerator.MARKETING_DATA + "promotions.txt";
+    private static final int SKUS = 20_000;
+    private static final int LOOKUPS = 1 << 16;
+    private static final long MEASURE_MILLIS = 3000;
+
+    public static void main(String[] args) throws IOException {
+        if (!BenchGuard.requireScratchDir()) {
+            return;
+        }
+        int promotions = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        // Promotion windows run over the coming year, so none have ended
+        LocalDate start = LocalDate.now();
+        DataGenerator generator = new DataGenerator(new File("."), 42);
+        generator.setSkus(SKUS);
+        generator.setStartDate(start);
+        generator.setPromotions(promotions);
+        generator.writePromotions();
+
+        long loadStart = System.nanoTime();
+        PromotionIndex index = new PromotionIndex(PROMOTIONS_FILE);
+        System.out.printf("Loaded %,d promotions in %.1f ms%n", index.size(), (System.nanoTime() - loadStart) / 1e6);
+
+        // Random products, prices and times within the generated year
+        Random random = new Random(7);
+        String[] productIds = new String[LOOKUPS];
+        LocalDateTime[] times = new LocalDateTime[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            productIds[i] = DataGenerator.productId(random.nextInt(SKUS));
+            times[i] = start.plusDays(random.nextInt(365)).atTime(random.nextInt(24), random.nextInt(60));
+        }
+
+        long sink = 0;
+        long lookups = 0;
+        long deadline = System.nanoTime() + MEASURE_MILLIS * 1_000_000;
+        // First pass warms up
+        for (int pass = 0; pass < 2; pass++) {
+            lookups = 0;
+            long begin = System.nanoTime();
+            do {
+                for (int i = 0; i < LOOKUPS; i++) {
+                    sink += index.priceLine(productIds[i], 249, 1 + (i & 3), times[i]);
+                }
+                lookups += LOOKUPS;
+            } while (System.nanoTime() < deadline);
+            if (pass == 1) {
+                System.out.printf("priceLine: %.0f ns/line over %,d lines (checksum %d)%n",
+                    (double) (System.nanoTime() - begin) / lookups, lookups, sink);
+            }
+            deadline = System.nanoTime() + MEASURE_MILLIS * 1_000_000;
+        }
+
+        // A promotion appended, as MarketingManager does when one is created
+        try (FileWriter writer = new FileWriter(PROMOTIONS_FILE, true)) {
+            writer.write(String.format("PROMO_NEW,Flash Sale,PERCENTAGE_OFF,15.00,%s 00:00,%s 23:59,%s|%s%n",
+                start, start.plusDays(7), DataGenerator.productId(1), DataGenerator.productId(2)));
+        }
+        timeRefresh(index, "append one");
+
+        // A promotion's discount edited in place
+        List<String> lines = Files.readAllLines(Paths.get(PROMOTIONS_FILE));
+        String[] parts = lines.get(lines.size() / 2).split(",");
+        parts[3] = "99.00";
+        lines.set(lines.size() / 2, String.join(",", parts));
+        Files.write(Paths.get(PROMOTIONS_FILE), lines);
+        timeRefresh(index, "edit one");
+    }
+
+    private static void timeRefresh(PromotionIndex index, String change) {
+        long begin = System.nanoTime();
+        int products = index.refresh();
+        System.out.printf("refresh (%s): %.1f ms, %d products rebuilt%n", change,
+            (System.nanoTime() - begin) / 1e6, products);
+    }
+}
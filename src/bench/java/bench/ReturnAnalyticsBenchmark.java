@@ -0,0 +1,49 @@
+package bench;
+
+import inventory.model.Product;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Random;
+import returns.model.Return;
+import returns.service.ReturnAnalyticsService;
+import returns.service.ReturnManager;
+
+/**
+ * Return analytics report over rows returned items, three per return,
+ * drawn from 1,000 products.
+ *
+ * @author Akhilesh Nevatia
+ */
+class ReturnAnalyticsBenchmark implements Benchmark {
+    private static final int PRODUCTS = 1_000;
+    private static final int ITEMS_PER_RETURN = 3;
+    private ReturnAnalyticsService analyticsService;
+
+    public String name() {
+        return "return-analytics";
+    }
+
+    public void setUp(int rows) throws IOException {
+        Random random = new Random(5);
+        String storeId = DataGenerator.storeId(0);
+        Product[] products = new Product[PRODUCTS];
+        for (int i = 0; i < PRODUCTS; i++) {
+            products[i] = new Product(DataGenerator.productId(i), DataGenerator.productName(i),
+                0.49 + random.nextInt(2000) / 100.0, 100, "Supplier", LocalDate.of(2024, 12, 31));
+        }
+
+        ReturnManager returnManager = new ReturnManager(storeId, null);
+        for (int i = 0; i < Math.max(1, rows / ITEMS_PER_RETURN); i++) {
+            Return ret = new Return("R" + i, "ORD" + i, storeId);
+            for (int j = 0; j < ITEMS_PER_RETURN; j++) {
+                ret.addItem(products[random.nextInt(PRODUCTS)], 1 + random.nextInt(3), random.nextInt(10) == 0);
+            }
+            returnManager.processReturn(ret);
+        }
+        analyticsService = new ReturnAnalyticsService(returnManager, storeId);
+    }
+
+    public void run() {
+        analyticsService.generateAnalyticsReport();
+    }
+}
@@ -0,0 +1,45 @@
+package bench;
+
+import inventory.service.HeadOfficeManager;
+import inventory.service.InventoryManager;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import report.service.ReportManager;
+
+/**
+ * One-month sales report over a year of rows sales lines for a store
+ * carrying 1,000 products.
+ *
+ * @author Akhilesh Nevatia
+ */
+class SalesReportBenchmark implements Benchmark {
+    private static final int PRODUCTS = 1_000;
+    private ReportManager reportManager;
+
+    public String name() {
+        return "sales-report";
+    }
+
+    public void setUp(int rows) throws IOException {
+        DataGenerator generator = new DataGenerator(new File("."), 3);
+        generator.setStores(1);
+        generator.setSkus(PRODUCTS);
+        generator.setSkusPerStore(PRODUCTS);
+        generator.setSalesLines(rows);
+        generator.writeStores();
+        generator.writeInventory(0);
+        generator.writeSalesAndOrders(0);
+
+        String storeId = DataGenerator.storeId(0);
+        InventoryManager inventoryManager = new InventoryManager(new HeadOfficeManager(), true);
+        inventoryManager.setCurrentStore(storeId);
+        reportManager = new ReportManager(storeId, inventoryManager);
+        // The store's rollup outlives the previous dataset, so start afresh
+        reportManager.rebuildLedger();
+    }
+
+    public void run() {
+        reportManager.generateReport(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31));
+    }
+}
@@ -0,0 +1,123 @@
+package bench;
+
+import inventory.model.StockCounter;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures reservation throughput on a single hot product at 1, 8 and 32
+ * selling threads, comparing the striped StockCounter with the previous
+ * synchronized check-and-reserve.
+ *
+ * Run with ./bench.sh bench.StockCounterBenchmark
+ *
+ * @author Akhilesh Nevatia
+ */
+public class StockCounterBenchmark {
+    private static final int[] THREAD_COUNTS = {1, 8, 32};
+    private static final long WARMUP_MILLIS = 1000;
+    private static final long MEASURE_MILLIS = 2000;
+    private static final long INITIAL_UNITS = Long.MAX_VALUE / 4;
+
+    /**
+     * Stock operations under test
+     */
+    interface Stock {
+        boolean reserve(long units);
+        void release(long units);
+        long available();
+    }
+
+    // The previous Product implementation: one monitor per product
+    static class SynchronizedStock implements Stock {
+        private long stockLevel = INITIAL_UNITS;
+        private long reservedQuantity;
+
+        public synchronized boolean reserve(long units) {
+            if (stockLevel - reservedQuantity < units) {
+                return false;
+            }
+            reservedQuantity += units;
+            return true;
+        }
+
+        public synchronized void release(long units) {
+            reservedQuantity -= units;
+        }
+
+        public synchronized long available() {
+            return stockLevel - reservedQuantity;
+        }
+    }
+
+    static class StripedStock implements Stock {
+        private final StockCounter counter = new StockCounter(INITIAL_UNITS);
+
+        public boolean reserve(long units) { return counter.tryTake(units); }
+        public void release(long units) { counter.add(units); }
+        public long available() { return counter.sum(); }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.printf("%-14s %8s %18s%n", "Implementation", "Threads", "Reservations/s");
+        for (int threads : THREAD_COUNTS) {
+            report("synchronized", threads, run(new SynchronizedStock(), threads));
+            report("striped", threads, run(new StripedStock(), threads));
+        }
+    }
+
+    private static void report(String name, int threads, double opsPerSecond) {
+        System.out.printf("%-14s %8d %,18.0f%n", name, threads, opsPerSecond);
+    }
+
+    // Each thread reserves one unit and hands back one unit in four, as a
+    // till does when an item is scanned and occasionally voided
+    private static double run(Stock stock, int threads) throws InterruptedException {
+        AtomicBoolean measuring = new AtomicBoolean(false);
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder operations = new LongAdder();
+        LongAdder reservedUnits = new LongAdder();
+        CountDownLatch finished = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                long count = 0;
+                long iteration = 0;
+                long held = 0;
+                while (running.get()) {
+                    if (stock.reserve(1)) {
+                        held++;
+                        if ((iteration++ & 3) == 0) {
+                            stock.release(1);
+                            held--;
+                        }
+                    }
+                    if (measuring.get()) {
+                        count++;
+                    }
+                }
+                operations.add(count);
+                reservedUnits.add(held);
+                finished.countDown();
+            });
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        Thread.sleep(WARMUP_MILLIS);
+        measuring.set(true);
+        long start = System.nanoTime();
+        Thread.sleep(MEASURE_MILLIS);
+        measuring.set(false);
+        long elapsed = System.nanoTime() - start;
+        running.set(false);
+        finished.await();
+
+        // Every unit must be either still available or held by a seller
+        if (stock.available() + reservedUnits.sum() != INITIAL_UNITS) {
+            throw new IllegalStateException("Units lost or oversold");
+        }
+        return operations.sum() * 1_000_000_000.0 / elapsed;
+    }
+}
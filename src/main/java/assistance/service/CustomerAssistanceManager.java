@@ -7,13 +7,15 @@ import java.time.format.DateTimeFormatter;
 import assistance.model.AssistanceRequest;
 import security.service.SecurityManager;
 import inventory.service.InventoryManager;
-import inventory.service.HeadOfficeManager;
+import inventory.service.InventoryRegistry;
+import store.service.StoreDataRepository;
 
 public class CustomerAssistanceManager {
     private static final String ASSISTANCE_LOGS = "src/main/java/assistance/data/assistance_logs.txt";
     private static final String RESTRICTED_PRODUCTS = "src/main/java/assistance/data/restricted_products.txt";
     private static final String AUTHORIZED_ASSOCIATES = "src/main/java/assistance/data/authorized_associates.txt";
-    private static final String STORES_FILE = "src/main/java/store/data/stores.txt";
+    private static final String STORES_FILE =
+        StoreDataRepository.getInstance().sharedFile("stores.txt").toString();
     
     private List<AssistanceRequest> activeRequests;
     private Map<String, String> restrictedProducts;
@@ -32,7 +34,7 @@ public class CustomerAssistanceManager {
         this.associateAuthorizations = new HashMap<>();
         this.scanner = new Scanner(System.in);
         this.formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-        this.inventoryManager = new InventoryManager(new HeadOfficeManager());
+        this.inventoryManager = InventoryRegistry.getInstance().acquire(storeId);
         loadData();
         System.out.println("Initialization complete. Authorized associates: " + associateAuthorizations.keySet());
     }
@@ -69,6 +71,7 @@ public class CustomerAssistanceManager {
         
         if (!associateAuthorizations.containsKey(currentAssociateId)) {
             System.out.println("Unauthorized associate. Access denied.");
+            InventoryRegistry.getInstance().release(inventoryManager);
             return;
         }
 
@@ -95,7 +98,9 @@ public class CustomerAssistanceManager {
                     case 3: handleRestrictedAccess(); break;
                     case 4: completeRequest(); break;
                     case 5: viewRequestHistory(); break;
-                    case 6: return;
+                    case 6:
+                        InventoryRegistry.getInstance().release(inventoryManager);
+                        return;
                     default: System.out.println("Invalid option");
                 }
             } catch (InputMismatchException e) {
@@ -9,6 +9,7 @@ package employee;
 import employee.model.Employee;
 import employee.service.PayrollManager;
 import employee.service.LeaveManager;
+import store.model.Money;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.Scanner;
@@ -281,8 +282,10 @@ public class PayrollSystem {
             return;
         }
 
-        double totalPayout = payrollManager.generatePayrollReport(startDate, endDate);
-        System.out.printf("Payroll report generated. Total payout: $%.2f%n", totalPayout);
+        long totalPayout = payrollManager.generatePayrollReport(startDate, endDate);
+        if (totalPayout >= 0) {
+            System.out.println("Payroll report generated. Total payout: $" + Money.format(totalPayout));
+        }
     }
 
     private void approveLeaveRequests() {
@@ -1,59 +1,285 @@
 package employee.model;
 
+import store.model.Money;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.time.LocalDateTime;
 
 /**
  * Model class representing an employee with their basic information
  * and time tracking functionality.
+ *
+ * Time records are held in parallel arrays sorted by start time: start
+ * and end as epoch seconds and nanos, break minutes, minutes worked,
+ * flags and the record's slot in the store's time-record file. A date
+ * range is found by binary search on the start column, so payroll reads
+ * only the records in its range and never builds a TimeRecord.
+ *
  * @author Akhilesh Nevatia
  */
 public class Employee {
+    private static final int INITIAL_RECORDS = 8;
+    private static final byte BREAK = 1;
+    private static final byte OVERTIME = 2;
+    private static final byte APPROVED = 4;
+    // End second of a record that is still open
+    public static final long NO_END = Long.MIN_VALUE;
+
     // Employee's unique identifier
     private String employeeId;
     // Employee's full name
     private String name;
-    // Employee's hourly pay rate
-    private double hourlyRate;
-    // List of time records for the employee
-    private List<TimeRecord> timeRecords;
+    // Employee's hourly pay rate in cents
+    private long hourlyRateCents;
+    // Record i, in start order: starts at startSeconds[i] + startNanos[i]
+    // (UTC epoch), ends likewise or NO_END, and has worked minutesWorked[i]
+    private long[] startSeconds;
+    private int[] startNanos;
+    private long[] endSeconds;
+    private int[] endNanos;
+    private int[] breakMinutes;
+    private int[] minutesWorked;
+    private byte[] flags;
+    // Record's slot in the time-record file, or -1 if it has not been saved
+    private int[] slots;
+    private int recordCount;
+    // Index of the record opened by clockIn, or -1
+    private int currentRecord;
     // Current clock-in status
     private boolean clockedIn;
 
     public Employee(String employeeId, String name, double hourlyRate) {
         this.employeeId = employeeId;
         this.name = name;
-        this.hourlyRate = hourlyRate;
-        this.timeRecords = new ArrayList<>();
+        this.hourlyRateCents = Money.of(hourlyRate);
+        this.startSeconds = new long[INITIAL_RECORDS];
+        this.startNanos = new int[INITIAL_RECORDS];
+        this.endSeconds = new long[INITIAL_RECORDS];
+        this.endNanos = new int[INITIAL_RECORDS];
+        this.breakMinutes = new int[INITIAL_RECORDS];
+        this.minutesWorked = new int[INITIAL_RECORDS];
+        this.flags = new byte[INITIAL_RECORDS];
+        this.slots = new int[INITIAL_RECORDS];
+        this.currentRecord = -1;
         this.clockedIn = false;
     }
 
     public String getEmployeeId() { return employeeId; }
     public String getName() { return name; }
-    public double getHourlyRate() { return hourlyRate; }
-    public List<TimeRecord> getTimeRecords() { return timeRecords; }
+    public double getHourlyRate() { return Money.toDouble(hourlyRateCents); }
+    public long getHourlyRateCents() { return hourlyRateCents; }
     public boolean isClockIn() { return clockedIn; }
-    
+
     public void setClockIn(boolean clockedIn) { this.clockedIn = clockedIn; }
-    
-    public void addTimeRecord(TimeRecord record) {
-        timeRecords.add(record);
+    public void setHourlyRateCents(long hourlyRateCents) { this.hourlyRateCents = hourlyRateCents; }
+
+    public int getTimeRecordCount() { return recordCount; }
+    public int getCurrentRecord() { return currentRecord; }
+    public long getMinutesWorked(int record) { return minutesWorked[record]; }
+    public long getStartSecond(int record) { return startSeconds[record]; }
+    public long getEndSecond(int record) { return endSeconds[record]; }
+    public int getBreakMinutes(int record) { return breakMinutes[record]; }
+    public int getSlot(int record) { return slots[record]; }
+    public boolean isBreak(int record) { return (flags[record] & BREAK) != 0; }
+    public boolean isOvertime(int record) { return (flags[record] & OVERTIME) != 0; }
+    public boolean isApproved(int record) { return (flags[record] & APPROVED) != 0; }
+
+    public void setBreak(int record, boolean isBreak) { setFlag(record, BREAK, isBreak); }
+    public void setOvertime(int record, boolean isOvertime) { setFlag(record, OVERTIME, isOvertime); }
+    public void setApproved(int record, boolean isApproved) { setFlag(record, APPROVED, isApproved); }
+    public void setSlot(int record, int slot) { slots[record] = slot; }
+
+    public LocalDateTime getStartTime(int record) {
+        return LocalDateTime.ofEpochSecond(startSeconds[record], startNanos[record], ZoneOffset.UTC);
+    }
+
+    public LocalDateTime getEndTime(int record) {
+        return endSeconds[record] == NO_END ? null
+            : LocalDateTime.ofEpochSecond(endSeconds[record], endNanos[record], ZoneOffset.UTC);
+    }
+
+    /**
+     * Returns a copy of one time record
+     * @param record Index of the record in start order
+     */
+    public TimeRecord getTimeRecord(int record) {
+        TimeRecord copy = new TimeRecord(getStartTime(record));
+        copy.setEndTime(getEndTime(record));
+        copy.setBreakDuration(breakMinutes[record]);
+        copy.setBreak(isBreak(record));
+        copy.setOvertime(isOvertime(record));
+        copy.setApproved(isApproved(record));
+        return copy;
+    }
+
+    /**
+     * Returns copies of the employee's time records in start order
+     */
+    public List<TimeRecord> getTimeRecords() {
+        List<TimeRecord> records = new ArrayList<>(recordCount);
+        for (int i = 0; i < recordCount; i++) {
+            records.add(getTimeRecord(i));
+        }
+        return records;
+    }
+
+    /**
+     * Returns the index of the first record starting on or after a date, so
+     * records starting from date a through date b are [indexOf(a), indexOf(b + 1))
+     * @param date Day to search from
+     * @return Index of the first such record, or the record count if there is none
+     */
+    public int indexOf(LocalDate date) {
+        long key = date.toEpochDay() * 86_400;
+        int low = 0;
+        int high = recordCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (startSeconds[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Adds a copy of a time record in start order
+     * @param record Record to add
+     * @return Index of the added record
+     */
+    public int addTimeRecord(TimeRecord record) {
+        LocalDateTime start = record.getStartTime();
+        int index = insert(start.toEpochSecond(ZoneOffset.UTC), start.getNano());
+        breakMinutes[index] = record.getBreakDuration();
+        byte recordFlags = 0;
+        if (record.isBreak()) recordFlags |= BREAK;
+        if (record.isOvertime()) recordFlags |= OVERTIME;
+        if (record.isApproved()) recordFlags |= APPROVED;
+        flags[index] = recordFlags;
+        setEnd(index, record.getEndTime());
+        return index;
     }
 
+    /**
+     * Adds a record read back from the time-record file, to the second. An
+     * open record becomes the current one, so the employee can clock out.
+     * @param startSecond Start as UTC epoch seconds
+     * @param endSecond End as UTC epoch seconds, or NO_END if still open
+     * @param breakMinutes Break taken, in minutes
+     * @param slot Record's slot in the file
+     * @return Index of the added record
+     */
+    public int addTimeRecord(long startSecond, long endSecond, int breakMinutes,
+                             boolean isBreak, boolean isOvertime, boolean isApproved, int slot) {
+        int index = insert(startSecond, 0);
+        this.breakMinutes[index] = breakMinutes;
+        flags[index] = (byte) ((isBreak ? BREAK : 0) | (isOvertime ? OVERTIME : 0) | (isApproved ? APPROVED : 0));
+        endSeconds[index] = endSecond;
+        endNanos[index] = 0;
+        // Duration.toMinutes of a whole number of seconds
+        minutesWorked[index] = endSecond == NO_END ? 0 : (int) ((endSecond - startSecond) / 60 - breakMinutes);
+        slots[index] = slot;
+        if (endSecond == NO_END) {
+            // Still clocked in when the record was saved
+            currentRecord = index;
+            clockedIn = true;
+        }
+        return index;
+    }
+
+    // Clock times are kept to the second, as the time-record file holds them
     public void clockIn() {
         if (!clockedIn) {
-            TimeRecord record = new TimeRecord(LocalDateTime.now());
-            timeRecords.add(record);
+            currentRecord = addTimeRecord(new TimeRecord(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS)));
             clockedIn = true;
         }
     }
 
     public void clockOut() {
-        if (clockedIn && !timeRecords.isEmpty()) {
-            TimeRecord currentRecord = timeRecords.get(timeRecords.size() - 1);
-            currentRecord.setEndTime(LocalDateTime.now());
+        if (clockedIn && currentRecord >= 0) {
+            setEnd(currentRecord, LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS));
             clockedIn = false;
         }
     }
-}
\ No newline at end of file
+
+    private void setEnd(int record, LocalDateTime end) {
+        if (end == null) {
+            endSeconds[record] = NO_END;
+            endNanos[record] = 0;
+            minutesWorked[record] = 0;
+        } else {
+            endSeconds[record] = end.toEpochSecond(ZoneOffset.UTC);
+            endNanos[record] = end.getNano();
+            minutesWorked[record] = (int) (Duration.between(getStartTime(record), end).toMinutes()
+                - breakMinutes[record]);
+        }
+    }
+
+    private void setFlag(int record, byte flag, boolean set) {
+        flags[record] = (byte) (set ? flags[record] | flag : flags[record] & ~flag);
+    }
+
+    // Opens a slot after every record starting no later, so records arriving in order append
+    private int insert(long second, int nano) {
+        int last = recordCount - 1;
+        int index = last < 0 || startSeconds[last] < second
+            || startSeconds[last] == second && startNanos[last] <= nano
+            ? recordCount : upperBound(second, nano);
+        insertAt(index);
+        startSeconds[index] = second;
+        startNanos[index] = nano;
+        slots[index] = -1;
+        return index;
+    }
+
+    private int upperBound(long second, int nano) {
+        int low = 0;
+        int high = recordCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (startSeconds[mid] < second || startSeconds[mid] == second && startNanos[mid] <= nano) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Opens a slot at index, shifting later records and the current record up
+    private void insertAt(int index) {
+        if (recordCount == startSeconds.length) {
+            int capacity = recordCount * 2;
+            startSeconds = Arrays.copyOf(startSeconds, capacity);
+            startNanos = Arrays.copyOf(startNanos, capacity);
+            endSeconds = Arrays.copyOf(endSeconds, capacity);
+            endNanos = Arrays.copyOf(endNanos, capacity);
+            breakMinutes = Arrays.copyOf(breakMinutes, capacity);
+            minutesWorked = Arrays.copyOf(minutesWorked, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            slots = Arrays.copyOf(slots, capacity);
+        }
+        int moved = recordCount - index;
+        if (moved > 0) {
+            System.arraycopy(startSeconds, index, startSeconds, index + 1, moved);
+            System.arraycopy(startNanos, index, startNanos, index + 1, moved);
+            System.arraycopy(endSeconds, index, endSeconds, index + 1, moved);
+            System.arraycopy(endNanos, index, endNanos, index + 1, moved);
+            System.arraycopy(breakMinutes, index, breakMinutes, index + 1, moved);
+            System.arraycopy(minutesWorked, index, minutesWorked, index + 1, moved);
+            System.arraycopy(flags, index, flags, index + 1, moved);
+            System.arraycopy(slots, index, slots, index + 1, moved);
+            if (currentRecord >= index) {
+                currentRecord++;
+            }
+        }
+        recordCount++;
+    }
+}
@@ -39,8 +39,11 @@ public class TimeRecord {
     public void setBreakDuration(int breakDuration) { this.breakDuration = breakDuration; }
 
     public double getHoursWorked() {
+        return getMinutesWorked() / 60.0;
+    }
+
+    public long getMinutesWorked() {
         if (endTime == null) return 0;
-        long minutes = java.time.Duration.between(startTime, endTime).toMinutes() - breakDuration;
-        return minutes / 60.0;
+        return java.time.Duration.between(startTime, endTime).toMinutes() - breakDuration;
     }
 }
\ No newline at end of file
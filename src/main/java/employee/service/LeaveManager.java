@@ -1,6 +1,7 @@
 package employee.service;
 
 import employee.model.*;
+import store.service.StoreDataRepository;
 import java.time.*;
 import java.util.*;
 import java.io.*;
@@ -11,6 +12,7 @@ public class LeaveManager {
     private String storeId;
     private static final int ANNUAL_LEAVE_DAYS = 20;
     private static final int SICK_LEAVE_DAYS = 10;
+    private static final String LEAVES = "leaves";
 
     public LeaveManager(String storeId) {
         this.storeId = storeId;
@@ -19,10 +21,8 @@ public class LeaveManager {
     }
 
     private void loadLeaveRecords() {
-        String fileName = "./src/main/java/store/data/" + storeId + "_leaves.txt";
-        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
+        try {
+            for (String line : StoreDataRepository.store(storeId).records().readAll(LEAVES)) {
                 String[] parts = line.split(",");
                 String employeeId = parts[0];
                 LocalDate startDate = LocalDate.parse(parts[1]);
@@ -46,18 +46,19 @@ public class LeaveManager {
             allLeaves.addAll(leaves);
         }
         
-        String fileName = "./src/main/java/store/data/" + storeId + "_leaves.txt";
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
-            for (Leave l : allLeaves) {
-                writer.write(String.format("%s,%s,%s,%s,%s,%s,%s\n",
-                    l.getEmployeeId(),
-                    l.getStartDate(),
-                    l.getEndDate(),
-                    l.getType(),
-                    l.getStatus(),
-                    l.getReason(),
-                    LocalDateTime.now()));
-            }
+        List<String> records = new ArrayList<>();
+        for (Leave l : allLeaves) {
+            records.add(String.format("%s,%s,%s,%s,%s,%s,%s",
+                l.getEmployeeId(),
+                l.getStartDate(),
+                l.getEndDate(),
+                l.getType(),
+                l.getStatus(),
+                l.getReason(),
+                LocalDateTime.now()));
+        }
+        try {
+            StoreDataRepository.store(storeId).records().writeAll(LEAVES, records);
         } catch (IOException e) {
             System.err.println("Error updating leave record: " + e.getMessage());
         }
@@ -0,0 +1,257 @@
+package employee.service;
+
+import store.model.Money;
+import store.service.CsvReader;
+import store.service.StoreDataRepository;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Runs payroll for every store in stores.txt on a fixed number of threads
+ * (-Dpayroll.batch.threads, the processor count by default). Each store's
+ * employees and time records are loaded, its report written and the
+ * manager dropped by the thread that picked the store up, so no more than
+ * that many stores are held in memory at once. Stores are loaded read-only
+ * from their employees.txt; a store with no employee data is skipped
+ * without creating any files.
+ *
+ * Stores are summarised as they finish into a company report next to
+ * stores.txt, one line per store with its employees, pay and timings,
+ * followed by the company total.
+ *
+ * @author Akhilesh Nevatia
+ */
+public class PayrollBatch {
+    public static final String THREADS_PROPERTY = "payroll.batch.threads";
+
+    /**
+     * Outcome of one store's payroll
+     */
+    public static final class StoreResult {
+        private final String storeId;
+        private final int employees;
+        private final long totalCents;
+        private final long loadMillis;
+        private final long reportMillis;
+        private final String error;
+        private final boolean skipped;
+
+        StoreResult(String storeId, int employees, long totalCents, long loadMillis, long reportMillis,
+                    String error) {
+            this(storeId, employees, totalCents, loadMillis, reportMillis, error, false);
+        }
+
+        private StoreResult(String storeId, int employees, long totalCents, long loadMillis,
+                            long reportMillis, String error, boolean skipped) {
+            this.storeId = storeId;
+            this.employees = employees;
+            this.totalCents = totalCents;
+            this.loadMillis = loadMillis;
+            this.reportMillis = reportMillis;
+            this.error = error;
+            this.skipped = skipped;
+        }
+
+        static StoreResult skipped(String storeId, long loadMillis) {
+            return new StoreResult(storeId, 0, 0, loadMillis, 0, null, true);
+        }
+
+        public String getStoreId() { return storeId; }
+        public int getEmployees() { return employees; }
+        public long getTotalCents() { return totalCents; }
+        public long getLoadMillis() { return loadMillis; }
+        public long getReportMillis() { return reportMillis; }
+        // Null if the store's payroll was written or skipped
+        public String getError() { return error; }
+        // True if the store has no employee data, so nothing was written
+        public boolean isSkipped() { return skipped; }
+    }
+
+    /**
+     * Outcome of a whole run
+     */
+    public static final class Result {
+        private final List<StoreResult> stores;
+        private final long totalCents;
+        private final long elapsedMillis;
+        private final String summaryFile;
+
+        Result(List<StoreResult> stores, long totalCents, long elapsedMillis, String summaryFile) {
+            this.stores = stores;
+            this.totalCents = totalCents;
+            this.elapsedMillis = elapsedMillis;
+            this.summaryFile = summaryFile;
+        }
+
+        // Stores in the order they finished
+        public List<StoreResult> getStores() { return stores; }
+        public long getTotalCents() { return totalCents; }
+        public long getElapsedMillis() { return elapsedMillis; }
+        public String getSummaryFile() { return summaryFile; }
+
+        public int getFailedStores() {
+            int failed = 0;
+            for (StoreResult store : stores) {
+                if (store.getError() != null) {
+                    failed++;
+                }
+            }
+            return failed;
+        }
+
+        public int getSkippedStores() {
+            int skipped = 0;
+            for (StoreResult store : stores) {
+                if (store.isSkipped()) {
+                    skipped++;
+                }
+            }
+            return skipped;
+        }
+    }
+
+    private final int threads;
+
+    public PayrollBatch() {
+        this(Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public PayrollBatch(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Reads the ids of every store in stores.txt
+     */
+    public static List<String> readStoreIds() {
+        List<String> storeIds = new ArrayList<>();
+        try (CsvReader reader = CsvReader.open(StoreDataRepository.getInstance().sharedFile("stores.txt").toString())) {
+            while (reader.next()) {
+                if (reader.fields() > 0 && !reader.isEmpty(0)) {
+                    storeIds.add(reader.string(0));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading stores: " + e.getMessage());
+        }
+        return storeIds;
+    }
+
+    /**
+     * Runs payroll for every store in stores.txt
+     * @see #run(List, LocalDate, LocalDate, Consumer)
+     */
+    public Result run(LocalDate startDate, LocalDate endDate, Consumer<StoreResult> onStore) {
+        return run(readStoreIds(), startDate, endDate, onStore);
+    }
+
+    /**
+     * Writes each store's payroll report for a date range, then the
+     * company report. A store that fails is reported and left out of the
+     * total; the others still run.
+     * @param storeIds Stores to pay
+     * @param onStore Called on the calling thread as each store finishes, may be null
+     * @return Every store's outcome and the company total
+     */
+    public Result run(List<String> storeIds, LocalDate startDate, LocalDate endDate,
+                      Consumer<StoreResult> onStore) {
+        long start = System.nanoTime();
+        List<StoreResult> results = new ArrayList<>(storeIds.size());
+        long totalCents = 0;
+        String summaryFile = StoreDataRepository.getInstance().sharedFile("payroll_company_" +
+            startDate + "_to_" + endDate + ".txt").toString();
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, storeIds.size())));
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(summaryFile))) {
+            writer.write("Company Payroll Report: " + startDate + " to " + endDate + "\n");
+            writer.write("----------------------------------------\n");
+
+            CompletionService<StoreResult> completed = new ExecutorCompletionService<>(pool);
+            for (String storeId : storeIds) {
+                completed.submit(() -> payStore(storeId, startDate, endDate));
+            }
+            StringBuilder line = new StringBuilder(128);
+            for (int i = 0; i < storeIds.size(); i++) {
+                StoreResult result;
+                try {
+                    result = completed.take().get();
+                } catch (ExecutionException e) {
+                    // payStore reports its own failures, so this is unexpected
+                    System.err.println("Error running store payroll: " + e.getCause());
+                    continue;
+                }
+                results.add(result);
+                line.setLength(0);
+                line.append("Store: ").append(result.getStoreId());
+                if (result.getError() != null) {
+                    line.append(" FAILED: ").append(result.getError());
+                } else if (result.isSkipped()) {
+                    line.append(" skipped: no employee data");
+                } else {
+                    totalCents += result.getTotalCents();
+                    line.append(" Employees: ").append(result.getEmployees());
+                    Money.append(line.append(" Total Pay: $"), result.getTotalCents());
+                    line.append(" (load ").append(result.getLoadMillis())
+                        .append(" ms, report ").append(result.getReportMillis()).append(" ms)");
+                }
+                writer.append(line).append('\n');
+                if (onStore != null) {
+                    onStore.accept(result);
+                }
+            }
+
+            Result summary = new Result(results, totalCents, (System.nanoTime() - start) / 1_000_000, summaryFile);
+            writer.write("----------------------------------------\n");
+            writer.write("Stores: " + results.size() + ", failed: " + summary.getFailedStores()
+                + ", skipped: " + summary.getSkippedStores()
+                + ", threads: " + threads + ", elapsed: " + summary.getElapsedMillis() + " ms\n");
+            writer.write("Total Payroll: $" + Money.format(totalCents) + "\n");
+            return summary;
+        } catch (IOException e) {
+            System.out.println("Error writing company payroll report: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Company payroll interrupted");
+        } finally {
+            pool.shutdownNow();
+        }
+        return new Result(results, totalCents, (System.nanoTime() - start) / 1_000_000, summaryFile);
+    }
+
+    private static StoreResult payStore(String storeId, LocalDate startDate, LocalDate endDate) {
+        long start = System.nanoTime();
+        try {
+            PayrollManager manager = PayrollManager.open(storeId);
+            long loaded = System.nanoTime();
+            if (manager == null) {
+                return StoreResult.skipped(storeId, (loaded - start) / 1_000_000);
+            }
+            long total = manager.generatePayrollReport(startDate, endDate);
+            if (total < 0) {
+                return new StoreResult(storeId, manager.getEmployeeCount(), 0, (loaded - start) / 1_000_000,
+                    (System.nanoTime() - loaded) / 1_000_000, "payroll report could not be written");
+            }
+            return new StoreResult(storeId, manager.getEmployeeCount(), total,
+                (loaded - start) / 1_000_000, (System.nanoTime() - loaded) / 1_000_000, null);
+        } catch (IOException e) {
+            return new StoreResult(storeId, 0, 0, (System.nanoTime() - start) / 1_000_000, 0,
+                "employees could not be loaded: " + e.getMessage());
+        } catch (RuntimeException e) {
+            return new StoreResult(storeId, 0, 0, 0, 0, String.valueOf(e));
+        }
+    }
+}
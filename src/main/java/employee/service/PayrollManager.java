@@ -8,33 +8,75 @@ package employee.service;
 
 import employee.model.Employee;
 import employee.model.TimeRecord;
+import store.model.Money;
+import store.service.CsvReader;
+import store.service.StoreDataRepository;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.List;
 import java.util.ArrayList;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Scanner;
+import java.util.stream.IntStream;
 
 public class PayrollManager {
+    private static final String EMPLOYEE_DATA = "./src/main/java/employee/data/";
     private Map<String, Employee> employees;
     private String storeId;
-    private static final double OVERTIME_RATE = 1.5;
+    private TimeRecordStore timeRecords;
+    // Overtime is paid at 3/2 of the hourly rate
+    private static final long OVERTIME_NUMERATOR = 3;
+    private static final long OVERTIME_DENOMINATOR = 2;
     private static final int REGULAR_HOURS = 8;
+    private static final long REGULAR_MINUTES = REGULAR_HOURS * 60;
+    // Payrolls with fewer employees are computed on the calling thread
+    private static final int PARALLEL_EMPLOYEES = 256;
 
     public PayrollManager(String storeId) {
         this.storeId = storeId;
         this.employees = new HashMap<>();
         // Create data directory if it doesn't exist
-        new File("./src/main/java/store/data").mkdirs();
-        new File("./src/main/java/employee/data").mkdirs();
+        new File(EMPLOYEE_DATA).mkdirs();
         loadEmployees();
+        this.timeRecords = new TimeRecordStore(StoreDataRepository.store(storeId));
+        timeRecords.load(employees);
+    }
+
+    private PayrollManager(String storeId, Map<String, Employee> employees) {
+        this.storeId = storeId;
+        this.employees = employees;
+        this.timeRecords = new TimeRecordStore(StoreDataRepository.store(storeId));
+        timeRecords.load(employees);
+    }
+
+    /**
+     * Loads a store's payroll without creating or printing anything.
+     * Employees are read from the store's employees.txt, or from the
+     * employee data directory for a store that has no such file.
+     * @param storeId Store identifier
+     * @return The store's payroll, or null if the store has no employee data
+     * @throws IOException if the employee file cannot be read
+     */
+    public static PayrollManager open(String storeId) throws IOException {
+        Path file = StoreDataRepository.store(storeId).find("employees.txt");
+        if (file == null) {
+            file = Paths.get(EMPLOYEE_DATA, storeId + "_employees.txt");
+            if (!Files.exists(file)) {
+                return null;
+            }
+        }
+        Map<String, Employee> employees = new HashMap<>();
+        readEmployees(file.toString(), employees);
+        return new PayrollManager(storeId, employees);
     }
 
     private void loadEmployees() {
-        String fileName = "./src/main/java/employee/data/" + storeId + "_employees.txt";
+        String fileName = EMPLOYEE_DATA + storeId + "_employees.txt";
         File file = new File(fileName);
         
         if (!file.exists()) {
@@ -43,23 +85,28 @@ public class PayrollManager {
             return;
         }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 3) {
-                    String id = parts[0];
-                    String name = parts[1];
-                    double hourlyRate = Double.parseDouble(parts[2]);
-                    employees.put(id, new Employee(id, name, hourlyRate));
-                }
-            }
+        try {
+            readEmployees(fileName, employees);
         } catch (IOException e) {
             System.out.println("Error loading employees: " + e.getMessage());
             initializeSampleEmployees();
         }
     }
 
+    private static void readEmployees(String fileName, Map<String, Employee> employees) throws IOException {
+        try (CsvReader reader = CsvReader.open(fileName)) {
+            while (reader.next()) {
+                if (reader.fields() >= 3) {
+                    String id = reader.string(0);
+                    String name = reader.string(1);
+                    Employee employee = new Employee(id, name, 0);
+                    employee.setHourlyRateCents(reader.parseCents(2));
+                    employees.put(id, employee);
+                }
+            }
+        }
+    }
+
     private void initializeSampleEmployees() {
         // Create sample employees based on store ID
         if (storeId.equals("ST001")) {
@@ -79,23 +126,32 @@ public class PayrollManager {
     }
 
     private void saveEmployees() {
-        String fileName = "./src/main/java/employee/data/" + storeId + "_employees.txt";
+        String fileName = EMPLOYEE_DATA + storeId + "_employees.txt";
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
             for (Employee emp : employees.values()) {
-                writer.write(String.format("%s,%s,%.2f%n", 
+                writer.write(String.format("%s,%s,%s%n", 
                     emp.getEmployeeId(), 
                     emp.getName(), 
-                    emp.getHourlyRate()));
+                    Money.format(emp.getHourlyRateCents())));
             }
         } catch (IOException e) {
             System.out.println("Error saving employees: " + e.getMessage());
         }
     }
 
+    public Employee getEmployee(String employeeId) {
+        return employees.get(employeeId);
+    }
+
+    public int getEmployeeCount() {
+        return employees.size();
+    }
+
     public boolean clockInEmployee(String employeeId) {
         Employee employee = employees.get(employeeId);
         if (employee != null && !employee.isClockIn()) {
             employee.clockIn();
+            timeRecords.save(employee, employee.getCurrentRecord());
             return true;
         }
         return false;
@@ -105,95 +161,102 @@ public class PayrollManager {
         Employee employee = employees.get(employeeId);
         if (employee != null && employee.isClockIn()) {
             employee.clockOut();
-            saveTimeRecord(employee);
+            timeRecords.save(employee, employee.getCurrentRecord());
             return true;
         }
         return false;
     }
 
-    private void saveTimeRecord(Employee employee) {
-        String fileName = "./src/main/java/store/data/" + storeId + "_timerecords.txt";
-        TimeRecord record = employee.getTimeRecords().get(employee.getTimeRecords().size() - 1);
-        
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName, true))) {
-            writer.write(String.format("%s,%s,%s,%s,%b,%b,%b\n",
-                employee.getEmployeeId(),
-                record.getStartTime(),
-                record.getEndTime(),
-                record.getHoursWorked(),
-                record.isBreak(),
-                record.isOvertime(),
-                record.isApproved()));
-        } catch (IOException e) {
-            System.out.println("Error saving time record: " + e.getMessage());
+    /**
+     * Writes the payroll report for a date range. Each employee's pay and
+     * hours are computed in one pass over the records in the range, with
+     * large payrolls split across the common fork-join pool.
+     * @return Total payout in cents, or -1 if the report could not be written
+     */
+    public long generatePayrollReport(LocalDate startDate, LocalDate endDate) {
+        Employee[] staff = employees.values().toArray(new Employee[0]);
+        long[] pay = new long[staff.length];
+        long[] minutes = new long[staff.length];
+        IntStream range = IntStream.range(0, staff.length);
+        if (staff.length >= PARALLEL_EMPLOYEES) {
+            range = range.parallel();
         }
-    }
+        range.forEach(i -> computePay(staff[i], startDate, endDate, pay, minutes, i));
 
-    public double generatePayrollReport(LocalDate startDate, LocalDate endDate) {
-        double totalPayout = 0;
-        String reportFileName = "./src/main/java/store/data/" + storeId + "_payroll_" + 
-                              startDate + "_to_" + endDate + ".txt";
+        long totalPayout = 0;
+        String reportFileName = StoreDataRepository.store(storeId).pathForWriting("payroll_" +
+                              startDate + "_to_" + endDate + ".txt");
         
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(reportFileName))) {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(reportFileName), 1 << 16)) {
             writer.write("Payroll Report: " + startDate + " to " + endDate + "\n");
             writer.write("----------------------------------------\n");
             
-            for (Employee emp : employees.values()) {
-                double employeePay = calculateEmployeePay(emp, startDate, endDate);
-                totalPayout += employeePay;
-                
-                writer.write(String.format("Employee: %s (%s)\n", emp.getName(), emp.getEmployeeId()));
-                writer.write(String.format("Hours Worked: %.2f\n", getHoursWorked(emp, startDate, endDate)));
-                writer.write(String.format("Total Pay: $%.2f\n\n", employeePay));
+            StringBuilder entry = new StringBuilder(128);
+            for (int i = 0; i < staff.length; i++) {
+                totalPayout += pay[i];
+                entry.setLength(0);
+                entry.append("Employee: ").append(staff[i].getName())
+                    .append(" (").append(staff[i].getEmployeeId()).append(")\n");
+                appendHours(entry.append("Hours Worked: "), minutes[i]).append('\n');
+                Money.append(entry.append("Total Pay: $"), pay[i]).append("\n\n");
+                writer.append(entry);
             }
             
-            writer.write(String.format("Total Payroll: $%.2f\n", totalPayout));
+            writer.write("Total Payroll: $" + Money.format(totalPayout) + "\n");
         } catch (IOException e) {
             System.out.println("Error generating payroll report: " + e.getMessage());
+            return -1;
         }
         
         return totalPayout;
     }
 
-    private double calculateEmployeePay(Employee employee, LocalDate startDate, LocalDate endDate) {
-        double regularPay = 0;
-        double overtimePay = 0;
-        
-        for (TimeRecord record : employee.getTimeRecords()) {
-            if (isWithinDateRange(record.getStartTime(), startDate, endDate)) {
-                double hours = record.getHoursWorked();
-                if (hours > REGULAR_HOURS && record.isApproved()) {
-                    regularPay += REGULAR_HOURS * employee.getHourlyRate();
-                    overtimePay += (hours - REGULAR_HOURS) * employee.getHourlyRate() * OVERTIME_RATE;
-                } else {
-                    regularPay += hours * employee.getHourlyRate();
-                }
+    // Sums minutes times rate in cents, with overtime weighted by its
+    // numerator over a common denominator, and rounds to cents once. The
+    // employee's pay and minutes worked go to pay[slot] and minutes[slot].
+    private static void computePay(Employee employee, LocalDate startDate, LocalDate endDate,
+                                   long[] pay, long[] minutes, int slot) {
+        long weightedMinutes = 0;
+        long totalMinutes = 0;
+        int end = employee.indexOf(endDate.plusDays(1));
+        for (int i = employee.indexOf(startDate); i < end; i++) {
+            long worked = employee.getMinutesWorked(i);
+            totalMinutes += worked;
+            if (worked > REGULAR_MINUTES && employee.isApproved(i)) {
+                weightedMinutes += REGULAR_MINUTES * OVERTIME_DENOMINATOR
+                    + (worked - REGULAR_MINUTES) * OVERTIME_NUMERATOR;
+            } else {
+                weightedMinutes += worked * OVERTIME_DENOMINATOR;
             }
         }
         
-        return regularPay + overtimePay;
+        long divisor = 60 * OVERTIME_DENOMINATOR;
+        pay[slot] = Math.floorDiv(weightedMinutes * employee.getHourlyRateCents() + divisor / 2, divisor);
+        minutes[slot] = totalMinutes;
     }
 
-    private boolean isWithinDateRange(LocalDateTime dateTime, LocalDate startDate, LocalDate endDate) {
-        LocalDate date = dateTime.toLocalDate();
-        return !date.isBefore(startDate) && !date.isAfter(endDate);
-    }
-
-    private double getHoursWorked(Employee employee, LocalDate startDate, LocalDate endDate) {
-        return employee.getTimeRecords().stream()
-            .filter(r -> isWithinDateRange(r.getStartTime(), startDate, endDate))
-            .mapToDouble(TimeRecord::getHoursWorked)
-            .sum();
+    // Appends minutes as hours to two places. Minutes / 60 is never exactly
+    // halfway between hundredths, so rounding to nearest matches %.2f.
+    private static StringBuilder appendHours(StringBuilder text, long minutes) {
+        long hundredths = Math.floorDiv(minutes * 10 + 3, 6);
+        if (hundredths < 0) {
+            text.append('-');
+            hundredths = -hundredths;
+        }
+        text.append(hundredths / 100).append('.');
+        if (hundredths % 100 < 10) {
+            text.append('0');
+        }
+        return text.append(hundredths % 100);
     }
 
     public boolean startBreak(String employeeId) {
         Employee employee = employees.get(employeeId);
         if (employee != null && employee.isClockIn()) {
-            List<TimeRecord> records = employee.getTimeRecords();
-            if (!records.isEmpty()) {
-                TimeRecord currentRecord = records.get(records.size() - 1);
-                currentRecord.setBreak(true);
-                saveTimeRecord(employee, currentRecord);
+            int current = employee.getCurrentRecord();
+            if (current >= 0) {
+                employee.setBreak(current, true);
+                timeRecords.save(employee, current);
                 return true;
             }
         }
@@ -203,14 +266,11 @@ public class PayrollManager {
     public boolean endBreak(String employeeId) {
         Employee employee = employees.get(employeeId);
         if (employee != null && employee.isClockIn()) {
-            List<TimeRecord> records = employee.getTimeRecords();
-            if (!records.isEmpty()) {
-                TimeRecord currentRecord = records.get(records.size() - 1);
-                if (currentRecord.isBreak()) {
-                    currentRecord.setBreak(false);
-                    saveTimeRecord(employee, currentRecord);
-                    return true;
-                }
+            int current = employee.getCurrentRecord();
+            if (current >= 0 && employee.isBreak(current)) {
+                employee.setBreak(current, false);
+                timeRecords.save(employee, current);
+                return true;
             }
         }
         return false;
@@ -227,15 +287,14 @@ public class PayrollManager {
         System.out.println("--------------------------------------------------");
         System.out.printf("%-20s %-20s %-10s %-10s%n", "Start Time", "End Time", "Break", "Overtime");
         
-        for (TimeRecord record : employee.getTimeRecords()) {
-            LocalDateTime recordDate = record.getStartTime();
-            if (recordDate.toLocalDate().equals(date)) {
-                System.out.printf("%-20s %-20s %-10s %-10s%n",
-                    record.getStartTime().toLocalTime(),
-                    record.getEndTime() != null ? record.getEndTime().toLocalTime() : "Active",
-                    record.isBreak() ? "Yes" : "No",
-                    record.isOvertime() ? "Yes" : "No");
-            }
+        int end = employee.indexOf(date.plusDays(1));
+        for (int i = employee.indexOf(date); i < end; i++) {
+            LocalDateTime endTime = employee.getEndTime(i);
+            System.out.printf("%-20s %-20s %-10s %-10s%n",
+                employee.getStartTime(i).toLocalTime(),
+                endTime != null ? endTime.toLocalTime() : "Active",
+                employee.isBreak(i) ? "Yes" : "No",
+                employee.isOvertime(i) ? "Yes" : "No");
         }
         System.out.println("--------------------------------------------------");
     }
@@ -248,15 +307,15 @@ public class PayrollManager {
         
         boolean foundPending = false;
         for (Employee emp : employees.values()) {
-            for (TimeRecord record : emp.getTimeRecords()) {
-                double hours = record.getHoursWorked();
-                if (hours > REGULAR_HOURS && !record.isApproved()) {
+            for (int i = 0; i < emp.getTimeRecordCount(); i++) {
+                long minutes = emp.getMinutesWorked(i);
+                if (minutes > REGULAR_MINUTES && !emp.isApproved(i)) {
                     foundPending = true;
                     System.out.printf("%-10s %-20s %-12.2f %-10s %-15s%n",
                         emp.getEmployeeId(),
                         emp.getName(),
-                        hours,
-                        record.getStartTime().toLocalDate(),
+                        minutes / 60.0,
+                        emp.getStartTime(i).toLocalDate(),
                         "Pending");
                 }
             }
@@ -276,13 +335,12 @@ public class PayrollManager {
         }
 
         boolean overtimeFound = false;
-        for (TimeRecord record : employee.getTimeRecords()) {
-            if (record.getStartTime().toLocalDate().equals(date) && 
-                record.getHoursWorked() > REGULAR_HOURS && 
-                !record.isApproved()) {
-                record.setOvertime(true);
-                record.setApproved(true);
-                saveTimeRecord(employee, record);
+        int end = employee.indexOf(date.plusDays(1));
+        for (int i = employee.indexOf(date); i < end; i++) {
+            if (employee.getMinutesWorked(i) > REGULAR_MINUTES && !employee.isApproved(i)) {
+                employee.setOvertime(i, true);
+                employee.setApproved(i, true);
+                timeRecords.save(employee, i);
                 overtimeFound = true;
                 System.out.println("Overtime approved for " + employee.getName());
                 break;
@@ -295,22 +353,6 @@ public class PayrollManager {
         return overtimeFound;
     }
 
-    private void saveTimeRecord(Employee employee, TimeRecord record) {
-        String fileName = "./src/main/java/store/data/" + storeId + "_timerecords.txt";
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName, true))) {
-            writer.write(String.format("%s,%s,%s,%s,%b,%b,%b\n",
-                employee.getEmployeeId(),
-                record.getStartTime(),
-                record.getEndTime(),
-                record.getHoursWorked(),
-                record.isBreak(),
-                record.isOvertime(),
-                record.isApproved()));
-        } catch (IOException e) {
-            System.out.println("Error saving time record: " + e.getMessage());
-        }
-    }
-
     public void addCustomTimeRecord(String employeeId, LocalDate date, String startTimeStr, 
                                   String endTimeStr, int breakMinutes) {
         Employee employee = employees.get(employeeId);
@@ -344,8 +386,7 @@ public class PayrollManager {
                 record.setApproved(false); // Requires approval
             }
 
-            employee.addTimeRecord(record);
-            saveTimeRecord(employee, record);
+            timeRecords.save(employee, employee.addTimeRecord(record));
             
             System.out.printf("Time record added. Total hours worked: %.2f%n", totalHours);
             if (record.isOvertime()) {
@@ -364,17 +405,16 @@ public class PayrollManager {
             "ID", "Name", "Hours", "Overtime", "Approved");
         
         for (Employee emp : employees.values()) {
-            for (TimeRecord record : emp.getTimeRecords()) {
-                if (record.getStartTime().toLocalDate().equals(date)) {
-                    double hours = record.getHoursWorked();
-                    if (hours > REGULAR_HOURS) {
-                        System.out.printf("%-10s %-20s %-12.2f %-10s %-10s%n",
-                            emp.getEmployeeId(),
-                            emp.getName(),
-                            hours,
-                            "Yes",
-                            record.isApproved() ? "Yes" : "Pending");
-                    }
+            int end = emp.indexOf(date.plusDays(1));
+            for (int i = emp.indexOf(date); i < end; i++) {
+                long minutes = emp.getMinutesWorked(i);
+                if (minutes > REGULAR_MINUTES) {
+                    System.out.printf("%-10s %-20s %-12.2f %-10s %-10s%n",
+                        emp.getEmployeeId(),
+                        emp.getName(),
+                        minutes / 60.0,
+                        "Yes",
+                        emp.isApproved(i) ? "Yes" : "Pending");
                 }
             }
         }
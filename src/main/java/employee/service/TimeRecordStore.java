@@ -0,0 +1,262 @@
+package employee.service;
+
+import employee.model.Employee;
+import store.service.CsvReader;
+import store.service.StoreFiles;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A store's time records in a binary file of fixed-width records,
+ * ST001/timerecords.bin, with the employee ids they refer to listed in
+ * ST001/timerecords.employees (line n is employee index n). Each record
+ * takes RECORD_BYTES:
+ * <pre>
+ *   long start    UTC epoch seconds
+ *   long end      UTC epoch seconds, or Employee.NO_END while clocked in
+ *   int employee  index into the employee list
+ *   int break     break taken, in seconds
+ *   int flags     1 break, 2 overtime, 4 approved
+ * </pre>
+ * A record keeps its slot for good, and each employee's records remember
+ * their slots, so clocking out, breaks and overtime approval overwrite
+ * the record in place. Loading maps the file and reads it in one pass.
+ *
+ * The old text file is imported when the binary file is first created,
+ * keeping the last line written for each employee and start time; the
+ * text file is left in place.
+ *
+ * @author Akhilesh Nevatia
+ */
+public class TimeRecordStore {
+    static final int RECORD_BYTES = 28;
+    private static final int BREAK = 1;
+    private static final int OVERTIME = 2;
+    private static final int APPROVED = 4;
+    // Largest whole number of records a single mapping can hold
+    private static final long MAP_BYTES = Integer.MAX_VALUE / RECORD_BYTES * (long) RECORD_BYTES;
+
+    private final StoreFiles files;
+    private final Path recordFile;
+    private final Path employeeFile;
+    private final Path textFile;
+    private final Map<String, Integer> employeeIndexes;
+    private final List<String> employeeIds;
+    private final ByteBuffer record;
+    private int recordCount;
+
+    public TimeRecordStore(StoreFiles files) {
+        this.files = files;
+        this.recordFile = files.file("timerecords.bin");
+        this.employeeFile = files.file("timerecords.employees");
+        this.textFile = files.file("timerecords.txt");
+        this.employeeIndexes = new HashMap<>();
+        this.employeeIds = new ArrayList<>();
+        this.record = ByteBuffer.allocate(RECORD_BYTES);
+    }
+
+    /**
+     * Reads every saved record into its employee, importing the text file
+     * first if there is no binary file yet. Records of employees that are
+     * not in the map are kept on disk but skipped.
+     * @param employees Employees by id
+     */
+    public synchronized void load(Map<String, Employee> employees) {
+        try {
+            if (!Files.exists(recordFile) && Files.exists(textFile)) {
+                importText();
+            }
+            if (Files.exists(employeeFile)) {
+                try (CsvReader reader = CsvReader.open(employeeFile.toString())) {
+                    while (reader.next()) {
+                        String id = reader.string(0);
+                        employeeIndexes.put(id, employeeIds.size());
+                        employeeIds.add(id);
+                    }
+                }
+            }
+            if (!Files.exists(recordFile)) {
+                return;
+            }
+            Employee[] byIndex = new Employee[employeeIds.size()];
+            for (int i = 0; i < byIndex.length; i++) {
+                byIndex[i] = employees.get(employeeIds.get(i));
+            }
+            try (FileChannel channel = FileChannel.open(recordFile, StandardOpenOption.READ)) {
+                // A torn record from an interrupted append is ignored and later overwritten
+                long size = channel.size() / RECORD_BYTES * RECORD_BYTES;
+                recordCount = (int) (size / RECORD_BYTES);
+                int slot = 0;
+                for (long from = 0; from < size; from += MAP_BYTES) {
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, from,
+                        Math.min(MAP_BYTES, size - from));
+                    for (int at = 0; at < mapped.limit(); at += RECORD_BYTES, slot++) {
+                        int index = mapped.getInt(at + 16);
+                        Employee employee = index >= 0 && index < byIndex.length ? byIndex[index] : null;
+                        if (employee != null) {
+                            int flags = mapped.getInt(at + 24);
+                            employee.addTimeRecord(mapped.getLong(at), mapped.getLong(at + 8),
+                                mapped.getInt(at + 20) / 60, (flags & BREAK) != 0,
+                                (flags & OVERTIME) != 0, (flags & APPROVED) != 0, slot);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Error loading time records: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes one of an employee's records: a new record is appended and
+     * given a slot, a saved one is overwritten in its slot
+     * @param employee Employee owning the record
+     * @param index Index of the record in the employee's start order
+     */
+    public synchronized void save(Employee employee, int index) {
+        try (FileChannel channel = FileChannel.open(files.fileForWriting("timerecords.bin"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            int slot = employee.getSlot(index);
+            boolean added = slot < 0;
+            if (added) {
+                slot = recordCount;
+            }
+            encode(employee, index, employeeIndex(employee.getEmployeeId()));
+            long position = (long) slot * RECORD_BYTES;
+            while (record.hasRemaining()) {
+                position += channel.write(record, position);
+            }
+            if (added) {
+                employee.setSlot(index, slot);
+                recordCount++;
+            }
+        } catch (IOException e) {
+            System.out.println("Error saving time record: " + e.getMessage());
+        }
+    }
+
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    private void encode(Employee employee, int index, int employeeIndex) {
+        int flags = (employee.isBreak(index) ? BREAK : 0)
+            | (employee.isOvertime(index) ? OVERTIME : 0)
+            | (employee.isApproved(index) ? APPROVED : 0);
+        record.clear();
+        record.putLong(employee.getStartSecond(index))
+            .putLong(employee.getEndSecond(index))
+            .putInt(employeeIndex)
+            .putInt(employee.getBreakMinutes(index) * 60)
+            .putInt(flags)
+            .flip();
+    }
+
+    // Returns the employee's index, listing the employee first if needed
+    private int employeeIndex(String employeeId) throws IOException {
+        Integer index = employeeIndexes.get(employeeId);
+        if (index != null) {
+            return index;
+        }
+        Files.write(employeeFile, (employeeId + "\n").getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        employeeIndexes.put(employeeId, employeeIds.size());
+        employeeIds.add(employeeId);
+        return employeeIds.size() - 1;
+    }
+
+    // One record read from the text file, waiting to be written as binary
+    private static class ImportedRecord {
+        final String employeeId;
+        final LocalDateTime start;
+        final LocalDateTime end;
+        final long breakMinutes;
+        final int flags;
+
+        ImportedRecord(String employeeId, LocalDateTime start, LocalDateTime end, long breakMinutes, int flags) {
+            this.employeeId = employeeId;
+            this.start = start;
+            this.end = end;
+            this.breakMinutes = breakMinutes;
+            this.flags = flags;
+        }
+    }
+
+    // Converts employeeId,start,end,hours,break,overtime,approved lines,
+    // where later lines for the same record replace earlier ones
+    private void importText() throws IOException {
+        Map<String, ImportedRecord> latest = new LinkedHashMap<>();
+        try (CsvReader reader = CsvReader.open(textFile.toString())) {
+            while (reader.next()) {
+                if (reader.fields() < 7) {
+                    continue;
+                }
+                try {
+                    String id = reader.intern(0);
+                    LocalDateTime start = reader.parseDateTime(1, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+                    LocalDateTime end = reader.fieldEquals(2, "null") ? null
+                        : reader.parseDateTime(2, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+                    long breakMinutes = end == null ? 0
+                        : Duration.between(start, end).toMinutes() - Math.round(reader.parseDouble(3) * 60);
+                    int flags = (reader.fieldEquals(4, "true") ? BREAK : 0)
+                        | (reader.fieldEquals(5, "true") ? OVERTIME : 0)
+                        | (reader.fieldEquals(6, "true") ? APPROVED : 0);
+                    latest.put(id + "," + start, new ImportedRecord(id, start, end, breakMinutes, flags));
+                } catch (RuntimeException e) {
+                    System.out.println("Skipping malformed time record on line " + reader.lineNumber());
+                }
+            }
+        }
+
+        Path temp = recordFile.resolveSibling(recordFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             BufferedWriter ids = Files.newBufferedWriter(employeeFile, StandardCharsets.UTF_8)) {
+            Map<String, Integer> indexes = new HashMap<>();
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_BYTES * 4096);
+            for (ImportedRecord record : latest.values()) {
+                Integer index = indexes.get(record.employeeId);
+                if (index == null) {
+                    index = indexes.size();
+                    indexes.put(record.employeeId, index);
+                    ids.write(record.employeeId);
+                    ids.write('\n');
+                }
+                if (!buffer.hasRemaining()) {
+                    writeFully(channel, buffer);
+                }
+                buffer.putLong(record.start.toEpochSecond(ZoneOffset.UTC))
+                    .putLong(record.end == null ? Employee.NO_END : record.end.toEpochSecond(ZoneOffset.UTC))
+                    .putInt(index)
+                    .putInt((int) (record.breakMinutes * 60))
+                    .putInt(record.flags);
+            }
+            writeFully(channel, buffer);
+        }
+        Files.move(temp, recordFile);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -1,8 +1,21 @@
 package energy;
 
+import energy.service.FileReplaySource;
+import energy.service.MeterSimulator;
+import energy.service.ReadingBatch;
+import energy.service.ReadingIngest;
+import energy.service.ReadingStore;
+import energy.service.RetentionPolicy;
+import energy.service.RollupStore;
+import energy.service.SpikeDetector;
+import store.service.CsvReader;
 import java.io.*;
 import java.nio.file.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -12,7 +25,12 @@ public class EnergyConsumptionSystem {
     private final Scanner scanner;
     private final String dataFilePath;
     private final String alertsFilePath;
-    private Map<String, List<EnergyReading>> deviceReadings;
+    private ReadingStore readingStore;
+    private RollupStore rollups;
+    private final RetentionPolicy retention = new RetentionPolicy();
+    // Each device's totals over its whole history, in the store's device order
+    private Map<String, DeviceSummary> devices;
+    private SpikeDetector spikeDetector;
     private List<EnergyAlert> alerts;
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
@@ -25,28 +43,32 @@ public class EnergyConsumptionSystem {
     }
 
     private void loadData() {
-        deviceReadings = new HashMap<>();
+        devices = new LinkedHashMap<>();
+        spikeDetector = new SpikeDetector();
         alerts = new ArrayList<>();
         
-        // Load energy readings
+        // Load energy readings, importing the text file the first time
+        Path seriesDir = Paths.get("src/main/java/energy/data", storeId);
+        boolean importText = !ReadingStore.exists(seriesDir) && new File(dataFilePath).exists();
+        readingStore = new ReadingStore(seriesDir);
         try {
-            File file = new File(dataFilePath);
-            if (file.exists()) {
-                List<String> lines = Files.readAllLines(Paths.get(dataFilePath));
-                for (String line : lines) {
-                    String[] parts = line.split(",");
-                    if (parts.length == 4) {
-                        String deviceId = parts[0];
-                        LocalDateTime timestamp = LocalDateTime.parse(parts[1], DATE_FORMAT);
-                        double consumption = Double.parseDouble(parts[2]);
-                        String deviceType = parts[3];
-                        
-                        deviceReadings.computeIfAbsent(deviceId, k -> new ArrayList<>())
-                            .add(new EnergyReading(deviceId, timestamp, consumption, deviceType));
-                    }
-                }
+            if (importText) {
+                importReadings();
             }
-        } catch (IOException e) {
+            // Totals and spike statistics come from the rollups, built from the
+            // readings the first time; only the latest readings are read
+            rollups = new RollupStore(seriesDir.resolve("rollups"));
+            for (Map.Entry<String, String> device : readingStore.getDevices().entrySet()) {
+                String deviceId = device.getKey();
+                rollups.catchUp(deviceId, readingStore);
+                RollupStore.Aggregate total = rollups.total(deviceId);
+                devices.put(deviceId, new DeviceSummary(device.getValue(), total));
+                spikeDetector.restore(deviceId, total.getCount(), total.getSum(), total.getSumSquares());
+                addRecentReadings(deviceId);
+            }
+            rollups.flush();
+            applyRetention();
+        } catch (IOException | RuntimeException e) {
             System.out.println("Error loading energy readings: " + e.getMessage());
         }
 
@@ -54,15 +76,15 @@ public class EnergyConsumptionSystem {
         try {
             File file = new File(alertsFilePath);
             if (file.exists()) {
-                List<String> lines = Files.readAllLines(Paths.get(alertsFilePath));
-                for (String line : lines) {
-                    String[] parts = line.split(",");
-                    if (parts.length == 4) {
-                        String deviceId = parts[0];
-                        LocalDateTime timestamp = LocalDateTime.parse(parts[1], DATE_FORMAT);
-                        String alertType = parts[2];
-                        String status = parts[3];
-                        alerts.add(new EnergyAlert(deviceId, timestamp, alertType, status));
+                try (CsvReader reader = CsvReader.open(alertsFilePath)) {
+                    while (reader.next()) {
+                        if (reader.fields() == 4) {
+                            String deviceId = reader.intern(0);
+                            LocalDateTime timestamp = reader.parseDateTime(1, DATE_FORMAT);
+                            String alertType = reader.intern(2);
+                            String status = reader.intern(3);
+                            alerts.add(new EnergyAlert(deviceId, timestamp, alertType, status));
+                        }
                     }
                 }
             }
@@ -71,25 +93,47 @@ public class EnergyConsumptionSystem {
         }
     }
 
-    private void saveData() {
-        // Save energy readings
-        try {
-            StringBuilder content = new StringBuilder();
-            for (List<EnergyReading> readings : deviceReadings.values()) {
-                for (EnergyReading reading : readings) {
-                    content.append(String.format("%s,%s,%f,%s%n",
-                        reading.deviceId,
-                        reading.timestamp.format(DATE_FORMAT),
-                        reading.consumption,
-                        reading.deviceType));
+    // Refills a device's spike window and moving average from its latest
+    // days of readings
+    private void addRecentReadings(String deviceId) throws IOException {
+        long from = Long.MAX_VALUE;
+        long counted = 0;
+        for (LocalDate day : readingStore.getDays(deviceId).descendingSet()) {
+            long[] readings = new long[1];
+            from = day.toEpochDay() * 86_400;
+            readingStore.query(deviceId, from, from + 86_400, (id, second, consumption) -> readings[0]++);
+            counted += readings[0];
+            if (counted >= spikeDetector.getWindow()) {
+                break;
+            }
+        }
+        readingStore.query(deviceId, from, Long.MAX_VALUE,
+            (id, second, consumption) -> spikeDetector.addRecent(id, consumption));
+    }
+
+    // Ages readings out to the rollups as the retention policy sets, counting
+    // back from the newest reading
+    private void applyRetention() throws IOException {
+        long newest = devices.values().stream().mapToLong(summary -> summary.latestSecond).max().orElse(Long.MIN_VALUE);
+        retention.apply(readingStore, rollups, newest);
+    }
+
+    // Copies deviceId,yyyy-MM-dd HH:mm,kWh,type lines into the reading
+    // store; the text file is left in place
+    private void importReadings() throws IOException {
+        try (CsvReader reader = CsvReader.open(dataFilePath)) {
+            while (reader.next()) {
+                if (reader.fields() == 4) {
+                    LocalDateTime timestamp = reader.parseDateTime(1, DATE_FORMAT);
+                    readingStore.append(reader.intern(0), reader.intern(3),
+                        timestamp.toEpochSecond(ZoneOffset.UTC), reader.parseDouble(2));
                 }
             }
-            Files.write(Paths.get(dataFilePath), content.toString().getBytes());
-        } catch (IOException e) {
-            System.out.println("Error saving energy readings: " + e.getMessage());
         }
+        readingStore.close();
+    }
 
-        // Save alerts
+    private void saveAlerts() {
         try {
             StringBuilder content = new StringBuilder();
             for (EnergyAlert alert : alerts) {
@@ -128,9 +172,18 @@ public class EnergyConsumptionSystem {
                     manageDevices();
                     break;
                 case 6:
+                    ingestReadings();
+                    break;
+                case 7:
+                    readingStore.close();
+                    try {
+                        rollups.flush();
+                    } catch (IOException e) {
+                        System.out.println("Error saving energy rollups: " + e.getMessage());
+                    }
                     return;
                 default:
-                    System.out.println("Invalid option. Please choose a number between 1 and 6.");
+                    System.out.println("Invalid option. Please choose a number between 1 and 7.");
             }
         }
     }
@@ -142,22 +195,23 @@ public class EnergyConsumptionSystem {
         System.out.println("3. View and Manage Alerts (Store Manager)");
         System.out.println("4. Generate Monthly Report (Store Manager)");
         System.out.println("5. Manage IoT Devices (Store Manager)");
-        System.out.println("6. Return to Main Menu");
+        System.out.println("6. Ingest Meter Readings (Bulk Feed)");
+        System.out.println("7. Return to Main Menu");
     }
 
     private int getValidMenuChoice() {
-        System.out.print("Choose an option (1-6): ");
+        System.out.print("Choose an option (1-7): ");
         try {
             String input = scanner.nextLine().trim();
             int choice = Integer.parseInt(input);
-            if (choice >= 1 && choice <= 6) {
+            if (choice >= 1 && choice <= 7) {
                 return choice;
             } else {
-                System.out.println("Please enter a number between 1 and 6.");
+                System.out.println("Please enter a number between 1 and 7.");
                 return -1;
             }
         } catch (NumberFormatException e) {
-            System.out.println("Invalid input. Please enter a number between 1 and 6.");
+            System.out.println("Invalid input. Please enter a number between 1 and 7.");
             return -1;
         }
     }
@@ -166,73 +220,62 @@ public class EnergyConsumptionSystem {
         System.out.println("\nEnergy Consumption Dashboard");
         System.out.println("----------------------------");
         
-        if (deviceReadings.isEmpty()) {
+        if (devices.values().stream().allMatch(summary -> summary.count == 0)) {
             System.out.println("No energy readings available.");
             return;
         }
 
-        Map<String, Double> totalByDevice = new HashMap<>();
-        Map<String, Integer> countByDevice = new HashMap<>();
         LocalDateTime now = LocalDateTime.now();
+        // Readings after this second fall in the last 24 hours
+        long oneDayAgo = now.minusDays(1).toEpochSecond(ZoneOffset.UTC);
 
         // Calculate averages by device
-        for (Map.Entry<String, List<EnergyReading>> entry : deviceReadings.entrySet()) {
+        for (Map.Entry<String, DeviceSummary> entry : devices.entrySet()) {
             String deviceId = entry.getKey();
-            List<EnergyReading> readings = entry.getValue();
-            
-            // Sort readings by timestamp
-            readings.sort((a, b) -> b.timestamp.compareTo(a.timestamp));
-            
-            // Calculate daily average (last 24 hours)
-            LocalDateTime oneDayAgo = now.minusDays(1);
-            double dailyTotal = readings.stream()
-                .filter(r -> r.timestamp.isAfter(oneDayAgo))
-                .mapToDouble(r -> r.consumption)
-                .sum();
-            int dailyCount = (int) readings.stream()
-                .filter(r -> r.timestamp.isAfter(oneDayAgo))
-                .count();
-
-            // Calculate total consumption
-            double total = readings.stream()
-                .mapToDouble(r -> r.consumption)
-                .sum();
-            
-            totalByDevice.put(deviceId, total);
-            countByDevice.put(deviceId, readings.size());
+            DeviceSummary summary = entry.getValue();
+            if (summary.count == 0) {
+                continue;
+            }
             
-            EnergyReading latest = readings.get(0); // First reading after sorting
-            LocalDateTime oldest = readings.get(readings.size() - 1).timestamp;
+            // Calculate daily average (last 24 hours) from the last day's partitions only
+            double[] daily = new double[2];
+            try {
+                readingStore.query(deviceId, oneDayAgo + 1, Long.MAX_VALUE, (id, second, consumption) -> {
+                    daily[0] += consumption;
+                    daily[1]++;
+                });
+            } catch (IOException e) {
+                System.out.println("Error reading energy readings: " + e.getMessage());
+            }
             
-            System.out.printf("\nDevice: %s (%s)%n", deviceId, latest.deviceType);
+            System.out.printf("\nDevice: %s (%s)%n", deviceId, summary.deviceType);
             System.out.printf("Latest Reading: %.2f kWh (at %s)%n", 
-                latest.consumption, 
-                latest.timestamp.format(DATE_FORMAT));
+                summary.latestConsumption, 
+                format(summary.latestSecond));
             
-            if (dailyCount > 0) {
+            if (daily[1] > 0) {
                 System.out.printf("24-Hour Average: %.2f kWh/reading%n", 
-                    dailyTotal / dailyCount);
+                    daily[0] / daily[1]);
             }
             
             System.out.printf("Overall Average: %.2f kWh/reading (over %d readings from %s to %s)%n",
-                total / readings.size(),
-                readings.size(),
-                oldest.format(DATE_FORMAT),
-                latest.timestamp.format(DATE_FORMAT));
+                summary.total / summary.count,
+                summary.count,
+                format(summary.oldestSecond),
+                format(summary.latestSecond));
         }
 
         // Show total store consumption
-        double totalConsumption = totalByDevice.values().stream().mapToDouble(Double::doubleValue).sum();
+        double totalConsumption = devices.values().stream().mapToDouble(summary -> summary.total).sum();
         System.out.printf("%nTotal Store Consumption: %.2f kWh%n", totalConsumption);
         
         // Show consumption by device type
         System.out.println("\nConsumption by Device Type:");
         Map<String, Double> consumptionByType = new HashMap<>();
-        for (Map.Entry<String, List<EnergyReading>> entry : deviceReadings.entrySet()) {
-            List<EnergyReading> readings = entry.getValue();
-            String deviceType = readings.get(0).deviceType;
-            double total = readings.stream().mapToDouble(r -> r.consumption).sum();
-            consumptionByType.merge(deviceType, total, Double::sum);
+        for (DeviceSummary summary : devices.values()) {
+            if (summary.count > 0) {
+                consumptionByType.merge(summary.deviceType, summary.total, Double::sum);
+            }
         }
         
         consumptionByType.forEach((type, total) -> 
@@ -250,45 +293,184 @@ public class EnergyConsumptionSystem {
         String deviceType = getValidDeviceType();
         double consumption = getValidConsumption();
 
-        EnergyReading reading = new EnergyReading(
-            deviceId,
-            LocalDateTime.now(),
-            consumption,
-            deviceType
-        );
-
-        deviceReadings.computeIfAbsent(deviceId, k -> new ArrayList<>()).add(reading);
-        
-        // Check for energy spike
-        checkForEnergySpike(reading);
+        recordReading(deviceId, deviceType, consumption, LocalDateTime.now());
         
-        saveData();
         System.out.println("Energy reading added successfully.");
     }
 
-    private void checkForEnergySpike(EnergyReading newReading) {
-        List<EnergyReading> deviceHistory = deviceReadings.get(newReading.deviceId);
-        if (deviceHistory.size() < 2) return;
+    /**
+     * Appends a device reading to the reading store and checks it for an
+     * energy spike against the device's readings so far
+     * @param deviceId IoT device identifier
+     * @param deviceType HVAC, Refrigeration, Lighting or Other
+     * @param consumption Consumption in kWh
+     * @param timestamp Time of the reading
+     */
+    public void recordReading(String deviceId, String deviceType, double consumption, LocalDateTime timestamp) {
+        long second = timestamp.toEpochSecond(ZoneOffset.UTC);
+        try {
+            readingStore.append(deviceId, deviceType, second, consumption);
+        } catch (IOException e) {
+            System.out.println("Error saving energy reading: " + e.getMessage());
+            return;
+        }
+        try {
+            rollups.add(deviceId, second, consumption);
+            rollups.flush();
+        } catch (IOException e) {
+            System.out.println("Error saving energy rollups: " + e.getMessage());
+        }
 
-        // Calculate average of previous readings
-        double avgConsumption = deviceHistory.subList(0, deviceHistory.size() - 1)
-            .stream()
-            .mapToDouble(r -> r.consumption)
-            .average()
-            .orElse(0.0);
+        StringBuilder newAlerts = new StringBuilder();
+        // Check for energy spike
+        SpikeDetector.Rule rule = addReading(deviceId, deviceType, second, consumption,
+            LocalDateTime.now(), newAlerts);
+        if (rule != null) {
+            appendAlerts(newAlerts);
+            System.out.println(" Alert: Energy spike detected for device " + deviceId + " (" + rule + ")");
+        }
+    }
 
-        // If new reading is 50% higher than average, create alert
-        if (newReading.consumption > avgConsumption * 1.5) {
+    /**
+     * Feeds readings from a source through a bounded queue into the reading
+     * store, the rollups and the spike detector, a batch at a time. Alerts
+     * raised carry the time of the reading and are written once per batch;
+     * rollups are written about once a second and when the source runs dry,
+     * when the retention policy is applied.
+     * @param source Replayed file, meter simulator or other feed
+     * @param listener Told of progress about once a second, may be null
+     * @return The pipeline's counters
+     * @throws IOException if the source could not be read or a batch could not be saved
+     */
+    public ReadingIngest.Counters ingest(ReadingIngest.Source source, ReadingIngest.ProgressListener listener)
+            throws IOException {
+        StringBuilder newAlerts = new StringBuilder();
+        long[] lastFlush = {System.nanoTime()};
+        ReadingIngest.Counters counters;
+        try {
+            counters = new ReadingIngest().run(source, batch -> {
+                readingStore.append(batch);
+                for (int i = 0; i < batch.size(); i++) {
+                    long second = batch.getSecond(i);
+                    rollups.add(batch.getDeviceId(i), second, batch.getConsumption(i));
+                    addReading(batch.getDeviceId(i), batch.getDeviceType(i), second, batch.getConsumption(i),
+                        LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC), newAlerts);
+                }
+                if (newAlerts.length() > 0) {
+                    appendAlerts(newAlerts);
+                    newAlerts.setLength(0);
+                }
+                if (System.nanoTime() - lastFlush[0] >= 1_000_000_000L) {
+                    rollups.flush();
+                    lastFlush[0] = System.nanoTime();
+                }
+            }, listener);
+        } finally {
+            rollups.flush();
+        }
+        applyRetention();
+        return counters;
+    }
+
+    public int getAlertCount() {
+        return alerts.size();
+    }
+
+    // Adds a stored reading to its device's summary and checks it for a
+    // spike, returning the rule it broke and adding the alert's line
+    private SpikeDetector.Rule addReading(String deviceId, String deviceType, long second, double consumption,
+                                          LocalDateTime alertTime, StringBuilder newAlerts) {
+        DeviceSummary summary = devices.get(deviceId);
+        if (summary == null) {
+            summary = new DeviceSummary(deviceType);
+            devices.put(deviceId, summary);
+        }
+        summary.deviceType = deviceType;
+        summary.add(second, consumption);
+
+        // By default, a reading 50% higher than the device's average is a spike
+        SpikeDetector.Rule rule = spikeDetector.check(deviceId, consumption);
+        if (rule != null) {
             EnergyAlert alert = new EnergyAlert(
-                newReading.deviceId,
-                LocalDateTime.now(),
+                deviceId,
+                alertTime,
                 "ENERGY_SPIKE",
                 "PENDING"
             );
             alerts.add(alert);
-            saveData();
-            System.out.println(" Alert: Energy spike detected for device " + newReading.deviceId);
+            newAlerts.append(alert.deviceId).append(',').append(alert.timestamp.format(DATE_FORMAT))
+                .append(',').append(alert.alertType).append(',').append(alert.status)
+                .append(System.lineSeparator());
+        }
+        return rule;
+    }
+
+    private void appendAlerts(CharSequence lines) {
+        try {
+            Files.write(Paths.get(alertsFilePath), lines.toString().getBytes(),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.out.println("Error saving alerts: " + e.getMessage());
+        }
+    }
+
+    private void ingestReadings() {
+        System.out.println("\nIngest Meter Readings");
+        System.out.println("---------------------");
+        System.out.println("1. Replay a Readings File");
+        System.out.println("2. Simulate Meters");
+        System.out.print("Choose a source: ");
+
+        ReadingIngest.Source source;
+        try {
+            int choice = Integer.parseInt(scanner.nextLine().trim());
+            if (choice == 1) {
+                System.out.print("Enter file path (deviceId,yyyy-MM-dd HH:mm,kWh,type lines): ");
+                source = new FileReplaySource(scanner.nextLine().trim());
+            } else if (choice == 2) {
+                System.out.print("Number of meters: ");
+                int meters = Integer.parseInt(scanner.nextLine().trim());
+                System.out.print("Readings per meter per second (Hz): ");
+                double hertz = Double.parseDouble(scanner.nextLine().trim());
+                System.out.print("Seconds to simulate: ");
+                long seconds = Long.parseLong(scanner.nextLine().trim());
+                System.out.print("Keep to real time? (y/n): ");
+                boolean paced = scanner.nextLine().trim().equalsIgnoreCase("y");
+                if (meters <= 0 || hertz <= 0 || seconds <= 0) {
+                    System.out.println("Meters, rate and duration must be positive.");
+                    return;
+                }
+                source = new MeterSimulator(meters, hertz, seconds,
+                    LocalDateTime.now().withNano(0), paced, System.nanoTime());
+            } else {
+                System.out.println("Invalid choice.");
+                return;
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid input.");
+            return;
+        } catch (IOException e) {
+            System.out.println("Error opening readings file: " + e.getMessage());
+            return;
+        }
+
+        int alertsBefore = alerts.size();
+        try {
+            ReadingIngest.Counters counters = ingest(source, progress ->
+                System.out.printf("  %,d readings stored (%,.0f/s), source waited %,d ms%n",
+                    progress.getConsumed(), progress.getReadingsPerSecond(), progress.getProducerWaitMillis()));
+            System.out.printf("Ingested %,d readings in %,d ms (%,.0f readings/s, %,d batches)%n",
+                counters.getConsumed(), counters.getElapsedMillis(), counters.getReadingsPerSecond(),
+                counters.getBatches());
+            System.out.printf("Source waited %,d ms on a full queue; store waited %,d ms for readings%n",
+                counters.getProducerWaitMillis(), counters.getConsumerWaitMillis());
+            if (source instanceof FileReplaySource && ((FileReplaySource) source).getSkipped() > 0) {
+                System.out.printf("Skipped %,d lines that did not parse%n", ((FileReplaySource) source).getSkipped());
+            }
+        } catch (IOException e) {
+            System.out.println("Error ingesting readings: " + e.getMessage());
         }
+        System.out.println("New spike alerts: " + (alerts.size() - alertsBefore));
     }
 
     private void viewAlerts() {
@@ -337,7 +519,7 @@ public class EnergyConsumptionSystem {
 
             if (newStatus != null) {
                 alerts.get(index).status = newStatus;
-                saveData();
+                saveAlerts();
                 System.out.println("Alert status updated successfully.");
             }
         } catch (NumberFormatException e) {
@@ -348,45 +530,80 @@ public class EnergyConsumptionSystem {
     private void generateMonthlyReport() {
         System.out.println("\nGenerating Monthly Energy Consumption Report...");
 
-        if (deviceReadings.isEmpty()) {
+        if (devices.values().stream().allMatch(summary -> summary.count == 0)) {
             System.out.println("No data available for report generation.");
             return;
         }
 
+        // The period to report on, read from the monthly rollups
+        System.out.print("Enter month (yyyy-MM), year (yyyy) or leave blank for all readings: ");
+        String period = scanner.nextLine().trim();
+        long fromSecond = Long.MIN_VALUE;
+        long toSecond = Long.MAX_VALUE;
+        boolean year = false;
+        try {
+            if (period.matches("\\d{4}-\\d{2}")) {
+                YearMonth month = YearMonth.parse(period);
+                fromSecond = month.atDay(1).toEpochDay() * 86_400;
+                toSecond = month.plusMonths(1).atDay(1).toEpochDay() * 86_400;
+            } else if (period.matches("\\d{4}")) {
+                Year reportYear = Year.parse(period);
+                fromSecond = reportYear.atDay(1).toEpochDay() * 86_400;
+                toSecond = reportYear.plusYears(1).atDay(1).toEpochDay() * 86_400;
+                year = true;
+            } else if (!period.isEmpty()) {
+                System.out.println("Invalid period. Use yyyy-MM or yyyy.");
+                return;
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Invalid period. Use yyyy-MM or yyyy.");
+            return;
+        }
+
         LocalDateTime now = LocalDateTime.now();
         String timestamp = now.format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm"));
         String reportFileName = String.format("src/main/java/energy/reports/energy_report_%s_%s.txt", storeId, timestamp);
 
         try {
+            Map<String, String> deviceTypes = new HashMap<>();
+            devices.forEach((deviceId, summary) -> deviceTypes.put(deviceId, summary.deviceType));
+            Map<String, RollupStore.Aggregate> byType = rollups.byType(deviceTypes, fromSecond, toSecond);
+
             StringBuilder report = new StringBuilder();
             report.append("Energy Consumption Report\n");
             report.append("------------------------\n");
             report.append("Store ID: ").append(storeId).append("\n");
+            report.append("Period: ").append(period.isEmpty() ? "All readings" : period).append("\n");
             report.append("Generated on: ").append(now.format(DATE_FORMAT)).append("\n\n");
 
             // Calculate consumption by device type
             Map<String, Double> consumptionByType = new HashMap<>();
-            Map<String, Integer> readingsByType = new HashMap<>();
-            
-            for (List<EnergyReading> readings : deviceReadings.values()) {
-                for (EnergyReading reading : readings) {
-                    consumptionByType.merge(reading.deviceType, reading.consumption, Double::sum);
-                    readingsByType.merge(reading.deviceType, 1, Integer::sum);
-                }
-            }
+            byType.forEach((type, aggregate) -> consumptionByType.put(type, aggregate.getSum()));
 
             // Device Type Analysis
             report.append("Consumption by Device Type:\n");
             report.append("---------------------------\n");
-            consumptionByType.forEach((type, total) -> {
-                int readings = readingsByType.get(type);
-                double average = total / readings;
+            if (byType.isEmpty()) {
+                report.append("No readings in this period.\n\n");
+            }
+            byType.forEach((type, aggregate) -> {
                 report.append(String.format("%s:\n", type));
-                report.append(String.format("  Total Consumption: %.2f kWh\n", total));
-                report.append(String.format("  Number of Readings: %d\n", readings));
-                report.append(String.format("  Average per Reading: %.2f kWh\n\n", average));
+                report.append(String.format("  Total Consumption: %.2f kWh\n", aggregate.getSum()));
+                report.append(String.format("  Number of Readings: %d\n", aggregate.getCount()));
+                report.append(String.format("  Average per Reading: %.2f kWh\n", aggregate.getMean()));
+                report.append(String.format("  Lowest/Highest Reading: %.2f/%.2f kWh\n\n",
+                    aggregate.getMin(), aggregate.getMax()));
             });
 
+            if (year) {
+                report.append("Consumption by Month:\n");
+                report.append("---------------------\n");
+                rollups.byBucket(RollupStore.Tier.MONTH, deviceTypes.keySet(), fromSecond, toSecond)
+                    .forEach((month, aggregate) -> report.append(String.format("  %s: %.2f kWh (%d readings)\n",
+                        YearMonth.from(LocalDate.ofEpochDay(month / 86_400)), aggregate.getSum(), aggregate.getCount())));
+                report.append("\n");
+            }
+
             // Calculate and display total cost
             double totalConsumption = consumptionByType.values().stream()
                 .mapToDouble(Double::doubleValue)
@@ -401,10 +618,18 @@ public class EnergyConsumptionSystem {
             // Alert Analysis
             report.append("\nAlert Analysis:\n");
             report.append("--------------\n");
-            if (alerts.isEmpty()) {
+            long from = fromSecond;
+            long to = toSecond;
+            List<EnergyAlert> periodAlerts = alerts.stream()
+                .filter(alert -> {
+                    long second = alert.timestamp.toEpochSecond(ZoneOffset.UTC);
+                    return second >= from && second < to;
+                })
+                .collect(Collectors.toList());
+            if (periodAlerts.isEmpty()) {
                 report.append("No alerts recorded in this period.\n");
             } else {
-                Map<String, Long> alertsByStatus = alerts.stream()
+                Map<String, Long> alertsByStatus = periodAlerts.stream()
                     .collect(Collectors.groupingBy(a -> a.status, Collectors.counting()));
                 
                 report.append("Alert Status Summary:\n");
@@ -412,7 +637,7 @@ public class EnergyConsumptionSystem {
                     report.append(String.format("  %s: %d\n", status, count)));
                 
                 report.append("\nDetailed Alerts:\n");
-                alerts.forEach(alert -> report.append(String.format("  %s: %s (%s) - %s\n",
+                periodAlerts.forEach(alert -> report.append(String.format("  %s: %s (%s) - %s\n",
                     alert.deviceId,
                     alert.alertType,
                     alert.timestamp.format(DATE_FORMAT),
@@ -500,39 +725,50 @@ public class EnergyConsumptionSystem {
 
     private void listDevices() {
         System.out.println("\nRegistered IoT Devices:");
-        if (deviceReadings.isEmpty()) {
+        if (devices.isEmpty()) {
             System.out.println("No devices registered.");
             return;
         }
 
-        deviceReadings.forEach((deviceId, readings) -> {
-            EnergyReading latest = readings.get(readings.size() - 1);
+        devices.forEach((deviceId, summary) -> {
             System.out.printf("\nDevice ID: %s%n", deviceId);
-            System.out.printf("Type: %s%n", latest.deviceType);
-            System.out.printf("Last Reading: %.2f kWh%n", latest.consumption);
-            System.out.printf("Last Updated: %s%n", latest.timestamp.format(DATE_FORMAT));
+            System.out.printf("Type: %s%n", summary.deviceType);
+            if (summary.count > 0) {
+                System.out.printf("Last Reading: %.2f kWh%n", summary.latestConsumption);
+                System.out.printf("Last Updated: %s%n", format(summary.latestSecond));
+            }
         });
     }
 
     private void addDevice() {
         String deviceId = getValidDeviceId();
-        if (deviceReadings.containsKey(deviceId)) {
+        if (devices.containsKey(deviceId)) {
             System.out.println("Device already exists!");
             return;
         }
 
         String deviceType = getValidDeviceType();
-        deviceReadings.put(deviceId, new ArrayList<>());
-        System.out.println("Device added successfully. Ready to receive readings.");
+        try {
+            readingStore.addDevice(deviceId, deviceType);
+            devices.put(deviceId, new DeviceSummary(deviceType));
+            System.out.println("Device added successfully. Ready to receive readings.");
+        } catch (IOException e) {
+            System.out.println("Error saving device: " + e.getMessage());
+        }
     }
 
     private void removeDevice() {
         String deviceId = getValidDeviceId();
-        if (deviceReadings.remove(deviceId) != null) {
-            System.out.println("Device removed successfully.");
-            saveData();
-        } else {
-            System.out.println("Device not found.");
+        try {
+            spikeDetector.remove(deviceId);
+            rollups.removeDevice(deviceId);
+            if (devices.remove(deviceId) != null && readingStore.removeDevice(deviceId)) {
+                System.out.println("Device removed successfully.");
+            } else {
+                System.out.println("Device not found.");
+            }
+        } catch (IOException e) {
+            System.out.println("Error removing device: " + e.getMessage());
         }
     }
 
@@ -595,18 +831,41 @@ public class EnergyConsumptionSystem {
         }
     }
 
-    private static class EnergyReading {
-        private final String deviceId;
-        private final LocalDateTime timestamp;
-        private final double consumption;
-        private final String deviceType;
+    private static String format(long second) {
+        return LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC).format(DATE_FORMAT);
+    }
 
-        public EnergyReading(String deviceId, LocalDateTime timestamp, double consumption, String deviceType) {
-            this.deviceId = deviceId;
-            this.timestamp = timestamp;
-            this.consumption = consumption;
+    // A device's reading count, total, and oldest and latest readings
+    private static class DeviceSummary {
+        private String deviceType;
+        private int count;
+        private double total;
+        private long oldestSecond = Long.MAX_VALUE;
+        private long latestSecond = Long.MIN_VALUE;
+        private double latestConsumption;
+
+        public DeviceSummary(String deviceType) {
             this.deviceType = deviceType;
         }
+
+        DeviceSummary(String deviceType, RollupStore.Aggregate total) {
+            this.deviceType = deviceType;
+            this.count = (int) total.getCount();
+            this.total = total.getSum();
+            this.oldestSecond = total.getFirstSecond();
+            this.latestSecond = total.getLastSecond();
+            this.latestConsumption = total.getLastValue();
+        }
+
+        void add(long second, double consumption) {
+            count++;
+            total += consumption;
+            oldestSecond = Math.min(oldestSecond, second);
+            if (second >= latestSecond) {
+                latestSecond = second;
+                latestConsumption = consumption;
+            }
+        }
     }
 
     private static class EnergyAlert {
@@ -0,0 +1,52 @@
+package energy.service;
+
+import store.service.CsvReader;
+import java.io.IOException;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Replays readings from a text file of deviceId,yyyy-MM-dd HH:mm[:ss],kWh,type
+ * lines, the format of the old energy readings files. Lines that do not
+ * parse are counted and skipped.
+ *
+ * @author Akhilesh Nevatia
+ */
+public class FileReplaySource implements ReadingIngest.Source {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm[:ss]");
+
+    private final CsvReader reader;
+    private long skipped;
+
+    public FileReplaySource(String path) throws IOException {
+        this.reader = CsvReader.open(path);
+    }
+
+    public boolean fill(ReadingBatch batch) throws IOException {
+        while (!batch.isFull()) {
+            if (!reader.next()) {
+                return false;
+            }
+            if (reader.fields() != 4) {
+                skipped++;
+                continue;
+            }
+            try {
+                long second = reader.parseDateTime(1, TIME_FORMAT).toEpochSecond(ZoneOffset.UTC);
+                batch.add(reader.intern(0), reader.intern(3), second, reader.parseDouble(2));
+            } catch (RuntimeException e) {
+                skipped++;
+            }
+        }
+        return true;
+    }
+
+    // Lines left out because they did not parse
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,103 @@
+package energy.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.SplittableRandom;
+
+/**
+ * In-process feed of meters reporting at a fixed rate, for load tests and
+ * demonstrations. Every meter reports once a tick, hertz ticks a second of
+ * simulated time, each reading drawn around the meter's baseline with one
+ * in SPIKE_ODDS doubled. Paced, the feed keeps simulated time to the wall
+ * clock; otherwise it produces readings as fast as they are taken.
+ *
+ * @author Akhilesh Nevatia
+ */
+public class MeterSimulator implements ReadingIngest.Source {
+    public static final int SPIKE_ODDS = 1000;
+    private static final String[] TYPES = {"HVAC", "Refrigeration", "Lighting", "Other"};
+    private static final double[] BASELINES = {45, 110, 22, 8};
+
+    private final String[] meterIds;
+    private final String[] meterTypes;
+    private final double[] baselines;
+    private final double hertz;
+    private final long ticks;
+    private final long startSecond;
+    private final boolean paced;
+    private final SplittableRandom random;
+    private final long startNanos;
+    private long tick;
+    private int meter;
+
+    /**
+     * @param meters Number of meters, named MTR00001 onwards
+     * @param hertz Readings per meter per second of simulated time
+     * @param seconds Seconds of simulated time to produce
+     * @param start Simulated time of the first reading
+     * @param paced Whether to keep to the wall clock
+     */
+    public MeterSimulator(int meters, double hertz, long seconds, LocalDateTime start, boolean paced, long seed) {
+        this.meterIds = new String[meters];
+        this.meterTypes = new String[meters];
+        this.baselines = new double[meters];
+        this.random = new SplittableRandom(seed);
+        for (int i = 0; i < meters; i++) {
+            meterIds[i] = String.format("MTR%05d", i + 1);
+            meterTypes[i] = TYPES[i % TYPES.length];
+            baselines[i] = BASELINES[i % BASELINES.length] * (0.8 + random.nextDouble() * 0.4);
+        }
+        this.hertz = hertz;
+        this.ticks = (long) Math.ceil(seconds * hertz);
+        this.startSecond = start.toEpochSecond(ZoneOffset.UTC);
+        this.paced = paced;
+        this.startNanos = System.nanoTime();
+    }
+
+    public long getTotalReadings() {
+        return ticks * meterIds.length;
+    }
+
+    public boolean fill(ReadingBatch batch) {
+        while (!batch.isFull()) {
+            if (tick == ticks || meterIds.length == 0) {
+                return false;
+            }
+            if (meter == 0 && paced && !waitForTick(batch)) {
+                return true;
+            }
+            long second = startSecond + (long) (tick / hertz);
+            double consumption = baselines[meter] * (0.85 + random.nextDouble() * 0.3);
+            if (random.nextInt(SPIKE_ODDS) == 0) {
+                consumption *= 2;
+            }
+            batch.add(meterIds[meter], meterTypes[meter], second, consumption);
+            if (++meter == meterIds.length) {
+                meter = 0;
+                tick++;
+            }
+        }
+        return true;
+    }
+
+    // Sleeps until the current tick is due, unless readings are already
+    // batched, in which case they go first; returns whether the tick is due
+    private boolean waitForTick(ReadingBatch batch) {
+        long due = startNanos + (long) (tick * 1e9 / hertz);
+        long wait = due - System.nanoTime();
+        if (wait <= 0) {
+            return true;
+        }
+        if (batch.size() > 0) {
+            return false;
+        }
+        try {
+            Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            tick = ticks;
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,52 @@
+package energy.service;
+
+/**
+ * A reusable batch of energy readings held in parallel arrays, so a batch
+ * can be filled, written and refilled without creating an object per
+ * reading. Times are seconds as kept by ReadingStore.
+ *
+ * @author Akhilesh Nevatia
+ */
+public class ReadingBatch {
+    private final String[] deviceIds;
+    private final String[] deviceTypes;
+    private final long[] seconds;
+    private final double[] consumptions;
+    private int size;
+
+    public ReadingBatch(int capacity) {
+        this.deviceIds = new String[capacity];
+        this.deviceTypes = new String[capacity];
+        this.seconds = new long[capacity];
+        this.consumptions = new double[capacity];
+    }
+
+    /**
+     * Adds a reading
+     * @return false if the batch is full
+     */
+    public boolean add(String deviceId, String deviceType, long second, double consumption) {
+        if (size == seconds.length) {
+            return false;
+        }
+        deviceIds[size] = deviceId;
+        deviceTypes[size] = deviceType;
+        seconds[size] = second;
+        consumptions[size] = consumption;
+        size++;
+        return true;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() { return size; }
+    public int capacity() { return seconds.length; }
+    public boolean isFull() { return size == seconds.length; }
+
+    public String getDeviceId(int i) { return deviceIds[i]; }
+    public String getDeviceType(int i) { return deviceTypes[i]; }
+    public long getSecond(int i) { return seconds[i]; }
+    public double getConsumption(int i) { return consumptions[i]; }
+}
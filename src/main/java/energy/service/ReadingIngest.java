@@ -0,0 +1,190 @@
+package energy.service;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Moves readings in batches from a source to a sink through a bounded
+ * queue. A producer thread fills batches from the source and queues them;
+ * the calling thread takes them off and hands them to the sink. When the
+ * sink falls behind, the queue fills and the producer waits, so at most
+ * the queue's batches plus two are ever in memory. Batches are recycled
+ * rather than allocated per fill.
+ *
+ * Counters for readings, batches and the time each side spent waiting on
+ * the other can be read while the pipeline runs.
+ *
+ * @author Akhilesh Nevatia
+ */
+public class ReadingIngest {
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+    public static final int DEFAULT_QUEUE_BATCHES = 8;
+
+    /**
+     * Where readings come from
+     */
+    public interface Source {
+        /**
+         * Adds the next readings to a cleared batch
+         * @return false once the source has no more readings
+         */
+        boolean fill(ReadingBatch batch) throws IOException;
+
+        default void close() throws IOException {
+        }
+    }
+
+    /**
+     * Where readings go, called on the thread running the pipeline
+     */
+    public interface Sink {
+        void accept(ReadingBatch batch) throws IOException;
+    }
+
+    /**
+     * Receives the counters about once a second while the pipeline runs
+     */
+    public interface ProgressListener {
+        void progress(Counters counters);
+    }
+
+    /**
+     * Running totals for one pipeline
+     */
+    public static final class Counters {
+        private final AtomicLong produced = new AtomicLong();
+        private final AtomicLong consumed = new AtomicLong();
+        private final AtomicLong batches = new AtomicLong();
+        private final AtomicLong producerWaitNanos = new AtomicLong();
+        private final AtomicLong consumerWaitNanos = new AtomicLong();
+        private final long startNanos = System.nanoTime();
+        private volatile long endNanos;
+
+        // Readings read from the source
+        public long getProduced() { return produced.get(); }
+        // Readings the sink has taken
+        public long getConsumed() { return consumed.get(); }
+        public long getBatches() { return batches.get(); }
+        // Time the source spent blocked on a full queue
+        public long getProducerWaitMillis() { return producerWaitNanos.get() / 1_000_000; }
+        // Time the sink spent waiting on an empty queue
+        public long getConsumerWaitMillis() { return consumerWaitNanos.get() / 1_000_000; }
+
+        public long getElapsedMillis() {
+            long end = endNanos != 0 ? endNanos : System.nanoTime();
+            return (end - startNanos) / 1_000_000;
+        }
+
+        public double getReadingsPerSecond() {
+            long end = endNanos != 0 ? endNanos : System.nanoTime();
+            return end == startNanos ? 0 : consumed.get() * 1e9 / (end - startNanos);
+        }
+    }
+
+    private final int batchSize;
+    private final int queueBatches;
+
+    public ReadingIngest() {
+        this(DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_BATCHES);
+    }
+
+    public ReadingIngest(int batchSize, int queueBatches) {
+        this.batchSize = Math.max(1, batchSize);
+        this.queueBatches = Math.max(1, queueBatches);
+    }
+
+    /**
+     * Runs the source dry into the sink, or until the calling thread is
+     * interrupted. An error on either side stops both; the source is
+     * closed either way.
+     * @param listener Told of progress, may be null
+     * @return The final counters
+     * @throws IOException if the source or sink failed
+     */
+    public Counters run(Source source, Sink sink, ProgressListener listener) throws IOException {
+        Counters counters = new Counters();
+        BlockingQueue<ReadingBatch> full = new ArrayBlockingQueue<>(queueBatches);
+        // Empty batches for the producer; two more than the queue holds, for
+        // the batch being filled and the one being written
+        BlockingQueue<ReadingBatch> empty = new ArrayBlockingQueue<>(queueBatches + 2);
+        for (int i = 0; i < queueBatches + 2; i++) {
+            empty.add(new ReadingBatch(batchSize));
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicBoolean stopped = new AtomicBoolean();
+        AtomicReference<IOException> producerError = new AtomicReference<>();
+
+        Thread producer = new Thread(() -> {
+            try {
+                while (!stopped.get()) {
+                    ReadingBatch batch = empty.take();
+                    batch.clear();
+                    boolean more = source.fill(batch);
+                    counters.produced.addAndGet(batch.size());
+                    if (batch.size() > 0) {
+                        long start = System.nanoTime();
+                        full.put(batch);
+                        counters.producerWaitNanos.addAndGet(System.nanoTime() - start);
+                    } else {
+                        empty.add(batch);
+                    }
+                    if (!more) {
+                        break;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                producerError.set(e instanceof IOException ? (IOException) e : new IOException(e));
+            } catch (InterruptedException e) {
+                // Stopped by the consumer
+            } finally {
+                done.set(true);
+            }
+        }, "energy-ingest");
+        producer.setDaemon(true);
+        producer.start();
+
+        long lastProgress = System.nanoTime();
+        try {
+            while (true) {
+                long start = System.nanoTime();
+                ReadingBatch batch = full.poll(100, TimeUnit.MILLISECONDS);
+                counters.consumerWaitNanos.addAndGet(System.nanoTime() - start);
+                if (batch == null) {
+                    if (done.get() && full.isEmpty()) {
+                        break;
+                    }
+                } else {
+                    sink.accept(batch);
+                    counters.consumed.addAndGet(batch.size());
+                    counters.batches.incrementAndGet();
+                    empty.add(batch);
+                }
+                if (listener != null && System.nanoTime() - lastProgress >= 1_000_000_000L) {
+                    lastProgress = System.nanoTime();
+                    listener.progress(counters);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            stopped.set(true);
+            producer.interrupt();
+            try {
+                producer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            counters.endNanos = System.nanoTime();
+            source.close();
+        }
+        if (producerError.get() != null) {
+            throw producerError.get();
+        }
+        return counters;
+    }
+}
@@ -0,0 +1,490 @@
+package energy.service;
+
+import store.service.CsvReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * Append-only time series of a store's energy readings, partitioned by
+ * device and day: readings/HVAC_01/2024-02-01.ts holds HVAC_01's readings
+ * for that day, and devices.txt lists each device's type. A range query
+ * opens only the day files the range covers.
+ *
+ * Times are seconds since the epoch of the reading's local date-time, as
+ * if it were UTC. Each reading is encoded against the one before it in
+ * its day file:
+ * <pre>
+ *   byte control     bit 7 set if the time step repeats the previous one,
+ *                    low bits the value's XOR layout (0 if unchanged)
+ *   varint step      zig-zag seconds since the previous reading (since
+ *                    midnight for the first), absent if repeated
+ *   bytes xor        the value's float bits XOR the previous value's,
+ *                    without its leading and trailing zero bytes
+ * </pre>
+ * A meter reporting at a fixed interval with a steady load takes three or
+ * four bytes a reading. Values are kept as floats.
+ *
+ * @author Akhilesh Nevatia
+ */
+public class ReadingStore {
+    private static final String SUFFIX = ".ts";
+    private static final int REPEAT_STEP = 0x80;
+    private static final int MAX_READING_BYTES = 1 + 10 + Float.BYTES;
+    private static final int INITIAL_PENDING_BYTES = 256;
+
+    /**
+     * Receives readings from a query
+     */
+    public interface ReadingVisitor {
+        void reading(String deviceId, long second, double consumption);
+    }
+
+    // A device's day file open for appending, with the encoder's state and
+    // the readings encoded but not yet written
+    private static final class Partition {
+        final LocalDate day;
+        final FileChannel channel;
+        long lastSecond;
+        long lastStep;
+        int lastBits;
+        ByteBuffer pending;
+
+        Partition(LocalDate day, FileChannel channel) {
+            this.day = day;
+            this.channel = channel;
+            this.lastSecond = day.toEpochDay() * 86_400;
+            this.lastStep = Long.MIN_VALUE;
+            this.pending = ByteBuffer.allocate(INITIAL_PENDING_BYTES);
+        }
+
+        void write() throws IOException {
+            pending.flip();
+            while (pending.hasRemaining()) {
+                channel.write(pending);
+            }
+            pending.clear();
+        }
+    }
+
+    private final Path dir;
+    private final Path readingsDir;
+    private final Path devicesFile;
+    // Device id to type, in the order devices were added
+    private final Map<String, String> devices;
+    // Days each device has a file for
+    private final Map<String, NavigableSet<LocalDate>> days;
+    private final Map<String, Partition> open;
+
+    /**
+     * Opens the store kept in a directory, which is created on first append
+     * @param dir Directory holding devices.txt and readings/
+     */
+    public ReadingStore(Path dir) {
+        this.dir = dir;
+        this.readingsDir = dir.resolve("readings");
+        this.devicesFile = dir.resolve("devices.txt");
+        this.devices = new LinkedHashMap<>();
+        this.days = new HashMap<>();
+        this.open = new HashMap<>();
+        load();
+    }
+
+    public static boolean exists(Path dir) {
+        return Files.exists(dir.resolve("devices.txt"));
+    }
+
+    private void load() {
+        try {
+            if (Files.exists(devicesFile)) {
+                try (CsvReader reader = CsvReader.open(devicesFile.toString())) {
+                    while (reader.next()) {
+                        if (reader.fields() >= 2) {
+                            devices.put(reader.string(0), reader.intern(1));
+                        }
+                    }
+                }
+            }
+            for (String deviceId : devices.keySet()) {
+                NavigableSet<LocalDate> deviceDays = new TreeSet<>();
+                Path deviceDir = readingsDir.resolve(deviceId);
+                if (Files.isDirectory(deviceDir)) {
+                    try (DirectoryStream<Path> files = Files.newDirectoryStream(deviceDir, "*" + SUFFIX)) {
+                        for (Path file : files) {
+                            String name = file.getFileName().toString();
+                            deviceDays.add(LocalDate.parse(name.substring(0, name.length() - SUFFIX.length())));
+                        }
+                    }
+                }
+                days.put(deviceId, deviceDays);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error loading energy readings: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns each device's type, in the order the devices were added
+     */
+    public synchronized Map<String, String> getDevices() {
+        return new LinkedHashMap<>(devices);
+    }
+
+    public synchronized boolean hasDevice(String deviceId) {
+        return devices.containsKey(deviceId);
+    }
+
+    /**
+     * Returns the days a device has readings for, oldest first
+     */
+    public synchronized NavigableSet<LocalDate> getDays(String deviceId) {
+        NavigableSet<LocalDate> deviceDays = days.get(deviceId);
+        return deviceDays == null ? new TreeSet<>() : new TreeSet<>(deviceDays);
+    }
+
+    /**
+     * Adds a device with no readings, or changes a device's type
+     * @param deviceId Device id of letters, digits, hyphens and underscores
+     */
+    public synchronized void addDevice(String deviceId, String deviceType) throws IOException {
+        if (!deviceId.matches("[a-zA-Z0-9_-]+")) {
+            throw new IllegalArgumentException("Invalid device id: " + deviceId);
+        }
+        String current = devices.get(deviceId);
+        if (deviceType.equals(current)) {
+            return;
+        }
+        devices.put(deviceId, deviceType);
+        days.computeIfAbsent(deviceId, id -> new TreeSet<>());
+        if (current == null) {
+            Files.createDirectories(dir);
+            Files.write(devicesFile, (deviceId + "," + deviceType + "\n").getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } else {
+            writeDevices();
+        }
+    }
+
+    /**
+     * Removes a device and deletes its readings
+     * @return false if there is no such device
+     */
+    public synchronized boolean removeDevice(String deviceId) throws IOException {
+        if (devices.remove(deviceId) == null) {
+            return false;
+        }
+        days.remove(deviceId);
+        Partition partition = open.remove(deviceId);
+        if (partition != null) {
+            partition.channel.close();
+        }
+        Path deviceDir = readingsDir.resolve(deviceId);
+        if (Files.exists(deviceDir)) {
+            try (Stream<Path> paths = Files.walk(deviceDir)) {
+                for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(path);
+                }
+            }
+        }
+        writeDevices();
+        return true;
+    }
+
+    /**
+     * Appends a reading to its device's file for the reading's day, adding
+     * the device if it is new. Only the device's current day file is kept
+     * open, so readings arriving in time order never reopen a file.
+     * @param second Reading time in seconds, as described above
+     * @param consumption Consumption in kWh
+     */
+    public synchronized void append(String deviceId, String deviceType, long second, double consumption)
+            throws IOException {
+        Partition partition = partition(deviceId, deviceType, second);
+        encode(partition, second, consumption);
+        write(deviceId, partition);
+    }
+
+    /**
+     * Appends a batch of readings, writing each day file they touch once
+     * @see #append(String, String, long, double)
+     */
+    public synchronized void append(ReadingBatch batch) throws IOException {
+        Map<Partition, String> touched = new LinkedHashMap<>();
+        IOException failure = null;
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                Partition partition = partition(batch.getDeviceId(i), batch.getDeviceType(i), batch.getSecond(i));
+                if (partition.pending.position() == 0) {
+                    touched.put(partition, batch.getDeviceId(i));
+                }
+                encode(partition, batch.getSecond(i), batch.getConsumption(i));
+            }
+        } finally {
+            // Every touched file is written, or dropped if its write fails
+            for (Map.Entry<Partition, String> entry : touched.entrySet()) {
+                Partition partition = entry.getKey();
+                // A day the batch moved past was written when it was closed
+                if (open.get(entry.getValue()) == partition && partition.pending.position() > 0) {
+                    try {
+                        write(entry.getValue(), partition);
+                    } catch (IOException e) {
+                        if (failure == null) {
+                            failure = e;
+                        }
+                    }
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // Returns the device's open file for the second's day, writing out and
+    // closing the day before if the device has moved on
+    private Partition partition(String deviceId, String deviceType, long second) throws IOException {
+        Partition partition = open.get(deviceId);
+        if (partition != null && partition.day.toEpochDay() == Math.floorDiv(second, 86_400)) {
+            return partition;
+        }
+        if (!devices.containsKey(deviceId)) {
+            addDevice(deviceId, deviceType);
+        }
+        if (partition != null) {
+            write(deviceId, partition);
+            partition.channel.close();
+        }
+        partition = openPartition(deviceId, day(second));
+        open.put(deviceId, partition);
+        return partition;
+    }
+
+    // Writes out a partition's pending readings. The encoder has already
+    // moved past them, so if the write fails the partition is closed and
+    // dropped: the next append reopens the file, cuts off any half-written
+    // reading and restores the encoder from what reached the disk.
+    private void write(String deviceId, Partition partition) throws IOException {
+        try {
+            partition.write();
+        } catch (IOException | RuntimeException e) {
+            open.remove(deviceId, partition);
+            try {
+                partition.channel.close();
+            } catch (IOException closeError) {
+                e.addSuppressed(closeError);
+            }
+            throw e;
+        }
+    }
+
+    private static void encode(Partition partition, long second, double consumption) {
+        if (partition.pending.remaining() < MAX_READING_BYTES) {
+            ByteBuffer larger = ByteBuffer.allocate(partition.pending.capacity() * 2);
+            partition.pending.flip();
+            partition.pending = larger.put(partition.pending);
+        }
+        ByteBuffer encoded = partition.pending;
+        int bits = Float.floatToIntBits((float) consumption);
+        int xor = bits ^ partition.lastBits;
+        long step = second - partition.lastSecond;
+        int valueCode = 0;
+        int lead = 0;
+        int length = 0;
+        if (xor != 0) {
+            lead = Integer.numberOfLeadingZeros(xor) / 8;
+            int trail = Integer.numberOfTrailingZeros(xor) / 8;
+            length = Integer.BYTES - lead - trail;
+            valueCode = 1 + lead * 4 + trail;
+        }
+        encoded.put((byte) ((step == partition.lastStep ? REPEAT_STEP : 0) | valueCode));
+        if (step != partition.lastStep) {
+            putVarLong(encoded, (step << 1) ^ (step >> 63));
+        }
+        for (int i = 0; i < length; i++) {
+            encoded.put((byte) (xor >>> (8 * (Integer.BYTES - 1 - lead - i))));
+        }
+        partition.lastSecond = second;
+        partition.lastStep = step;
+        partition.lastBits = bits;
+    }
+
+    /**
+     * Visits one device's readings from one time up to, but not including,
+     * another. Readings come in day order, and within a day in the order
+     * they were appended.
+     */
+    public synchronized void query(String deviceId, long fromSecond, long toSecond, ReadingVisitor visitor)
+            throws IOException {
+        NavigableSet<LocalDate> deviceDays = days.get(deviceId);
+        if (deviceDays == null || fromSecond >= toSecond) {
+            return;
+        }
+        LocalDate first = day(fromSecond);
+        LocalDate last = day(toSecond - 1);
+        for (LocalDate day : deviceDays.subSet(first, true, last, true)) {
+            decode(deviceId, day, fromSecond, toSecond, visitor);
+        }
+    }
+
+    /**
+     * Visits every device's readings in a time range, device by device
+     */
+    public synchronized void query(long fromSecond, long toSecond, ReadingVisitor visitor) throws IOException {
+        for (String deviceId : devices.keySet()) {
+            query(deviceId, fromSecond, toSecond, visitor);
+        }
+    }
+
+    /**
+     * Deletes every device's day files before a day, except a day still
+     * open for appending
+     * @return Day files deleted
+     */
+    public synchronized int deleteBefore(LocalDate day) throws IOException {
+        int deleted = 0;
+        for (Map.Entry<String, NavigableSet<LocalDate>> entry : days.entrySet()) {
+            Partition partition = open.get(entry.getKey());
+            NavigableSet<LocalDate> old = entry.getValue().headSet(day, false);
+            for (LocalDate oldDay : new ArrayList<>(old)) {
+                if (partition != null && partition.day.equals(oldDay)) {
+                    continue;
+                }
+                Files.deleteIfExists(file(entry.getKey(), oldDay));
+                old.remove(oldDay);
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Closes the open day files; appending reopens them
+     */
+    public synchronized void close() {
+        for (Partition partition : open.values()) {
+            try {
+                partition.channel.close();
+            } catch (IOException e) {
+                System.out.println("Error closing energy readings: " + e.getMessage());
+            }
+        }
+        open.clear();
+    }
+
+    // The day a second falls on, with open-ended ranges clamped to the dates there are
+    private static LocalDate day(long second) {
+        long epochDay = Math.floorDiv(second, 86_400);
+        return LocalDate.ofEpochDay(Math.max(LocalDate.MIN.toEpochDay(),
+            Math.min(LocalDate.MAX.toEpochDay(), epochDay)));
+    }
+
+    private Path file(String deviceId, LocalDate day) {
+        return readingsDir.resolve(deviceId).resolve(day + SUFFIX);
+    }
+
+    // Opens a day file for appending, replaying it to restore the encoder's
+    // state and cutting off a reading left half-written
+    private Partition openPartition(String deviceId, LocalDate day) throws IOException {
+        Path file = file(deviceId, day);
+        Files.createDirectories(file.getParent());
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        Partition partition = new Partition(day, channel);
+        if (channel.size() > 0) {
+            long end = replay(Files.readAllBytes(file), partition, Long.MIN_VALUE, Long.MAX_VALUE, null, deviceId);
+            channel.truncate(end);
+        }
+        channel.position(channel.size());
+        days.get(deviceId).add(day);
+        return partition;
+    }
+
+    private void decode(String deviceId, LocalDate day, long fromSecond, long toSecond, ReadingVisitor visitor)
+            throws IOException {
+        Path file = file(deviceId, day);
+        if (Files.exists(file)) {
+            replay(Files.readAllBytes(file), new Partition(day, null), fromSecond, toSecond, visitor, deviceId);
+        }
+    }
+
+    // Decodes a day file into the partition's state, visiting readings in
+    // range, and returns the length of its complete readings
+    private static long replay(byte[] data, Partition state, long fromSecond, long toSecond,
+                               ReadingVisitor visitor, String deviceId) {
+        int at = 0;
+        while (at < data.length) {
+            int start = at;
+            int control = data[at++] & 0xFF;
+            long step = state.lastStep;
+            if ((control & REPEAT_STEP) == 0) {
+                long zigzag = 0;
+                int shift = 0;
+                while (true) {
+                    if (at >= data.length || shift > 63) {
+                        return start;
+                    }
+                    byte b = data[at++];
+                    zigzag |= (long) (b & 0x7F) << shift;
+                    if (b >= 0) {
+                        break;
+                    }
+                    shift += 7;
+                }
+                step = (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+            int xor = 0;
+            int valueCode = control & 0x0F;
+            if (valueCode != 0) {
+                int lead = (valueCode - 1) / 4;
+                int trail = (valueCode - 1) % 4;
+                int length = Integer.BYTES - lead - trail;
+                if (at + length > data.length) {
+                    return start;
+                }
+                for (int i = 0; i < length; i++) {
+                    xor = xor << 8 | (data[at++] & 0xFF);
+                }
+                xor <<= 8 * trail;
+            }
+            state.lastSecond += step;
+            state.lastStep = step;
+            state.lastBits ^= xor;
+            if (visitor != null && state.lastSecond >= fromSecond && state.lastSecond < toSecond) {
+                visitor.reading(deviceId, state.lastSecond, Float.intBitsToFloat(state.lastBits));
+            }
+        }
+        return at;
+    }
+
+    private void writeDevices() throws IOException {
+        StringBuilder text = new StringBuilder();
+        devices.forEach((id, type) -> text.append(id).append(',').append(type).append('\n'));
+        Files.createDirectories(dir);
+        Path temp = devicesFile.resolveSibling("devices.txt.tmp");
+        Files.write(temp, text.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, devicesFile, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+}
@@ -0,0 +1,68 @@
+package energy.service;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * How long a store keeps its energy readings at each resolution. Raw
+ * readings age out to the rollups after -Denergy.retention.raw.days
+ * (default 90), hourly rollups after -Denergy.retention.hour.days (default
+ * 730) and daily rollups after -Denergy.retention.day.days (default 3650);
+ * monthly rollups are kept for good. A value of 0 or less keeps that
+ * resolution for good as well.
+ *
+ * Ages are counted back from the store's newest reading rather than the
+ * clock, so replayed or imported history is not deleted as it arrives.
+ *
+ * @author Akhilesh Nevatia
+ */
+public class RetentionPolicy {
+    public static final String RAW_DAYS_PROPERTY = "energy.retention.raw.days";
+    public static final String HOUR_DAYS_PROPERTY = "energy.retention.hour.days";
+    public static final String DAY_DAYS_PROPERTY = "energy.retention.day.days";
+
+    private final int rawDays;
+    private final int hourDays;
+    private final int dayDays;
+
+    public RetentionPolicy() {
+        this(Integer.getInteger(RAW_DAYS_PROPERTY, 90),
+            Integer.getInteger(HOUR_DAYS_PROPERTY, 730),
+            Integer.getInteger(DAY_DAYS_PROPERTY, 3650));
+    }
+
+    public RetentionPolicy(int rawDays, int hourDays, int dayDays) {
+        this.rawDays = rawDays;
+        this.hourDays = hourDays;
+        this.dayDays = dayDays;
+    }
+
+    public int getRawDays() { return rawDays; }
+    public int getHourDays() { return hourDays; }
+    public int getDayDays() { return dayDays; }
+
+    /**
+     * Deletes what the policy no longer keeps. The rollups are flushed
+     * first, so no reading is deleted before it has been rolled up.
+     * @param newestSecond Time of the store's newest reading
+     * @return Raw day files and rollup buckets deleted
+     */
+    public long apply(ReadingStore readings, RollupStore rollups, long newestSecond) throws IOException {
+        if (newestSecond == Long.MIN_VALUE) {
+            return 0;
+        }
+        rollups.flush();
+        LocalDate newest = LocalDate.ofEpochDay(Math.floorDiv(newestSecond, 86_400));
+        long deleted = 0;
+        if (rawDays > 0) {
+            deleted += readings.deleteBefore(newest.minusDays(rawDays));
+        }
+        if (hourDays > 0) {
+            deleted += rollups.dropBefore(RollupStore.Tier.HOUR, newest.minusDays(hourDays).toEpochDay() * 86_400);
+        }
+        if (dayDays > 0) {
+            deleted += rollups.dropBefore(RollupStore.Tier.DAY, newest.minusDays(dayDays).toEpochDay() * 86_400);
+        }
+        return deleted;
+    }
+}
@@ -0,0 +1,535 @@
+package energy.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Hourly, daily and monthly rollups of a store's energy readings. Each
+ * device has a bucket per hour, day and month it has readings in, holding
+ * the readings' count, sum, sum of squares, minimum and maximum and the
+ * first and last reading, so a year of a device's readings reads as twelve
+ * monthly buckets. The rollups outlive the readings RetentionPolicy ages
+ * out of the ReadingStore.
+ *
+ * Each tier of a device is a file of fixed-width records in bucket order,
+ * rollups/HVAC_01/hour.bin and so on:
+ * <pre>
+ *   long bucket       first second of the hour, day or month
+ *   long count
+ *   double sum, sumSquares, min, max
+ *   long first, last  seconds of the first and last reading
+ *   double lastValue  the last reading
+ * </pre>
+ * Times are seconds as kept by ReadingStore. Adding a reading changes its
+ * buckets in memory; flush() writes the changed records in place. Only the
+ * newest bucket of each file is held, so readings arriving in time order
+ * touch nothing else, and ranges are found by binary search of the file.
+ *
+ * @author Akhilesh Nevatia
+ */
+public class RollupStore {
+    private static final int RECORD_BYTES = 9 * 8;
+    private static final String SUFFIX = ".bin";
+
+    /**
+     * Bucket sizes, finest first
+     */
+    public enum Tier {
+        HOUR, DAY, MONTH;
+
+        /**
+         * Returns the first second of the bucket a second falls in
+         */
+        public long bucket(long second) {
+            switch (this) {
+                case HOUR:
+                    return Math.floorDiv(second, 3600) * 3600;
+                case DAY:
+                    return Math.floorDiv(second, 86_400) * 86_400;
+                default:
+                    return LocalDate.ofEpochDay(Math.floorDiv(second, 86_400)).withDayOfMonth(1).toEpochDay() * 86_400;
+            }
+        }
+
+        /**
+         * Returns the first second of the bucket after the one starting at a second
+         */
+        public long next(long bucket) {
+            switch (this) {
+                case HOUR:
+                    return bucket + 3600;
+                case DAY:
+                    return bucket + 86_400;
+                default:
+                    return LocalDate.ofEpochDay(bucket / 86_400).plusMonths(1).toEpochDay() * 86_400;
+            }
+        }
+
+        /**
+         * Returns the coarsest tier whose buckets start and end on both
+         * times, where Long.MIN_VALUE and Long.MAX_VALUE leave a range open
+         */
+        public static Tier coarsest(long fromSecond, long toSecond) {
+            for (Tier tier : new Tier[] {MONTH, DAY}) {
+                if ((fromSecond == Long.MIN_VALUE || tier.bucket(fromSecond) == fromSecond)
+                        && (toSecond == Long.MAX_VALUE || tier.bucket(toSecond) == toSecond)) {
+                    return tier;
+                }
+            }
+            return HOUR;
+        }
+
+        String fileName() {
+            return name().toLowerCase() + SUFFIX;
+        }
+    }
+
+    /**
+     * Count, sum, extremes and last reading of a bucket, or of several
+     * buckets merged
+     */
+    public static final class Aggregate {
+        private final long bucket;
+        private final long end;
+        private long count;
+        private double sum;
+        private double sumSquares;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private long firstSecond = Long.MAX_VALUE;
+        private long lastSecond = Long.MIN_VALUE;
+        private double lastValue;
+        // Record number in the tier's file, and whether it has changed since written
+        private int slot = -1;
+        private boolean dirty;
+
+        public Aggregate(long bucket, long end) {
+            this.bucket = bucket;
+            this.end = end;
+        }
+
+        void add(long second, double value) {
+            count++;
+            sum += value;
+            sumSquares += value * value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            firstSecond = Math.min(firstSecond, second);
+            if (second >= lastSecond) {
+                lastSecond = second;
+                lastValue = value;
+            }
+        }
+
+        /**
+         * Adds another aggregate's readings to this one
+         */
+        public void merge(Aggregate other) {
+            count += other.count;
+            sum += other.sum;
+            sumSquares += other.sumSquares;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            firstSecond = Math.min(firstSecond, other.firstSecond);
+            if (other.lastSecond >= lastSecond) {
+                lastSecond = other.lastSecond;
+                lastValue = other.lastValue;
+            }
+        }
+
+        public long getBucket() { return bucket; }
+        public long getCount() { return count; }
+        public double getSum() { return sum; }
+        public double getSumSquares() { return sumSquares; }
+        public double getMin() { return min; }
+        public double getMax() { return max; }
+        public long getFirstSecond() { return firstSecond; }
+        public long getLastSecond() { return lastSecond; }
+        public double getLastValue() { return lastValue; }
+
+        public double getMean() {
+            return count == 0 ? 0 : sum / count;
+        }
+
+        private void write(ByteBuffer buffer) {
+            buffer.putLong(bucket).putLong(count).putDouble(sum).putDouble(sumSquares)
+                .putDouble(min).putDouble(max).putLong(firstSecond).putLong(lastSecond).putDouble(lastValue);
+        }
+
+        private static Aggregate read(Tier tier, ByteBuffer buffer, int slot) {
+            long bucket = buffer.getLong();
+            Aggregate aggregate = new Aggregate(bucket, tier.next(bucket));
+            aggregate.count = buffer.getLong();
+            aggregate.sum = buffer.getDouble();
+            aggregate.sumSquares = buffer.getDouble();
+            aggregate.min = buffer.getDouble();
+            aggregate.max = buffer.getDouble();
+            aggregate.firstSecond = buffer.getLong();
+            aggregate.lastSecond = buffer.getLong();
+            aggregate.lastValue = buffer.getDouble();
+            aggregate.slot = slot;
+            return aggregate;
+        }
+    }
+
+    // One tier of one device: its file, the newest bucket and the buckets
+    // changed since the last flush
+    private static final class Series {
+        final Tier tier;
+        final Path file;
+        int records;
+        Aggregate tail;
+        final List<Aggregate> dirty = new ArrayList<>();
+
+        Series(Tier tier, Path file) {
+            this.tier = tier;
+            this.file = file;
+        }
+    }
+
+    private final Path dir;
+    // Device id to its series, one per tier
+    private final Map<String, Series[]> series;
+
+    /**
+     * Opens the rollups kept in a directory, which is created on first flush
+     * @param dir Directory holding a directory of tier files per device
+     */
+    public RollupStore(Path dir) {
+        this.dir = dir;
+        this.series = new HashMap<>();
+        try {
+            if (Files.isDirectory(dir)) {
+                try (DirectoryStream<Path> devices = Files.newDirectoryStream(dir, Files::isDirectory)) {
+                    for (Path device : devices) {
+                        series(device.getFileName().toString());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Error loading energy rollups: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Adds a reading to its hour, day and month
+     */
+    public synchronized void add(String deviceId, long second, double value) throws IOException {
+        for (Series tierSeries : series(deviceId)) {
+            add(tierSeries, second, value);
+        }
+    }
+
+    /**
+     * Adds the device's readings newer than its rollups, as after a crash
+     * between storing readings and flushing their rollups, or when rollups
+     * are first built for readings stored without them
+     * @return Readings added
+     */
+    public synchronized long catchUp(String deviceId, ReadingStore readings) throws IOException {
+        Series[] tiers = series(deviceId);
+        // The last reading each tier has, before any are added
+        long[] tierCovered = new long[tiers.length];
+        long covered = Long.MAX_VALUE;
+        for (int i = 0; i < tiers.length; i++) {
+            tierCovered[i] = tiers[i].tail == null ? Long.MIN_VALUE : tiers[i].tail.lastSecond;
+            covered = Math.min(covered, tierCovered[i]);
+        }
+        long[] added = new long[1];
+        IOException[] error = new IOException[1];
+        long from = covered == Long.MIN_VALUE ? Long.MIN_VALUE : covered + 1;
+        readings.query(deviceId, from, Long.MAX_VALUE, (id, second, consumption) -> {
+            if (error[0] != null) {
+                return;
+            }
+            try {
+                for (int i = 0; i < tiers.length; i++) {
+                    if (tierCovered[i] == Long.MIN_VALUE || second > tierCovered[i]) {
+                        add(tiers[i], second, consumption);
+                    }
+                }
+                added[0]++;
+            } catch (IOException e) {
+                error[0] = e;
+            }
+        });
+        if (error[0] != null) {
+            throw error[0];
+        }
+        return added[0];
+    }
+
+    private void add(Series tierSeries, long second, double value) throws IOException {
+        Aggregate aggregate = tierSeries.tail;
+        if (aggregate == null || second >= aggregate.end) {
+            long bucket = tierSeries.tier.bucket(second);
+            aggregate = new Aggregate(bucket, tierSeries.tier.next(bucket));
+            aggregate.slot = tierSeries.records++;
+            tierSeries.tail = aggregate;
+        } else if (second < aggregate.bucket) {
+            aggregate = older(tierSeries, second);
+        }
+        aggregate.add(second, value);
+        if (!aggregate.dirty) {
+            aggregate.dirty = true;
+            tierSeries.dirty.add(aggregate);
+        }
+    }
+
+    // Finds the bucket for a reading older than the newest bucket, inserting
+    // it in order if it is new
+    private Aggregate older(Series tierSeries, long second) throws IOException {
+        flush(tierSeries);
+        long bucket = tierSeries.tier.bucket(second);
+        int slot = lowerBound(tierSeries, bucket);
+        if (slot < tierSeries.records) {
+            Aggregate found = read(tierSeries, slot, slot + 1).get(0);
+            if (found.bucket == bucket) {
+                return found;
+            }
+        }
+        List<Aggregate> all = read(tierSeries, 0, tierSeries.records);
+        Aggregate inserted = new Aggregate(bucket, tierSeries.tier.next(bucket));
+        all.add(slot, inserted);
+        rewrite(tierSeries, all);
+        return inserted;
+    }
+
+    /**
+     * Writes the buckets changed since the last flush
+     */
+    public synchronized void flush() throws IOException {
+        for (Series[] tiers : series.values()) {
+            for (Series tierSeries : tiers) {
+                flush(tierSeries);
+            }
+        }
+    }
+
+    private void flush(Series tierSeries) throws IOException {
+        if (tierSeries.dirty.isEmpty()) {
+            return;
+        }
+        Files.createDirectories(tierSeries.file.getParent());
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_BYTES);
+        try (FileChannel channel = FileChannel.open(tierSeries.file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            for (Aggregate aggregate : tierSeries.dirty) {
+                buffer.clear();
+                aggregate.write(buffer);
+                buffer.flip();
+                long position = (long) aggregate.slot * RECORD_BYTES;
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                aggregate.dirty = false;
+            }
+        }
+        tierSeries.dirty.clear();
+    }
+
+    /**
+     * Returns a device's buckets in a tier that start in a range, oldest first
+     */
+    public synchronized List<Aggregate> query(Tier tier, String deviceId, long fromSecond, long toSecond)
+            throws IOException {
+        Series[] tiers = series.get(deviceId);
+        if (tiers == null || fromSecond >= toSecond) {
+            return new ArrayList<>();
+        }
+        Series tierSeries = tiers[tier.ordinal()];
+        flush(tierSeries);
+        int from = fromSecond == Long.MIN_VALUE ? 0 : lowerBound(tierSeries, fromSecond);
+        int to = toSecond == Long.MAX_VALUE ? tierSeries.records : lowerBound(tierSeries, toSecond);
+        List<Aggregate> buckets = read(tierSeries, from, to);
+        buckets.removeIf(bucket -> bucket.count == 0);
+        return buckets;
+    }
+
+    /**
+     * Returns everything rolled up for a device, or an empty aggregate
+     */
+    public synchronized Aggregate total(String deviceId) throws IOException {
+        Aggregate total = new Aggregate(Long.MIN_VALUE, Long.MAX_VALUE);
+        for (Aggregate month : query(Tier.MONTH, deviceId, Long.MIN_VALUE, Long.MAX_VALUE)) {
+            total.merge(month);
+        }
+        return total;
+    }
+
+    /**
+     * Merges the devices' buckets starting in a range by device type, from
+     * the coarsest tier that fits the range
+     * @param deviceTypes Device id to type
+     */
+    public synchronized Map<String, Aggregate> byType(Map<String, String> deviceTypes, long fromSecond, long toSecond)
+            throws IOException {
+        Tier tier = Tier.coarsest(fromSecond, toSecond);
+        Map<String, Aggregate> types = new HashMap<>();
+        for (Map.Entry<String, String> device : deviceTypes.entrySet()) {
+            for (Aggregate bucket : query(tier, device.getKey(), fromSecond, toSecond)) {
+                types.computeIfAbsent(device.getValue(), type -> new Aggregate(fromSecond, toSecond)).merge(bucket);
+            }
+        }
+        return types;
+    }
+
+    /**
+     * Merges the devices' buckets in a tier starting in a range by bucket,
+     * as for a year's consumption month by month
+     */
+    public synchronized NavigableMap<Long, Aggregate> byBucket(Tier tier, Collection<String> deviceIds,
+                                                               long fromSecond, long toSecond) throws IOException {
+        NavigableMap<Long, Aggregate> buckets = new TreeMap<>();
+        for (String deviceId : deviceIds) {
+            for (Aggregate bucket : query(tier, deviceId, fromSecond, toSecond)) {
+                buckets.computeIfAbsent(bucket.bucket, start -> new Aggregate(start, bucket.end)).merge(bucket);
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * Deletes a tier's buckets that start before a time, for every device
+     * @return Buckets deleted
+     */
+    public synchronized long dropBefore(Tier tier, long second) throws IOException {
+        long dropped = 0;
+        for (Series[] tiers : series.values()) {
+            Series tierSeries = tiers[tier.ordinal()];
+            flush(tierSeries);
+            int keepFrom = lowerBound(tierSeries, second);
+            if (keepFrom > 0) {
+                rewrite(tierSeries, read(tierSeries, keepFrom, tierSeries.records));
+                dropped += keepFrom;
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Deletes a device's rollups
+     */
+    public synchronized void removeDevice(String deviceId) throws IOException {
+        series.remove(deviceId);
+        Path deviceDir = dir.resolve(deviceId);
+        if (Files.exists(deviceDir)) {
+            try (Stream<Path> paths = Files.walk(deviceDir)) {
+                for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    // Returns a device's series, reading the newest bucket of each tier's file the first time
+    private Series[] series(String deviceId) throws IOException {
+        Series[] tiers = series.get(deviceId);
+        if (tiers != null) {
+            return tiers;
+        }
+        tiers = new Series[Tier.values().length];
+        for (Tier tier : Tier.values()) {
+            Series tierSeries = new Series(tier, dir.resolve(deviceId).resolve(tier.fileName()));
+            if (Files.exists(tierSeries.file)) {
+                // A record cut short by a crash is overwritten by the next
+                tierSeries.records = (int) (Files.size(tierSeries.file) / RECORD_BYTES);
+                if (tierSeries.records > 0) {
+                    tierSeries.tail = read(tierSeries, tierSeries.records - 1, tierSeries.records).get(0);
+                }
+            }
+            tiers[tier.ordinal()] = tierSeries;
+        }
+        series.put(deviceId, tiers);
+        return tiers;
+    }
+
+    // The first record whose bucket starts at or after a second, by binary search
+    private static int lowerBound(Series tierSeries, long second) throws IOException {
+        if (tierSeries.records == 0) {
+            return 0;
+        }
+        ByteBuffer bucket = ByteBuffer.allocate(Long.BYTES);
+        try (FileChannel channel = FileChannel.open(tierSeries.file, StandardOpenOption.READ)) {
+            int low = 0;
+            int high = tierSeries.records;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                bucket.clear();
+                readFully(channel, bucket, (long) middle * RECORD_BYTES);
+                if (bucket.getLong(0) < second) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    private static List<Aggregate> read(Series tierSeries, int from, int to) throws IOException {
+        List<Aggregate> aggregates = new ArrayList<>(Math.max(0, to - from));
+        if (from >= to) {
+            return aggregates;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((to - from) * RECORD_BYTES);
+        try (FileChannel channel = FileChannel.open(tierSeries.file, StandardOpenOption.READ)) {
+            readFully(channel, buffer, (long) from * RECORD_BYTES);
+        }
+        buffer.flip();
+        for (int slot = from; slot < to; slot++) {
+            aggregates.add(Aggregate.read(tierSeries.tier, buffer, slot));
+        }
+        return aggregates;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Energy rollup file is shorter than expected");
+            }
+            position += read;
+        }
+    }
+
+    // Replaces a series' file with the given buckets, in order, through a
+    // temporary file so a crash leaves the old or the new file whole
+    private static void rewrite(Series tierSeries, List<Aggregate> aggregates) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(aggregates.size() * RECORD_BYTES);
+        for (Aggregate aggregate : aggregates) {
+            aggregate.write(buffer);
+        }
+        buffer.flip();
+        Files.createDirectories(tierSeries.file.getParent());
+        Path temp = tierSeries.file.resolveSibling(tierSeries.file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(temp, tierSeries.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        tierSeries.records = aggregates.size();
+        tierSeries.tail = aggregates.isEmpty() ? null : aggregates.get(aggregates.size() - 1);
+        for (int slot = 0; slot < aggregates.size(); slot++) {
+            aggregates.get(slot).slot = slot;
+        }
+    }
+}
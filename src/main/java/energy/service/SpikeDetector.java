@@ -0,0 +1,442 @@
+package energy.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Streaming spike detection for energy readings. Each device keeps running
+ * statistics in constant memory, however long the device's history:
+ * <ul>
+ *   <li>mean and variance over all readings, by Welford's method</li>
+ *   <li>an exponentially weighted moving average (EWMA) of recent readings</li>
+ *   <li>the last window readings in a ring buffer, also held in value
+ *       order by a treap over the buffer's slots when a percentile rule
+ *       needs one</li>
+ * </ul>
+ * A reading updates them in constant time, or in time logarithmic in the
+ * window when percentiles are kept.
+ * A reading is a spike if any configured rule fires against the statistics
+ * of the readings before it. Rules are set with -Denergy.spike.rules, a
+ * comma-separated list of:
+ * <pre>
+ *   ratio:R        above R times the all-time mean (default, ratio:1.5)
+ *   ewma:R         above R times the EWMA
+ *   zscore:Z       more than Z standard deviations above the all-time mean
+ *   percentile:P   above the P-th percentile of the window
+ * </pre>
+ * The window is set with -Denergy.spike.window (default 1440 readings) and
+ * the EWMA's weight for a new reading with -Denergy.spike.alpha (default
+ * 0.1). The ratio rule applies from a device's second reading, as before;
+ * the others wait for MIN_READINGS readings. A device's all-time statistics
+ * can be restored from its rollups rather than by replaying its history.
+ *
+ * @author Akhilesh Nevatia
+ */
+public class SpikeDetector {
+    public static final String RULES_PROPERTY = "energy.spike.rules";
+    public static final String WINDOW_PROPERTY = "energy.spike.window";
+    public static final String ALPHA_PROPERTY = "energy.spike.alpha";
+    // Readings the statistical rules need before they fire
+    public static final int MIN_READINGS = 30;
+
+    public enum Kind { RATIO, EWMA, ZSCORE, PERCENTILE }
+
+    /**
+     * One threshold a reading is checked against
+     */
+    public static final class Rule {
+        private final Kind kind;
+        private final double threshold;
+
+        public Rule(Kind kind, double threshold) {
+            this.kind = kind;
+            this.threshold = threshold;
+        }
+
+        public Kind getKind() { return kind; }
+        public double getThreshold() { return threshold; }
+
+        /**
+         * Parses rules such as "ratio:1.5,zscore:3"
+         * @param value Rules to parse
+         * @return The rules, or the 1.5x ratio rule if the value is missing or not valid
+         */
+        public static List<Rule> parseAll(String value) {
+            List<Rule> rules = new ArrayList<>();
+            if (value != null) {
+                for (String part : value.split(",")) {
+                    String[] fields = part.trim().split(":");
+                    try {
+                        Kind kind = Kind.valueOf(fields[0].trim().toUpperCase());
+                        rules.add(new Rule(kind, fields.length > 1 ? Double.parseDouble(fields[1]) : defaultThreshold(kind)));
+                    } catch (IllegalArgumentException e) {
+                        System.err.println("Unknown energy spike rule '" + part + "', ignoring it");
+                    }
+                }
+            }
+            if (rules.isEmpty()) {
+                rules.add(new Rule(Kind.RATIO, 1.5));
+            }
+            return rules;
+        }
+
+        private static double defaultThreshold(Kind kind) {
+            switch (kind) {
+                case ZSCORE: return 3;
+                case PERCENTILE: return 99;
+                default: return 1.5;
+            }
+        }
+
+        @Override
+        public String toString() {
+            switch (kind) {
+                case EWMA: return threshold + "x the moving average";
+                case ZSCORE: return threshold + " standard deviations above average";
+                case PERCENTILE: return "above the " + threshold + "th percentile";
+                default: return threshold + "x the average";
+            }
+        }
+    }
+
+    /**
+     * A device's running statistics
+     */
+    public static final class DeviceStats {
+        private long count;
+        private double mean;
+        // Sum of squared differences from the mean, for Welford's variance
+        private double m2;
+        private double ewma;
+        // Last readings in arrival order, oldest at next once full
+        private final double[] ring;
+        // The same readings by value, if a rule needs percentiles
+        private final OrderedWindow ordered;
+        private int windowSize;
+        private int next;
+
+        DeviceStats(int window, int[] priorities) {
+            this.ring = new double[window];
+            this.ordered = priorities != null ? new OrderedWindow(ring, priorities) : null;
+        }
+
+        void add(double value, double alpha) {
+            count++;
+            double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+            ewma = count == 1 ? value : ewma + alpha * (value - ewma);
+            slide(value);
+        }
+
+        // Adds a reading to the moving average and the window only
+        void addRecent(double value, double alpha) {
+            ewma = windowSize == 0 ? value : ewma + alpha * (value - ewma);
+            slide(value);
+        }
+
+        private void slide(double value) {
+            if (windowSize == ring.length) {
+                if (ordered != null) {
+                    // Drop the oldest reading before its slot is reused
+                    ordered.remove(next);
+                }
+                windowSize--;
+            }
+            ring[next] = value;
+            if (ordered != null) {
+                ordered.insert(next);
+            }
+            next = (next + 1) % ring.length;
+            windowSize++;
+        }
+
+        public long getCount() { return count; }
+        public double getMean() { return mean; }
+        public double getEwma() { return ewma; }
+        public int getWindowSize() { return windowSize; }
+
+        public double getVariance() {
+            return count > 1 ? m2 / (count - 1) : 0;
+        }
+
+        public double getStandardDeviation() {
+            return Math.sqrt(getVariance());
+        }
+
+        /**
+         * Returns the p-th percentile of the window by the nearest-rank method
+         * @param p Percentile from 0 to 100
+         * @return The percentile, or 0 if no rule needs percentiles
+         */
+        public double getPercentile(double p) {
+            if (windowSize == 0 || ordered == null) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(p / 100 * windowSize);
+            return ring[ordered.select(Math.max(0, Math.min(windowSize - 1, rank - 1)))];
+        }
+    }
+
+    /**
+     * The slots of a device's ring buffer ordered by reading, as a treap
+     * keyed by (reading, slot) with one node per slot. Subtree sizes give
+     * the reading of any rank. Inserting, removing and selecting take
+     * expected time logarithmic in the window.
+     */
+    private static final class OrderedWindow {
+        private static final int NONE = -1;
+
+        private final double[] ring;
+        // Random heap priorities by slot, shared by every device's window
+        private final int[] priorities;
+        private final int[] left;
+        private final int[] right;
+        private final int[] size;
+        private int root = NONE;
+        // Halves produced by split
+        private int lower;
+        private int upper;
+
+        OrderedWindow(double[] ring, int[] priorities) {
+            this.ring = ring;
+            this.priorities = priorities;
+            this.left = new int[ring.length];
+            this.right = new int[ring.length];
+            this.size = new int[ring.length];
+        }
+
+        // Adds a slot once its reading is in the ring
+        void insert(int slot) {
+            left[slot] = NONE;
+            right[slot] = NONE;
+            size[slot] = 1;
+            root = insert(root, slot);
+        }
+
+        // Removes a slot while its reading is still in the ring
+        void remove(int slot) {
+            root = remove(root, slot);
+        }
+
+        // Slot holding the reading of the given rank, counted from 0
+        int select(int rank) {
+            int node = root;
+            while (true) {
+                int before = size(left[node]);
+                if (rank < before) {
+                    node = left[node];
+                } else if (rank == before) {
+                    return node;
+                } else {
+                    rank -= before + 1;
+                    node = right[node];
+                }
+            }
+        }
+
+        private int insert(int node, int slot) {
+            if (node == NONE) {
+                return slot;
+            }
+            if (priorities[slot] > priorities[node]) {
+                split(node, slot);
+                left[slot] = lower;
+                right[slot] = upper;
+                resize(slot);
+                return slot;
+            }
+            if (before(slot, node)) {
+                left[node] = insert(left[node], slot);
+            } else {
+                right[node] = insert(right[node], slot);
+            }
+            size[node]++;
+            return node;
+        }
+
+        private int remove(int node, int slot) {
+            if (node == slot) {
+                return merge(left[node], right[node]);
+            }
+            if (before(slot, node)) {
+                left[node] = remove(left[node], slot);
+            } else {
+                right[node] = remove(right[node], slot);
+            }
+            size[node]--;
+            return node;
+        }
+
+        // Splits a subtree into the slots ordered before key and the rest
+        private void split(int node, int key) {
+            if (node == NONE) {
+                lower = NONE;
+                upper = NONE;
+            } else if (before(node, key)) {
+                split(right[node], key);
+                right[node] = lower;
+                resize(node);
+                lower = node;
+            } else {
+                split(left[node], key);
+                left[node] = upper;
+                resize(node);
+                upper = node;
+            }
+        }
+
+        // Joins two subtrees whose slots are all ordered a before b
+        private int merge(int a, int b) {
+            if (a == NONE) {
+                return b;
+            }
+            if (b == NONE) {
+                return a;
+            }
+            if (priorities[a] > priorities[b]) {
+                right[a] = merge(right[a], b);
+                resize(a);
+                return a;
+            }
+            left[b] = merge(a, left[b]);
+            resize(b);
+            return b;
+        }
+
+        private boolean before(int a, int b) {
+            int order = Double.compare(ring[a], ring[b]);
+            return order < 0 || order == 0 && a < b;
+        }
+
+        private int size(int node) {
+            return node == NONE ? 0 : size[node];
+        }
+
+        private void resize(int node) {
+            size[node] = size(left[node]) + 1 + size(right[node]);
+        }
+    }
+
+    private final List<Rule> rules;
+    private final int window;
+    private final double alpha;
+    // Treap priorities by window slot, or null if no rule needs percentiles
+    private final int[] priorities;
+    private final Map<String, DeviceStats> devices;
+
+    public SpikeDetector() {
+        this(Rule.parseAll(System.getProperty(RULES_PROPERTY)),
+            Integer.getInteger(WINDOW_PROPERTY, 1440),
+            Double.parseDouble(System.getProperty(ALPHA_PROPERTY, "0.1")));
+    }
+
+    public SpikeDetector(List<Rule> rules, int window, double alpha) {
+        this.rules = new ArrayList<>(rules);
+        this.window = Math.max(1, window);
+        this.alpha = alpha;
+        this.priorities = rules.stream().anyMatch(rule -> rule.kind == Kind.PERCENTILE)
+            ? new Random(this.window).ints(this.window).toArray() : null;
+        this.devices = new HashMap<>();
+    }
+
+    // Readings the window holds
+    public int getWindow() {
+        return window;
+    }
+
+    public List<Rule> getRules() {
+        return new ArrayList<>(rules);
+    }
+
+    /**
+     * Adds a reading to a device's statistics without checking it, as when
+     * replaying stored history
+     */
+    public void add(String deviceId, double consumption) {
+        stats(deviceId).add(consumption, alpha);
+    }
+
+    /**
+     * Restores a device's all-time statistics from rollups, in place of
+     * adding every reading. The moving average and window start empty;
+     * addRecent() refills them from the latest readings.
+     * @param count Readings rolled up
+     * @param sum Their sum
+     * @param sumSquares Their sum of squares
+     */
+    public void restore(String deviceId, long count, double sum, double sumSquares) {
+        DeviceStats stats = new DeviceStats(window, priorities);
+        if (count > 0) {
+            stats.count = count;
+            stats.mean = sum / count;
+            stats.m2 = Math.max(0, sumSquares - sum * stats.mean);
+        }
+        devices.put(deviceId, stats);
+    }
+
+    /**
+     * Adds one of a device's latest readings to its moving average and
+     * window, leaving the all-time statistics restored from rollups alone
+     */
+    public void addRecent(String deviceId, double consumption) {
+        stats(deviceId).addRecent(consumption, alpha);
+    }
+
+    /**
+     * Checks a reading against the device's readings so far, then adds it
+     * @return The first rule the reading breaks, or null if it is not a spike
+     */
+    public Rule check(String deviceId, double consumption) {
+        DeviceStats stats = stats(deviceId);
+        Rule fired = null;
+        for (Rule rule : rules) {
+            if (breaks(rule, stats, consumption)) {
+                fired = rule;
+                break;
+            }
+        }
+        stats.add(consumption, alpha);
+        return fired;
+    }
+
+    /**
+     * Returns a device's statistics, or null if it has no readings
+     */
+    public DeviceStats getStats(String deviceId) {
+        return devices.get(deviceId);
+    }
+
+    public void remove(String deviceId) {
+        devices.remove(deviceId);
+    }
+
+    private DeviceStats stats(String deviceId) {
+        DeviceStats stats = devices.get(deviceId);
+        if (stats == null) {
+            stats = new DeviceStats(window, priorities);
+            devices.put(deviceId, stats);
+        }
+        return stats;
+    }
+
+    private static boolean breaks(Rule rule, DeviceStats stats, double consumption) {
+        if (stats.count == 0 || rule.kind != Kind.RATIO && stats.count < MIN_READINGS) {
+            return false;
+        }
+        switch (rule.kind) {
+            case RATIO:
+                return consumption > stats.mean * rule.threshold;
+            case EWMA:
+                return consumption > stats.ewma * rule.threshold;
+            case ZSCORE:
+                double deviation = stats.getStandardDeviation();
+                return deviation > 0 && (consumption - stats.mean) / deviation > rule.threshold;
+            default:
+                return consumption > stats.getPercentile(rule.threshold);
+        }
+    }
+}
@@ -3,6 +3,8 @@ package gas;
 import gas.model.*;
 import gas.service.*;
 import payment.service.PaymentProcessor;
+import store.model.Money;
+import store.service.StoreDataRepository;
 import java.util.Scanner;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -64,8 +66,8 @@ public class GasStationSystem {
                 case 7: 
                     analyticsService.generateSalesReport(); 
                     System.out.println("\nSales report generated successfully!");
-                    System.out.println("Location: ./src/main/java/store/data/" + storeId + "_gas_sales_" + 
-                        LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")) + ".txt");
+                    System.out.println("Location: " + StoreDataRepository.store(storeId).path("gas_sales_" +
+                        LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")) + ".txt"));
                     break;
                 case 8: return;
                 default: System.out.println("Invalid option");
@@ -156,7 +158,7 @@ public class GasStationSystem {
         System.out.println("Pump: " + transaction.getPumpNumber());
         System.out.println("Fuel Type: " + transaction.getFuelType());
         System.out.println("Gallons: " + transaction.getGallons());
-        System.out.printf("Amount: $%.2f%n", transaction.getAmount());
+        System.out.println("Amount: $" + Money.format(transaction.getAmountCents()));
         System.out.println("Thank you for your business!");
         System.out.println("========================");
     }
@@ -1,5 +1,7 @@
 package gas.model;
 
+import store.model.Money;
+
 /**
  * Enumeration of available fuel types with their properties.
  * Defines fuel grades, octane ratings, and pricing.
@@ -7,21 +9,22 @@ package gas.model;
  * @author Hrishikesha Kyathsandra
  */
 public enum FuelType {
-    REGULAR_87("Regular", 87, 3.49),
-    PLUS_89("Plus", 89, 3.79),
-    PREMIUM_93("Premium", 93, 4.09);
+    REGULAR_87("Regular", 87, 349),
+    PLUS_89("Plus", 89, 379),
+    PREMIUM_93("Premium", 93, 409);
 
     private String name;
     private int octane;
-    private double pricePerGallon;
+    private long pricePerGallonCents;
 
-    FuelType(String name, int octane, double pricePerGallon) {
+    FuelType(String name, int octane, long pricePerGallonCents) {
         this.name = name;
         this.octane = octane;
-        this.pricePerGallon = pricePerGallon;
+        this.pricePerGallonCents = pricePerGallonCents;
     }
 
     public String getName() { return name; }
     public int getOctane() { return octane; }
-    public double getPricePerGallon() { return pricePerGallon; }
+    public double getPricePerGallon() { return Money.toDouble(pricePerGallonCents); }
+    public long getPricePerGallonCents() { return pricePerGallonCents; }
 }
\ No newline at end of file
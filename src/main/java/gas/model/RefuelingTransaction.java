@@ -1,5 +1,6 @@
 package gas.model;
 
+import store.model.Money;
 import java.time.LocalDateTime;
 
 /**
@@ -13,7 +14,7 @@ public class RefuelingTransaction {
     private int pumpNumber;
     private FuelType fuelType;
     private double gallons;
-    private double amount;
+    private long amountCents;
     private LocalDateTime timestamp;
 
     /**
@@ -31,7 +32,7 @@ public class RefuelingTransaction {
         this.pumpNumber = pumpNumber;
         this.fuelType = fuelType;
         this.gallons = gallons;
-        this.amount = gallons * fuelType.getPricePerGallon();
+        this.amountCents = Money.times(fuelType.getPricePerGallonCents(), gallons);
         this.timestamp = LocalDateTime.now();
     }
 
@@ -40,6 +41,7 @@ public class RefuelingTransaction {
     public int getPumpNumber() { return pumpNumber; }
     public FuelType getFuelType() { return fuelType; }
     public double getGallons() { return gallons; }
-    public double getAmount() { return amount; }
+    public double getAmount() { return Money.toDouble(amountCents); }
+    public long getAmountCents() { return amountCents; }
     public LocalDateTime getTimestamp() { return timestamp; }
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package gas.service;
 
 import gas.model.*;
+import store.model.Money;
+import store.service.StoreDataRepository;
 import java.io.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -22,8 +24,8 @@ public class GasAnalyticsService {
     }
 
     public void generateSalesReport() {
-        String fileName = "./src/main/java/store/data/" + storeId + "_gas_sales_" + 
-                         LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")) + ".txt";
+        String fileName = StoreDataRepository.store(storeId).pathForWriting("gas_sales_" +
+                         LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")) + ".txt");
         
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
             writer.write("Gas Station Sales Report for Store: " + storeId + "\n");
@@ -42,21 +44,21 @@ public class GasAnalyticsService {
             writer.write("\nToday's Transactions:\n");
             writer.write("--------------------------------------------------\n");
             Map<String, RefuelingTransaction> transactions = gasManager.getTodayTransactions();
-            double totalRevenue = 0.0;
+            long totalRevenueCents = 0;
             double totalGallons = 0.0;
             
             for (RefuelingTransaction t : transactions.values()) {
-                writer.write(String.format("Transaction %s: %s - %.2f gallons - $%.2f\n",
+                writer.write(String.format("Transaction %s: %s - %.2f gallons - $%s\n",
                     t.getTransactionId(), t.getFuelType().getName(), 
-                    t.getGallons(), t.getAmount()));
-                totalRevenue += t.getAmount();
+                    t.getGallons(), Money.format(t.getAmountCents())));
+                totalRevenueCents += t.getAmountCents();
                 totalGallons += t.getGallons();
             }
             
             writer.write("\nSummary:\n");
             writer.write(String.format("Total Transactions: %d\n", transactions.size()));
             writer.write(String.format("Total Gallons Sold: %.2f\n", totalGallons));
-            writer.write(String.format("Total Revenue: $%.2f\n", totalRevenue));
+            writer.write("Total Revenue: $" + Money.format(totalRevenueCents) + "\n");
             
         } catch (IOException e) {
             System.err.println("Error generating sales report: " + e.getMessage());
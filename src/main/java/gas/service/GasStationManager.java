@@ -1,6 +1,8 @@
 package gas.service;
 
 import gas.model.*;
+import store.model.Money;
+import store.service.StoreDataRepository;
 import java.util.*;
 import java.io.*;
 import java.time.LocalDateTime;
@@ -86,15 +88,15 @@ public class GasStationManager {
     }
 
     private void saveTransaction(RefuelingTransaction transaction) {
-        String fileName = "./src/main/java/store/data/" + storeId + "_gas_transactions.txt";
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName, true))) {
-            writer.write(String.format("%s,%s,%d,%s,%.2f,%.2f%n",
+        try {
+            String record = String.format("%s,%s,%d,%s,%.2f,%s",
                 transaction.getTransactionId(),
                 transaction.getTimestamp(),
                 transaction.getPumpNumber(),
                 transaction.getFuelType(),
                 transaction.getGallons(),
-                transaction.getAmount()));
+                Money.format(transaction.getAmountCents()));
+            StoreDataRepository.store(storeId).records().append("gas_transactions", record);
         } catch (IOException e) {
             System.err.println("Error saving transaction: " + e.getMessage());
         }
@@ -1,7 +1,10 @@
 package headoffice;
 
 import store.service.StoreManager;
+import store.service.StoreDataRepository;
 import store.model.Store;
+import store.model.Money;
+import employee.service.PayrollBatch;
 import inventory.InventoryManagementSystem;
 import supplier.SupplierManagementSystem;
 import java.util.Scanner;
@@ -18,7 +21,8 @@ import java.io.File;
 public class HeadOfficeManagementSystem {
     private StoreManager storeManager;
     private Scanner scanner;
-    private static final String RECEIPTS_DIR = "src/main/java/store/data/receipts/";
+    private static final String RECEIPTS_DIR =
+        StoreDataRepository.getInstance().sharedFile("receipts").toString();
     private StorePerformanceSystem performanceSystem;
 
     /**
@@ -46,7 +50,8 @@ public class HeadOfficeManagementSystem {
             System.out.println("1. Add New Store (Head Office Manager)");
             System.out.println("2. Remove Existing Store (Head Office Manager)");
             System.out.println("3. View All Stores (Head Office Manager)");
-            System.out.println("4. Back to Main Menu");
+            System.out.println("4. Run Company Payroll (Head Office Manager)");
+            System.out.println("5. Back to Main Menu");
             System.out.print("Choose an option: ");
 
             int choice = scanner.nextInt();
@@ -63,6 +68,9 @@ public class HeadOfficeManagementSystem {
                     viewAllStores();
                     break;
                 case 4:
+                    runCompanyPayroll();
+                    break;
+                case 5:
                     return; // Exit Head Office Management
                 default:
                     System.out.println("Invalid option");
@@ -87,6 +95,47 @@ public class HeadOfficeManagementSystem {
         }
     }
 
+    /**
+     * Runs payroll for every store over a date range and shows each store's
+     * total as it finishes, then the company total.
+     */
+    private void runCompanyPayroll() {
+        System.out.println("\n--- Company Payroll ---");
+        LocalDate startDate;
+        LocalDate endDate;
+        try {
+            System.out.print("Enter start date (YYYY-MM-DD): ");
+            startDate = LocalDate.parse(scanner.nextLine().trim());
+            System.out.print("Enter end date (YYYY-MM-DD): ");
+            endDate = LocalDate.parse(scanner.nextLine().trim());
+        } catch (Exception e) {
+            System.out.println("Invalid date format. Operation aborted.");
+            return;
+        }
+        if (endDate.isBefore(startDate)) {
+            System.out.println("End date cannot be before start date");
+            return;
+        }
+
+        PayrollBatch batch = new PayrollBatch();
+        System.out.println("Running payroll on " + batch.getThreads() + " threads...");
+        PayrollBatch.Result result = batch.run(startDate, endDate, store -> {
+            if (store.getError() != null) {
+                System.out.printf("%-8s FAILED: %s%n", store.getStoreId(), store.getError());
+            } else if (store.isSkipped()) {
+                System.out.printf("%-8s skipped: no employee data%n", store.getStoreId());
+            } else {
+                System.out.printf("%-8s %6d employees  $%12s  %6d ms%n", store.getStoreId(),
+                    store.getEmployees(), Money.format(store.getTotalCents()),
+                    store.getLoadMillis() + store.getReportMillis());
+            }
+        });
+        System.out.printf("Company total: $%s across %d stores (%d failed, %d skipped) in %d ms%n",
+            Money.format(result.getTotalCents()), result.getStores().size(),
+            result.getFailedStores(), result.getSkippedStores(), result.getElapsedMillis());
+        System.out.println("Company report written to " + result.getSummaryFile());
+    }
+
     /**
      * Handles the process of adding a new store to the system.
      * Includes store creation, inventory setup, supplier notification, and manager assignment.
@@ -121,10 +170,12 @@ public class HeadOfficeManagementSystem {
         // Setup initial inventory
         InventoryManagementSystem inventorySystem = new InventoryManagementSystem(storeId);
         inventorySystem.setupInitialInventory();
+        inventorySystem.close();
 
         // Notify supplier to prepare and ship inventory
         SupplierManagementSystem supplierSystem = new SupplierManagementSystem(storeId);
         supplierSystem.prepareInitialShipment();
+        supplierSystem.close();
 
         // Assign a Store Manager
         assignStoreManager(newStore);
@@ -160,6 +211,7 @@ public class HeadOfficeManagementSystem {
         // Handle inventory redistribution or liquidation
         InventoryManagementSystem inventorySystem = new InventoryManagementSystem(storeId);
         inventorySystem.handleStoreClosure();
+        inventorySystem.close();
 
         // Oversee physical removal of inventory
         overseePhysicalRemoval(storeId);
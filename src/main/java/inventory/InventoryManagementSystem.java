@@ -2,7 +2,8 @@ package inventory;
 
 import inventory.model.Product;
 import inventory.service.InventoryManager;
-import inventory.service.HeadOfficeManager;
+import inventory.service.InventoryRegistry;
+import store.service.StoreDataRepository;
 import java.time.LocalDate;
 import java.util.Scanner;
 import java.nio.file.Files;
@@ -24,7 +25,6 @@ public class InventoryManagementSystem {
     private InventoryManager inventoryManager;
     private Scanner scanner;
     private String storeId;
-    private static final String INVENTORY_DIR = "src/main/java/store/data/";
 
     /**
      * Constructor initializes the system with a specific store ID
@@ -32,8 +32,7 @@ public class InventoryManagementSystem {
      */
     public InventoryManagementSystem(String storeId) {
         this.storeId = storeId;
-        this.inventoryManager = new InventoryManager(new HeadOfficeManager());
-        this.inventoryManager.setCurrentStore(storeId);
+        this.inventoryManager = InventoryRegistry.getInstance().acquire(storeId);
         this.scanner = new Scanner(System.in);
     }
 
@@ -77,6 +76,7 @@ public class InventoryManagementSystem {
                     break;
                 case 8:
                     System.out.println("Exiting...");
+                    close();
                     return;
                 default:
                     System.out.println("Invalid option");
@@ -177,6 +177,7 @@ public class InventoryManagementSystem {
         int quantity = scanner.nextInt();
         
         if (inventoryManager.restockProduct(id, quantity)) {
+            inventoryManager.syncJournal();
             System.out.println("Stock updated successfully");
         } else {
             System.out.println("Failed to update stock");
@@ -269,8 +270,10 @@ public class InventoryManagementSystem {
     }
 
     private void viewStoreInventory() {
+        // Fold journalled changes into the snapshot before reading it
+        inventoryManager.updateStock();
         try {
-            String filePath = "src/main/java/store/data/" + storeId + "_inventory.txt";
+            String filePath = inventoryFile(storeId);
             System.out.println("\nCurrent Inventory for " + storeId + ":");
             System.out.println("ID | Name | Price | Stock | Supplier | Expiry Date");
             System.out.println("------------------------------------------------");
@@ -287,13 +290,25 @@ public class InventoryManagementSystem {
         }
     }
 
+    private static String inventoryFile(String storeId) {
+        return StoreDataRepository.store(storeId).path("inventory.txt");
+    }
+
+    /**
+     * Releases this system's shared inventory view
+     */
+    public void close() {
+        InventoryRegistry.getInstance().release(inventoryManager);
+    }
+
     // Head Office Stuff!!
 
     public void setupInitialInventory() {
         System.out.println("\nSetting up initial inventory for store: " + storeId);
-        System.out.println("Creating inventory file: " + INVENTORY_DIR + storeId + "_inventory.txt");
+        String inventoryFile = StoreDataRepository.store(storeId).pathForWriting("inventory.txt");
+        System.out.println("Creating inventory file: " + inventoryFile);
 
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(INVENTORY_DIR + storeId + "_inventory.txt"))) {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(inventoryFile))) {
             // Sample inventory based on a template
             String[] initialItems = {
                 "P01001,Milk,4.29,40,Dairy Farm,2024-11-25",
@@ -305,6 +320,8 @@ public class InventoryManagementSystem {
                 bw.newLine();
             }
             System.out.println("Initial inventory setup completed for store: " + storeId);
+            // The file was written directly, so drop any cached copy
+            InventoryRegistry.getInstance().invalidate(storeId);
         } catch (IOException e) {
             System.out.println("Error setting up inventory: " + e.getMessage());
         }
@@ -329,8 +346,14 @@ public class InventoryManagementSystem {
     }
 
     private void transferInventory(String targetStoreId) {
-        String sourceInventoryFile = INVENTORY_DIR + storeId + "_inventory.txt";
-        String targetInventoryFile = INVENTORY_DIR + targetStoreId + "_inventory.txt";
+        inventoryManager.updateStock();
+        // Fold the target's journal into its file too, since the file is
+        // appended to directly and invalidating empties the journal
+        InventoryManager target = InventoryRegistry.getInstance().acquire(targetStoreId);
+        target.updateStock();
+        InventoryRegistry.getInstance().release(target);
+        String sourceInventoryFile = inventoryFile(storeId);
+        String targetInventoryFile = StoreDataRepository.store(targetStoreId).pathForWriting("inventory.txt");
 
         try (BufferedReader br = new BufferedReader(new FileReader(sourceInventoryFile));
              BufferedWriter bw = new BufferedWriter(new FileWriter(targetInventoryFile, true))) {
@@ -343,6 +366,8 @@ public class InventoryManagementSystem {
 
             // Clear source inventory
             new FileWriter(sourceInventoryFile, false).close();
+            InventoryRegistry.getInstance().invalidate(storeId);
+            InventoryRegistry.getInstance().invalidate(targetStoreId);
 
             System.out.println("Inventory transferred to store: " + targetStoreId);
         } catch (IOException e) {
@@ -351,7 +376,8 @@ public class InventoryManagementSystem {
     }
 
     private void liquidateInventory() {
-        String inventoryFile = INVENTORY_DIR + storeId + "_inventory.txt";
+        inventoryManager.updateStock();
+        String inventoryFile = inventoryFile(storeId);
         double totalAmount = 0.0;
 
         try (BufferedReader br = new BufferedReader(new FileReader(inventoryFile))) {
@@ -369,7 +395,8 @@ public class InventoryManagementSystem {
         }
 
         // Generate receipt
-        String receiptFile = "src/main/java/store/data/receipts/" + storeId + "_liquidation_receipt.txt";
+        String receiptFile = StoreDataRepository.getInstance()
+            .sharedFile("receipts/" + storeId + "_liquidation_receipt.txt").toString();
         try (BufferedWriter bw = new BufferedWriter(new FileWriter(receiptFile))) {
             bw.write("Liquidation Receipt for Store ID: " + storeId);
             bw.newLine();
@@ -384,6 +411,7 @@ public class InventoryManagementSystem {
         // Clear inventory
         try {
             new FileWriter(inventoryFile, false).close();
+            InventoryRegistry.getInstance().invalidate(storeId);
             System.out.println("Inventory liquidated and cleared for store: " + storeId);
         } catch (IOException e) {
             System.out.println("Error clearing inventory after liquidation: " + e.getMessage());
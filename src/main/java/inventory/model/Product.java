@@ -6,13 +6,19 @@
  */
 package inventory.model;
 
+import store.model.Money;
 import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Product {
     private String id;
     private String name;
-    private double price;
-    private int stockLevel;
+    // Unit price in cents
+    private long priceCents;
+    // Units on hand, including those reserved by open orders
+    private AtomicInteger stockLevel;
+    // Units on hand that are not reserved, striped for contended products
+    private StockCounter availableUnits;
     private String supplier;
     private LocalDate expirationDate;
     private boolean isObsolete;
@@ -30,8 +36,9 @@ public class Product {
                   String supplier, LocalDate expirationDate) {
         this.id = id;
         this.name = name;
-        this.price = price;
-        this.stockLevel = stockLevel;
+        this.priceCents = Money.of(price);
+        this.stockLevel = new AtomicInteger(stockLevel);
+        this.availableUnits = new StockCounter(stockLevel);
         this.supplier = supplier;
         this.expirationDate = expirationDate;
         this.isObsolete = false;
@@ -40,13 +47,68 @@ public class Product {
     // Getters and setters
     public String getId() { return id; }
     public String getName() { return name; }
-    public double getPrice() { return price; }
-    public int getStockLevel() { return stockLevel; }
+    public double getPrice() { return Money.toDouble(priceCents); }
+    public long getPriceCents() { return priceCents; }
+    public int getStockLevel() { return stockLevel.get(); }
     public String getSupplier() { return supplier; }
     public LocalDate getExpirationDate() { return expirationDate; }
     public boolean isObsolete() { return isObsolete; }
 
-    public void setPrice(double price) { this.price = price; }
-    public void setStockLevel(int stockLevel) { this.stockLevel = stockLevel; }
+    public void setPrice(double price) { this.priceCents = Money.of(price); }
+    public void setPriceCents(long priceCents) { this.priceCents = priceCents; }
     public void markAsObsolete() { this.isObsolete = true; }
+
+    /**
+     * Sets the stock level, keeping units held by open orders reserved
+     * @param stockLevel New stock level
+     */
+    public void setStockLevel(int stockLevel) {
+        int previous = this.stockLevel.getAndSet(stockLevel);
+        availableUnits.add(stockLevel - previous);
+    }
+
+    /**
+     * Atomically adds to the stock level
+     * @param quantity Units to add (negative to deduct)
+     * @return The new stock level
+     */
+    public int adjustStock(int quantity) {
+        availableUnits.add(quantity);
+        return stockLevel.addAndGet(quantity);
+    }
+
+    /**
+     * Returns units that can still be sold (stock not held by open orders)
+     * @return Stock level minus reserved units
+     */
+    public int getAvailableStock() {
+        return (int) availableUnits.sum();
+    }
+
+    /**
+     * Holds units for an open order if enough unreserved stock remains.
+     * Lock-free, and never reserves more units than are available.
+     * @param quantity Units to reserve
+     * @return true if the units were reserved
+     */
+    public boolean reserve(int quantity) {
+        return availableUnits.tryTake(quantity);
+    }
+
+    /**
+     * Returns previously reserved units to the sellable pool
+     * @param quantity Units to release
+     */
+    public void releaseReservation(int quantity) {
+        availableUnits.add(quantity);
+    }
+
+    /**
+     * Turns reserved units into a sale by removing them from stock
+     * @param quantity Units to commit
+     * @return The new stock level
+     */
+    public int commitReservation(int quantity) {
+        return stockLevel.addAndGet(-quantity);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,214 @@
+package inventory.model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free counter of sellable units, striped in the style of LongAdder.
+ * An uncontended counter is a single field; once two threads collide on it
+ * the units are spread over padded per-thread stripes so sellers of a hot
+ * product (Milk, Bread) stop fighting over one cache line.
+ *
+ * Unlike LongAdder it supports tryTake, a compare-and-reserve that only
+ * succeeds if the units really exist, so concurrent sellers can never take
+ * more than is in stock. No stripe ever goes below zero: removals take the
+ * same lock as the slow path and come off the total, and a shortfall is
+ * kept on the base, where it blocks takes from the stripes until restocking
+ * covers it.
+ *
+ * @author Akhilesh Nevatia
+ */
+public class StockCounter {
+    // Longs per stripe so neighbouring stripes sit on different cache lines
+    private static final int PADDING = 8;
+    private static final int MAX_STRIPES = Math.min(64,
+        Integer.highestOneBit(Math.max(2, Runtime.getRuntime().availableProcessors()) * 2 - 1));
+    // Failed CAS attempts on one slot before trying the next
+    private static final int MAX_RETRIES = 4;
+    private static final VarHandle BASE;
+
+    static {
+        try {
+            BASE = MethodHandles.lookup().findVarHandle(StockCounter.class, "base", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private volatile long base;
+    // Created on first contention; stripe i lives at index (i + 1) * PADDING
+    private volatile AtomicLongArray stripes;
+
+    public StockCounter(long initialUnits) {
+        this.base = initialUnits;
+    }
+
+    /**
+     * Adds units (negative to remove them unconditionally, which may leave
+     * the count below zero)
+     * @param units Units to add
+     */
+    public void add(long units) {
+        if (units < 0) {
+            removeSlow(-units);
+            return;
+        }
+        AtomicLongArray cells = stripes;
+        if (cells == null) {
+            long current = base;
+            if (BASE.compareAndSet(this, current, current + units)) {
+                return;
+            }
+            cells = expand();
+        }
+        cells.getAndAdd(slot(homeStripe()), units);
+    }
+
+    /**
+     * Removes units only if that many are available
+     * @param units Units to take, must be positive
+     * @return true if the units were taken
+     */
+    public boolean tryTake(long units) {
+        if (units <= 0) {
+            return false;
+        }
+        AtomicLongArray cells = stripes;
+        if (cells == null) {
+            for (int attempt = 0; attempt < MAX_RETRIES; attempt++) {
+                long current = base;
+                if (current < units) {
+                    return takeSlow(units);
+                }
+                if (BASE.compareAndSet(this, current, current - units)) {
+                    return true;
+                }
+            }
+            cells = expand();
+        }
+
+        // Home stripe first, then the base, then every other stripe
+        int home = homeStripe();
+        if (takeFromStripe(cells, home, units) || takeFromBase(units)) {
+            return true;
+        }
+        for (int i = 1; i < MAX_STRIPES; i++) {
+            if (takeFromStripe(cells, (home + i) & (MAX_STRIPES - 1), units)) {
+                return true;
+            }
+        }
+        // The units may exist but be split across stripes
+        return takeSlow(units);
+    }
+
+    /**
+     * Returns the number of available units. Exact when no update is in
+     * flight, otherwise a recent value.
+     * @return Sum of the base and all stripes
+     */
+    public long sum() {
+        long total = base;
+        AtomicLongArray cells = stripes;
+        if (cells != null) {
+            for (int i = 0; i < MAX_STRIPES; i++) {
+                total += cells.get(slot(i));
+            }
+        }
+        return total;
+    }
+
+    private boolean takeFromStripe(AtomicLongArray cells, int stripe, long units) {
+        int slot = slot(stripe);
+        for (int attempt = 0; attempt < MAX_RETRIES; attempt++) {
+            long current = cells.get(slot);
+            if (current < units) {
+                return false;
+            }
+            if (cells.compareAndSet(slot, current, current - units)) {
+                if (base < 0) {
+                    // Stock is short overall; these units are owed
+                    cells.getAndAdd(slot, units);
+                    return false;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean takeFromBase(long units) {
+        for (int attempt = 0; attempt < MAX_RETRIES; attempt++) {
+            long current = base;
+            if (current < units) {
+                return false;
+            }
+            if (BASE.compareAndSet(this, current, current - units)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Gathers every unit, takes from the total and spreads the rest back.
+    // Serialized so that units are only ever in flight inside one drain.
+    private synchronized boolean takeSlow(long units) {
+        long total = (long) BASE.getAndSet(this, 0L);
+        AtomicLongArray cells = stripes;
+        if (cells != null) {
+            for (int i = 0; i < MAX_STRIPES; i++) {
+                total += cells.getAndSet(slot(i), 0L);
+            }
+        }
+        boolean taken = total >= units;
+        spread(cells, taken ? total - units : total);
+        return taken;
+    }
+
+    // Gathers every unit and takes the removal off the total. A shortfall
+    // stays on the base, which spread() never splits across stripes.
+    private synchronized void removeSlow(long units) {
+        long total = (long) BASE.getAndSet(this, 0L);
+        AtomicLongArray cells = stripes;
+        if (cells != null) {
+            for (int i = 0; i < MAX_STRIPES; i++) {
+                total += cells.getAndSet(slot(i), 0L);
+            }
+        }
+        spread(cells, total - units);
+    }
+
+    private synchronized AtomicLongArray expand() {
+        if (stripes == null) {
+            AtomicLongArray cells = new AtomicLongArray((MAX_STRIPES + 2) * PADDING);
+            stripes = cells;
+            // Hand every stripe a share so sellers start on their own stripe
+            spread(cells, (long) BASE.getAndSet(this, 0L));
+        }
+        return stripes;
+    }
+
+    private void spread(AtomicLongArray cells, long units) {
+        if (cells == null || units <= 0) {
+            BASE.getAndAdd(this, units);
+            return;
+        }
+        long share = units / MAX_STRIPES;
+        if (share > 0) {
+            for (int i = 0; i < MAX_STRIPES; i++) {
+                cells.getAndAdd(slot(i), share);
+            }
+        }
+        BASE.getAndAdd(this, units - share * MAX_STRIPES);
+    }
+
+    private static int homeStripe() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (hash >>> 16) & (MAX_STRIPES - 1);
+    }
+
+    private static int slot(int stripe) {
+        return (stripe + 1) * PADDING;
+    }
+}
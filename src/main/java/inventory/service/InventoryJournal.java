@@ -0,0 +1,297 @@
+package inventory.service;
+
+import inventory.model.Product;
+import store.model.Money;
+import store.service.StoreFiles;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Append-only change journal for a single store's inventory. Stock, price,
+ * add and remove operations are appended as one line each instead of
+ * rewriting the whole inventory file, and are replayed on top of the
+ * snapshot file when the store is loaded.
+ *
+ * Every record carries the absolute new value rather than a delta, so
+ * replaying a record that is already part of the snapshot is harmless.
+ *
+ * @author Akhilesh Nevatia
+ */
+public class InventoryJournal {
+    // Records appended before an fsync is forced
+    private static final int SYNC_BATCH_SIZE = 64;
+    // Maximum time unsynced records may sit in the journal
+    private static final long SYNC_INTERVAL_MS = 200;
+    // Journal length (in records) that triggers compaction into the snapshot
+    private static final int COMPACTION_THRESHOLD = 1000;
+
+    private final String storeId;
+    private final StoreFiles files;
+    private final Path snapshotFile;
+    private final Path journalFile;
+    private FileChannel channel;
+    private int unsyncedRecords;
+    private long lastSyncTime;
+    private int journalRecords;
+
+    /**
+     * Creates a journal for a store next to its inventory file
+     * @param files The store's data files
+     */
+    public InventoryJournal(StoreFiles files) {
+        this.storeId = files.getStoreId();
+        this.files = files;
+        this.snapshotFile = files.file("inventory.txt");
+        this.journalFile = files.file("inventory.journal");
+        this.lastSyncTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Applies every complete journal record to an inventory loaded from the snapshot.
+     * A trailing partial line left by a crash mid-write is cut off the file,
+     * so the next record is not appended onto it.
+     * @param inventory Inventory map to update in place
+     */
+    public synchronized void replay(Map<String, Product> inventory) {
+        if (!Files.exists(journalFile)) {
+            return;
+        }
+        journalRecords = 0;
+        try {
+            byte[] bytes = Files.readAllBytes(journalFile);
+            // Start of the line being read; everything before it ends in '\n'
+            int start = 0;
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] != '\n') {
+                    continue;
+                }
+                String line = new String(bytes, start, i - start, StandardCharsets.UTF_8);
+                start = i + 1;
+                if (applyRecord(inventory, line)) {
+                    journalRecords++;
+                }
+            }
+            if (start < bytes.length) {
+                System.err.println("Discarding incomplete inventory journal record for store " + storeId);
+                truncate(start);
+            }
+        } catch (IOException e) {
+            System.err.println("Error replaying inventory journal for store " + storeId + ": " + e.getMessage());
+        }
+    }
+
+    private void truncate(long size) throws IOException {
+        if (channel != null) {
+            channel.truncate(size);
+            return;
+        }
+        try (FileChannel file = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+            file.truncate(size);
+            file.force(false);
+        }
+    }
+
+    private boolean applyRecord(Map<String, Product> inventory, String line) {
+        // Every record is terminated by ';' so a torn write can be detected
+        if (!line.endsWith(";")) {
+            System.err.println("Skipping unterminated journal record for store " + storeId + ": " + line);
+            return false;
+        }
+        String[] parts = line.substring(0, line.length() - 1).split(",");
+        try {
+            switch (parts[0]) {
+                case "STOCK": {
+                    Product product = inventory.get(parts[1]);
+                    if (product != null) {
+                        product.setStockLevel(Integer.parseInt(parts[2]));
+                    }
+                    return true;
+                }
+                case "PRICE": {
+                    Product product = inventory.get(parts[1]);
+                    if (product != null) {
+                        product.setPriceCents(Money.parse(parts[2]));
+                    }
+                    return true;
+                }
+                case "ADD": {
+                    Product product = new Product(
+                        parts[1],
+                        parts[2],
+                        0,
+                        Integer.parseInt(parts[4]),
+                        parts[5],
+                        LocalDate.parse(parts[6])
+                    );
+                    product.setPriceCents(Money.parse(parts[3]));
+                    inventory.put(product.getId(), product);
+                    return true;
+                }
+                case "REMOVE":
+                    inventory.remove(parts[1]);
+                    return true;
+                default:
+                    System.err.println("Skipping unknown journal record for store " + storeId + ": " + line);
+                    return false;
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Skipping malformed journal record for store " + storeId + ": " + line);
+            return false;
+        }
+    }
+
+    public void logStock(Product product) {
+        append("STOCK," + product.getId() + "," + product.getStockLevel());
+    }
+
+    public void logPrice(Product product) {
+        append("PRICE," + product.getId() + "," + Money.format(product.getPriceCents()));
+    }
+
+    public void logAdd(Product product) {
+        append("ADD," + product.getId() + "," + product.getName() + "," + Money.format(product.getPriceCents()) + ","
+            + product.getStockLevel() + "," + product.getSupplier() + "," + product.getExpirationDate());
+    }
+
+    public void logRemove(String productId) {
+        append("REMOVE," + productId);
+    }
+
+    private synchronized void append(String record) {
+        try {
+            if (channel == null) {
+                files.createDirectory();
+                channel = FileChannel.open(journalFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap((record + ";\n").getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            unsyncedRecords++;
+            journalRecords++;
+            if (unsyncedRecords >= SYNC_BATCH_SIZE
+                    || System.currentTimeMillis() - lastSyncTime >= SYNC_INTERVAL_MS) {
+                sync();
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing inventory journal for store " + storeId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Forces all appended records to disk. Callers finishing a logical unit of
+     * work, such as a paid order, call this so the whole unit shares one fsync.
+     */
+    public synchronized void sync() {
+        if (channel == null || unsyncedRecords == 0) {
+            return;
+        }
+        try {
+            channel.force(false);
+            unsyncedRecords = 0;
+            lastSyncTime = System.currentTimeMillis();
+        } catch (IOException e) {
+            System.err.println("Error syncing inventory journal for store " + storeId + ": " + e.getMessage());
+        }
+    }
+
+    public synchronized boolean needsCompaction() {
+        return journalRecords >= COMPACTION_THRESHOLD;
+    }
+
+    /**
+     * Writes the full inventory to the snapshot file and empties the journal.
+     * The snapshot is written to a temporary file and moved into place so a
+     * crash never leaves a half-written snapshot behind.
+     * @param inventory Current in-memory inventory of the store
+     * @return true if the snapshot was written
+     */
+    public synchronized boolean compact(Map<String, Product> inventory) {
+        Path tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(writable(tempFile).toFile());
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            StringBuilder line = new StringBuilder(128);
+            for (Product product : inventory.values()) {
+                line.setLength(0);
+                line.append(product.getId()).append(',')
+                    .append(product.getName()).append(',');
+                Money.append(line, product.getPriceCents()).append(',')
+                    .append(product.getStockLevel()).append(',')
+                    .append(product.getSupplier()).append(',')
+                    .append(product.getExpirationDate()).append('\n');
+                writer.append(line);
+            }
+            writer.flush();
+            out.getFD().sync();
+        } catch (IOException e) {
+            System.err.println("Error saving inventory: " + e.getMessage());
+            return false;
+        }
+
+        try {
+            Files.move(tempFile, snapshotFile,
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // Records already in the snapshot are idempotent, so a crash before
+            // this truncate only means they are replayed once more
+            if (channel != null) {
+                channel.truncate(0);
+                channel.force(false);
+            } else {
+                Files.deleteIfExists(journalFile);
+            }
+            unsyncedRecords = 0;
+            journalRecords = 0;
+            lastSyncTime = System.currentTimeMillis();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error compacting inventory journal for store " + storeId + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Creates the store's directory before a file in it is written
+    private Path writable(Path file) throws IOException {
+        files.createDirectory();
+        return file;
+    }
+
+    /**
+     * Empties the journal without writing a snapshot. Used when the snapshot
+     * file was rewritten outside the journal, so that older records are not
+     * replayed over the new contents.
+     */
+    public synchronized void discard() {
+        try {
+            if (channel != null) {
+                channel.truncate(0);
+                channel.force(false);
+            } else {
+                Files.deleteIfExists(journalFile);
+            }
+            unsyncedRecords = 0;
+            journalRecords = 0;
+            lastSyncTime = System.currentTimeMillis();
+        } catch (IOException e) {
+            System.err.println("Error clearing inventory journal for store " + storeId + ": " + e.getMessage());
+        }
+    }
+
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        sync();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing inventory journal for store " + storeId + ": " + e.getMessage());
+        }
+        channel = null;
+    }
+}
@@ -9,83 +9,218 @@ package inventory.service;
 import inventory.interfaces.InventoryInterface;
 import inventory.model.Product;
 import store.model.Store;
+import store.service.CsvReader;
+import store.service.StoreDataRepository;
 import java.io.*;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 public class InventoryManager implements InventoryInterface {
     // Map of store inventories: storeId -> (productId -> Product)
     private Map<String, Map<String, Product>> storeInventories;
+    // Change journals per store: storeId -> journal
+    private Map<String, InventoryJournal> storeJournals;
+    // Time taken to load each store's inventory: storeId -> microseconds
+    private Map<String, Long> storeLoadTimes;
     private HeadOfficeManager headOffice;
     private String currentStoreId;
+    private boolean lazyLoad;
+    private long startupTimeMillis;
+    private static final int MAX_LOADER_THREADS = 8;
 
     /**
      * Loads store inventory from files and initializes the manager
      * @param headOffice The head office manager instance for approvals
      */
     public InventoryManager(HeadOfficeManager headOffice) {
-        this.storeInventories = new HashMap<>();
+        this(headOffice, false);
+    }
+
+    /**
+     * Initializes the manager, either loading every store up front or
+     * deferring each store's inventory until it is first selected
+     * @param headOffice The head office manager instance for approvals
+     * @param lazyLoad true to load a store only on its first setCurrentStore call
+     */
+    public InventoryManager(HeadOfficeManager headOffice, boolean lazyLoad) {
+        this.storeInventories = new ConcurrentHashMap<>();
+        this.storeJournals = new ConcurrentHashMap<>();
+        this.storeLoadTimes = new ConcurrentHashMap<>();
+        this.headOffice = headOffice;
+        this.lazyLoad = lazyLoad;
+        if (!lazyLoad) {
+            loadStoresAndInventory();
+        }
+    }
+
+    /**
+     * Creates a lazily loading view over state owned by InventoryRegistry
+     */
+    InventoryManager(HeadOfficeManager headOffice, Map<String, Map<String, Product>> storeInventories,
+                     Map<String, InventoryJournal> storeJournals, Map<String, Long> storeLoadTimes) {
+        this.storeInventories = storeInventories;
+        this.storeJournals = storeJournals;
+        this.storeLoadTimes = storeLoadTimes;
         this.headOffice = headOffice;
-        loadStoresAndInventory();
+        this.lazyLoad = true;
     }
 
     public void setCurrentStore(String storeId) {
         this.currentStoreId = storeId;
-        if (!storeInventories.containsKey(storeId)) {
+        if (lazyLoad) {
+            // computeIfAbsent keeps two views from loading the same store twice
+            storeInventories.computeIfAbsent(storeId, this::readStoreInventory);
+        } else if (!storeInventories.containsKey(storeId)) {
             storeInventories.put(storeId, new HashMap<>());
         }
     }
 
+    public String getCurrentStoreId() {
+        return currentStoreId;
+    }
+
     private void loadStoresAndInventory() {
+        long start = System.currentTimeMillis();
         // Load from stores.txt and their respective inventory files
-        try (BufferedReader reader = new BufferedReader(new FileReader("src/main/java/store/data/stores.txt"))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                String storeId = parts[0];
-                loadStoreInventory(storeId);
+        List<String> storeIds = new ArrayList<>();
+        try (CsvReader reader = CsvReader.open(StoreDataRepository.getInstance().sharedFile("stores.txt").toString())) {
+            while (reader.next()) {
+                if (reader.fields() > 0 && !reader.isEmpty(0)) {
+                    storeIds.add(reader.string(0));
+                }
             }
         } catch (IOException e) {
             System.err.println("Error loading stores: " + e.getMessage());
         }
+
+        // Store files are independent, so parse them on a bounded pool
+        int threads = Math.min(MAX_LOADER_THREADS,
+            Math.min(Runtime.getRuntime().availableProcessors(), storeIds.size()));
+        if (threads <= 1) {
+            storeIds.forEach(id -> storeInventories.put(id, readStoreInventory(id)));
+        } else {
+            ExecutorService loader = Executors.newFixedThreadPool(threads);
+            try {
+                List<Callable<Void>> tasks = new ArrayList<>();
+                for (String storeId : storeIds) {
+                    tasks.add(() -> {
+                        storeInventories.put(storeId, readStoreInventory(storeId));
+                        return null;
+                    });
+                }
+                for (Future<Void> result : loader.invokeAll(tasks)) {
+                    try {
+                        result.get();
+                    } catch (ExecutionException e) {
+                        System.err.println("Error loading store inventory: " + e.getCause());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                System.err.println("Store inventory loading interrupted");
+            } finally {
+                loader.shutdown();
+            }
+        }
+        startupTimeMillis = System.currentTimeMillis() - start;
+    }
+
+    /**
+     * Returns how long each loaded store's inventory took to read
+     * @return Map of storeId to load time in microseconds
+     */
+    public Map<String, Long> getStoreLoadTimes() {
+        return new TreeMap<>(storeLoadTimes);
+    }
+
+    /**
+     * Returns the wall-clock time spent loading all stores at construction
+     * @return Startup time in milliseconds, 0 in lazy mode
+     */
+    public long getStartupTimeMillis() {
+        return startupTimeMillis;
     }
 
-    private void loadStoreInventory(String storeId) {
-        String fileName = "src/main/java/store/data/" + storeId + "_inventory.txt";
-        Map<String, Product> storeInventory = new HashMap<>();
+    private Map<String, Product> readStoreInventory(String storeId) {
+        long start = System.nanoTime();
+        Map<String, Product> storeInventory = readInventoryFile(storeId);
+
+        // Apply changes made since the last snapshot
+        getJournal(storeId).replay(storeInventory);
+        storeLoadTimes.put(storeId, (System.nanoTime() - start) / 1000);
+        return storeInventory;
+    }
+
+    /**
+     * Reads a store's inventory file, without its journal
+     * @param storeId Store identifier
+     * @return The products in the file, empty if there is none
+     */
+    static Map<String, Product> readInventoryFile(String storeId) {
+        String fileName = StoreDataRepository.store(storeId).path("inventory.txt");
+        Map<String, Product> storeInventory = new ConcurrentHashMap<>();
         
-        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 6) {
+        try (CsvReader reader = CsvReader.open(fileName)) {
+            while (reader.next()) {
+                if (reader.fields() >= 6) {
                     Product product = new Product(
-                        parts[0],  // id
-                        parts[1],  // name
-                        Double.parseDouble(parts[2]),  // price
-                        Integer.parseInt(parts[3]),    // stockLevel
-                        parts[4],  // supplier
-                        LocalDate.parse(parts[5])      // expirationDate
+                        reader.string(0),     // id
+                        reader.string(1),     // name
+                        0,                    // price, set in cents below
+                        reader.parseInt(3),   // stockLevel
+                        reader.string(4),     // supplier
+                        reader.parseDate(5)   // expirationDate
                     );
+                    product.setPriceCents(reader.parseCents(2));
                     storeInventory.put(product.getId(), product);
                 }
             }
         } catch (IOException e) {
             System.err.println("Creating new inventory file for store: " + storeId);
         }
-        
-        storeInventories.put(storeId, storeInventory);
+        return storeInventory;
+    }
+
+    private InventoryJournal getJournal(String storeId) {
+        return storeJournals.computeIfAbsent(storeId, id -> new InventoryJournal(StoreDataRepository.store(id)));
     }
 
     public Map<String, Product> getCurrentInventory() {
+        if (currentStoreId == null) {
+            return new HashMap<>();
+        }
+        if (lazyLoad) {
+            // Reloads the store if the registry invalidated it
+            return storeInventories.computeIfAbsent(currentStoreId, this::readStoreInventory);
+        }
         return storeInventories.getOrDefault(currentStoreId, new HashMap<>());
     }
 
-    // Modify other methods to use currentStoreId
+    /**
+     * Writes the current store's full inventory to its snapshot file and
+     * clears the store's journal
+     * @return boolean indicating if the snapshot was written
+     */
     @Override
     public boolean updateStock() {
-        saveInventoryToFile(currentStoreId);
+        return saveInventoryToFile(currentStoreId);
+    }
+
+    /**
+     * Forces journalled changes of the current store to disk. Call once after
+     * a batch of stock changes (e.g. all lines of a paid order).
+     */
+    public void syncJournal() {
+        getJournal(currentStoreId).sync();
+    }
+
+    // Folds the journal into the snapshot once it has grown too long
+    private boolean compactIfNeeded() {
+        if (getJournal(currentStoreId).needsCompaction()) {
+            return saveInventoryToFile(currentStoreId);
+        }
         return true;
     }
 
@@ -109,11 +244,14 @@ public class InventoryManager implements InventoryInterface {
     @Override
     public boolean removeObsoleteProducts(List<Product> productsToRemove) {
         // Mark selected products as obsolete and remove them
+        InventoryJournal journal = getJournal(currentStoreId);
         productsToRemove.forEach(product -> {
             product.markAsObsolete();
             getCurrentInventory().remove(product.getId());
+            journal.logRemove(product.getId());
         });
-        return updateStock();
+        journal.sync();
+        return compactIfNeeded();
     }
 
     // Add this new method to get expired products
@@ -135,7 +273,9 @@ public class InventoryManager implements InventoryInterface {
         }
         if (headOffice.approveChanges()) {
             getCurrentInventory().put(product.getId(), product);
-            return updateStock();
+            getJournal(currentStoreId).logAdd(product);
+            syncJournal();
+            return compactIfNeeded();
         }
         return false;
     }
@@ -144,7 +284,9 @@ public class InventoryManager implements InventoryInterface {
         Product product = getCurrentInventory().get(productId);
         if (product != null && headOffice.approveChanges()) {
             product.setPrice(newPrice);
-            return updateStock();
+            getJournal(currentStoreId).logPrice(product);
+            syncJournal();
+            return compactIfNeeded();
         }
         return false;
     }
@@ -152,31 +294,63 @@ public class InventoryManager implements InventoryInterface {
     public boolean restockProduct(String productId, int additionalQuantity) {
         Product product = getCurrentInventory().get(productId);
         if (product != null) {
-            product.setStockLevel(product.getStockLevel() + additionalQuantity);
-            return updateStock();
+            // Holding the product lock keeps journal records in stock order
+            synchronized (product) {
+                product.adjustStock(additionalQuantity);
+                getJournal(currentStoreId).logStock(product);
+            }
+            return compactIfNeeded();
         }
         return false;
     }
 
-    // File operations
-    private void saveInventoryToFile(String storeId) {
-        String fileName = "src/main/java/store/data/" + storeId + "_inventory.txt";
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
-            for (Product product : getCurrentInventory().values()) {
-                writer.write(String.format("%s,%s,%.2f,%d,%s,%s\n",
-                    product.getId(),
-                    product.getName(),
-                    product.getPrice(),
-                    product.getStockLevel(),
-                    product.getSupplier(),
-                    product.getExpirationDate()
-                ));
-            }
-        } catch (IOException e) {
-            System.err.println("Error saving inventory: " + e.getMessage());
+    /**
+     * Holds stock for an open order without changing the stock level
+     * @param productId Product to reserve
+     * @param quantity Units to reserve
+     * @return true if enough unreserved stock was available
+     */
+    public boolean reserveStock(String productId, int quantity) {
+        Product product = getCurrentInventory().get(productId);
+        return product != null && product.reserve(quantity);
+    }
+
+    /**
+     * Returns reserved stock of a cancelled order
+     * @param productId Product to release
+     * @param quantity Units to release
+     */
+    public void releaseStock(String productId, int quantity) {
+        Product product = getCurrentInventory().get(productId);
+        if (product != null) {
+            product.releaseReservation(quantity);
         }
     }
 
+    /**
+     * Deducts reserved stock of a paid order and journals the new level.
+     * Call syncJournal once all lines of the order are committed.
+     * @param productId Product sold
+     * @param quantity Units sold
+     * @return boolean indicating commit success
+     */
+    public boolean commitStock(String productId, int quantity) {
+        Product product = getCurrentInventory().get(productId);
+        if (product == null) {
+            return false;
+        }
+        synchronized (product) {
+            product.commitReservation(quantity);
+            getJournal(currentStoreId).logStock(product);
+        }
+        return compactIfNeeded();
+    }
+
+    // File operations
+    private boolean saveInventoryToFile(String storeId) {
+        return getJournal(storeId).compact(storeInventories.getOrDefault(storeId, new HashMap<>()));
+    }
+
     public Map<String, Product> getAllProducts() {
         return new HashMap<>(getCurrentInventory());
     }
@@ -0,0 +1,142 @@
+package inventory.service;
+
+import inventory.model.Product;
+import store.service.StoreDataRepository;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide owner of the in-memory store inventories. Subsystems acquire
+ * an InventoryManager view bound to their store instead of constructing
+ * their own manager, so every store is read from disk once and all
+ * subsystems see the same stock. Views are counted per store: when the
+ * last one is released the store's journal is closed and its inventory
+ * dropped, to be read again by the next acquire.
+ *
+ * @author Akhilesh Nevatia
+ */
+public class InventoryRegistry {
+    private static final InventoryRegistry INSTANCE = new InventoryRegistry();
+
+    // Shared state handed to every view: storeId -> (productId -> Product)
+    private final Map<String, Map<String, Product>> storeInventories;
+    private final Map<String, InventoryJournal> storeJournals;
+    private final Map<String, Long> storeLoadTimes;
+    // Store each open view was acquired for: view -> storeId
+    private final Map<InventoryManager, String> openViews;
+    // Number of open views on each store, guarded by the registry's lock
+    private final Map<String, Integer> referenceCounts;
+
+    private InventoryRegistry() {
+        this.storeInventories = new ConcurrentHashMap<>();
+        this.storeJournals = new ConcurrentHashMap<>();
+        this.storeLoadTimes = new ConcurrentHashMap<>();
+        this.openViews = new ConcurrentHashMap<>();
+        this.referenceCounts = new HashMap<>();
+    }
+
+    public static InventoryRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Opens a view on a store's inventory, loading it on first use
+     * @param storeId Store identifier
+     * @return Inventory manager bound to the store
+     */
+    public InventoryManager acquire(String storeId) {
+        // Counted before loading, so a release cannot drop the store meanwhile
+        synchronized (this) {
+            referenceCounts.merge(storeId, 1, Integer::sum);
+        }
+        InventoryManager view = new InventoryManager(new HeadOfficeManager(),
+            storeInventories, storeJournals, storeLoadTimes);
+        view.setCurrentStore(storeId);
+        openViews.put(view, storeId);
+        return view;
+    }
+
+    /**
+     * Closes a view obtained from acquire, flushing pending journal records.
+     * Releasing the store's last view closes its journal and drops its
+     * inventory. Releasing a view twice has no further effect.
+     * @param view Inventory manager returned by acquire
+     */
+    public void release(InventoryManager view) {
+        String storeId = openViews.remove(view);
+        if (storeId == null) {
+            return;
+        }
+        synchronized (this) {
+            int remaining = referenceCounts.merge(storeId, -1, Integer::sum);
+            InventoryJournal journal = storeJournals.get(storeId);
+            if (remaining > 0) {
+                if (journal != null) {
+                    journal.sync();
+                }
+                return;
+            }
+            referenceCounts.remove(storeId);
+            storeInventories.remove(storeId);
+            if (journal != null) {
+                // Syncs what is left before closing
+                journal.close();
+                storeJournals.remove(storeId, journal);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of views currently open on a store
+     * @param storeId Store identifier
+     * @return Open views, 0 if the store is not loaded
+     */
+    public synchronized int getReferenceCount(String storeId) {
+        return referenceCounts.getOrDefault(storeId, 0);
+    }
+
+    /**
+     * Re-reads a store after code outside the registry rewrites its inventory
+     * file. The store's journal is emptied so it cannot replay older changes
+     * over the new file; fold it in with updateStock before rewriting if its
+     * changes are still wanted. A loaded store is updated in place: products
+     * still in the file keep their objects, and with them the units open
+     * orders have reserved.
+     * @param storeId Store identifier
+     */
+    public synchronized void invalidate(String storeId) {
+        InventoryJournal journal = storeJournals.get(storeId);
+        if (journal == null) {
+            journal = new InventoryJournal(StoreDataRepository.store(storeId));
+        }
+        journal.discard();
+        Map<String, Product> loaded = storeInventories.get(storeId);
+        if (loaded == null) {
+            return;
+        }
+        Map<String, Product> fresh = InventoryManager.readInventoryFile(storeId);
+        loaded.keySet().retainAll(fresh.keySet());
+        for (Product product : fresh.values()) {
+            Product current = loaded.get(product.getId());
+            if (current != null && Objects.equals(current.getName(), product.getName())
+                    && Objects.equals(current.getSupplier(), product.getSupplier())
+                    && Objects.equals(current.getExpirationDate(), product.getExpirationDate())) {
+                current.setStockLevel(product.getStockLevel());
+                current.setPriceCents(product.getPriceCents());
+            } else {
+                loaded.put(product.getId(), product);
+            }
+        }
+    }
+
+    /**
+     * Returns how long each store's inventory took to load into the registry
+     * @return Map of storeId to load time in microseconds
+     */
+    public Map<String, Long> getStoreLoadTimes() {
+        return new TreeMap<>(storeLoadTimes);
+    }
+}
@@ -2,6 +2,9 @@ package loyalty;
 
 import java.util.Scanner;
 import loyalty.service.LoyaltyManager;
+import loyalty.service.PointLedger;
+import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 
 public class LoyaltySystem {
@@ -23,7 +26,8 @@ public class LoyaltySystem {
             System.out.println("3. Redeem Points");
             System.out.println("4. Check Balance");
             System.out.println("5. View All Members");
-            System.out.println("6. Back to Main Menu");
+            System.out.println("6. View Member History");
+            System.out.println("7. Back to Main Menu");
             System.out.print("Choose an option: ");
 
             int choice = scanner.nextInt();
@@ -35,7 +39,8 @@ public class LoyaltySystem {
                 case 3: redeemPoints(); break;
                 case 4: checkBalance(); break;
                 case 5: viewAllMembers(); break;
-                case 6: return;
+                case 6: viewMemberHistory(); break;
+                case 7: return;
                 default: System.out.println("Invalid option");
             }
         }
@@ -100,9 +105,25 @@ public class LoyaltySystem {
         if (members.isEmpty()) {
             System.out.println("No members found.");
         } else {
+            Map<String, String> names = loyaltyManager.getNames();
             System.out.println("Members and their points:");
             for (Map.Entry<String, Integer> entry : members.entrySet()) {
-                System.out.printf("Phone: %s, Name: %s, Points: %d%n", entry.getKey(), loyaltyManager.getNames().get(entry.getKey()), entry.getValue());
+                System.out.printf("Phone: %s, Name: %s, Points: %d%n", entry.getKey(), names.get(entry.getKey()), entry.getValue());
+            }
+        }
+    }
+
+    private void viewMemberHistory() {
+        System.out.print("Enter phone number: ");
+        String phone = scanner.nextLine();
+
+        List<PointLedger.Transaction> history = loyaltyManager.getHistory(phone);
+        if (history.isEmpty()) {
+            System.out.println("No transactions found.");
+        } else {
+            for (PointLedger.Transaction transaction : history) {
+                System.out.printf("%s %-8s %6d points, balance %d%n", Instant.ofEpochMilli(transaction.getTime()),
+                    transaction.getType(), transaction.getPoints(), transaction.getBalance());
             }
         }
     }
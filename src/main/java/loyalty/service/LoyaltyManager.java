@@ -1,92 +1,55 @@
 package loyalty.service;
 
-import java.io.*;
+import store.service.StoreDataRepository;
+import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class LoyaltyManager {
-    private Map<String, Integer> memberPoints;
-    private Map<String, String> memberNames;
-    private static final String DATA_FILE = "./src/main/java/store/data/loyalty_members.txt";
+    private static final Path DATA_FILE =
+        StoreDataRepository.getInstance().sharedFile("loyalty_members.txt");
+    private static final Path LOG_FILE =
+        StoreDataRepository.getInstance().sharedFile("loyalty_members.log");
+    private static final Path HISTORY_FILE =
+        StoreDataRepository.getInstance().sharedFile("loyalty_history.txt");
+    // Members held in memory; the rest are read from the log when needed
+    private static final int CACHE_SIZE = Integer.getInteger("loyalty.cache.size", 100_000);
+    private final MemberStore members;
+    private final PointLedger ledger;
 
     public LoyaltyManager() {
-        memberPoints = new HashMap<>();
-        memberNames = new HashMap<>();
-        loadMemberData();
+        members = MemberStore.forFile(LOG_FILE, DATA_FILE, CACHE_SIZE);
+        ledger = PointLedger.forFile(members, HISTORY_FILE);
     }
 
     public boolean registerMember(String name, String phone) {
-        if (memberPoints.containsKey(phone)) {
-            return false;
-        }
-        memberPoints.put(phone, 0);
-        memberNames.put(phone, name);
-        saveMemberData();
-        return true;
+        return ledger.register(phone, name);
     }
 
     public boolean addPoints(String phone, int points) {
-        if (!memberPoints.containsKey(phone)) {
-            return false;
-        }
-        memberPoints.put(phone, memberPoints.get(phone) + points);
-        saveMemberData();
-        return true;
+        return ledger.accrue(phone, points) >= 0;
     }
 
     public boolean redeemPoints(String phone, int points) {
-        if (!memberPoints.containsKey(phone)) {
-            return false;
-        }
-        int currentPoints = memberPoints.get(phone);
-        if (currentPoints < points) {
-            return false;
-        }
-        memberPoints.put(phone, currentPoints - points);
-        saveMemberData();
-        return true;
+        return ledger.redeem(phone, points) >= 0;
     }
 
     public int getPoints(String phone) {
-        return memberPoints.getOrDefault(phone, -1);
+        return ledger.getBalance(phone);
     }
 
     public Map<String, Integer> getAllMembers() {
-        return new HashMap<>(memberPoints);
+        return ledger.getBalances();
     }
 
     public Map<String, String> getNames() {
-        return new HashMap<>(memberNames);
+        Map<String, String> names = new HashMap<>();
+        members.forEach((phone, member) -> names.put(phone, member.getName()));
+        return names;
     }
 
-    private void loadMemberData() {
-        File dir = new File("./src/main/java/store/data");
-        if (!dir.exists()) {
-            dir.mkdirs();
-        }
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(DATA_FILE))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                memberNames.put(parts[0], parts[1]);
-                memberPoints.put(parts[0], Integer.parseInt(parts[2]));
-            }
-        } catch (IOException e) {
-            System.out.println("No existing member data found. Starting fresh.");
-        }
-    }
-
-    private void saveMemberData() {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_FILE))) {
-            for (String phone : memberPoints.keySet()) {
-                writer.write(String.format("%s,%s,%d%n", 
-                    phone, 
-                    memberNames.get(phone), 
-                    memberPoints.get(phone)));
-            }
-        } catch (IOException e) {
-            System.out.println("Error saving member data: " + e.getMessage());
-        }
+    public List<PointLedger.Transaction> getHistory(String phone) {
+        return ledger.getHistory(phone);
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,492 @@
+package loyalty.service;
+
+import store.service.CsvReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Log-structured store of loyalty members keyed by phone number. Every
+ * change appends the member's new record to the end of the log and points
+ * the in-memory index at it, so a point update writes one small record
+ * instead of rewriting every member. Records are read back from the log
+ * when asked for, and the most recently used members are held in a cache
+ * of bounded size.
+ *
+ * Superseded records are dropped by a background compaction that copies
+ * the live records to a new log once more than half of the log is dead.
+ * When the log is first created, the members in the text file are
+ * imported into it; the text file is left in place.
+ *
+ * @author Akhilesh Nevatia
+ */
+public class MemberStore {
+    // Record layout: int record length, short phone length, phone,
+    // short name length, name, int points
+    private static final int MIN_RECORD_BYTES = Integer.BYTES + 2 * Short.BYTES + Integer.BYTES;
+    // Record locations pack the length into the low 16 bits
+    private static final int MAX_RECORD_BYTES = 0xFFFF;
+    // Logs smaller than this are never compacted
+    private static final long MIN_COMPACT_BYTES = 1 << 20;
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private static final Map<Path, MemberStore> STORES = new ConcurrentHashMap<>();
+    private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "member-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * A member's stored name and points
+     */
+    public static final class Member {
+        private final String name;
+        private final int points;
+
+        public Member(String name, int points) {
+            this.name = name;
+            this.points = points;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getPoints() {
+            return points;
+        }
+    }
+
+    /**
+     * Receives each member during a scan of the store
+     */
+    public interface MemberVisitor {
+        void visit(String phone, Member member);
+    }
+
+    // Receives each complete record of the log, positioned at its start
+    private interface RecordHandler {
+        void accept(long offset, int length, String phone, ByteBuffer buffer) throws IOException;
+    }
+
+    private final Path logFile;
+    private final Map<String, Member> cache;
+    // Phone to packed location of the member's latest record; replaced whole by compaction
+    private volatile Map<String, Long> index;
+    private FileChannel channel;
+    private long logBytes;
+    private long deadBytes;
+    private boolean compacting;
+    private int compactions;
+
+    private MemberStore(Path logFile, Path textFile, int cacheSize) {
+        this.logFile = logFile;
+        this.index = new ConcurrentHashMap<>();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Member> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        try {
+            boolean created = !Files.exists(logFile);
+            Files.createDirectories(logFile.toAbsolutePath().getParent());
+            channel = FileChannel.open(logFile, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (created && Files.exists(textFile)) {
+                importText(textFile);
+            } else {
+                replay();
+            }
+        } catch (IOException e) {
+            System.out.println("Error opening member data: " + e.getMessage());
+            closeChannel();
+        }
+    }
+
+    /**
+     * Returns the store kept in the given log, opening it on first use.
+     * Every caller of the same log shares one store.
+     * @param logFile Log file of the store
+     * @param textFile Text file of phone,name,points lines imported when the log is created
+     * @param cacheSize Maximum number of members held in memory
+     * @return The store
+     */
+    public static MemberStore forFile(Path logFile, Path textFile, int cacheSize) {
+        return STORES.computeIfAbsent(logFile.toAbsolutePath().normalize(),
+            path -> new MemberStore(logFile, textFile, cacheSize));
+    }
+
+    /**
+     * Closes every open store; the next forFile call reopens it from disk
+     */
+    public static void closeAll() {
+        STORES.values().forEach(MemberStore::close);
+    }
+
+    public boolean contains(String phone) {
+        return index.containsKey(phone);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Returns a member, reading the record from the log if it is not cached
+     * @param phone Member's phone number
+     * @return The member, or null if there is none
+     */
+    public synchronized Member get(String phone) {
+        Member member = cache.get(phone);
+        if (member != null) {
+            return member;
+        }
+        Long location = index.get(phone);
+        if (location == null || channel == null) {
+            return null;
+        }
+        try {
+            ByteBuffer record = ByteBuffer.allocate(length(location));
+            long offset = offset(location);
+            while (record.hasRemaining()) {
+                if (channel.read(record, offset + record.position()) < 0) {
+                    throw new IOException("Member record past end of log");
+                }
+            }
+            member = decode(record, 0);
+        } catch (IOException e) {
+            System.out.println("Error reading member data: " + e.getMessage());
+            return null;
+        }
+        cache.put(phone, member);
+        return member;
+    }
+
+    /**
+     * Stores a member's name and points by appending one record to the log
+     * @param phone Member's phone number
+     * @param name Member's name
+     * @param points Member's points
+     * @return true if the record was written
+     */
+    public synchronized boolean put(String phone, String name, int points) {
+        if (channel == null) {
+            System.out.println("Error saving member data: member log is not open");
+            return false;
+        }
+        ByteBuffer record = encode(phone, name, points);
+        int length = record.remaining();
+        long offset = logBytes;
+        try {
+            while (record.hasRemaining()) {
+                channel.write(record, offset + record.position());
+            }
+        } catch (IOException e) {
+            // The next record overwrites the partial one
+            System.out.println("Error saving member data: " + e.getMessage());
+            return false;
+        }
+        logBytes += length;
+        Long previous = index.put(phone, location(offset, length));
+        if (previous != null) {
+            deadBytes += length(previous);
+        }
+        cache.put(phone, new Member(name, points));
+        if (!compacting && logBytes >= MIN_COMPACT_BYTES && deadBytes * 2 > logBytes) {
+            compacting = true;
+            COMPACTOR.execute(this::compact);
+        }
+        return true;
+    }
+
+    /**
+     * Forces the records appended so far to disk
+     * @throws IOException if the log is not open or could not be synced
+     */
+    public synchronized void sync() throws IOException {
+        if (channel == null) {
+            throw new IOException("member log is not open");
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Visits every member in log order by scanning the log
+     * @param visitor Receives each member once, with their latest record
+     */
+    public synchronized void forEach(MemberVisitor visitor) {
+        if (channel == null) {
+            return;
+        }
+        Map<String, Long> live = index;
+        try {
+            scan(channel, 0, logBytes, (offset, length, phone, buffer) -> {
+                Long location = live.get(phone);
+                if (location != null && location == location(offset, length)) {
+                    visitor.visit(phone, decode(buffer, buffer.position()));
+                }
+            });
+        } catch (IOException e) {
+            System.out.println("Error reading member data: " + e.getMessage());
+        }
+    }
+
+    public synchronized long getLogBytes() {
+        return logBytes;
+    }
+
+    public synchronized long getDeadBytes() {
+        return deadBytes;
+    }
+
+    public synchronized int getCompactions() {
+        return compactions;
+    }
+
+    /**
+     * Closes the log. A compaction in progress is abandoned.
+     */
+    public synchronized void close() {
+        STORES.remove(logFile.toAbsolutePath().normalize(), this);
+        closeChannel();
+        cache.clear();
+    }
+
+    // Rebuilds the index from the log, dropping a torn record left by a crash
+    private void replay() throws IOException {
+        Map<String, Long> live = index;
+        long valid = scan(channel, 0, channel.size(), (offset, length, phone, buffer) -> {
+            Long previous = live.put(phone, location(offset, length));
+            if (previous != null) {
+                deadBytes += length(previous);
+            }
+        });
+        if (valid < channel.size()) {
+            channel.truncate(valid);
+        }
+        logBytes = valid;
+    }
+
+    private void importText(Path textFile) throws IOException {
+        LogWriter writer = new LogWriter(channel, 0);
+        try (CsvReader reader = CsvReader.open(textFile.toString())) {
+            while (reader.next()) {
+                if (reader.fields() < 3) {
+                    continue;
+                }
+                String phone = reader.string(0);
+                ByteBuffer record = encode(phone, reader.string(1), reader.parseInt(2));
+                Long previous = index.put(phone, location(writer.position, record.remaining()));
+                if (previous != null) {
+                    deadBytes += length(previous);
+                }
+                writer.write(record);
+            }
+        }
+        writer.flush();
+        logBytes = writer.position;
+    }
+
+    // Copies the live records to a new log and swaps it in. Records appended
+    // while the copy runs are carried over with the store locked.
+    private void compact() {
+        Path temp = logFile.resolveSibling(logFile.getFileName() + ".compact");
+        try {
+            long end;
+            Map<String, Long> live;
+            synchronized (this) {
+                if (channel == null) {
+                    return;
+                }
+                end = logBytes;
+                live = index;
+            }
+            Map<String, Long> compacted = new ConcurrentHashMap<>(live.size() * 4 / 3 + 1);
+            try (FileChannel source = FileChannel.open(logFile, StandardOpenOption.READ);
+                 FileChannel target = FileChannel.open(temp, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                LogWriter writer = new LogWriter(target, 0);
+                scan(source, 0, end, (offset, length, phone, buffer) -> {
+                    Long location = live.get(phone);
+                    if (location != null && location == location(offset, length)) {
+                        compacted.put(phone, location(writer.position, length));
+                        writer.write(buffer.duplicate().limit(buffer.position() + length));
+                    }
+                });
+
+                synchronized (this) {
+                    if (channel == null) {
+                        return;
+                    }
+                    long[] tailDead = {0};
+                    scan(channel, end, logBytes, (offset, length, phone, buffer) -> {
+                        Long previous = compacted.put(phone, location(writer.position, length));
+                        if (previous != null) {
+                            tailDead[0] += length(previous);
+                        }
+                        writer.write(buffer.duplicate().limit(buffer.position() + length));
+                    });
+                    writer.flush();
+                    target.force(false);
+                    Files.move(temp, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    closeChannel();
+                    channel = FileChannel.open(logFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    index = compacted;
+                    logBytes = writer.position;
+                    deadBytes = tailDead[0];
+                    compactions++;
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Error compacting member data: " + e.getMessage());
+        } finally {
+            synchronized (this) {
+                compacting = false;
+            }
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                System.out.println("Error removing " + temp + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Passes each complete record in [from, to) to the handler and returns
+    // the end of the last one; a torn or corrupt record ends the scan
+    private static long scan(FileChannel channel, long from, long to, RecordHandler handler) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        buffer.flip();
+        long offset = from;
+        long filled = from;
+        long end = to;
+        while (true) {
+            int available = buffer.remaining();
+            if (available >= Integer.BYTES) {
+                int start = buffer.position();
+                int length = buffer.getInt(start);
+                if (length < MIN_RECORD_BYTES || length > MAX_RECORD_BYTES) {
+                    return offset;
+                }
+                if (available >= length) {
+                    int phoneLength = buffer.getShort(start + Integer.BYTES);
+                    int nameAt = start + Integer.BYTES + Short.BYTES + phoneLength;
+                    if (phoneLength < 0 || nameAt + Short.BYTES > start + length
+                            || nameAt + Short.BYTES + buffer.getShort(nameAt) + Integer.BYTES != start + length) {
+                        return offset;
+                    }
+                    String phone = text(buffer, start + Integer.BYTES + Short.BYTES, phoneLength);
+                    handler.accept(offset, length, phone, buffer);
+                    buffer.position(start + length);
+                    offset += length;
+                    continue;
+                }
+            }
+            if (filled >= end) {
+                return offset;
+            }
+            buffer.compact();
+            buffer.limit((int) Math.min(buffer.capacity(), buffer.position() + (end - filled)));
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, filled);
+                if (read < 0) {
+                    // The file is shorter than expected
+                    end = filled;
+                    break;
+                }
+                filled += read;
+            }
+            buffer.flip();
+        }
+    }
+
+    private static ByteBuffer encode(String phone, String name, int points) {
+        byte[] phoneBytes = phone.getBytes(StandardCharsets.UTF_8);
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int length = MIN_RECORD_BYTES + phoneBytes.length + nameBytes.length;
+        if (length > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Member record too long for " + phone);
+        }
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(length)
+            .putShort((short) phoneBytes.length).put(phoneBytes)
+            .putShort((short) nameBytes.length).put(nameBytes)
+            .putInt(points)
+            .flip();
+        return record;
+    }
+
+    private static Member decode(ByteBuffer buffer, int start) {
+        int nameAt = start + Integer.BYTES + Short.BYTES + buffer.getShort(start + Integer.BYTES);
+        int nameLength = buffer.getShort(nameAt);
+        String name = text(buffer, nameAt + Short.BYTES, nameLength);
+        return new Member(name, buffer.getInt(nameAt + Short.BYTES + nameLength));
+    }
+
+    private static String text(ByteBuffer buffer, int at, int length) {
+        return new String(buffer.array(), buffer.arrayOffset() + at, length, StandardCharsets.UTF_8);
+    }
+
+    private static long location(long offset, int length) {
+        return offset << 16 | length;
+    }
+
+    private static long offset(long location) {
+        return location >>> 16;
+    }
+
+    private static int length(long location) {
+        return (int) (location & MAX_RECORD_BYTES);
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.out.println("Error closing member data: " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    // Buffers records and writes them to a channel from a starting position
+    private static final class LogWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        private long position;
+
+        LogWriter(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        void write(ByteBuffer record) throws IOException {
+            if (buffer.remaining() < record.remaining()) {
+                flush();
+            }
+            position += record.remaining();
+            buffer.put(record);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            long at = position - buffer.remaining();
+            while (buffer.hasRemaining()) {
+                at += channel.write(buffer, at);
+            }
+            buffer.clear();
+        }
+    }
+}
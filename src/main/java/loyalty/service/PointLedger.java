@@ -0,0 +1,654 @@
+package loyalty.service;
+
+import store.service.CsvReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe point balances for loyalty members. A member's balance is
+ * held in an AtomicLong, loaded from the member store, while tills are
+ * changing it: accruals add to it atomically and redemptions compare-and-set
+ * it, so two tills redeeming for the same member can never spend the same
+ * points twice. Once every change to it is saved the balance is dropped
+ * again, so memory follows the members being served, not every member.
+ *
+ * Every change is queued as a transaction to one background thread, which
+ * appends it to the transaction history and writes the member's latest
+ * balance to the member store. The durability setting decides when a till
+ * gets its answer:
+ * <ul>
+ *   <li>per change: once the history and the member log are synced;
+ *       changes arriving together share one sync</li>
+ *   <li>queued: as soon as the change is queued, so up to the queue's
+ *       worth of changes can be lost in a crash</li>
+ * </ul>
+ * The setting is read from the loyalty.ledger.durability system property
+ * ("change" or "queued") and defaults to per change. Per change, a sync
+ * costs each waiting till one fsync of each file, so throughput depends on
+ * how many tills share it; queued avoids that wait.
+ *
+ * A waiting till is told its change failed only if nothing of it reached
+ * the files, and the change is then taken back off the balance. Points
+ * accrued by such changes cannot be redeemed until they are saved, so
+ * taking one back never leaves a balance below zero. Once a batch has
+ * been written, a later failure keeps its changes: the tills are answered,
+ * the failure is reported and the balances are saved by the next writer.
+ *
+ * When two tills change
+ * the same member at once, their history lines may be written in either
+ * order; each line carries the balance it produced.
+ *
+ * @author Akhilesh Nevatia
+ */
+public class PointLedger {
+    private static final Map<Path, PointLedger> LEDGERS = new ConcurrentHashMap<>();
+    // Transactions waiting for the writer; a full queue blocks the tills
+    private static final int MAX_PENDING = 8192;
+    private static final int MAX_BATCH = 1024;
+
+    static {
+        // Writes out transactions still queued, then closes the member logs
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            closeAll();
+            MemberStore.closeAll();
+        }));
+    }
+
+    public enum Type { REGISTER, ACCRUE, REDEEM }
+
+    /**
+     * When a change is acknowledged to the till
+     */
+    public enum Durability {
+        CHANGE, QUEUED;
+
+        /**
+         * Parses "change" or "queued"
+         * @param value Setting to parse
+         * @return The durability, or per change if the value is not valid
+         */
+        public static Durability parse(String value) {
+            if (value == null || value.equals("change")) {
+                return CHANGE;
+            }
+            if (value.equals("queued")) {
+                return QUEUED;
+            }
+            System.err.println("Unknown loyalty ledger durability '" + value + "', using per change");
+            return CHANGE;
+        }
+    }
+
+    /**
+     * One change to a member's points, as kept in the history
+     */
+    public static final class Transaction {
+        private final long time;
+        private final String phone;
+        private final Type type;
+        private final int points;
+        private final int balance;
+        // The live balance the change was made to, held until it is saved
+        private final Account account;
+        // Set on the markers queued by flush, which have no type, and on
+        // changes whose till waits for them
+        private final CountDownLatch written;
+        private volatile boolean failed;
+
+        public Transaction(long time, String phone, Type type, int points, int balance) {
+            this(time, phone, type, points, balance, null, null);
+        }
+
+        private Transaction(long time, String phone, Type type, int points, int balance,
+                            Account account, CountDownLatch written) {
+            this.time = time;
+            this.phone = phone;
+            this.type = type;
+            this.points = points;
+            this.balance = balance;
+            this.account = account;
+            this.written = written;
+        }
+
+        public long getTime() { return time; }
+        public String getPhone() { return phone; }
+        public Type getType() { return type; }
+        public int getPoints() { return points; }
+        public int getBalance() { return balance; }
+    }
+
+    // A member's live balance, kept while tills are changing it or changes
+    // to it are waiting to be saved
+    private static final class Account {
+        // Holds count once the account has been dropped
+        private static final int RETIRED = -1;
+
+        private final String phone;
+        // Balance in the high 32 bits; in the low 32 bits, points added by
+        // accruals whose till waits for them, which may still be taken back
+        private final AtomicLong state;
+        // Tills changing the balance plus changes not yet saved
+        private final AtomicInteger holds = new AtomicInteger();
+        // Balance last saved to the member store
+        private volatile int saved;
+
+        Account(String phone, int points) {
+            this.phone = phone;
+            this.state = new AtomicLong((long) points << 32);
+            this.saved = points;
+        }
+
+        int points() {
+            return (int) (state.get() >> 32);
+        }
+
+        // Takes a hold unless the account has already been dropped
+        boolean hold() {
+            int current;
+            do {
+                current = holds.get();
+                if (current == RETIRED) {
+                    return false;
+                }
+            } while (!holds.compareAndSet(current, current + 1));
+            return true;
+        }
+    }
+
+    private final MemberStore members;
+    private final Path historyFile;
+    private final Map<String, Account> accounts;
+    // Accounts whose changes were kept after a failed write, to be saved by
+    // the next writer
+    private final Set<Account> unsaved;
+    private final BlockingQueue<Transaction> queue;
+    private volatile Durability durability;
+    private volatile boolean running;
+    private Thread writer;
+    // The writer's last formatted second, without the zone; formatting an
+    // Instant for every line costs more than the rest of the line
+    private long timeSecond = -1;
+    private String timePrefix;
+
+    private PointLedger(MemberStore members, Path historyFile) {
+        this.members = members;
+        this.historyFile = historyFile;
+        this.accounts = new ConcurrentHashMap<>();
+        this.unsaved = ConcurrentHashMap.newKeySet();
+        this.queue = new ArrayBlockingQueue<>(MAX_PENDING);
+        this.durability = Durability.parse(System.getProperty("loyalty.ledger.durability"));
+    }
+
+    /**
+     * Returns the ledger writing to the given history file, created on first use
+     * @param members Store holding the members and their persisted balances
+     * @param historyFile File the transaction history is appended to
+     * @return The shared ledger
+     */
+    public static PointLedger forFile(MemberStore members, Path historyFile) {
+        return LEDGERS.computeIfAbsent(historyFile.toAbsolutePath().normalize(),
+            path -> new PointLedger(members, historyFile));
+    }
+
+    /**
+     * Writes out every queued transaction and closes every ledger; the next
+     * forFile call creates it afresh
+     */
+    public static void closeAll() {
+        LEDGERS.values().forEach(PointLedger::close);
+        LEDGERS.clear();
+    }
+
+    public Durability getDurability() { return durability; }
+    public void setDurability(Durability durability) { this.durability = durability; }
+
+    /**
+     * Registers a member with no points
+     * @return false if the phone number is already registered or could not be saved
+     */
+    public boolean register(String phone, String name) {
+        synchronized (members) {
+            if (members.contains(phone) || !members.put(phone, name, 0)) {
+                return false;
+            }
+        }
+        return record(phone, Type.REGISTER, 0, 0, null, durability == Durability.CHANGE);
+    }
+
+    /**
+     * Adds points to a member's balance
+     * @return The new balance, or -1 if there is no such member or the
+     *         change could not be saved
+     */
+    public int accrue(String phone, int points) {
+        Account account = acquire(phone);
+        if (account == null) {
+            return -1;
+        }
+        boolean waits = durability == Durability.CHANGE;
+        // Held back from redemptions until saved if the till waits for it
+        long change = ((long) points << 32) + (waits ? points : 0);
+        int updated = (int) (account.state.addAndGet(change) >> 32);
+        if (!record(phone, Type.ACCRUE, points, updated, account, waits)) {
+            account.state.addAndGet(-change);
+            release(account);
+            return -1;
+        }
+        return updated;
+    }
+
+    /**
+     * Takes points from a member's balance if it holds enough of them
+     * @return The new balance, or -1 if there is no such member, too few
+     *         points or the change could not be saved
+     */
+    public int redeem(String phone, int points) {
+        Account account = acquire(phone);
+        if (account == null) {
+            return -1;
+        }
+        long current;
+        int balance;
+        do {
+            current = account.state.get();
+            balance = (int) (current >> 32);
+            // Accruals that may still be taken back cannot be spent
+            if (balance - (int) current < points) {
+                release(account);
+                return -1;
+            }
+        } while (!account.state.compareAndSet(current, current - ((long) points << 32)));
+        if (!record(phone, Type.REDEEM, points, balance - points, account,
+                durability == Durability.CHANGE)) {
+            account.state.addAndGet((long) points << 32);
+            release(account);
+            return -1;
+        }
+        return balance - points;
+    }
+
+    /**
+     * Returns a member's current balance, or -1 if there is no such member
+     */
+    public int getBalance(String phone) {
+        Account account = accounts.get(phone);
+        if (account != null) {
+            return account.points();
+        }
+        MemberStore.Member member = members.get(phone);
+        return member == null ? -1 : member.getPoints();
+    }
+
+    /**
+     * Returns every member's current balance, after writing out everything
+     * queued so far
+     */
+    public Map<String, Integer> getBalances() {
+        // Saved balances are dropped from memory, so the log must be current
+        flush();
+        Map<String, Integer> all = new ConcurrentHashMap<>();
+        members.forEach((phone, member) -> all.put(phone, member.getPoints()));
+        // Balances changed since the writer last saved them
+        accounts.forEach((phone, account) -> all.put(phone, account.points()));
+        return all;
+    }
+
+    /**
+     * Returns a member's transactions in the order they were written, after
+     * writing out everything queued so far
+     * @param phone Member's phone number
+     * @return The member's transactions, oldest first
+     */
+    public List<Transaction> getHistory(String phone) {
+        flush();
+        List<Transaction> history = new ArrayList<>();
+        if (!Files.exists(historyFile)) {
+            return history;
+        }
+        try (CsvReader reader = CsvReader.open(historyFile.toString())) {
+            while (reader.next()) {
+                if (reader.fields() >= 5 && reader.fieldEquals(1, phone)) {
+                    history.add(new Transaction(Instant.parse(reader.field(0)).toEpochMilli(), phone,
+                        Type.valueOf(reader.string(2)), reader.parseInt(3), reader.parseInt(4)));
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Error reading loyalty history: " + e.getMessage());
+        }
+        return history;
+    }
+
+    /**
+     * Waits until every transaction queued so far is written
+     */
+    public void flush() {
+        CountDownLatch written = new CountDownLatch(1);
+        if (enqueue(new Transaction(0, null, null, 0, 0, null, written))) {
+            try {
+                written.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Writes out everything queued, then stops the writer thread. The
+     * ledger restarts on the next change.
+     */
+    public void close() {
+        Thread current;
+        synchronized (this) {
+            current = writer;
+            running = false;
+            writer = null;
+        }
+        if (current != null) {
+            try {
+                current.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Returns the member's live balance with a hold on it, loading it from
+    // the store if no till holds it. Loaded under the map's lock for the
+    // member, so it cannot be read before the save that let it be dropped.
+    private Account acquire(String phone) {
+        while (true) {
+            Account account = accounts.computeIfAbsent(phone, key -> {
+                MemberStore.Member member = members.get(key);
+                return member == null ? null : new Account(key, member.getPoints());
+            });
+            if (account == null) {
+                return null;
+            }
+            if (account.hold()) {
+                return account;
+            }
+            // Dropped just now; load it again
+            accounts.remove(phone, account);
+        }
+    }
+
+    // Gives up a hold, dropping the account once nothing holds it and its
+    // balance is saved
+    private void release(Account account) {
+        if (account.holds.decrementAndGet() == 0) {
+            drop(account);
+        }
+    }
+
+    private void drop(Account account) {
+        if (account.points() == account.saved && account.holds.compareAndSet(0, Account.RETIRED)) {
+            accounts.remove(account.phone, account);
+        }
+    }
+
+    // Queues a change, which keeps the till's hold on the account until it
+    // is saved, and under per-change durability waits for it to be synced
+    private boolean record(String phone, Type type, int points, int balance, Account account, boolean waits) {
+        CountDownLatch written = waits ? new CountDownLatch(1) : null;
+        Transaction transaction = new Transaction(System.currentTimeMillis(), phone, type, points, balance,
+            account, written);
+        if (!enqueue(transaction)) {
+            return false;
+        }
+        if (written != null) {
+            // Once queued the writer settles the change, so keep waiting
+            // through an interrupt rather than guess its outcome
+            boolean interrupted = false;
+            while (written.getCount() > 0) {
+                try {
+                    written.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return !transaction.failed;
+    }
+
+    private boolean enqueue(Transaction transaction) {
+        try {
+            queue.put(transaction);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        // After queueing, so a writer that failed meanwhile is replaced
+        startWriter();
+        return true;
+    }
+
+    private synchronized void startWriter() {
+        if (writer == null) {
+            running = true;
+            writer = new Thread(this::writeLoop, "loyalty-ledger");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    private void writeLoop() {
+        List<Transaction> batch = new ArrayList<>();
+        boolean failed = false;
+        try (FileChannel history = FileChannel.open(historyFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (running || !queue.isEmpty()) {
+                Transaction first;
+                try {
+                    first = queue.poll(100, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    running = false;
+                    continue;
+                }
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                    write(batch, history);
+                } else if (!unsaved.isEmpty()) {
+                    // Balances kept from a failed write, with no change to carry them
+                    write(batch, history);
+                }
+            }
+        } catch (Throwable e) {
+            // Anything that stops the writer fails the transactions it holds
+            System.out.println("Error saving loyalty history: " + e);
+            failed = true;
+            fail(batch);
+        } finally {
+            List<Transaction> stranded = new ArrayList<>();
+            synchronized (this) {
+                if (writer == Thread.currentThread()) {
+                    writer = null;
+                }
+                // Transactions queued from here on start a new writer; unless
+                // one has already taken over, fail those this one leaves behind
+                if (failed && writer == null) {
+                    queue.drainTo(stranded);
+                }
+            }
+            fail(stranded);
+        }
+    }
+
+    // Appends the batch to the history, then saves each changed member's
+    // latest balance once, syncs both if a till is waiting, and only then
+    // releases the changes. If the history append fails it is cut back and
+    // the batch is left to be failed; after that, a failure keeps the
+    // batch's changes, since they may already be in the files.
+    private void write(List<Transaction> batch, FileChannel history) throws IOException {
+        StringBuilder text = new StringBuilder(batch.size() * 64);
+        Map<String, Account> changed = new HashMap<>();
+        boolean waited = false;
+        for (Transaction transaction : batch) {
+            if (transaction.type == null) {
+                continue;
+            }
+            appendTime(text, transaction.time);
+            text.append(',').append(transaction.phone)
+                .append(',').append(transaction.type).append(',').append(transaction.points)
+                .append(',').append(transaction.balance).append('\n');
+            if (transaction.account != null) {
+                changed.put(transaction.phone, transaction.account);
+            }
+            waited |= transaction.written != null;
+        }
+        List<Account> retry = new ArrayList<>(unsaved);
+        for (Account account : retry) {
+            changed.putIfAbsent(account.phone, account);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+        long start = history.size();
+        try {
+            while (buffer.hasRemaining()) {
+                history.write(buffer);
+            }
+        } catch (Throwable e) {
+            try {
+                history.truncate(start);
+            } catch (Throwable truncateError) {
+                e.addSuppressed(truncateError);
+                keep(batch);
+            }
+            throw e;
+        }
+        try {
+            for (Account account : changed.values()) {
+                MemberStore.Member member = members.get(account.phone);
+                if (member == null) {
+                    unsaved.remove(account);
+                    continue;
+                }
+                // Read now rather than taken from the batch, so the saved balance
+                // is the latest; locked so saved always matches the last save
+                synchronized (account) {
+                    int points = account.points();
+                    if (!members.put(account.phone, member.getName(), points)) {
+                        throw new IOException("balance of " + account.phone + " not saved");
+                    }
+                    account.saved = points;
+                }
+                unsaved.remove(account);
+            }
+            if (waited) {
+                history.force(false);
+                members.sync();
+            }
+        } catch (Throwable e) {
+            keep(batch);
+            throw e;
+        }
+        for (Transaction transaction : batch) {
+            settle(transaction);
+        }
+        batch.clear();
+        // Saved now, and nothing else may release them
+        for (Account account : retry) {
+            if (account.holds.get() == 0) {
+                drop(account);
+            }
+        }
+    }
+
+    // Answers a change that is kept: its accrual can now be spent, and the
+    // till's hold is given up
+    private void settle(Transaction transaction) {
+        if (transaction.account != null) {
+            if (transaction.type == Type.ACCRUE && transaction.written != null) {
+                transaction.account.state.addAndGet(-transaction.points);
+            }
+            release(transaction.account);
+        }
+        if (transaction.written != null) {
+            transaction.written.countDown();
+        }
+    }
+
+    // Keeps the changes of a batch that may be partly in the files. The
+    // accounts stay loaded until the next writer saves them.
+    private void keep(List<Transaction> batch) {
+        int changes = 0;
+        for (Transaction transaction : batch) {
+            if (transaction.account != null) {
+                unsaved.add(transaction.account);
+                changes++;
+            }
+            settle(transaction);
+        }
+        if (changes > 0) {
+            System.out.println("Error saving loyalty history: " + changes
+                + " point changes were kept but may not be saved");
+        }
+        batch.clear();
+    }
+
+    // Fails transactions none of which reached the files. Changes whose
+    // till is waiting are taken back off the balance, as the till is told
+    // they failed; the points of an accrual were never spendable, so this
+    // cannot go below zero. Other tills were already answered, so their
+    // changes are kept for the next writer and only their history is lost.
+    private void fail(List<Transaction> transactions) {
+        int lost = 0;
+        for (Transaction transaction : transactions) {
+            if (transaction.account != null) {
+                if (transaction.written != null) {
+                    long change = transaction.type == Type.REDEEM
+                        ? (long) transaction.points << 32
+                        : -(((long) transaction.points << 32) + transaction.points);
+                    transaction.account.state.addAndGet(change);
+                } else {
+                    unsaved.add(transaction.account);
+                    lost++;
+                }
+                release(transaction.account);
+            }
+            if (transaction.written != null) {
+                transaction.failed = true;
+                transaction.written.countDown();
+            }
+        }
+        if (lost > 0) {
+            System.out.println("Error saving loyalty history: " + lost
+                + " queued point changes are missing from the history");
+        }
+        transactions.clear();
+    }
+
+    // Appends the time in Instant's format with milliseconds, e.g. 2024-11-12T09:30:00.250Z
+    private void appendTime(StringBuilder text, long millis) {
+        long second = Math.floorDiv(millis, 1000);
+        if (second != timeSecond) {
+            String formatted = Instant.ofEpochSecond(second).toString();
+            timePrefix = formatted.substring(0, formatted.length() - 1);
+            timeSecond = second;
+        }
+        int milli = Math.floorMod(millis, 1000);
+        text.append(timePrefix).append('.')
+            .append((char) ('0' + milli / 100)).append((char) ('0' + milli / 10 % 10)).append((char) ('0' + milli % 10))
+            .append('Z');
+    }
+}
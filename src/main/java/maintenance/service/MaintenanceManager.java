@@ -1,6 +1,8 @@
 package maintenance.service;
 
 import maintenance.model.*;
+import store.service.RecordStore;
+import store.service.StoreDataRepository;
 import java.time.*;
 import java.util.*;
 import java.io.*;
@@ -10,7 +12,8 @@ public class MaintenanceManager {
     private String storeId;
     private Map<String, CleaningTask> cleaningTasks;
     private Map<String, MaintenanceTask> maintenanceTasks;
-    private static final String DATA_DIR = "./src/main/java/store/data/";
+    private static final String CLEANING_TASKS = "cleaning_tasks";
+    private static final String MAINTENANCE_TASKS = "maintenance_tasks";
 
     public MaintenanceManager(String storeId) {
         this.storeId = storeId;
@@ -26,17 +29,14 @@ public class MaintenanceManager {
     }
 
     private void loadCleaningTasks() {
-        String fileName = DATA_DIR + storeId + "_cleaning_tasks.txt";
-        File file = new File(fileName);
-        
-        if (!file.exists()) {
+        RecordStore records = StoreDataRepository.store(storeId).records();
+        if (!records.exists(CLEANING_TASKS)) {
             initializeDefaultCleaningTasks();
             return;
         }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
+        try {
+            for (String line : records.readAll(CLEANING_TASKS)) {
                 String[] parts = line.split(",");
                 CleaningTask task = new CleaningTask(
                     parts[0], // taskId
@@ -56,14 +56,11 @@ public class MaintenanceManager {
     }
 
     private void loadMaintenanceTasks() {
-        String fileName = DATA_DIR + storeId + "_maintenance_tasks.txt";
-        File file = new File(fileName);
-        
-        if (!file.exists()) return;
+        RecordStore records = StoreDataRepository.store(storeId).records();
+        if (!records.exists(MAINTENANCE_TASKS)) return;
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
+        try {
+            for (String line : records.readAll(MAINTENANCE_TASKS)) {
                 String[] parts = line.split(",");
                 MaintenanceTask task = new MaintenanceTask(
                     parts[0], // taskId
@@ -88,40 +85,42 @@ public class MaintenanceManager {
     }
 
     private void saveCleaningTasks() {
-        String fileName = DATA_DIR + storeId + "_cleaning_tasks.txt";
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
-            for (CleaningTask task : cleaningTasks.values()) {
-                writer.write(String.format("%s,%s,%s,%s,%s,%s,%s,%s%n",
-                    task.getTaskId(),
-                    task.getDescription(),
-                    task.getArea(),
-                    task.getFrequency(),
-                    task.getScheduledTime(),
-                    task.getStatus(),
-                    task.getAssignedTo() != null ? task.getAssignedTo() : "",
-                    task.getNotes() != null ? task.getNotes() : ""
-                ));
-            }
+        List<String> records = new ArrayList<>();
+        for (CleaningTask task : cleaningTasks.values()) {
+            records.add(String.format("%s,%s,%s,%s,%s,%s,%s,%s",
+                task.getTaskId(),
+                task.getDescription(),
+                task.getArea(),
+                task.getFrequency(),
+                task.getScheduledTime(),
+                task.getStatus(),
+                task.getAssignedTo() != null ? task.getAssignedTo() : "",
+                task.getNotes() != null ? task.getNotes() : ""
+            ));
+        }
+        try {
+            StoreDataRepository.store(storeId).records().writeAll(CLEANING_TASKS, records);
         } catch (IOException e) {
             System.err.println("Error saving cleaning tasks: " + e.getMessage());
         }
     }
 
     private void saveMaintenanceTasks() {
-        String fileName = DATA_DIR + storeId + "_maintenance_tasks.txt";
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
-            for (MaintenanceTask task : maintenanceTasks.values()) {
-                writer.write(String.format("%s,%s,%s,%s,%s,%s,%s,%s%n",
-                    task.getTaskId(),
-                    task.getDescription(),
-                    task.getArea(),
-                    task.getPriority(),
-                    task.getReportedTime(),
-                    task.getStatus(),
-                    task.getAssignedTo() != null ? task.getAssignedTo() : "",
-                    task.getNotes() != null ? task.getNotes() : ""
-                ));
-            }
+        List<String> records = new ArrayList<>();
+        for (MaintenanceTask task : maintenanceTasks.values()) {
+            records.add(String.format("%s,%s,%s,%s,%s,%s,%s,%s",
+                task.getTaskId(),
+                task.getDescription(),
+                task.getArea(),
+                task.getPriority(),
+                task.getReportedTime(),
+                task.getStatus(),
+                task.getAssignedTo() != null ? task.getAssignedTo() : "",
+                task.getNotes() != null ? task.getNotes() : ""
+            ));
+        }
+        try {
+            StoreDataRepository.store(storeId).records().writeAll(MAINTENANCE_TASKS, records);
         } catch (IOException e) {
             System.err.println("Error saving maintenance tasks: " + e.getMessage());
         }
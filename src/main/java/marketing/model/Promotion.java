@@ -17,7 +17,12 @@ public class Promotion {
 
     public Promotion(String name, String type, double discount, 
                     LocalDateTime startDate, LocalDateTime endDate) {
-        this.id = "PROMO" + System.currentTimeMillis();
+        this("PROMO" + System.currentTimeMillis(), name, type, discount, startDate, endDate);
+    }
+
+    public Promotion(String id, String name, String type, double discount,
+                    LocalDateTime startDate, LocalDateTime endDate) {
+        this.id = id;
         this.name = name;
         this.type = type;
         this.discount = discount;
@@ -195,6 +195,8 @@ public class MarketingManager {
         switch (choice) {
             case 1:
                 promo.setStatus("COMPLETED");
+                // Status is not saved, so end the window for order pricing
+                promo.setEndDate(LocalDateTime.now());
                 System.out.println("Promotion ended");
                 break;
             case 2:
@@ -352,7 +354,10 @@ public class MarketingManager {
                         LocalDateTime endDate = LocalDateTime.parse(parts[5], formatter);
     
                         // Create and store the promotion
-                        Promotion promo = new Promotion(name, type, discount, startDate, endDate);
+                        Promotion promo = new Promotion(id, name, type, discount, startDate, endDate);
+                        if (parts.length >= 7 && !parts[6].isEmpty()) {
+                            promo.addTargetProducts(new HashSet<>(Arrays.asList(parts[6].split("\\|"))));
+                        }
                         activePromotions.put(id, promo);
                         // Initialize performance data
                         performances.put(id, new PromotionPerformance(id));
@@ -368,33 +373,35 @@ public class MarketingManager {
 
     private void savePromotion(Promotion promo) {
         try (FileWriter writer = new FileWriter(PROMOTIONS_FILE, true)) {
-            // Format: ID,Name,Type,Discount,StartDate,EndDate
-            writer.write(String.format("%s,%s,%s,%.2f,%s,%s%n",
-                promo.getId(),
-                promo.getName(),
-                promo.getType(),
-                promo.getDiscount(),
-                promo.getStartDate().format(formatter),
-                promo.getEndDate().format(formatter)));
+            // Format: ID,Name,Type,Discount,StartDate,EndDate,Product|Product...
+            writer.write(formatPromotion(promo));
         } catch (IOException e) {
             System.err.println("Error saving promotion: " + e.getMessage());
         }
+        // Price the new promotion into orders straight away
+        PromotionIndex.getInstance().refresh();
     }
 
     // Optional: Method to update promotion file (removes old data and rewrites everything)
     private void updatePromotionsFile() {
         try (FileWriter writer = new FileWriter(PROMOTIONS_FILE, false)) {
             for (Promotion promo : activePromotions.values()) {
-                writer.write(String.format("%s,%s,%s,%.2f,%s,%s%n",
-                    promo.getId(),
-                    promo.getName(),
-                    promo.getType(),
-                    promo.getDiscount(),
-                    promo.getStartDate().format(formatter),
-                    promo.getEndDate().format(formatter)));
+                writer.write(formatPromotion(promo));
             }
         } catch (IOException e) {
             System.err.println("Error updating promotions file: " + e.getMessage());
         }
+        PromotionIndex.getInstance().refresh();
+    }
+
+    private String formatPromotion(Promotion promo) {
+        return String.format("%s,%s,%s,%.2f,%s,%s,%s%n",
+            promo.getId(),
+            promo.getName(),
+            promo.getType(),
+            promo.getDiscount(),
+            promo.getStartDate().format(formatter),
+            promo.getEndDate().format(formatter),
+            String.join("|", promo.getTargetProducts()));
     }
 }
\ No newline at end of file
@@ -0,0 +1,357 @@
+package marketing.service;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Price rules compiled from promotions.txt, keyed by product id, so an
+ * order line is priced with one map lookup and a scan of that product's
+ * rules instead of a pass over every promotion.
+ *
+ * Each product's rules are swept, by their epoch-minute windows, into the
+ * segments of time between window boundaries, each holding the largest
+ * percentage and BOGO discounts in effect over it. A lookup binary-searches
+ * the segments, so it costs the same however many windows overlap the
+ * order time. Promotions that have already ended when the file is loaded
+ * are left out.
+ *
+ * The file is checked for changes once a second by a background thread,
+ * or on demand through refresh. Only products whose promotions were added,
+ * changed or removed have their rules rebuilt.
+ *
+ * @author Akhilesh Nevatia
+ */
+public class PromotionIndex {
+    private static final String PROMOTIONS_FILE = "src/main/java/marketing/data/promotions.txt";
+    private static final long CHECK_INTERVAL_MILLIS = 1000;
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private static final byte PERCENTAGE_OFF = 0;
+    private static final byte BOGO = 1;
+    // Discounts are held in basis points: 20.00% -> 2000
+    private static final int FULL_DISCOUNT = 10_000;
+    private static final String[] NO_PRODUCTS = new String[0];
+
+    private static volatile PromotionIndex instance;
+
+    // One promotion as compiled from its line in the file
+    private static final class Rule {
+        final String line;
+        final String[] productIds;
+        final byte type;
+        final int discount;
+        final long start;
+        final long end;
+
+        Rule(String line, String[] productIds, byte type, int discount, long start, long end) {
+            this.line = line;
+            this.productIds = productIds;
+            this.type = type;
+            this.discount = discount;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    // Immutable rules for one product, swept into the time segments
+    // between window boundaries. Segment i runs from bounds[i] up to
+    // bounds[i + 1] and holds the largest percentage and BOGO discounts
+    // of the rules covering it; 0 where none does.
+    private static final class ProductRules {
+        final long[] bounds;
+        final int[] percentOff;
+        final int[] bogoOff;
+
+        ProductRules(List<Rule> rules) {
+            int count = rules.size();
+            Rule[] byStart = rules.toArray(new Rule[0]);
+            Rule[] byEnd = byStart.clone();
+            Arrays.sort(byStart, (a, b) -> Long.compare(a.start, b.start));
+            Arrays.sort(byEnd, (a, b) -> Long.compare(a.end, b.end));
+            long[] bounds = new long[count * 2];
+            int[] percentOff = new int[count * 2];
+            int[] bogoOff = new int[count * 2];
+            // Discounts of the rules covering the current segment, with counts
+            TreeMap<Integer, Integer> percents = new TreeMap<>();
+            TreeMap<Integer, Integer> bogos = new TreeMap<>();
+            int segments = 0;
+            int started = 0;
+            int ended = 0;
+            while (ended < count) {
+                // Windows include their end minute, so a rule stops covering at end + 1
+                long bound = byEnd[ended].end + 1;
+                if (started < count) {
+                    bound = Math.min(bound, byStart[started].start);
+                }
+                for (; started < count && byStart[started].start == bound; started++) {
+                    Rule rule = byStart[started];
+                    (rule.type == BOGO ? bogos : percents).merge(rule.discount, 1, Integer::sum);
+                }
+                for (; ended < count && byEnd[ended].end + 1 == bound; ended++) {
+                    Rule rule = byEnd[ended];
+                    (rule.type == BOGO ? bogos : percents).merge(rule.discount, -1,
+                        (a, b) -> a + b == 0 ? null : a + b);
+                }
+                int percent = percents.isEmpty() ? 0 : percents.lastKey();
+                int bogo = bogos.isEmpty() ? 0 : bogos.lastKey();
+                // Neighbouring segments with the same discounts are merged
+                boolean same = segments == 0 ? percent == 0 && bogo == 0
+                    : percentOff[segments - 1] == percent && bogoOff[segments - 1] == bogo;
+                if (!same) {
+                    bounds[segments] = bound;
+                    percentOff[segments] = percent;
+                    bogoOff[segments] = bogo;
+                    segments++;
+                }
+            }
+            this.bounds = Arrays.copyOf(bounds, segments);
+            this.percentOff = Arrays.copyOf(percentOff, segments);
+            this.bogoOff = Arrays.copyOf(bogoOff, segments);
+        }
+
+        // Lowest price in cents any rule covering the minute gives the line
+        long price(long unitCents, int quantity, long minute) {
+            long full = unitCents * quantity;
+            // Segment holding the minute: the last one starting at or before it
+            int low = 0;
+            int high = bounds.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (bounds[mid] <= minute) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            if (low == 0) {
+                return full;
+            }
+            // Discounts round to the nearest cent in the customer's favour,
+            // so the largest of each type gives that type's lowest price
+            long discount = (full * percentOff[low - 1] + FULL_DISCOUNT / 2) / FULL_DISCOUNT;
+            // Every second unit is discounted
+            long bogo = (unitCents * (quantity / 2) * bogoOff[low - 1] + FULL_DISCOUNT / 2) / FULL_DISCOUNT;
+            return full - Math.max(discount, bogo);
+        }
+    }
+
+    private final File file;
+    private final Map<String, ProductRules> rulesByProduct;
+    // Compiled promotions by id, and the ids targeting each product
+    private final Map<String, Rule> promotions;
+    private final Map<String, Set<String>> promotionsByProduct;
+    private long loadedModified = -1;
+    private long loadedLength = -1;
+
+    /**
+     * Creates an index over a promotions file and loads it
+     * @param promotionsFile Path of the promotions file
+     */
+    public PromotionIndex(String promotionsFile) {
+        this.file = new File(promotionsFile);
+        this.rulesByProduct = new ConcurrentHashMap<>();
+        this.promotions = new HashMap<>();
+        this.promotionsByProduct = new HashMap<>();
+        refresh();
+    }
+
+    /**
+     * Returns the process-wide index over promotions.txt, loading it and
+     * starting the file watcher on first use
+     */
+    public static PromotionIndex getInstance() {
+        PromotionIndex index = instance;
+        if (index == null) {
+            synchronized (PromotionIndex.class) {
+                index = instance;
+                if (index == null) {
+                    index = new PromotionIndex(PROMOTIONS_FILE);
+                    index.startWatcher();
+                    instance = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Prices an order line with the best promotion in effect for the
+     * product at the given time
+     * @param productId Product on the line
+     * @param unitCents Regular unit price in cents
+     * @param quantity Units on the line
+     * @param time Time the order was placed
+     * @return Line total in cents after discount
+     */
+    public long priceLine(String productId, long unitCents, int quantity, LocalDateTime time) {
+        ProductRules rules = rulesByProduct.get(productId);
+        if (rules == null) {
+            return unitCents * quantity;
+        }
+        return rules.price(unitCents, quantity, time.toEpochSecond(ZoneOffset.UTC) / 60);
+    }
+
+    /**
+     * Returns the number of promotions read from the file, including those
+     * that price nothing
+     */
+    public synchronized int size() {
+        return promotions.size();
+    }
+
+    /**
+     * Reloads the promotions file if it changed since the last load,
+     * rebuilding the rules of only the products it affects
+     * @return number of products whose rules were rebuilt
+     */
+    public synchronized int refresh() {
+        long modified = file.lastModified();
+        long length = file.length();
+        if (modified == loadedModified && length == loadedLength) {
+            return 0;
+        }
+
+        Map<String, String> lines = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comma = line.indexOf(',');
+                if (comma > 0) {
+                    lines.put(line.substring(0, comma), line);
+                }
+            }
+        } catch (FileNotFoundException e) {
+            // No promotions yet
+        } catch (IOException e) {
+            System.err.println("Error loading promotions: " + e.getMessage());
+            return 0;
+        }
+        loadedModified = modified;
+        loadedLength = length;
+
+        Set<String> touched = new HashSet<>();
+        // Removed or changed promotions
+        List<String> ids = new ArrayList<>(promotions.keySet());
+        for (String id : ids) {
+            Rule old = promotions.get(id);
+            if (!old.line.equals(lines.get(id))) {
+                promotions.remove(id);
+                for (String productId : old.productIds) {
+                    Set<String> targeting = promotionsByProduct.get(productId);
+                    targeting.remove(id);
+                    if (targeting.isEmpty()) {
+                        promotionsByProduct.remove(productId);
+                    }
+                    touched.add(productId);
+                }
+            }
+        }
+        // Added or changed promotions
+        long now = LocalDateTime.now().toEpochSecond(ZoneOffset.UTC) / 60;
+        for (Map.Entry<String, String> entry : lines.entrySet()) {
+            String id = entry.getKey();
+            if (promotions.containsKey(id)) {
+                continue;
+            }
+            Rule rule = compile(entry.getValue(), now);
+            promotions.put(id, rule);
+            for (String productId : rule.productIds) {
+                promotionsByProduct.computeIfAbsent(productId, p -> new HashSet<>()).add(id);
+                touched.add(productId);
+            }
+        }
+
+        for (String productId : touched) {
+            Set<String> targeting = promotionsByProduct.get(productId);
+            if (targeting == null) {
+                rulesByProduct.remove(productId);
+            } else {
+                List<Rule> rules = new ArrayList<>(targeting.size());
+                for (String id : targeting) {
+                    rules.add(promotions.get(id));
+                }
+                rulesByProduct.put(productId, new ProductRules(rules));
+            }
+        }
+        return touched.size();
+    }
+
+    // Parses ID,Name,Type,Discount,StartDate,EndDate[,Product|Product...]
+    // into a rule. Lines that price nothing (other promotion types, no
+    // products, ended or unreadable) compile to a rule with no products,
+    // so they are not parsed again until they change.
+    private static Rule compile(String line, long now) {
+        String[] parts = line.split(",");
+        if (parts.length < 7 || parts[6].isEmpty()) {
+            return new Rule(line, NO_PRODUCTS, PERCENTAGE_OFF, 0, 0, 0);
+        }
+        byte type;
+        if (parts[2].equals("PERCENTAGE_OFF")) {
+            type = PERCENTAGE_OFF;
+        } else if (parts[2].equals("BOGO")) {
+            type = BOGO;
+        } else {
+            return new Rule(line, NO_PRODUCTS, PERCENTAGE_OFF, 0, 0, 0);
+        }
+        try {
+            int discount = (int) Math.round(Double.parseDouble(parts[3]) * 100);
+            long start = epochMinute(parts[4]);
+            long end = epochMinute(parts[5]);
+            if (discount <= 0 || end < start || end < now) {
+                return new Rule(line, NO_PRODUCTS, type, 0, start, end);
+            }
+            return new Rule(line, parts[6].split("\\|"), type, Math.min(discount, FULL_DISCOUNT), start, end);
+        } catch (RuntimeException e) {
+            System.err.println("Error parsing promotion: " + e.getMessage());
+            return new Rule(line, NO_PRODUCTS, type, 0, 0, 0);
+        }
+    }
+
+    // Reads yyyy-MM-dd HH:mm without the formatter, which dominates
+    // loading a large file
+    private static long epochMinute(String text) {
+        if (text.length() != 16 || text.charAt(4) != '-' || text.charAt(7) != '-'
+                || text.charAt(10) != ' ' || text.charAt(13) != ':') {
+            return LocalDateTime.parse(text, FORMATTER).toEpochSecond(ZoneOffset.UTC) / 60;
+        }
+        long day = LocalDate.of(Integer.parseInt(text, 0, 4, 10), Integer.parseInt(text, 5, 7, 10),
+            Integer.parseInt(text, 8, 10, 10)).toEpochDay();
+        int hour = Integer.parseInt(text, 11, 13, 10);
+        int minute = Integer.parseInt(text, 14, 16, 10);
+        if (hour > 23 || minute > 59) {
+            throw new IllegalArgumentException("Invalid time: " + text);
+        }
+        return day * 1440 + hour * 60 + minute;
+    }
+
+    private void startWatcher() {
+        Thread watcher = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(CHECK_INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                refresh();
+            }
+        }, "promotion-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+}
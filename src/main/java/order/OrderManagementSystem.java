@@ -1,15 +1,13 @@
 package order;
 
 import inventory.service.InventoryManager;
-import inventory.service.HeadOfficeManager;
 import inventory.model.Product;
 import order.model.Order;
+import order.service.CheckoutEngine;
+import store.service.StoreDataRepository;
 import java.util.Map;
 import java.util.Scanner;
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.time.LocalDate;
 import java.io.File;
 
 /**
@@ -20,12 +18,14 @@ import java.io.File;
  * @author Hrishikesha
  */
 public class OrderManagementSystem {
+    // Lane this console drives on the store's checkout engine
+    private static final int CONSOLE_LANE = 1;
+    // Engine that owns orders and stock reservations
+    private CheckoutEngine checkoutEngine;
     // Manager instance to handle inventory operations
     private InventoryManager inventoryManager;
     // Scanner for user input
     private Scanner scanner;
-    // Current active order being processed
-    private Order currentOrder;
     // Store identifier
     private String storeId;
 
@@ -35,12 +35,9 @@ public class OrderManagementSystem {
      */
     public OrderManagementSystem(String storeId) {
         this.storeId = storeId;
-        this.inventoryManager = new InventoryManager(new HeadOfficeManager());
-        this.inventoryManager.setCurrentStore(storeId);
+        this.checkoutEngine = new CheckoutEngine(storeId);
+        this.inventoryManager = checkoutEngine.getInventoryManager();
         this.scanner = new Scanner(System.in);
-        
-        // Create data directory if it doesn't exist
-        new File("./src/main/java/store/data").mkdirs();
     }
 
     public void start() {
@@ -78,6 +75,8 @@ public class OrderManagementSystem {
                     viewStoreOrders();
                     break;
                 case 7:
+                    // Releases the stock held by an unfinished order
+                    checkoutEngine.close();
                     return;
                 default:
                     System.out.println("Invalid option");
@@ -91,7 +90,7 @@ public class OrderManagementSystem {
      * @param quantity The quantity to add
      */
     private void addItemToOrder() {
-        if (currentOrder == null) {
+        if (checkoutEngine.getOrder(CONSOLE_LANE) == null) {
             System.out.println("Please create a new order first");
             return;
         }
@@ -108,62 +107,35 @@ public class OrderManagementSystem {
             return;
         }
 
-        if (product.getStockLevel() < quantity) {
-            System.out.println("Insufficient stock. Available: " + product.getStockLevel());
+        // Stock is reserved now and only deducted once payment is taken
+        if (!checkoutEngine.addItem(CONSOLE_LANE, productId, quantity)) {
+            System.out.println("Insufficient stock. Available: " + product.getAvailableStock());
             return;
         }
 
-        // Only add to order, don't update inventory yet
-        currentOrder.addItem(product, quantity);
         System.out.println("Item added to order. Current total: $" + 
-            String.format("%.2f", currentOrder.getTotalAmount()));
+            String.format("%.2f", checkoutEngine.getOrder(CONSOLE_LANE).getTotalAmount()));
     }
 
     private void createNewOrder() {
-        if (currentOrder != null) {
+        if (checkoutEngine.getOrder(CONSOLE_LANE) != null) {
             System.out.println("There's already an active order. Please complete or cancel it first.");
             return;
         }
         System.out.print("Enter order ID: ");
         String orderId = scanner.nextLine();
-        currentOrder = new Order(orderId, storeId);
+        checkoutEngine.openOrder(CONSOLE_LANE, orderId);
         System.out.println("New order created successfully");
     }
 
     private void cancelOrder() {
-        if (currentOrder == null) {
+        if (!checkoutEngine.cancelOrder(CONSOLE_LANE)) {
             System.out.println("No active order to cancel");
             return;
         }
-        currentOrder = null;
         System.out.println("Order cancelled successfully");
     }
 
-    private void updateInventory() {
-        for (Map.Entry<Product, Integer> entry : currentOrder.getItems().entrySet()) {
-            Product product = entry.getKey();
-            int quantity = entry.getValue();
-            inventoryManager.restockProduct(product.getId(), -quantity); // Deduct stock
-        }
-    }
-
-    private boolean verifyStockLevels() {
-        for (Map.Entry<Product, Integer> entry : currentOrder.getItems().entrySet()) {
-            Product orderedProduct = entry.getKey();
-            int orderedQuantity = entry.getValue();
-            
-            // Get fresh product data from inventory
-            Product currentProduct = inventoryManager.getProduct(orderedProduct.getId());
-            if (currentProduct == null || currentProduct.getStockLevel() < orderedQuantity) {
-                System.out.println("Error: Insufficient stock for " + orderedProduct.getName() + 
-                                 ". Available: " + currentProduct.getStockLevel() + 
-                                 ", Ordered: " + orderedQuantity);
-                return false;
-            }
-        }
-        return true;
-    }
-
     private void viewAvailableProducts() {
         System.out.println("\nAvailable Products:");
         System.out.println("--------------------------------------------------");
@@ -173,12 +145,12 @@ public class OrderManagementSystem {
         
         Map<String, Product> products = inventoryManager.getAllProducts();
         for (Product product : products.values()) {
-            if (!product.isObsolete() && product.getStockLevel() > 0) {
+            if (!product.isObsolete() && product.getAvailableStock() > 0) {
                 System.out.printf("%-8s %-15s $%-9.2f %-8d %s%n",
                     product.getId(),
                     product.getName(),
                     product.getPrice(),
-                    product.getStockLevel(),
+                    product.getAvailableStock(),
                     product.getExpirationDate());
             }
         }
@@ -186,17 +158,12 @@ public class OrderManagementSystem {
     }
 
     private void processPayment() {
+        Order currentOrder = checkoutEngine.getOrder(CONSOLE_LANE);
         if (currentOrder == null) {
             System.out.println("No active order to process");
             return;
         }
 
-        // Verify stock levels before processing payment
-        if (!verifyStockLevels()) {
-            System.out.println("Cannot process payment due to insufficient stock");
-            return;
-        }
-
         System.out.println("Total amount: $" + String.format("%.2f", currentOrder.getTotalAmount()));
         System.out.println("Select payment method:");
         System.out.println("1. Cash");
@@ -222,60 +189,19 @@ public class OrderManagementSystem {
         }
 
         if (paymentMethod != null) {
-            // Update inventory only after payment is confirmed
-            for (Map.Entry<Product, Integer> entry : currentOrder.getItems().entrySet()) {
-                Product product = entry.getKey();
-                int quantity = entry.getValue();
-                inventoryManager.restockProduct(product.getId(), -quantity);
+            // The sale is recorded and reserved stock committed by the engine
+            if (checkoutEngine.pay(CONSOLE_LANE, paymentMethod) != null) {
+                System.out.println("Payment processed successfully");
+            } else {
+                System.out.println("Payment failed: the sale could not be saved. The order is still open.");
             }
-            
-            currentOrder.setPaymentMethod(paymentMethod);
-            currentOrder.markAsPaid();
-            saveSalesData();
-            System.out.println("Payment processed successfully");
-            currentOrder = null;
         } else {
             System.out.println("Invalid payment method");
         }
     }
 
-    private void saveSalesData() {
-        // Save sales data
-        String salesFileName = "./src/main/java/store/data/" + storeId + "_sales.txt";
-        // Save order data
-        String orderFileName = "./src/main/java/store/data/" + storeId + "_orders.txt";
-        
-        try (BufferedWriter salesWriter = new BufferedWriter(new FileWriter(salesFileName, true));
-             BufferedWriter orderWriter = new BufferedWriter(new FileWriter(orderFileName, true))) {
-            
-            // Save order details
-            orderWriter.write(String.format("%s,%s,%s,%s,%.2f%n",
-                LocalDate.now(),
-                currentOrder.getOrderId(),
-                storeId,
-                currentOrder.getPaymentMethod(),
-                currentOrder.getTotalAmount()));
-            
-            // Save individual sales
-            for (Map.Entry<Product, Integer> entry : currentOrder.getItems().entrySet()) {
-                Product product = entry.getKey();
-                int quantity = entry.getValue();
-                double revenue = product.getPrice() * quantity;
-                
-                salesWriter.write(String.format("%s,%s,%d,%.2f%n",
-                    LocalDate.now(),
-                    product.getId(),
-                    quantity,
-                    revenue));
-            }
-        } catch (IOException e) {
-            System.err.println("Error saving data: " + e.getMessage());
-        }
-    }
-
     private void viewStoreOrders() {
-        String orderFileName = "./src/main/java/store/data/" + storeId + "_orders.txt";
-        File orderFile = new File(orderFileName);
+        File orderFile = StoreDataRepository.store(storeId).file("orders.txt").toFile();
         
         if (!orderFile.exists()) {
             System.out.println("No orders found for store " + storeId);
@@ -1,22 +1,39 @@
 package order.model;
 
 import inventory.model.Product;
+import marketing.service.PromotionIndex;
+import store.model.Money;
 import java.time.LocalDateTime;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * Model class representing an order with its items, payment status,
  * and related information.
  *
+ * Lines are held in parallel arrays of product, quantity and
+ * promotion-priced total in cents, with an open-addressing table from
+ * product id to line. Adding an item merges into the product's line by
+ * id and adjusts the order total by that line's change, so an order of
+ * N lines is built in O(N).
+ *
  * @author Akhilesh Nevatia
  * @author Hrishikesha
  */
 public class Order {
+    private static final int INITIAL_LINES = 8;
+
     private String orderId;
     private String storeId;
-    private Map<Product, Integer> items; // Product and quantity
-    private double totalAmount;
+    // Line i: products[i], quantities[i] and its total lineCents[i]
+    private Product[] products;
+    private int[] quantities;
+    private long[] lineCents;
+    private int lineCount;
+    // Product id hash table holding line index + 1, or 0 if empty
+    private int[] lineSlots;
+    private long totalCents;
     private String paymentMethod;
     private boolean isPaid;
     private LocalDateTime orderTime;
@@ -24,7 +41,10 @@ public class Order {
     public Order(String orderId, String storeId) {
         this.orderId = orderId;
         this.storeId = storeId;
-        this.items = new HashMap<>();
+        this.products = new Product[INITIAL_LINES];
+        this.quantities = new int[INITIAL_LINES];
+        this.lineCents = new long[INITIAL_LINES];
+        this.lineSlots = new int[INITIAL_LINES * 2];
         this.orderTime = LocalDateTime.now();
         this.isPaid = false;
     }
@@ -32,15 +52,50 @@ public class Order {
     // Getters and setters
     public String getOrderId() { return orderId; }
     public String getStoreId() { return storeId; }
-    public Map<Product, Integer> getItems() { return items; }
-    public double getTotalAmount() { return totalAmount; }
+    public double getTotalAmount() { return Money.toDouble(totalCents); }
+    public long getTotalCents() { return totalCents; }
     public String getPaymentMethod() { return paymentMethod; }
     public boolean isPaid() { return isPaid; }
     public LocalDateTime getOrderTime() { return orderTime; }
 
+    public int getLineCount() { return lineCount; }
+    public Product getProduct(int line) { return products[line]; }
+    public int getQuantity(int line) { return quantities[line]; }
+    public long getLineCents(int line) { return lineCents[line]; }
+
+    /**
+     * Returns a copy of the order's lines as product and quantity, in the
+     * order they were added
+     */
+    public Map<Product, Integer> getItems() {
+        Map<Product, Integer> items = new LinkedHashMap<>();
+        for (int i = 0; i < lineCount; i++) {
+            items.put(products[i], quantities[i]);
+        }
+        return items;
+    }
+
     public void addItem(Product product, int quantity) {
-        items.put(product, items.getOrDefault(product, 0) + quantity);
-        calculateTotal();
+        int line = findLine(product.getId());
+        if (line < 0) {
+            line = appendLine(product);
+        }
+        quantities[line] += quantity;
+        // Promotions such as BOGO depend on the line's whole quantity
+        long priced = PromotionIndex.getInstance()
+            .priceLine(product.getId(), product.getPriceCents(), quantities[line], orderTime);
+        totalCents += priced - lineCents[line];
+        lineCents[line] = priced;
+    }
+
+    /**
+     * Returns a line's total after promotions
+     * @param product Product on the line
+     * @return Line total, or 0 if the product is not in the order
+     */
+    public double getLineTotal(Product product) {
+        int line = findLine(product.getId());
+        return line < 0 ? 0 : Money.toDouble(lineCents[line]);
     }
 
     public void setPaymentMethod(String paymentMethod) {
@@ -51,9 +106,46 @@ public class Order {
         this.isPaid = true;
     }
 
-    private void calculateTotal() {
-        this.totalAmount = items.entrySet().stream()
-            .mapToDouble(entry -> entry.getKey().getPrice() * entry.getValue())
-            .sum();
+    private int findLine(String productId) {
+        int mask = lineSlots.length - 1;
+        for (int slot = slot(productId, mask); lineSlots[slot] != 0; slot = (slot + 1) & mask) {
+            int line = lineSlots[slot] - 1;
+            if (products[line].getId().equals(productId)) {
+                return line;
+            }
+        }
+        return -1;
+    }
+
+    private int appendLine(Product product) {
+        if (lineCount == products.length) {
+            int capacity = lineCount * 2;
+            products = Arrays.copyOf(products, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            lineCents = Arrays.copyOf(lineCents, capacity);
+            // Keep the table at most half full
+            lineSlots = new int[capacity * 2];
+            for (int i = 0; i < lineCount; i++) {
+                index(i);
+            }
+        }
+        int line = lineCount++;
+        products[line] = product;
+        index(line);
+        return line;
+    }
+
+    private void index(int line) {
+        int mask = lineSlots.length - 1;
+        int slot = slot(products[line].getId(), mask);
+        while (lineSlots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        lineSlots[slot] = line + 1;
+    }
+
+    private static int slot(String productId, int mask) {
+        int hash = productId.hashCode() * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,161 @@
+package order.service;
+
+import inventory.model.Product;
+import inventory.service.InventoryManager;
+import inventory.service.InventoryRegistry;
+import order.model.Order;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Headless order-processing engine for one store. Each checkout lane holds
+ * at most one open order, and any number of lanes can run concurrently
+ * against the store's shared inventory.
+ *
+ * Stock is reserved when an item is added, so a paid order can never find
+ * its items sold out; reservations are committed once the sale is recorded
+ * and released on cancellation.
+ *
+ * @author Akhilesh Nevatia
+ * @author Hrishikesha
+ */
+public class CheckoutEngine {
+    private String storeId;
+    private InventoryManager inventoryManager;
+    // Open order per lane: laneId -> order
+    private Map<Integer, Order> laneOrders;
+    // Group-commit writer for the store's order and sales files, shared
+    // by every engine of the store
+    private SalesAppender salesAppender;
+
+    /**
+     * Creates an engine for a store using the shared inventory
+     * @param storeId The unique identifier for the store
+     */
+    public CheckoutEngine(String storeId) {
+        this.storeId = storeId;
+        this.inventoryManager = InventoryRegistry.getInstance().acquire(storeId);
+        this.laneOrders = new ConcurrentHashMap<>();
+        this.salesAppender = SalesAppender.forStore(storeId);
+    }
+
+    public String getStoreId() { return storeId; }
+
+    public InventoryManager getInventoryManager() { return inventoryManager; }
+
+    public SalesAppender getSalesAppender() { return salesAppender; }
+
+    /**
+     * Opens a new order on a lane
+     * @param laneId Checkout lane
+     * @param orderId Order identifier
+     * @return The new order, or null if the lane already has an open order
+     */
+    public Order openOrder(int laneId, String orderId) {
+        Order order = new Order(orderId, storeId);
+        return laneOrders.putIfAbsent(laneId, order) == null ? order : null;
+    }
+
+    public Order getOrder(int laneId) {
+        return laneOrders.get(laneId);
+    }
+
+    /**
+     * Reserves stock and adds it to the lane's open order
+     * @param laneId Checkout lane
+     * @param productId Product to add
+     * @param quantity Units to add
+     * @return false if the lane has no open order, the product does not
+     *         exist or there is not enough unreserved stock
+     */
+    public boolean addItem(int laneId, String productId, int quantity) {
+        Order order = laneOrders.get(laneId);
+        if (order == null) {
+            return false;
+        }
+        Product product = inventoryManager.getProduct(productId);
+        if (product == null) {
+            return false;
+        }
+        synchronized (order) {
+            // The order may have been paid or cancelled by another thread
+            if (laneOrders.get(laneId) != order || !inventoryManager.reserveStock(productId, quantity)) {
+                return false;
+            }
+            order.addItem(product, quantity);
+        }
+        return true;
+    }
+
+    /**
+     * Cancels the lane's open order and releases its reservations
+     * @param laneId Checkout lane
+     * @return false if the lane had no open order
+     */
+    public boolean cancelOrder(int laneId) {
+        Order order = laneOrders.remove(laneId);
+        if (order == null) {
+            return false;
+        }
+        synchronized (order) {
+            for (int line = 0; line < order.getLineCount(); line++) {
+                inventoryManager.releaseStock(order.getProduct(line).getId(), order.getQuantity(line));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Takes payment for the lane's open order, recording the sale and then
+     * committing its reserved stock. If the sale cannot be recorded the
+     * order is not paid: it goes back on the lane with its stock still
+     * reserved, so it can be paid again or cancelled.
+     * @param laneId Checkout lane
+     * @param paymentMethod CASH, CARD or MOBILE
+     * @return The paid order, or null if the lane had no open order or the
+     *         sale could not be recorded
+     */
+    public Order pay(int laneId, String paymentMethod) {
+        Order order = laneOrders.remove(laneId);
+        if (order == null) {
+            return null;
+        }
+        synchronized (order) {
+            order.setPaymentMethod(paymentMethod);
+        }
+        // Outside the order lock: may wait for the group fsync
+        if (!salesAppender.append(order)) {
+            if (laneOrders.putIfAbsent(laneId, order) != null) {
+                // The lane has been reused; nobody can pay this order now
+                synchronized (order) {
+                    for (int line = 0; line < order.getLineCount(); line++) {
+                        inventoryManager.releaseStock(order.getProduct(line).getId(), order.getQuantity(line));
+                    }
+                }
+            }
+            return null;
+        }
+        synchronized (order) {
+            for (int line = 0; line < order.getLineCount(); line++) {
+                inventoryManager.commitStock(order.getProduct(line).getId(), order.getQuantity(line));
+            }
+            // One fsync for the whole basket
+            inventoryManager.syncJournal();
+            order.markAsPaid();
+        }
+        return order;
+    }
+
+    /**
+     * Cancels every open order and releases the engine's inventory view
+     */
+    public void close() {
+        List<Integer> lanes = new ArrayList<>(laneOrders.keySet());
+        for (int laneId : lanes) {
+            cancelOrder(laneId);
+        }
+        InventoryRegistry.getInstance().release(inventoryManager);
+    }
+}
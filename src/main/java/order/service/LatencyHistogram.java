@@ -0,0 +1,91 @@
+package order.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power-of-two microsecond buckets:
+ * bucket 0 counts samples under 1 us and bucket i samples in
+ * [2^(i-1), 2^i) us. Percentiles are reported as the bucket's upper bound.
+ *
+ * @author Akhilesh Nevatia
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 40;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records one sample
+     * @param nanos Latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMeanMicros() {
+        long samples = count.sum();
+        return samples == 0 ? 0 : totalNanos.sum() / 1000.0 / samples;
+    }
+
+    public double getMaxMicros() {
+        return maxNanos.get() / 1000.0;
+    }
+
+    /**
+     * Returns the latency below which the given share of samples fell
+     * @param percentile Percentile between 0 and 100
+     * @return Upper bound of the matching bucket in microseconds
+     */
+    public long getPercentileMicros(double percentile) {
+        long samples = count.sum();
+        if (samples == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(samples * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= Math.max(1, rank)) {
+                return 1L << i;
+            }
+        }
+        return 1L << (BUCKETS - 1);
+    }
+
+    /**
+     * Returns a one-line summary of count, mean and tail latencies
+     */
+    public String summary() {
+        return String.format("count=%d mean=%.0fus p50<%dus p99<%dus p99.9<%dus max=%.0fus",
+            getCount(), getMeanMicros(), getPercentileMicros(50), getPercentileMicros(99),
+            getPercentileMicros(99.9), getMaxMicros());
+    }
+
+    /**
+     * Returns the non-empty buckets, one per line, as "< bound us: count"
+     */
+    public String buckets() {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < BUCKETS; i++) {
+            long samples = buckets.get(i);
+            if (samples > 0) {
+                lines.append(String.format("  <%10d us: %d%n", 1L << i, samples));
+            }
+        }
+        return lines.toString();
+    }
+}
@@ -0,0 +1,429 @@
+package order.service;
+
+import order.model.Order;
+import report.service.SalesRollup;
+import store.model.Money;
+import store.service.StoreDataRepository;
+import store.service.StoreFiles;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Group-commit writer for a store's order and sales files. Paid orders from
+ * every lane are queued to one background thread, which appends each batch
+ * with a single write per file through channels kept open, and fsyncs them
+ * according to the durability setting:
+ * <ul>
+ *   <li>per order: pay returns once its order is on disk; orders arriving
+ *       together share one fsync</li>
+ *   <li>every N ms or every N records: pay returns once the order is
+ *       queued, and at most that window of orders can be lost in a crash</li>
+ * </ul>
+ * The setting is read from the store.sales.durability system property
+ * ("order", "ms:N" or "records:N") and defaults to per order.
+ *
+ * @author Akhilesh Nevatia
+ * @author Hrishikesha
+ */
+public class SalesAppender {
+    private static final Map<String, SalesAppender> APPENDERS = new ConcurrentHashMap<>();
+    // Orders waiting for the writer; a full queue blocks the tills
+    private static final int MAX_PENDING = 8192;
+    private static final int MAX_BATCH = 1024;
+
+    static {
+        // Writes out orders still queued under a relaxed durability setting
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> APPENDERS.values().forEach(SalesAppender::close)));
+    }
+
+    /**
+     * When appended orders are forced to disk
+     */
+    public static final class Durability {
+        private enum Mode { PER_ORDER, INTERVAL, RECORDS }
+
+        private final Mode mode;
+        private final long limit;
+
+        private Durability(Mode mode, long limit) {
+            this.mode = mode;
+            this.limit = limit;
+        }
+
+        public static Durability perOrder() {
+            return new Durability(Mode.PER_ORDER, 1);
+        }
+
+        public static Durability everyMillis(long millis) {
+            return new Durability(Mode.INTERVAL, Math.max(1, millis));
+        }
+
+        public static Durability everyRecords(int records) {
+            return new Durability(Mode.RECORDS, Math.max(1, records));
+        }
+
+        /**
+         * Parses "order", "ms:N" or "records:N"
+         * @param value Setting to parse
+         * @return The durability, or per order if the value is not valid
+         */
+        public static Durability parse(String value) {
+            if (value != null && !value.equals("order")) {
+                try {
+                    if (value.startsWith("ms:")) {
+                        return everyMillis(Long.parseLong(value.substring(3)));
+                    }
+                    if (value.startsWith("records:")) {
+                        return everyRecords(Integer.parseInt(value.substring(8)));
+                    }
+                } catch (NumberFormatException e) {
+                    // Fall through to the warning
+                }
+                System.err.println("Unknown sales durability '" + value + "', using per order");
+            }
+            return perOrder();
+        }
+
+        @Override
+        public String toString() {
+            switch (mode) {
+                case INTERVAL: return "every " + limit + " ms";
+                case RECORDS: return "every " + limit + " records";
+                default: return "per order";
+            }
+        }
+    }
+
+    // One paid order, formatted and waiting to be written
+    private static class PendingOrder {
+        final String orderId;
+        // Sale date, for both the CSV lines and the rollup
+        final LocalDate date;
+        final String orderLine;
+        final String salesLines;
+        final String[] productIds;
+        final int[] quantities;
+        final long[] revenueCents;
+        // Whether the till waits for the write, and so hears if it fails
+        final boolean waiting;
+        final long queuedAt = System.nanoTime();
+        final CountDownLatch durable = new CountDownLatch(1);
+        // Set only when none of the order's lines are in the files
+        volatile boolean failed;
+
+        PendingOrder(String orderId, LocalDate date, String orderLine, String salesLines, String[] productIds,
+                     int[] quantities, long[] revenueCents, boolean waiting) {
+            this.orderId = orderId;
+            this.date = date;
+            this.orderLine = orderLine;
+            this.salesLines = salesLines;
+            this.productIds = productIds;
+            this.quantities = quantities;
+            this.revenueCents = revenueCents;
+            this.waiting = waiting;
+        }
+    }
+
+    private final String storeId;
+    private final StoreFiles files;
+    private final SalesRollup salesRollup;
+    private final BlockingQueue<PendingOrder> queue;
+    private volatile Durability durability;
+    private volatile boolean running;
+    private Thread writer;
+
+    // Time from pay until the order is on disk
+    private final LatencyHistogram commitLatency = new LatencyHistogram();
+    // Time spent in each fsync of both files
+    private final LatencyHistogram syncLatency = new LatencyHistogram();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder ordersWritten = new LongAdder();
+
+    private SalesAppender(String storeId) {
+        this.storeId = storeId;
+        this.files = StoreDataRepository.store(storeId);
+        this.salesRollup = SalesRollup.forStore(storeId);
+        this.queue = new ArrayBlockingQueue<>(MAX_PENDING);
+        this.durability = Durability.parse(System.getProperty("store.sales.durability"));
+    }
+
+    /**
+     * Returns the process-wide appender for a store, created on first use
+     * @param storeId Store identifier
+     * @return The store's appender
+     */
+    public static SalesAppender forStore(String storeId) {
+        return APPENDERS.computeIfAbsent(storeId, SalesAppender::new);
+    }
+
+    public Durability getDurability() { return durability; }
+    public void setDurability(Durability durability) { this.durability = durability; }
+    public LatencyHistogram getCommitLatency() { return commitLatency; }
+    public LatencyHistogram getSyncLatency() { return syncLatency; }
+
+    /**
+     * Returns the average number of orders written per batch
+     */
+    public double getAverageBatchSize() {
+        long count = batches.sum();
+        return count == 0 ? 0 : (double) ordersWritten.sum() / count;
+    }
+
+    /**
+     * Queues a paid order's order row and sales lines. Under per-order
+     * durability, waits until they are on disk. An order whose lines were
+     * written but could not be synced counts as saved, since paying it
+     * again would record the sale twice; it is reported as at risk instead.
+     * @param order Order being paid
+     * @return false if the order could not be written, with nothing of it
+     *         left in the files
+     */
+    public boolean append(Order order) {
+        LocalDate today = LocalDate.now();
+        int lines = order.getLineCount();
+        String[] productIds = new String[lines];
+        int[] quantities = new int[lines];
+        long[] revenueCents = new long[lines];
+        StringBuilder sales = new StringBuilder(lines * 32);
+        for (int i = 0; i < lines; i++) {
+            productIds[i] = order.getProduct(i).getId();
+            quantities[i] = order.getQuantity(i);
+            // Written from cents so the file and the rollup agree exactly
+            revenueCents[i] = order.getLineCents(i);
+            sales.append(today).append(',').append(productIds[i]).append(',')
+                .append(quantities[i]).append(',');
+            Money.append(sales, revenueCents[i]).append('\n');
+        }
+        StringBuilder orderLine = new StringBuilder(64);
+        orderLine.append(today).append(',').append(order.getOrderId()).append(',').append(storeId)
+            .append(',').append(order.getPaymentMethod()).append(',');
+        Money.append(orderLine, order.getTotalCents()).append('\n');
+
+        PendingOrder pending = new PendingOrder(order.getOrderId(), today, orderLine.toString(),
+            sales.toString(), productIds, quantities, revenueCents,
+            durability.mode == Durability.Mode.PER_ORDER);
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        // After queueing, so a writer that failed meanwhile is replaced
+        startWriter();
+        if (pending.waiting) {
+            // Once queued the order will be written, so an interrupt must
+            // not make the till pay it again
+            boolean interrupted = false;
+            while (pending.durable.getCount() > 0) {
+                try {
+                    pending.durable.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return !pending.failed;
+    }
+
+    /**
+     * Writes and syncs everything queued, then stops the writer thread.
+     * The appender restarts on the next append.
+     */
+    public void close() {
+        Thread current;
+        synchronized (this) {
+            current = writer;
+            running = false;
+            writer = null;
+        }
+        if (current != null) {
+            // Not interrupted: that would close the channels mid-write
+            try {
+                current.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private synchronized void startWriter() {
+        if (writer == null) {
+            running = true;
+            writer = new Thread(this::writeLoop, "sales-appender-" + storeId);
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingOrder> batch = new ArrayList<>();
+        // Written but not yet synced
+        List<PendingOrder> unsynced = new ArrayList<>();
+        long lastSync = System.nanoTime();
+        boolean failed = false;
+
+        try (FileChannel sales = FileChannel.open(files.fileForWriting("sales.txt"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+             FileChannel orders = FileChannel.open(files.fileForWriting("orders.txt"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (running || !queue.isEmpty()) {
+                Durability setting = durability;
+                long waitNanos = setting.mode == Durability.Mode.INTERVAL && !unsynced.isEmpty()
+                    ? lastSync + setting.limit * 1_000_000 - System.nanoTime()
+                    : TimeUnit.MILLISECONDS.toNanos(100);
+                PendingOrder first = null;
+                try {
+                    first = queue.poll(Math.max(0, waitNanos), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    running = false;
+                }
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                    write(batch, unsynced, sales, orders);
+                }
+
+                boolean due;
+                switch (setting.mode) {
+                    case INTERVAL:
+                        due = System.nanoTime() - lastSync >= setting.limit * 1_000_000;
+                        break;
+                    case RECORDS:
+                        due = unsynced.size() >= setting.limit;
+                        break;
+                    default:
+                        due = true;
+                }
+                if (!unsynced.isEmpty() && (due || !running)) {
+                    sync(unsynced, sales, orders);
+                    lastSync = System.nanoTime();
+                }
+            }
+        } catch (Throwable e) {
+            // Anything that stops the writer fails the orders it holds
+            System.err.println("Error saving data: " + e);
+            failed = true;
+            fail(batch);
+            unconfirmed(unsynced);
+        } finally {
+            List<PendingOrder> stranded = new ArrayList<>();
+            synchronized (this) {
+                if (writer == Thread.currentThread()) {
+                    writer = null;
+                }
+                // Orders queued from here on start a new writer; unless one
+                // has already taken over, fail those this one leaves behind
+                if (failed && writer == null) {
+                    queue.drainTo(stranded);
+                }
+            }
+            fail(stranded);
+        }
+    }
+
+    // Appends a batch to both files and moves it to unsynced. If the write
+    // fails both files are cut back, so the batch can be failed and paid
+    // again; if they cannot be, the batch is moved to unsynced anyway.
+    private void write(List<PendingOrder> batch, List<PendingOrder> unsynced, FileChannel sales,
+                       FileChannel orders) throws IOException {
+        StringBuilder salesText = new StringBuilder();
+        StringBuilder orderText = new StringBuilder();
+        for (PendingOrder pending : batch) {
+            salesText.append(pending.salesLines);
+            orderText.append(pending.orderLine);
+        }
+        // The rollup lock covers the append so its CSV offset stays exact
+        synchronized (salesRollup) {
+            long salesStart = sales.size();
+            long ordersStart = orders.size();
+            try {
+                writeFully(sales, salesText);
+                writeFully(orders, orderText);
+            } catch (Throwable e) {
+                try {
+                    sales.truncate(salesStart);
+                    orders.truncate(ordersStart);
+                } catch (Throwable truncateError) {
+                    // Lines may be left behind; the rollup picks them up
+                    // from the CSV on its next append
+                    e.addSuppressed(truncateError);
+                    unsynced.addAll(batch);
+                    batch.clear();
+                }
+                throw e;
+            }
+            for (PendingOrder pending : batch) {
+                for (int i = 0; i < pending.productIds.length; i++) {
+                    salesRollup.recordSale(pending.date, pending.productIds[i], pending.quantities[i],
+                        pending.revenueCents[i]);
+                }
+            }
+            salesRollup.appended(salesStart, sales.size());
+        }
+        batches.increment();
+        ordersWritten.add(batch.size());
+        unsynced.addAll(batch);
+        batch.clear();
+    }
+
+    private void sync(List<PendingOrder> unsynced, FileChannel sales, FileChannel orders) throws IOException {
+        long start = System.nanoTime();
+        sales.force(false);
+        orders.force(false);
+        long end = System.nanoTime();
+        syncLatency.record(end - start);
+        for (PendingOrder pending : unsynced) {
+            commitLatency.record(end - pending.queuedAt);
+            pending.durable.countDown();
+        }
+        unsynced.clear();
+    }
+
+    // Orders with nothing in the files. A till that is not waiting has
+    // already been told the order was saved, so those are reported here.
+    private void fail(List<PendingOrder> orders) {
+        for (PendingOrder pending : orders) {
+            if (!pending.waiting) {
+                System.err.println("Error saving data: order " + pending.orderId + " of store "
+                    + storeId + " was paid but not saved");
+            }
+            pending.failed = true;
+            pending.durable.countDown();
+        }
+        orders.clear();
+    }
+
+    // Orders written to the files but not synced. They must not be paid
+    // again, so they count as saved and are reported as at risk.
+    private void unconfirmed(List<PendingOrder> orders) {
+        for (PendingOrder pending : orders) {
+            System.err.println("Error saving data: order " + pending.orderId + " of store "
+                + storeId + " was written but not synced and may be lost in a crash");
+            pending.durable.countDown();
+        }
+        orders.clear();
+    }
+
+    private static void writeFully(FileChannel channel, StringBuilder text) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -8,6 +8,7 @@ package pharmacy;
 
 import pharmacy.model.*;
 import pharmacy.service.*;
+import store.service.StoreDataRepository;
 import java.util.Scanner;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -316,8 +317,8 @@ public class PharmacySystem {
         System.out.println("\nGenerating Pharmacy Report...");
         analyticsService.generateAnalyticsReport();
         System.out.println("Report generated successfully!");
-        System.out.println("Location: ./src/main/java/store/data/" + storeId + "_pharmacy_report_" + 
-            LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")) + ".txt");
+        System.out.println("Location: " + StoreDataRepository.store(storeId).path("pharmacy_report_" +
+            LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")) + ".txt"));
     }
 
     private boolean processPayment(int paymentChoice, double amount) {
@@ -7,6 +7,7 @@
 package pharmacy.service;
 
 import pharmacy.model.*;
+import store.service.StoreDataRepository;
 import java.io.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -21,8 +22,8 @@ public class PharmacyAnalyticsService {
     }
 
     public void generateAnalyticsReport() {
-        String fileName = "./src/main/java/store/data/" + storeId + "_pharmacy_report_" + 
-            LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")) + ".txt";
+        String fileName = StoreDataRepository.store(storeId).pathForWriting("pharmacy_report_" +
+            LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")) + ".txt");
             
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
             writer.write("Pharmacy Analytics Report\n");
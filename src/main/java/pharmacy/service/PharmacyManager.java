@@ -7,6 +7,7 @@
 package pharmacy.service;
 
 import pharmacy.model.*;
+import store.service.StoreDataRepository;
 import java.util.*;
 import java.io.*;
 import java.time.LocalDateTime;
@@ -17,6 +18,8 @@ public class PharmacyManager {
     private Map<String, Prescription> prescriptions;
     private String storeId;
     private static final int MINIMUM_STOCK_LEVEL = 10;
+    private static final String PHARMACY_INVENTORY = "pharmacy_inventory";
+    private static final String PRESCRIPTIONS = "prescriptions";
     private Map<String, MedicineSupplier> suppliers;
     private Map<String, MedicineOrder> medicineOrders;
     private List<Medicine> medicines;
@@ -37,10 +40,7 @@ public class PharmacyManager {
     private void loadInitialInventory() {
         // Load from file or initialize with sample data
         try {
-            String fileName = "./src/main/java/store/data/" + storeId + "_pharmacy_inventory.txt";
-            BufferedReader reader = new BufferedReader(new FileReader(fileName));
-            String line;
-            while ((line = reader.readLine()) != null) {
+            for (String line : StoreDataRepository.store(storeId).records().readAll(PHARMACY_INVENTORY)) {
                 String[] parts = line.split(",");
                 Medication med = new Medication(parts[0], parts[1], parts[2], 
                     Double.parseDouble(parts[3]), Integer.parseInt(parts[4]),
@@ -63,10 +63,7 @@ public class PharmacyManager {
 
     private void loadPrescriptions() {
         try {
-            String fileName = "./src/main/java/store/data/" + storeId + "_prescriptions.txt";
-            BufferedReader reader = new BufferedReader(new FileReader(fileName));
-            String line;
-            while ((line = reader.readLine()) != null) {
+            for (String line : StoreDataRepository.store(storeId).records().readAll(PRESCRIPTIONS)) {
                 String[] parts = line.split(",");
                 Prescription prescription = new Prescription(
                     parts[0],  // prescriptionId
@@ -117,9 +114,8 @@ public class PharmacyManager {
     }
 
     public void savePrescription(Prescription prescription) {
-        String fileName = "./src/main/java/store/data/" + storeId + "_prescriptions.txt";
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName, true))) {
-            writer.write(String.format("%s,%s,%s,%s,%d,%s,%s,%s,%s,%s,%.2f%n",
+        try {
+            String record = String.format("%s,%s,%s,%s,%d,%s,%s,%s,%s,%s,%.2f",
                 prescription.getPrescriptionId(),
                 prescription.getCustomerId(),
                 prescription.getMedicationName(),
@@ -130,7 +126,8 @@ public class PharmacyManager {
                 prescription.getExpirationDate(),
                 prescription.isApproved(),
                 prescription.getInsuranceProvider(),
-                prescription.getPrice()));
+                prescription.getPrice());
+            StoreDataRepository.store(storeId).records().append(PRESCRIPTIONS, record);
         } catch (IOException e) {
             System.err.println("Error saving prescription: " + e.getMessage());
         }
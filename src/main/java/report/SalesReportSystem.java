@@ -3,8 +3,10 @@ package report;
 import report.service.ReportManager;
 import report.model.SalesReport;
 import inventory.model.Product;
+import store.model.Money;
+import store.service.StoreDataRepository;
 import inventory.service.InventoryManager;
-import inventory.service.HeadOfficeManager;
+import inventory.service.InventoryRegistry;
 import java.util.Scanner;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
@@ -23,8 +25,7 @@ public class SalesReportSystem {
 
     public SalesReportSystem(String storeId) {
         this.storeId = storeId;
-        this.inventoryManager = new InventoryManager(new HeadOfficeManager());
-        this.inventoryManager.setCurrentStore(storeId);
+        this.inventoryManager = InventoryRegistry.getInstance().acquire(storeId);
         this.scanner = new Scanner(System.in);
     }
 
@@ -33,7 +34,8 @@ public class SalesReportSystem {
             System.out.println("\nSales Report System");
             System.out.println("1. Generate Daily Report (Store Manager)");
             System.out.println("2. Generate Custom Period Report (Store Manager)");
-            System.out.println("3. Return to Main Menu");
+            System.out.println("3. Rebuild Sales Ledger (Store Manager)");
+            System.out.println("4. Return to Main Menu");
             System.out.print("Choose an option: ");
 
             int choice = scanner.nextInt();
@@ -47,6 +49,10 @@ public class SalesReportSystem {
                     generateCustomReport();
                     break;
                 case 3:
+                    rebuildLedger();
+                    break;
+                case 4:
+                    InventoryRegistry.getInstance().release(inventoryManager);
                     return;
                 default:
                     System.out.println("Invalid option");
@@ -78,6 +84,16 @@ public class SalesReportSystem {
         System.out.println("Custom period report generated successfully");
     }
 
+    private void rebuildLedger() {
+        ReportManager reportManager = new ReportManager(storeId, inventoryManager);
+        int rows = reportManager.rebuildLedger();
+        if (rows >= 0) {
+            System.out.println("Sales ledger rebuilt with " + rows + " sales records");
+        } else {
+            System.out.println("Failed to rebuild sales ledger");
+        }
+    }
+
     private void generateReport(LocalDate startDate, LocalDate endDate) {
         ReportManager reportManager = new ReportManager(storeId, inventoryManager);
         SalesReport report = reportManager.generateReport(startDate, endDate);
@@ -87,7 +103,7 @@ public class SalesReportSystem {
         System.out.println("Store ID: " + storeId);
         System.out.println("Period: " + startDate + " to " + endDate);
         System.out.println("----------------------------------------");
-        System.out.println("Total Revenue: $" + String.format("%.2f", report.getTotalRevenue()));
+        System.out.println("Total Revenue: $" + Money.format(report.getTotalRevenueCents()));
         System.out.println("Total Units Sold: " + report.getTotalUnits());
         
         if (!report.getProductSales().isEmpty()) {
@@ -96,11 +112,11 @@ public class SalesReportSystem {
             for (Map.Entry<String, Integer> entry : report.getProductSales().entrySet()) {
                 Product product = inventoryManager.getProduct(entry.getKey());
                 if (product != null) {
-                    System.out.printf("%s (%s): %d units, $%.2f%n",
+                    System.out.printf("%s (%s): %d units, $%s%n",
                         product.getName(),
                         entry.getKey(),
                         entry.getValue(),
-                        report.getProductRevenue().get(entry.getKey()));
+                        Money.format(report.getProductRevenueCents().get(entry.getKey())));
                 }
             }
         } else {
@@ -109,8 +125,8 @@ public class SalesReportSystem {
         System.out.println("----------------------------------------");
 
         // Save report to file
-        String fileName = String.format("./src/main/java/store/data/%s_report_%s_%s.txt", 
-            storeId, startDate, endDate);
+        String fileName = StoreDataRepository.store(storeId).path(
+            String.format("report_%s_%s.txt", startDate, endDate));
         System.out.println("\nReport saved to: " + fileName);
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package report.model;
 
+import store.model.Money;
 import java.time.LocalDate;
 import java.util.Map;
 import java.util.HashMap;
@@ -14,35 +15,36 @@ public class SalesReport {
     private String storeId;
     private LocalDate startDate;
     private LocalDate endDate;
-    private double totalRevenue;
+    private long totalRevenueCents;
     private int totalUnits;
     private Map<String, Integer> productSales; // productId -> units sold
-    private Map<String, Double> productRevenue; // productId -> revenue
+    private Map<String, Long> productRevenueCents; // productId -> revenue in cents
 
     public SalesReport(String storeId, LocalDate startDate, LocalDate endDate) {
         this.storeId = storeId;
         this.startDate = startDate;
         this.endDate = endDate;
-        this.totalRevenue = 0.0;
+        this.totalRevenueCents = 0;
         this.totalUnits = 0;
         this.productSales = new HashMap<>();
-        this.productRevenue = new HashMap<>();
+        this.productRevenueCents = new HashMap<>();
     }
 
     // Getters
     public String getStoreId() { return storeId; }
     public LocalDate getStartDate() { return startDate; }
     public LocalDate getEndDate() { return endDate; }
-    public double getTotalRevenue() { return totalRevenue; }
+    public double getTotalRevenue() { return Money.toDouble(totalRevenueCents); }
+    public long getTotalRevenueCents() { return totalRevenueCents; }
     public int getTotalUnits() { return totalUnits; }
     public Map<String, Integer> getProductSales() { return productSales; }
-    public Map<String, Double> getProductRevenue() { return productRevenue; }
+    public Map<String, Long> getProductRevenueCents() { return productRevenueCents; }
 
     // Methods to update report data
-    public void addSale(String productId, int units, double revenue) {
-        productSales.put(productId, productSales.getOrDefault(productId, 0) + units);
-        productRevenue.put(productId, productRevenue.getOrDefault(productId, 0.0) + revenue);
+    public void addSale(String productId, int units, long revenueCents) {
+        productSales.merge(productId, units, Integer::sum);
+        productRevenueCents.merge(productId, revenueCents, Long::sum);
         totalUnits += units;
-        totalRevenue += revenue;
+        totalRevenueCents += revenueCents;
     }
 }
\ No newline at end of file
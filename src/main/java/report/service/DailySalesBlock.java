@@ -0,0 +1,96 @@
+package report.service;
+
+import java.util.Arrays;
+
+/**
+ * One store's sales on one day, aggregated per product. An open-addressing
+ * table over parallel primitive arrays keyed by product code, so adding a
+ * sale line never boxes or allocates once the table has grown.
+ *
+ * @author Hrishikesha
+ */
+class DailySalesBlock {
+    private static final int EMPTY = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] codes;
+    private long[] units;
+    private long[] cents;
+    private int size;
+
+    DailySalesBlock() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Adds a sale line to the product's running totals
+     * @param code Product dictionary code
+     * @param quantity Units sold
+     * @param revenueCents Revenue in cents
+     */
+    void add(int code, long quantity, long revenueCents) {
+        if ((size + 1) * 4 > codes.length * 3) {
+            grow();
+        }
+        int slot = find(code);
+        if (codes[slot] == EMPTY) {
+            codes[slot] = code;
+            size++;
+        }
+        units[slot] += quantity;
+        cents[slot] += revenueCents;
+    }
+
+    /**
+     * Adds this day's totals into per-code accumulators
+     * @param unitsByCode Units accumulator indexed by product code
+     * @param centsByCode Revenue accumulator indexed by product code
+     * @param seen Set for every code that had a sale
+     */
+    void mergeInto(long[] unitsByCode, long[] centsByCode, boolean[] seen) {
+        for (int slot = 0; slot < codes.length; slot++) {
+            int code = codes[slot];
+            if (code != EMPTY) {
+                unitsByCode[code] += units[slot];
+                centsByCode[code] += cents[slot];
+                seen[code] = true;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int find(int code) {
+        int mask = codes.length - 1;
+        int hash = code * 0x9E3779B9;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (codes[slot] != EMPTY && codes[slot] != code) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        int[] oldCodes = codes;
+        long[] oldUnits = units;
+        long[] oldCents = cents;
+        allocate(oldCodes.length * 2);
+        for (int i = 0; i < oldCodes.length; i++) {
+            if (oldCodes[i] != EMPTY) {
+                int slot = find(oldCodes[i]);
+                codes[slot] = oldCodes[i];
+                units[slot] = oldUnits[i];
+                cents[slot] = oldCents[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        codes = new int[capacity];
+        Arrays.fill(codes, EMPTY);
+        units = new long[capacity];
+        cents = new long[capacity];
+    }
+}
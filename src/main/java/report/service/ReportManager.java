@@ -3,6 +3,8 @@ package report.service;
 import report.model.SalesReport;
 import inventory.service.InventoryManager;
 import inventory.model.Product;
+import store.model.Money;
+import store.service.StoreDataRepository;
 import java.time.*;
 import java.util.*;
 import java.io.*;
@@ -17,6 +19,7 @@ import java.io.File;
 public class ReportManager {
     private String storeId;
     private InventoryManager inventoryManager;
+    private SalesRollup rollup;
 
     /**
      * Creates a new report manager for a store
@@ -26,6 +29,7 @@ public class ReportManager {
     public ReportManager(String storeId, InventoryManager inventoryManager) {
         this.storeId = storeId;
         this.inventoryManager = inventoryManager;
+        this.rollup = SalesRollup.forStore(storeId);
     }
 
     public SalesReport generateReport(LocalDate startDate, LocalDate endDate) {
@@ -36,8 +40,7 @@ public class ReportManager {
     }
 
     private void loadSalesData(SalesReport report, LocalDate startDate, LocalDate endDate) {
-        String fileName = "./src/main/java/store/data/" + storeId + "_sales.txt";
-        File salesFile = new File(fileName);
+        File salesFile = StoreDataRepository.store(storeId).fileForWriting("sales.txt").toFile();
         
         if (!salesFile.exists()) {
             System.out.println("No sales data file found. Creating new file.");
@@ -49,44 +52,36 @@ public class ReportManager {
             }
         }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(salesFile))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 4) {
-                    LocalDate saleDate = LocalDate.parse(parts[0]);
-                    
-                    if (!saleDate.isBefore(startDate) && !saleDate.isAfter(endDate)) {
-                        String productId = parts[1];
-                        int quantity = Integer.parseInt(parts[2]);
-                        double revenue = Double.parseDouble(parts[3]);
-                        report.addSale(productId, quantity, revenue);
-                    }
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading sales data: " + e.getMessage());
-        }
+        rollup.loadRange(report, startDate, endDate);
+    }
+
+    /**
+     * Rebuilds the store's columnar sales ledger from the sales CSV and
+     * reloads the daily rollups from it
+     * @return number of sales rows imported, or -1 on failure
+     */
+    public int rebuildLedger() {
+        return rollup.rebuild();
     }
 
     private void saveReport(SalesReport report) {
-        String fileName = "./src/main/java/store/data/" + storeId + "_report_" + 
-                         report.getStartDate() + "_" + report.getEndDate() + ".txt";
+        String fileName = StoreDataRepository.store(storeId).pathForWriting("report_" +
+                         report.getStartDate() + "_" + report.getEndDate() + ".txt");
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
             writer.write("Sales Report for Store: " + storeId + "\n");
             writer.write("Period: " + report.getStartDate() + " to " + report.getEndDate() + "\n");
-            writer.write("Total Revenue: $" + String.format("%.2f", report.getTotalRevenue()) + "\n");
+            writer.write("Total Revenue: $" + Money.format(report.getTotalRevenueCents()) + "\n");
             writer.write("Total Units Sold: " + report.getTotalUnits() + "\n\n");
             
             writer.write("Product Sales Breakdown:\n");
             for (Map.Entry<String, Integer> entry : report.getProductSales().entrySet()) {
                 Product product = inventoryManager.getProduct(entry.getKey());
                 if (product != null) {
-                    writer.write(String.format("%s (%s): %d units, $%.2f\n",
+                    writer.write(String.format("%s (%s): %d units, $%s\n",
                         product.getName(),
                         entry.getKey(),
                         entry.getValue(),
-                        report.getProductRevenue().get(entry.getKey())));
+                        Money.format(report.getProductRevenueCents().get(entry.getKey()))));
                 }
             }
         } catch (IOException e) {
@@ -0,0 +1,405 @@
+package report.service;
+
+import store.service.CsvReader;
+import store.service.StoreFiles;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Binary, column-oriented copy of a store's sales CSV. Rows are sorted by
+ * sale date and stored as four columns (epoch day, product dictionary code,
+ * quantity, revenue in cents) behind a day-level index, so the rollup can
+ * be seeded with only the days a report asks for, read through a memory map.
+ *
+ * Sales appended to the CSV after the last import are read from the CSV
+ * tail by the rollup, and the ledger is rebuilt once that tail grows past
+ * a threshold. The import makes two passes over the CSV, counting the rows
+ * of each day and then writing each row into place, so only a chunk of rows
+ * is held in memory at a time.
+ *
+ * File layout:
+ * <pre>
+ *   header      magic, version, csvOffset, rowCount, dictSize, minDay, dayCount
+ *   dictionary  dictSize x (short length, UTF-8 product id)
+ *   day index   (dayCount + 1) x int first row of day minDay + i
+ *   columns     epochDay int[], productCode int[], quantity int[], revenueCents long[]
+ * </pre>
+ *
+ * @author Hrishikesha
+ */
+public class SalesLedger {
+    private static final int MAGIC = 0x534C4731; // "SLG1"
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 32;
+    // Unimported CSV bytes tolerated before the ledger is rebuilt
+    private static final long MAX_TAIL_BYTES = 64 * 1024;
+    // Rows mapped at a time when replaying into a rollup
+    private static final int REPLAY_CHUNK_ROWS = 1 << 24;
+    // Rows buffered at a time while importing
+    private static final int IMPORT_CHUNK_ROWS = 1 << 18;
+
+    // One parsed CSV row, reused for every line
+    private static final class Row {
+        int day;
+        String productId;
+        int quantity;
+        long cents;
+
+        // Returns false for rows that are not in date,productId,quantity,revenue form
+        boolean read(CsvReader reader) {
+            if (reader.fields() < 4) {
+                return false;
+            }
+            try {
+                day = (int) reader.parseDate(0).toEpochDay();
+                quantity = reader.parseInt(2);
+                cents = reader.parseCents(3);
+                productId = reader.intern(1);
+                return true;
+            } catch (RuntimeException e) {
+                return false;
+            }
+        }
+    }
+
+    private final String storeId;
+    private final StoreFiles files;
+    private final Path csvFile;
+    private final Path ledgerFile;
+
+    // The ledger as last opened, for replayDays
+    private long importedOffset = -1;
+    private int rowCount;
+    private int minDay;
+    private int dayCount;
+    private long indexStart;
+    private int[] rollupCodes = new int[0];
+
+    /**
+     * Creates a ledger for a store next to its sales CSV
+     * @param files The store's data files
+     */
+    public SalesLedger(StoreFiles files) {
+        this.storeId = files.getStoreId();
+        this.files = files;
+        this.csvFile = files.file("sales.txt");
+        this.ledgerFile = files.file("sales.ledger");
+    }
+
+    /**
+     * Reads the ledger's header and dictionary, re-importing the CSV first if
+     * the ledger is missing or too far behind it. Every product is given its
+     * code in the rollup, but no sales are added until replayDays.
+     * @param rollup Rollup that will be seeded
+     * @return CSV length covered by the ledger, or -1 if there is no ledger
+     */
+    long open(SalesRollup rollup) {
+        importedOffset = -1;
+        dayCount = 0;
+        long csvLength = csvFile.toFile().length();
+        long offset = readImportedOffset();
+        if (offset < 0 || offset > csvLength || csvLength - offset > MAX_TAIL_BYTES) {
+            if (importCsv() < 0) {
+                return -1;
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(ledgerFile, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header, 0);
+            header.position(8);
+            offset = header.getLong();
+            rowCount = header.getInt();
+            int dictSize = header.getInt();
+            minDay = header.getInt();
+            int days = header.getInt();
+
+            // Translate ledger codes to the rollup's own dictionary
+            rollupCodes = new int[dictSize];
+            long position = HEADER_SIZE;
+            ByteBuffer lengthBuffer = ByteBuffer.allocate(2);
+            for (int i = 0; i < dictSize; i++) {
+                lengthBuffer.clear();
+                readFully(channel, lengthBuffer, position);
+                int length = lengthBuffer.getShort(0) & 0xFFFF;
+                ByteBuffer idBuffer = ByteBuffer.allocate(length);
+                readFully(channel, idBuffer, position + 2);
+                rollupCodes[i] = rollup.code(new String(idBuffer.array(), StandardCharsets.UTF_8));
+                position += 2 + length;
+            }
+            indexStart = position;
+            dayCount = days;
+            importedOffset = offset;
+            return offset;
+        } catch (IOException e) {
+            System.err.println("Error reading sales ledger for store " + storeId + ": " + e.getMessage());
+            return -1;
+        }
+    }
+
+    public int getMinDay() { return minDay; }
+    public int getDayCount() { return dayCount; }
+
+    /**
+     * Adds the ledger's sales of the given days (inclusive) to the rollup,
+     * mapping only those days' rows
+     * @param rollup Rollup passed to open
+     * @param fromDay First epoch day, within the ledger's days
+     * @param toDay Last epoch day, within the ledger's days
+     * @return false if the rows could not be read, or the ledger was
+     *         replaced since it was opened
+     */
+    boolean replayDays(SalesRollup rollup, int fromDay, int toDay) {
+        if (importedOffset < 0) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(ledgerFile, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(16);
+            readFully(channel, header, 0);
+            if (header.getLong(8) != importedOffset) {
+                return false;
+            }
+            ByteBuffer bounds = ByteBuffer.allocate(4);
+            readFully(channel, bounds, indexStart + (fromDay - minDay) * 4L);
+            int firstRow = bounds.getInt(0);
+            bounds.clear();
+            readFully(channel, bounds, indexStart + (toDay - minDay + 1) * 4L);
+            int endRow = bounds.getInt(0);
+
+            long dayColumn = indexStart + (dayCount + 1) * 4L;
+            long codeColumn = dayColumn + rowCount * 4L;
+            long quantityColumn = codeColumn + rowCount * 4L;
+            long revenueColumn = quantityColumn + rowCount * 4L;
+
+            // Map the columns a chunk at a time to stay under the 2 GB map limit
+            for (int fromRow = firstRow; fromRow < endRow; fromRow += REPLAY_CHUNK_ROWS) {
+                int rows = Math.min(REPLAY_CHUNK_ROWS, endRow - fromRow);
+                MappedByteBuffer days = channel.map(FileChannel.MapMode.READ_ONLY,
+                    dayColumn + fromRow * 4L, rows * 4L);
+                MappedByteBuffer codes = channel.map(FileChannel.MapMode.READ_ONLY,
+                    codeColumn + fromRow * 4L, rows * 4L);
+                MappedByteBuffer quantities = channel.map(FileChannel.MapMode.READ_ONLY,
+                    quantityColumn + fromRow * 4L, rows * 4L);
+                MappedByteBuffer revenues = channel.map(FileChannel.MapMode.READ_ONLY,
+                    revenueColumn + fromRow * 8L, rows * 8L);
+                for (int i = 0; i < rows; i++) {
+                    rollup.add(days.getInt(i * 4), rollupCodes[codes.getInt(i * 4)],
+                        quantities.getInt(i * 4), revenues.getLong(i * 8));
+                }
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error reading sales ledger for store " + storeId + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Rebuilds the ledger from the full sales CSV
+     * @return number of sales rows imported, or -1 on failure
+     */
+    public int importCsv() {
+        long csvLength = csvFile.toFile().length();
+        Row row = new Row();
+
+        // First pass: the dictionary and the number of rows on each day
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        int count = 0;
+        int firstDay = 0;
+        int[] dayRows = new int[0];
+        try (CsvReader reader = CsvReader.open(csvFile, 0, csvLength)) {
+            while (reader.next()) {
+                if (!row.read(reader)) {
+                    continue;
+                }
+                if (dayRows.length == 0) {
+                    firstDay = row.day;
+                    dayRows = new int[1];
+                } else if (row.day < firstDay) {
+                    int shift = firstDay - row.day;
+                    int[] grown = new int[dayRows.length + shift];
+                    System.arraycopy(dayRows, 0, grown, shift, dayRows.length);
+                    dayRows = grown;
+                    firstDay = row.day;
+                } else if (row.day - firstDay >= dayRows.length) {
+                    dayRows = Arrays.copyOf(dayRows, Math.max(row.day - firstDay + 1, dayRows.length * 2));
+                }
+                dayRows[row.day - firstDay]++;
+                dictionary.putIfAbsent(row.productId, dictionary.size());
+                count++;
+            }
+        } catch (NoSuchFileException e) {
+            return -1;
+        } catch (IOException e) {
+            System.err.println("Error importing sales data: " + e.getMessage());
+            return -1;
+        }
+
+        int days = 0;
+        for (int d = 0; d < dayRows.length; d++) {
+            if (dayRows[d] > 0) {
+                days = d + 1;
+            }
+        }
+        // dayIndex[d] is the first row of day firstDay + d
+        int[] dayIndex = new int[days + 1];
+        for (int d = 0; d < days; d++) {
+            dayIndex[d + 1] = dayIndex[d] + dayRows[d];
+        }
+
+        Path ledger = files.fileForWriting("sales.ledger");
+        Path tempFile = ledger.resolveSibling(ledger.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteArrayOutputStream head = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(head);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(csvLength);
+            out.writeInt(count);
+            out.writeInt(dictionary.size());
+            out.writeInt(firstDay);
+            out.writeInt(days);
+            for (String productId : dictionary.keySet()) {
+                byte[] bytes = productId.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(bytes.length);
+                out.write(bytes);
+            }
+            for (int offset : dayIndex) {
+                out.writeInt(offset);
+            }
+            out.flush();
+            long dayColumn = head.size();
+            writeFully(channel, ByteBuffer.wrap(head.toByteArray()), 0);
+
+            // Second pass: each row goes to the next free row of its day
+            long[] columns = {dayColumn, dayColumn + count * 4L, dayColumn + count * 8L, dayColumn + count * 12L};
+            int[] next = Arrays.copyOf(dayIndex, days);
+            ImportChunk chunk = new ImportChunk();
+            int written = 0;
+            try (CsvReader reader = CsvReader.open(csvFile, 0, csvLength)) {
+                while (reader.next()) {
+                    if (!row.read(reader)) {
+                        continue;
+                    }
+                    int d = row.day - firstDay;
+                    if (d < 0 || d >= days || next[d] >= dayIndex[d + 1]) {
+                        throw new IOException("sales file changed during import");
+                    }
+                    chunk.add(next[d]++, row.day, dictionary.get(row.productId), row.quantity, row.cents);
+                    written++;
+                    if (chunk.size == IMPORT_CHUNK_ROWS) {
+                        chunk.writeTo(channel, columns);
+                    }
+                }
+            }
+            chunk.writeTo(channel, columns);
+            if (written != count) {
+                throw new IOException("sales file changed during import");
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            System.err.println("Error writing sales ledger: " + e.getMessage());
+            return -1;
+        }
+
+        try {
+            Files.move(tempFile, ledgerFile,
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Error writing sales ledger: " + e.getMessage());
+            return -1;
+        }
+        return count;
+    }
+
+    // Rows read in one import chunk, each with the ledger row it belongs in
+    private static final class ImportChunk {
+        final long[] order = new long[IMPORT_CHUNK_ROWS];
+        final int[] targets = new int[IMPORT_CHUNK_ROWS];
+        final int[] days = new int[IMPORT_CHUNK_ROWS];
+        final int[] codes = new int[IMPORT_CHUNK_ROWS];
+        final int[] quantities = new int[IMPORT_CHUNK_ROWS];
+        final long[] cents = new long[IMPORT_CHUNK_ROWS];
+        final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        int size;
+
+        void add(int target, int day, int code, int quantity, long revenue) {
+            targets[size] = target;
+            days[size] = day;
+            codes[size] = code;
+            quantities[size] = quantity;
+            cents[size] = revenue;
+            size++;
+        }
+
+        // Writes the chunk's rows in ledger order, one write per run of
+        // consecutive rows and column; a CSV in date order gives few runs
+        void writeTo(FileChannel channel, long[] columns) throws IOException {
+            for (int i = 0; i < size; i++) {
+                order[i] = (long) targets[i] << 32 | i;
+            }
+            Arrays.sort(order, 0, size);
+            for (int column = 0; column < columns.length; column++) {
+                int width = column == 3 ? 8 : 4;
+                int i = 0;
+                while (i < size) {
+                    int runStart = (int) (order[i] >>> 32);
+                    buffer.clear();
+                    int expected = runStart;
+                    while (i < size && (int) (order[i] >>> 32) == expected && buffer.remaining() >= width) {
+                        int source = (int) order[i];
+                        switch (column) {
+                            case 0: buffer.putInt(days[source]); break;
+                            case 1: buffer.putInt(codes[source]); break;
+                            case 2: buffer.putInt(quantities[source]); break;
+                            default: buffer.putLong(cents[source]);
+                        }
+                        expected++;
+                        i++;
+                    }
+                    buffer.flip();
+                    writeFully(channel, buffer, columns[column] + (long) runStart * width);
+                }
+            }
+            size = 0;
+        }
+    }
+
+    // Returns the CSV length covered by the ledger, or -1 if there is no usable ledger
+    private long readImportedOffset() {
+        if (!Files.exists(ledgerFile)) {
+            return -1;
+        }
+        try (FileChannel channel = FileChannel.open(ledgerFile, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(16);
+            while (header.hasRemaining() && channel.read(header) >= 0) { }
+            header.flip();
+            if (header.remaining() < 16 || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                return -1;
+            }
+            return header.getLong();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("sales ledger is truncated");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
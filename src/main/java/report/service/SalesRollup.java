@@ -0,0 +1,253 @@
+package report.service;
+
+import report.model.SalesReport;
+import store.service.CsvReader;
+import store.service.StoreDataRepository;
+import store.service.StoreFiles;
+import java.io.*;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-store, per-day, per-product sales totals kept in memory for the
+ * whole process. Each day of the store's sales ledger is read into the
+ * rollup the first time a report covers it, sales in the CSV after the
+ * ledger are read once, and the order path adds each sale as it writes it,
+ * so a report over N days merges N pre-aggregated day blocks instead of
+ * rescanning raw sale lines, and only the days reported on are held.
+ *
+ * Appends to the sales CSV must hold this rollup's lock and report the
+ * bytes they wrote through appended, so the rollup knows which part of the
+ * CSV it already covers.
+ *
+ * @author Hrishikesha
+ */
+public class SalesRollup {
+    private static final Map<String, SalesRollup> ROLLUPS = new ConcurrentHashMap<>();
+
+    private final String storeId;
+    private final Path csvFile;
+    private final SalesLedger ledger;
+    // Product dictionary: productId -> code, and code -> productId
+    private final Map<String, Integer> codes;
+    private final List<String> productIds;
+    // blocks[i] holds the sales of epoch day firstDay + i, or null
+    private DailySalesBlock[] blocks;
+    private int firstDay;
+    // CSV bytes reflected in the blocks
+    private long csvOffset;
+    // Ledger days already read into the blocks, from the ledger's first day
+    private BitSet seededDays;
+    private boolean loaded;
+
+    private SalesRollup(StoreFiles files) {
+        this.storeId = files.getStoreId();
+        this.csvFile = files.file("sales.txt");
+        this.ledger = new SalesLedger(files);
+        this.codes = new HashMap<>();
+        this.productIds = new ArrayList<>();
+        this.blocks = new DailySalesBlock[0];
+        this.seededDays = new BitSet();
+    }
+
+    /**
+     * Returns the process-wide rollup for a store, created on first use
+     * @param storeId Store identifier
+     * @return The store's rollup
+     */
+    public static SalesRollup forStore(String storeId) {
+        return ROLLUPS.computeIfAbsent(storeId, id -> new SalesRollup(StoreDataRepository.store(id)));
+    }
+
+    /**
+     * Adds every sale between the given dates (inclusive) to the report,
+     * one entry per product
+     * @param report Report to fill
+     * @param startDate First day of the range
+     * @param endDate Last day of the range
+     */
+    public synchronized void loadRange(SalesReport report, LocalDate startDate, LocalDate endDate) {
+        long csvLength = csvFile.toFile().length();
+        // A CSV shorter than what was read has been replaced
+        if (!loaded || csvLength < csvOffset) {
+            load();
+            csvLength = csvOffset;
+        }
+        // Pick up lines appended by another process
+        if (csvLength > csvOffset) {
+            scanCsv(csvOffset, csvLength);
+            csvOffset = csvLength;
+        }
+        if (!seed(startDate.toEpochDay(), endDate.toEpochDay())) {
+            // The ledger was rebuilt by another process; start again from it
+            load();
+            seed(startDate.toEpochDay(), endDate.toEpochDay());
+        }
+
+        int dictSize = productIds.size();
+        long[] unitsByCode = new long[dictSize];
+        long[] centsByCode = new long[dictSize];
+        boolean[] seen = new boolean[dictSize];
+        long from = Math.max(startDate.toEpochDay(), firstDay);
+        long to = Math.min(endDate.toEpochDay(), (long) firstDay + blocks.length - 1);
+        for (long day = from; day <= to; day++) {
+            DailySalesBlock block = blocks[(int) (day - firstDay)];
+            if (block != null) {
+                block.mergeInto(unitsByCode, centsByCode, seen);
+            }
+        }
+        for (int code = 0; code < dictSize; code++) {
+            if (seen[code]) {
+                report.addSale(productIds.get(code), (int) unitsByCode[code], centsByCode[code]);
+            }
+        }
+    }
+
+    /**
+     * Adds a sale line just written to the CSV. Ignored until the rollup
+     * is first loaded, since loading reads the line from the CSV.
+     * @param date Sale date
+     * @param productId Product sold
+     * @param quantity Units sold
+     * @param revenueCents Revenue in cents, as written to the CSV
+     */
+    public synchronized void recordSale(LocalDate date, String productId, int quantity, long revenueCents) {
+        if (loaded) {
+            add((int) date.toEpochDay(), code(productId), quantity, revenueCents);
+        }
+    }
+
+    /**
+     * Marks a CSV byte range as written by the caller, whose lines were
+     * passed to recordSale. Anything before it that the rollup has not
+     * seen is read from the CSV first.
+     * @param fromOffset CSV length before the caller's append
+     * @param toOffset CSV length after the caller's append
+     */
+    public synchronized void appended(long fromOffset, long toOffset) {
+        if (!loaded) {
+            return;
+        }
+        if (fromOffset > csvOffset) {
+            scanCsv(csvOffset, fromOffset);
+        }
+        csvOffset = toOffset;
+    }
+
+    /**
+     * Rebuilds the store's sales ledger from the CSV and reloads the
+     * rollup from it on next use
+     * @return number of sales rows imported, or -1 on failure
+     */
+    public synchronized int rebuild() {
+        int rows = ledger.importCsv();
+        loaded = false;
+        return rows;
+    }
+
+    // Opens the ledger and reads the CSV lines after it; ledger days are
+    // read as reports reach them
+    private void load() {
+        codes.clear();
+        productIds.clear();
+        blocks = new DailySalesBlock[0];
+        seededDays = new BitSet();
+        csvOffset = Math.max(0, ledger.open(this));
+        long csvLength = csvFile.toFile().length();
+        if (csvLength > csvOffset) {
+            scanCsv(csvOffset, csvLength);
+            csvOffset = csvLength;
+        }
+        loaded = true;
+    }
+
+    // Reads the ledger days in the range that no report has reached yet
+    private boolean seed(long startDay, long endDay) {
+        int minDay = ledger.getMinDay();
+        long from = Math.max(startDay, minDay);
+        long to = Math.min(endDay, (long) minDay + ledger.getDayCount() - 1);
+        int day = (int) from;
+        while (day <= to) {
+            int runStart = seededDays.nextClearBit(day - minDay) + minDay;
+            if (runStart > to) {
+                break;
+            }
+            int nextSeeded = seededDays.nextSetBit(runStart - minDay);
+            int runEnd = nextSeeded < 0 ? (int) to : (int) Math.min(to, nextSeeded + minDay - 1L);
+            if (!ledger.replayDays(this, runStart, runEnd)) {
+                return false;
+            }
+            seededDays.set(runStart - minDay, runEnd - minDay + 1);
+            day = runEnd + 1;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the code for a product, assigning the next one if new
+     * @param productId Product identifier
+     * @return Product dictionary code
+     */
+    int code(String productId) {
+        Integer code = codes.get(productId);
+        if (code == null) {
+            code = productIds.size();
+            codes.put(productId, code);
+            productIds.add(productId);
+        }
+        return code;
+    }
+
+    /**
+     * Adds a sale to the day's block
+     */
+    void add(int epochDay, int code, long quantity, long revenueCents) {
+        block(epochDay).add(code, quantity, revenueCents);
+    }
+
+    private DailySalesBlock block(int epochDay) {
+        if (blocks.length == 0) {
+            firstDay = epochDay;
+            blocks = new DailySalesBlock[1];
+        } else if (epochDay < firstDay) {
+            // Grow at the front, leaving room for more earlier days
+            int shift = Math.max(firstDay - epochDay, blocks.length / 2);
+            DailySalesBlock[] grown = new DailySalesBlock[blocks.length + shift];
+            System.arraycopy(blocks, 0, grown, shift, blocks.length);
+            blocks = grown;
+            firstDay -= shift;
+        } else if (epochDay - firstDay >= blocks.length) {
+            int needed = epochDay - firstDay + 1;
+            blocks = Arrays.copyOf(blocks, Math.max(needed, blocks.length + blocks.length / 2));
+        }
+        int index = epochDay - firstDay;
+        DailySalesBlock block = blocks[index];
+        if (block == null) {
+            block = new DailySalesBlock();
+            blocks[index] = block;
+        }
+        return block;
+    }
+
+    private void scanCsv(long fromOffset, long toOffset) {
+        try (CsvReader reader = CsvReader.open(csvFile, fromOffset, toOffset)) {
+            while (reader.next()) {
+                if (reader.fields() < 4) continue;
+                try {
+                    int day = (int) reader.parseDate(0).toEpochDay();
+                    int quantity = reader.parseInt(2);
+                    long revenue = reader.parseCents(3);
+                    add(day, code(reader.intern(1)), quantity, revenue);
+                } catch (RuntimeException e) {
+                    // Skip rows that are not in date,productId,quantity,revenue form
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // No sales yet
+        } catch (IOException e) {
+            System.err.println("Error reading sales data for store " + storeId + ": " + e.getMessage());
+        }
+    }
+}
@@ -5,8 +5,9 @@ import returns.model.ReturnItem;
 import returns.service.ReturnManager;
 import returns.service.ReturnAnalyticsService;
 import inventory.service.InventoryManager;
-import inventory.service.HeadOfficeManager;
+import inventory.service.InventoryRegistry;
 import inventory.model.Product;
+import store.service.StoreDataRepository;
 import java.util.Map;
 import java.util.Scanner;
 import java.io.BufferedReader;
@@ -41,8 +42,7 @@ public class ReturnManagementSystem {
      */
     public ReturnManagementSystem(String storeId) {
         this.storeId = storeId;
-        this.inventoryManager = new InventoryManager(new HeadOfficeManager());
-        this.inventoryManager.setCurrentStore(storeId);
+        this.inventoryManager = InventoryRegistry.getInstance().acquire(storeId);
         this.returnManager = new ReturnManager(storeId, inventoryManager);
         this.analyticsService = new ReturnAnalyticsService(returnManager, storeId);
         this.scanner = new Scanner(System.in);
@@ -85,6 +85,7 @@ public class ReturnManagementSystem {
                     analyticsService.generateAnalyticsReport();
                     break;
                 case 6:
+                    InventoryRegistry.getInstance().release(inventoryManager);
                     return;
                 default:
                     System.out.println("Invalid option");
@@ -93,8 +94,7 @@ public class ReturnManagementSystem {
     }
 
     private boolean verifyOrder(String orderId) {
-        String orderFileName = "./src/main/java/store/data/" + storeId + "_orders.txt";
-        File orderFile = new File(orderFileName);
+        File orderFile = StoreDataRepository.store(storeId).file("orders.txt").toFile();
         
         if (!orderFile.exists()) {
             return false;
@@ -240,6 +240,7 @@ public class ReturnManagementSystem {
                         }
                     }
                 }
+                inventoryManager.syncJournal();
                 returnManager.approveReturn(ret.getReturnId());
                 System.out.println("Return approved and inventory updated");
             } else {
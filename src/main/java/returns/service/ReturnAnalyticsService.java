@@ -3,6 +3,7 @@ package returns.service;
 import returns.model.Return;
 import returns.model.ReturnItem;
 import inventory.model.Product;
+import store.service.StoreDataRepository;
 import java.io.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -19,8 +20,8 @@ public class ReturnAnalyticsService {
     }
 
     public void generateAnalyticsReport() {
-        String fileName = "./src/main/java/store/data/" + storeId + "_returns_analytics_" + 
-                         LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")) + ".txt";
+        String fileName = StoreDataRepository.store(storeId).pathForWriting("returns_analytics_" +
+                         LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")) + ".txt");
         
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
             writer.write("Return Analytics Report for Store: " + storeId + "\n");
@@ -4,6 +4,7 @@ import returns.model.Return;
 import returns.model.ReturnItem;
 import inventory.model.Product;
 import inventory.service.InventoryManager;
+import store.service.StoreDataRepository;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -68,11 +69,11 @@ public class ReturnManager {
     }
 
     public void printReturnReceipt(Return returnOrder) {
-        String fileName = "./src/main/java/store/data/receipts/" + 
-                         returnOrder.getReturnId() + "_receipt.txt";
+        File receipts = StoreDataRepository.getInstance().sharedFile("receipts").toFile();
+        String fileName = new File(receipts, returnOrder.getReturnId() + "_receipt.txt").getPath();
         
         // Create receipts directory if it doesn't exist
-        new File("./src/main/java/store/data/receipts").mkdirs();
+        receipts.mkdirs();
         
         // Format the receipt content
         StringBuilder receipt = new StringBuilder();
@@ -0,0 +1,259 @@
+/**
+ * Indexed in-memory store of security incidents.
+ * Incidents are kept in the order they were added and indexed by ID, by
+ * timestamp, and by severity and status in timestamp order, so range and
+ * filter queries touch only the incidents they return. The indexes are
+ * concurrent, and new IDs come from an atomic sequence, so incidents can be
+ * reported and queried from several threads without a store-wide lock.
+ *
+ * Status changes must go through updateStatus so the status index follows.
+ *
+ * @author Raghuram Guddati
+ */
+package security.model;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class IncidentStore {
+    /** Incidents in the order they were added */
+    private final List<SecurityIncident> incidents;
+    /** First incident added with each ID, with its index key */
+    private final Map<String, Entry> byId;
+    /** All incidents by timestamp */
+    private final ConcurrentSkipListMap<Key, SecurityIncident> byTime;
+    /** Incidents of each severity by timestamp */
+    private final Map<String, ConcurrentSkipListMap<Key, SecurityIncident>> bySeverity;
+    /** Incidents with each status by timestamp */
+    private final Map<String, ConcurrentSkipListMap<Key, SecurityIncident>> byStatus;
+    /** Highest numeric ID issued or loaded */
+    private final AtomicInteger lastId;
+    /** Breaks ties between incidents with the same timestamp, in the order they were added */
+    private final AtomicLong order;
+
+    /**
+     * Index key ordering incidents by timestamp, then by when they were added.
+     *
+     * @author Raghuram Guddati
+     */
+    private static final class Key implements Comparable<Key> {
+        /** Timestamp as seconds and nanoseconds, which compare faster than LocalDateTime */
+        private final long second;
+        private final int nano;
+        private final long order;
+
+        Key(LocalDateTime timestamp, long order) {
+            this.second = timestamp.toEpochSecond(ZoneOffset.UTC);
+            this.nano = timestamp.getNano();
+            this.order = order;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int bySecond = Long.compare(second, other.second);
+            if (bySecond != 0) {
+                return bySecond;
+            }
+            int byNano = Integer.compare(nano, other.nano);
+            return byNano != 0 ? byNano : Long.compare(order, other.order);
+        }
+    }
+
+    /**
+     * An incident and its index key.
+     *
+     * @author Raghuram Guddati
+     */
+    private static final class Entry {
+        private final SecurityIncident incident;
+        private final Key key;
+
+        Entry(SecurityIncident incident, Key key) {
+            this.incident = incident;
+            this.key = key;
+        }
+    }
+
+    /**
+     * Constructor creates an empty store whose IDs start at 1.
+     *
+     * @author Raghuram Guddati
+     */
+    public IncidentStore() {
+        this.incidents = Collections.synchronizedList(new ArrayList<>());
+        this.byId = new ConcurrentHashMap<>();
+        this.byTime = new ConcurrentSkipListMap<>();
+        this.bySeverity = new ConcurrentHashMap<>();
+        this.byStatus = new ConcurrentHashMap<>();
+        this.lastId = new AtomicInteger();
+        this.order = new AtomicLong();
+    }
+
+    /**
+     * Issues the next ID, above every numeric ID issued or seen so far.
+     *
+     * @return Next available ID
+     * @author Raghuram Guddati
+     */
+    public int nextId() {
+        return lastId.incrementAndGet();
+    }
+
+    /**
+     * Makes sure later IDs are issued above an existing one, such as an
+     * alert's. IDs that are not numbers are ignored.
+     *
+     * @param id Existing ID
+     * @author Raghuram Guddati
+     */
+    public void reserveId(String id) {
+        try {
+            int value = Integer.parseInt(id.trim());
+            lastId.accumulateAndGet(value, Math::max);
+        } catch (NumberFormatException e) {
+            // Not a sequence ID
+        }
+    }
+
+    /**
+     * Adds an incident and indexes it.
+     *
+     * @param incident Incident to add
+     * @author Raghuram Guddati
+     */
+    public void add(SecurityIncident incident) {
+        reserveId(incident.getId());
+        Key key = new Key(incident.getTimestamp(), order.getAndIncrement());
+        synchronized (incident) {
+            byId.putIfAbsent(incident.getId(), new Entry(incident, key));
+            byTime.put(key, incident);
+            index(bySeverity, incident.getSeverity()).put(key, incident);
+            index(byStatus, incident.getStatus()).put(key, incident);
+        }
+        incidents.add(incident);
+    }
+
+    /**
+     * Gets all incidents in the order they were added.
+     *
+     * @return Unmodifiable view of all incidents
+     * @author Raghuram Guddati
+     */
+    public List<SecurityIncident> getAll() {
+        return Collections.unmodifiableList(incidents);
+    }
+
+    /**
+     * Gets the incident with an ID, the first added if there are several.
+     *
+     * @param id Incident ID
+     * @return The incident, or null if there is none
+     * @author Raghuram Guddati
+     */
+    public SecurityIncident get(String id) {
+        Entry entry = byId.get(id);
+        return entry == null ? null : entry.incident;
+    }
+
+    /**
+     * Gets incidents from start to end inclusive, oldest first.
+     *
+     * @param start Start time for range
+     * @param end End time for range
+     * @return List of incidents within range
+     * @author Raghuram Guddati
+     */
+    public List<SecurityIncident> range(LocalDateTime start, LocalDateTime end) {
+        return range(byTime, start, end);
+    }
+
+    /**
+     * Gets incidents of one severity from start to end inclusive, oldest first.
+     *
+     * @param severity Severity level (Low, Medium, High, Severe)
+     * @param start Start time for range
+     * @param end End time for range
+     * @return List of matching incidents
+     * @author Raghuram Guddati
+     */
+    public List<SecurityIncident> range(String severity, LocalDateTime start, LocalDateTime end) {
+        ConcurrentSkipListMap<Key, SecurityIncident> index = bySeverity.get(severity);
+        return index == null ? new ArrayList<>() : range(index, start, end);
+    }
+
+    /**
+     * Gets incidents with a status, oldest first.
+     *
+     * @param status Status such as Resolved or Not Resolved
+     * @return List of matching incidents
+     * @author Raghuram Guddati
+     */
+    public List<SecurityIncident> withStatus(String status) {
+        ConcurrentSkipListMap<Key, SecurityIncident> index = byStatus.get(status);
+        return index == null ? new ArrayList<>() : new ArrayList<>(index.values());
+    }
+
+    /**
+     * Changes an incident's status, moving it in the status index. The
+     * incident is marked resolved if and only if the status is Resolved.
+     *
+     * @param id Incident ID to update
+     * @param newStatus New status to set
+     * @return boolean indicating if the incident was found
+     * @author Raghuram Guddati
+     */
+    public boolean updateStatus(String id, String newStatus) {
+        Entry entry = byId.get(id);
+        if (entry == null) {
+            return false;
+        }
+        SecurityIncident incident = entry.incident;
+        synchronized (incident) {
+            String oldStatus = incident.getStatus();
+            incident.setStatus(newStatus);
+            incident.setResolved(incident.getStatus().equals("Resolved"));
+            if (!oldStatus.equals(incident.getStatus())) {
+                ConcurrentSkipListMap<Key, SecurityIncident> old = byStatus.get(oldStatus);
+                if (old != null) {
+                    old.remove(entry.key);
+                }
+                index(byStatus, incident.getStatus()).put(entry.key, incident);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets or creates the index for one severity or status.
+     *
+     * @author Raghuram Guddati
+     */
+    private static ConcurrentSkipListMap<Key, SecurityIncident> index(
+            Map<String, ConcurrentSkipListMap<Key, SecurityIncident>> indexes, String value) {
+        return indexes.computeIfAbsent(value, v -> new ConcurrentSkipListMap<>());
+    }
+
+    /**
+     * Copies an index's incidents from start to end inclusive.
+     *
+     * @author Raghuram Guddati
+     */
+    private static List<SecurityIncident> range(ConcurrentSkipListMap<Key, SecurityIncident> index,
+                                                LocalDateTime start, LocalDateTime end) {
+        if (end.isBefore(start)) {
+            return new ArrayList<>();
+        }
+        NavigableMap<Key, SecurityIncident> matches = index.subMap(
+            new Key(start, Long.MIN_VALUE), true, new Key(end, Long.MAX_VALUE), true);
+        return new ArrayList<>(matches.values());
+    }
+}
@@ -6,15 +6,14 @@
  */
 package security.model;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import store.service.CsvReader;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class SecurityAlertSystem {
     /** Formatter for standardizing date/time format */
@@ -24,8 +23,8 @@ public class SecurityAlertSystem {
     /** File path for security alerts */
     private static final String ALERTS_FILE = "./src/main/java/security/data/security_alerts.txt";
     
-    /** Thread-safe list to store incidents */
-    private final List<SecurityIncident> incidents;
+    /** Indexed, thread-safe store of incidents */
+    private final IncidentStore incidents;
     /** Thread-safe list to store alerts */
     private final List<SecurityIncident> alerts;
 
@@ -35,7 +34,7 @@ public class SecurityAlertSystem {
      * @author Raghuram Guddati
      */
     public SecurityAlertSystem() {
-        this.incidents = Collections.synchronizedList(new ArrayList<>());
+        this.incidents = new IncidentStore();
         this.alerts = Collections.synchronizedList(new ArrayList<>());
         loadData();
     }
@@ -56,21 +55,19 @@ public class SecurityAlertSystem {
      * @author Raghuram Guddati
      */
     private void loadIncidents() {
-        try (BufferedReader reader = new BufferedReader(new FileReader(INCIDENTS_FILE))) {
-            reader.readLine(); // Skip header
-            reader.readLine(); // Skip separator
+        try (CsvReader reader = CsvReader.open(Paths.get(INCIDENTS_FILE), '|')) {
+            reader.next(); // Skip header
+            reader.next(); // Skip separator
             
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (!line.trim().isEmpty() && !line.startsWith("-")) {
+            while (reader.next()) {
+                if (!reader.isBlank() && !reader.startsWith('-')) {
                     try {
-                        String[] parts = line.split("\\|");
-                        if (parts.length >= 5) {
-                            SecurityIncident incident = createIncidentFromParts(parts);
+                        if (reader.fields() >= 5) {
+                            SecurityIncident incident = createIncidentFromParts(reader);
                             incidents.add(incident);
                         }
                     } catch (Exception e) {
-                        System.err.println("Error parsing incident line: " + line);
+                        System.err.println("Error parsing incident line: " + reader.line());
                     }
                 }
             }
@@ -85,21 +82,20 @@ public class SecurityAlertSystem {
      * @author Raghuram Guddati
      */
     private void loadAlerts() {
-        try (BufferedReader reader = new BufferedReader(new FileReader(ALERTS_FILE))) {
-            reader.readLine(); // Skip header
-            reader.readLine(); // Skip separator
+        try (CsvReader reader = CsvReader.open(Paths.get(ALERTS_FILE), '|')) {
+            reader.next(); // Skip header
+            reader.next(); // Skip separator
             
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (!line.trim().isEmpty() && !line.startsWith("-")) {
+            while (reader.next()) {
+                if (!reader.isBlank() && !reader.startsWith('-')) {
                     try {
-                        String[] parts = line.split("\\|");
-                        if (parts.length >= 4) {
-                            SecurityIncident alert = createAlertFromParts(parts);
+                        if (reader.fields() >= 4) {
+                            SecurityIncident alert = createAlertFromParts(reader);
                             alerts.add(alert);
+                            incidents.reserveId(alert.getId());
                         }
                     } catch (Exception e) {
-                        System.err.println("Error parsing alert line: " + line);
+                        System.err.println("Error parsing alert line: " + reader.line());
                     }
                 }
             }
@@ -111,16 +107,16 @@ public class SecurityAlertSystem {
     /**
      * Creates a SecurityIncident object from parsed file data.
      *
-     * @param parts Array of strings containing incident data
+     * @param parts Reader positioned on a line of incident data
      * @return New SecurityIncident object
      * @author Raghuram Guddati
      */
-    private SecurityIncident createIncidentFromParts(String[] parts) {
-        String id = parts[0].trim();
-        String description = parts[1].trim();
-        String severity = parts[2].trim();
-        String timestamp = parts[3].trim();
-        boolean isResolved = parts[4].trim().equals("Resolved");
+    private SecurityIncident createIncidentFromParts(CsvReader parts) {
+        String id = parts.trimmed(0);
+        String description = parts.trimmed(1);
+        String severity = parts.trimmed(2);
+        String timestamp = parts.trimmed(3);
+        boolean isResolved = parts.trimmed(4).equals("Resolved");
         String status = isResolved ? "Resolved" : "Not Resolved";
         
         return new SecurityIncident(id, description, severity, timestamp, isResolved, status);
@@ -129,15 +125,15 @@ public class SecurityAlertSystem {
     /**
      * Creates a SecurityIncident object from parsed alert data.
      *
-     * @param parts Array of strings containing alert data
+     * @param parts Reader positioned on a line of alert data
      * @return New SecurityIncident object
      * @author Raghuram Guddati
      */
-    private SecurityIncident createAlertFromParts(String[] parts) {
-        String id = parts[0].trim();
-        String description = parts[1].trim();
-        String severity = parts[2].trim();
-        String timestamp = parts[3].trim();
+    private SecurityIncident createAlertFromParts(CsvReader parts) {
+        String id = parts.trimmed(0);
+        String description = parts.trimmed(1);
+        String severity = parts.trimmed(2);
+        String timestamp = parts.trimmed(3);
         
         return new SecurityIncident(id, description, severity, timestamp, false, "Not Resolved");
     }
@@ -149,7 +145,7 @@ public class SecurityAlertSystem {
      * @author Raghuram Guddati
      */
     public List<SecurityIncident> getIncidents() {
-        return Collections.unmodifiableList(incidents);
+        return incidents.getAll();
     }
 
     /**
@@ -163,7 +159,7 @@ public class SecurityAlertSystem {
     }
 
     /**
-     * Gets incidents within specified time range.
+     * Gets incidents within specified time range, oldest first.
      *
      * @param start Start time for range
      * @param end End time for range
@@ -176,12 +172,36 @@ public class SecurityAlertSystem {
             throw new IllegalArgumentException("Start and end dates cannot be null");
         }
         
-        return incidents.stream()
-            .filter(incident -> {
-                LocalDateTime timestamp = incident.getTimestamp();
-                return !timestamp.isBefore(start) && !timestamp.isAfter(end);
-            })
-            .collect(Collectors.toList());
+        return incidents.range(start, end);
+    }
+
+    /**
+     * Gets incidents of one severity within specified time range, oldest first.
+     *
+     * @param start Start time for range
+     * @param end End time for range
+     * @param severity Severity level (Low, Medium, High, Severe)
+     * @return List of matching incidents
+     * @throws IllegalArgumentException if start, end or severity is null
+     * @author Raghuram Guddati
+     */
+    public List<SecurityIncident> getIncidentsInRange(LocalDateTime start, LocalDateTime end, String severity) {
+        if (start == null || end == null || severity == null) {
+            throw new IllegalArgumentException("Start date, end date and severity cannot be null");
+        }
+
+        return incidents.range(severity, start, end);
+    }
+
+    /**
+     * Gets incidents with a status, oldest first.
+     *
+     * @param status Status such as Resolved or Not Resolved
+     * @return List of matching incidents
+     * @author Raghuram Guddati
+     */
+    public List<SecurityIncident> getIncidentsWithStatus(String status) {
+        return incidents.withStatus(status);
     }
 
     /**
@@ -192,7 +212,7 @@ public class SecurityAlertSystem {
      * @author Raghuram Guddati
      */
     public void reportSecurityIssue(String description, String severity) {
-        String id = String.valueOf(getNextId());
+        String id = String.valueOf(incidents.nextId());
         LocalDateTime now = LocalDateTime.now();
         
         SecurityIncident newIncident = new SecurityIncident(
@@ -204,22 +224,7 @@ public class SecurityAlertSystem {
             "Not Resolved"
         );
         
-        synchronized(incidents) {
-            incidents.add(newIncident);
-        }
-    }
-
-    /**
-     * Gets the next available ID for new incidents.
-     *
-     * @return Next available ID
-     * @author Raghuram Guddati
-     */
-    private int getNextId() {
-        return Math.max(
-            incidents.stream().mapToInt(i -> Integer.parseInt(i.getId().trim())).max().orElse(0),
-            alerts.stream().mapToInt(i -> Integer.parseInt(i.getId().trim())).max().orElse(0)
-        ) + 1;
+        incidents.add(newIncident);
     }
 
     /**
@@ -229,7 +234,7 @@ public class SecurityAlertSystem {
      * @author Raghuram Guddati
      */
     public List<SecurityIncident> getReportedIssues() {
-        return Collections.unmodifiableList(incidents);
+        return incidents.getAll();
     }
 
     /**
@@ -240,15 +245,7 @@ public class SecurityAlertSystem {
      * @author Raghuram Guddati
      */
     public boolean resolveIncident(String id) {
-        return incidents.stream()
-            .filter(incident -> incident.getId().equals(id))
-            .findFirst()
-            .map(incident -> {
-                incident.setResolved(true);
-                incident.setStatus("Resolved");
-                return true;
-            })
-            .orElse(false);
+        return incidents.updateStatus(id, "Resolved");
     }
 
     /**
@@ -259,14 +256,6 @@ public class SecurityAlertSystem {
      * @author Raghuram Guddati
      */
     public void updateIncidentStatus(String id, String newStatus) {
-        incidents.stream()
-            .filter(incident -> incident.getId().equals(id))
-            .findFirst()
-            .ifPresent(incident -> {
-                incident.setStatus(newStatus);
-                if (newStatus.equals("Resolved")) {
-                    incident.setResolved(true);
-                }
-            });
+        incidents.updateStatus(id, newStatus);
     }
 }
\ No newline at end of file
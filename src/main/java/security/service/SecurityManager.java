@@ -64,6 +64,9 @@ public class SecurityManager {
                     updateIncidentStatus();
                     break;
                 case 5:
+                    viewUnresolvedIncidents();
+                    break;
+                case 6:
                     return;
                 default:
                     System.out.println("Invalid option. Please try again.");
@@ -83,7 +86,8 @@ public class SecurityManager {
         System.out.println("2. Report Security Issue (Security Manager)");
         System.out.println("3. View Reported Issues (Security Manager)");
         System.out.println("4. Update Incident Status (Security Manager)");
-        System.out.println("5. Return to Main Menu");
+        System.out.println("5. View Unresolved Incidents (Security Manager)");
+        System.out.println("6. Return to Main Menu");
     }
 
     /**
@@ -117,10 +121,15 @@ public class SecurityManager {
             System.out.print("Enter end date (yyyy-MM-dd HH:mm:ss): ");
             String endDateStr = scanner.nextLine();
 
+            System.out.print("Enter severity (Low, Medium, High, Severe) or leave blank for all: ");
+            String severity = scanner.nextLine().trim();
+
             LocalDateTime startDate = LocalDateTime.parse(startDateStr, FORMATTER);
             LocalDateTime endDate = LocalDateTime.parse(endDateStr, FORMATTER);
 
-            List<SecurityIncident> filteredIncidents = alertSystem.getIncidentsInRange(startDate, endDate);
+            List<SecurityIncident> filteredIncidents = severity.isEmpty()
+                ? alertSystem.getIncidentsInRange(startDate, endDate)
+                : alertSystem.getIncidentsInRange(startDate, endDate, severity);
             displayIncidents(filteredIncidents);
         } catch (DateTimeParseException e) {
             System.out.println("Invalid date format. Please use: yyyy-MM-dd HH:mm:ss");
@@ -214,6 +223,20 @@ public class SecurityManager {
         displayIncidents(reportedIssues);
     }
 
+    /**
+     * Views incidents that have not been resolved, oldest first.
+     * 
+     * @author Raghuram Guddati
+     */
+    private void viewUnresolvedIncidents() {
+        List<SecurityIncident> unresolved = alertSystem.getIncidentsWithStatus("Not Resolved");
+        if (unresolved.isEmpty()) {
+            System.out.println("No unresolved incidents.");
+            return;
+        }
+        displayIncidents(unresolved);
+    }
+
     /**
      * Updates the status of a specific incident.
      * Prompts for incident ID and new status.
@@ -0,0 +1,139 @@
+package store.model;
+
+/**
+ * Money held as a long count of cents. Prices, revenue and pay are stored
+ * and summed in cents, so totals are exact integer adds; amounts are only
+ * turned into text (two decimals, as in every data file) when written.
+ * Parsing and formatting work directly on characters and do not go
+ * through double.
+ *
+ * @author Akhilesh Nevatia
+ */
+public final class Money {
+    private Money() {
+    }
+
+    /**
+     * Converts a decimal amount to cents, rounding half away from zero
+     * @param amount Amount in dollars
+     * @return Amount in cents
+     */
+    public static long of(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    /**
+     * Converts cents to a decimal amount, for display and legacy callers
+     * @param cents Amount in cents
+     * @return Amount in dollars
+     */
+    public static double toDouble(long cents) {
+        return cents / 100.0;
+    }
+
+    /**
+     * Multiplies an amount by a factor such as a quantity of fuel,
+     * rounding once at the end
+     * @param cents Amount in cents
+     * @param factor Multiplier
+     * @return Product in cents
+     */
+    public static long times(long cents, double factor) {
+        return Math.round(cents * factor);
+    }
+
+    /**
+     * Parses an amount such as "12.5", "-3.49" or "7"
+     * @param text Amount in dollars
+     * @return Amount in cents
+     * @throws NumberFormatException if the text is not an amount
+     */
+    public static long parse(CharSequence text) {
+        return parse(text, 0, text.length());
+    }
+
+    /**
+     * Parses an amount from part of a character sequence, so a field can
+     * be read out of a line without copying it. Digits past the cents are
+     * rounded half away from zero.
+     * @param text Characters holding the amount
+     * @param from Index of the first character
+     * @param to Index after the last character
+     * @return Amount in cents
+     * @throws NumberFormatException if the range is not an amount
+     */
+    public static long parse(CharSequence text, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+        long units = 0;
+        int digits = 0;
+        for (; i < to && text.charAt(i) != '.'; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || units > Long.MAX_VALUE / 1000) {
+                return parseSlow(text, from, to);
+            }
+            units = units * 10 + digit;
+            digits++;
+        }
+        long cents = units * 100;
+        int fraction = 0;
+        if (i < to) {
+            // Skip the point, then read cents and the digit that rounds them
+            for (i++; i < to; i++, fraction++) {
+                int digit = text.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return parseSlow(text, from, to);
+                }
+                if (fraction == 0) {
+                    cents += digit * 10;
+                } else if (fraction == 1) {
+                    cents += digit;
+                } else if (fraction == 2 && digit >= 5) {
+                    cents++;
+                }
+            }
+        }
+        if (digits == 0 && fraction == 0) {
+            throw new NumberFormatException("Not an amount: \"" + text.subSequence(from, to) + "\"");
+        }
+        return negative ? -cents : cents;
+    }
+
+    /**
+     * Formats an amount with two decimals, e.g. 1234 as "12.34"
+     * @param cents Amount in cents
+     * @return Formatted amount without a currency sign
+     */
+    public static String format(long cents) {
+        return append(new StringBuilder(24), cents).toString();
+    }
+
+    /**
+     * Appends an amount with two decimals
+     * @param text Builder to append to
+     * @param cents Amount in cents
+     * @return The builder
+     */
+    public static StringBuilder append(StringBuilder text, long cents) {
+        if (cents < 0) {
+            text.append('-');
+            cents = -cents;
+        }
+        long units = Math.abs(cents / 100);
+        int fraction = (int) Math.abs(cents % 100);
+        text.append(units).append('.');
+        if (fraction < 10) {
+            text.append('0');
+        }
+        return text.append(fraction);
+    }
+
+    // Exponents, grouping or out-of-range values
+    private static long parseSlow(CharSequence text, int from, int to) {
+        return of(Double.parseDouble(text.subSequence(from, to).toString()));
+    }
+}
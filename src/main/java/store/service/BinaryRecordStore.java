@@ -0,0 +1,152 @@
+package store.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps each dataset as length-prefixed UTF-8 records, e.g. ST001/leaves.bin.
+ * A read is one bulk file read followed by slicing at the recorded lengths,
+ * with no scan for line breaks, and records may hold any characters.
+ *
+ * A dataset that only exists as text is imported on first read; the text
+ * file is left in place. A torn final record left by an interrupted append
+ * is skipped on read and cut off before the next append, so it cannot
+ * swallow the records written after it.
+ *
+ * @author Akhilesh Nevatia
+ */
+public class BinaryRecordStore implements RecordStore {
+    private final StoreFiles files;
+    private final TextRecordStore text;
+    // End of the last complete record of each dataset, once it has been checked
+    private final Map<String, Long> validEnds;
+
+    public BinaryRecordStore(StoreFiles files) {
+        this.files = files;
+        this.text = new TextRecordStore(files);
+        this.validEnds = new HashMap<>();
+    }
+
+    @Override
+    public boolean exists(String dataset) {
+        return Files.exists(file(dataset)) || text.exists(dataset);
+    }
+
+    @Override
+    public synchronized List<String> readAll(String dataset) throws IOException {
+        Path file = file(dataset);
+        if (!Files.exists(file)) {
+            if (!text.exists(dataset)) {
+                throw new NoSuchFileException(file.toString());
+            }
+            List<String> records = text.readAll(dataset);
+            writeAll(dataset, records);
+            return records;
+        }
+        List<String> records = new ArrayList<>();
+        validEnds.put(dataset, scan(Files.readAllBytes(file), records));
+        return records;
+    }
+
+    @Override
+    public synchronized void append(String dataset, String record) throws IOException {
+        files.createDirectory();
+        Path file = file(dataset);
+        if (!Files.exists(file) && text.exists(dataset)) {
+            readAll(dataset);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            Long end = validEnds.get(dataset);
+            if (end == null) {
+                end = scan(Files.readAllBytes(file), null);
+            }
+            if (end < channel.size()) {
+                // Cut off a torn record, as the new one would be read as its rest
+                channel.truncate(end);
+            }
+            validEnds.remove(dataset);
+            ByteBuffer frame = frame(record.getBytes(StandardCharsets.UTF_8));
+            long position = end;
+            while (frame.hasRemaining()) {
+                position += channel.write(frame, position);
+            }
+            validEnds.put(dataset, position);
+        }
+    }
+
+    @Override
+    public synchronized void writeAll(String dataset, List<String> records) throws IOException {
+        files.createDirectory();
+        Path file = file(dataset);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            for (String record : records) {
+                byte[] bytes = record.getBytes(StandardCharsets.UTF_8);
+                if (buffer.remaining() < Integer.BYTES + bytes.length) {
+                    flush(channel, buffer);
+                }
+                if (buffer.remaining() < Integer.BYTES + bytes.length) {
+                    // Larger than the buffer on its own
+                    ByteBuffer frame = frame(bytes);
+                    while (frame.hasRemaining()) {
+                        channel.write(frame);
+                    }
+                } else {
+                    buffer.putInt(bytes.length).put(bytes);
+                }
+            }
+            flush(channel, buffer);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        validEnds.remove(dataset);
+    }
+
+    // Slices records out of a dataset's bytes, adding them to records if it
+    // is not null, and returns the end of the last complete one
+    private static long scan(byte[] bytes, List<String> records) {
+        ByteBuffer data = ByteBuffer.wrap(bytes);
+        while (data.remaining() >= Integer.BYTES) {
+            int length = data.getInt();
+            if (length < 0 || length > data.remaining()) {
+                // Torn final record from an interrupted append
+                return data.position() - Integer.BYTES;
+            }
+            if (records != null) {
+                records.add(new String(bytes, data.position(), length, StandardCharsets.UTF_8));
+            }
+            data.position(data.position() + length);
+        }
+        return data.position();
+    }
+
+    private static ByteBuffer frame(byte[] bytes) {
+        ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES + bytes.length);
+        frame.putInt(bytes.length).put(bytes).flip();
+        return frame;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private Path file(String dataset) {
+        return files.file(dataset + ".bin");
+    }
+}
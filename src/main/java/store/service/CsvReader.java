@@ -0,0 +1,537 @@
+package store.service;
+
+import store.model.Money;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/**
+ * Streaming reader for the delimited data files, one record per line.
+ *
+ * The file is read through a byte buffer and each line is tokenized in
+ * place: next() only records where the fields start and end, and ints,
+ * cents, doubles and dates are parsed straight from the buffer. No String
+ * is created for a line or for a field unless string() is asked for one,
+ * so a loader allocates only the values it keeps.
+ *
+ * Fields follow String.split: trailing empty fields are dropped, and an
+ * empty line has one empty field. Lines end at \n, with a trailing \r
+ * removed. Text is UTF-8; delimiters and numbers are ASCII.
+ *
+ * @author Akhilesh Nevatia
+ */
+public class CsvReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    // Largest mantissa a double holds exactly
+    private static final long MAX_EXACT = 1L << 53;
+    private static final int INTERN_SLOTS = 4096;
+
+    private final ReadableByteChannel channel;
+    private final byte delimiter;
+    private byte[] buffer;
+    private ByteBuffer window;
+    // Bytes left to read from the channel
+    private long remaining;
+    private boolean endOfInput;
+    // Bytes [0, filled) of the buffer hold data; [position, filled) is unread
+    private int filled;
+    private int position;
+    // Current line and its fields, as buffer offsets
+    private int lineStart;
+    private int lineEnd;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int fieldCount;
+    private long lineNumber;
+    private final FieldView view = new FieldView();
+    // Strings returned by intern, direct-mapped by a hash of their bytes
+    private String[] interned;
+
+    /**
+     * Creates a reader over a channel
+     * @param channel Channel to read from; closed with the reader
+     * @param limit Most bytes to read from the channel
+     * @param delimiter Field separator, e.g. ',' or '|'
+     */
+    public CsvReader(ReadableByteChannel channel, long limit, char delimiter) {
+        this.channel = channel;
+        this.remaining = limit;
+        this.delimiter = (byte) delimiter;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.window = ByteBuffer.wrap(buffer);
+    }
+
+    /**
+     * Opens a comma-separated file
+     * @param path File to read
+     * @return Reader positioned before the first line
+     * @throws IOException if the file cannot be opened
+     */
+    public static CsvReader open(String path) throws IOException {
+        return open(Paths.get(path), ',');
+    }
+
+    /**
+     * Opens a file with the given field separator
+     * @param path File to read
+     * @param delimiter Field separator
+     * @return Reader positioned before the first line
+     * @throws IOException if the file cannot be opened
+     */
+    public static CsvReader open(Path path, char delimiter) throws IOException {
+        return new CsvReader(FileChannel.open(path, StandardOpenOption.READ), Long.MAX_VALUE, delimiter);
+    }
+
+    /**
+     * Opens a byte range of a comma-separated file. The range should start
+     * at the beginning of a line.
+     * @param path File to read
+     * @param from Offset of the first byte
+     * @param to Offset after the last byte
+     * @return Reader positioned before the first line of the range
+     * @throws IOException if the file cannot be opened
+     */
+    public static CsvReader open(Path path, long from, long to) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        channel.position(from);
+        return new CsvReader(channel, Math.max(0, to - from), ',');
+    }
+
+    /**
+     * Advances to the next line and splits it into fields
+     * @return false once there are no more lines
+     * @throws IOException if reading fails
+     */
+    public boolean next() throws IOException {
+        // Unread bytes already searched for a line break
+        int searched = 0;
+        int newline;
+        while ((newline = indexOf((byte) '\n', position + searched, filled)) < 0) {
+            searched = filled - position;
+            if (endOfInput) {
+                if (searched == 0) {
+                    return false;
+                }
+                // Last line without a line break
+                newline = filled;
+                break;
+            }
+            fill();
+        }
+        lineNumber++;
+        lineStart = position;
+        lineEnd = newline > lineStart && buffer[newline - 1] == '\r' ? newline - 1 : newline;
+        position = newline < filled ? newline + 1 : filled;
+        split();
+        return true;
+    }
+
+    /**
+     * Returns the current line's number, counting from 1
+     */
+    public long lineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Returns the number of fields on the current line
+     */
+    public int fields() {
+        return fieldCount;
+    }
+
+    /**
+     * Returns true if the current line is empty or only whitespace
+     */
+    public boolean isBlank() {
+        for (int i = lineStart; i < lineEnd; i++) {
+            if (buffer[i] > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the current line starts with the given character
+     */
+    public boolean startsWith(char c) {
+        return lineEnd > lineStart && buffer[lineStart] == (byte) c;
+    }
+
+    /**
+     * Returns the length of a field in bytes
+     */
+    public int length(int field) {
+        check(field);
+        return ends[field] - starts[field];
+    }
+
+    /**
+     * Returns true if a field is empty
+     */
+    public boolean isEmpty(int field) {
+        return length(field) == 0;
+    }
+
+    /**
+     * Compares a field with some text without creating a String for it
+     * @param field Field index
+     * @param text Text to compare with
+     * @return true if the field holds exactly the text
+     */
+    public boolean fieldEquals(int field, String text) {
+        check(field);
+        int start = starts[field];
+        int length = ends[field] - start;
+        if (length != text.length()) {
+            // Non-ASCII text is longer in UTF-8 than in chars
+            return length > text.length() && !isAscii(text) && string(field).equals(text);
+        }
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                return string(field).equals(text);
+            }
+            if (buffer[start + i] != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a field as a String
+     */
+    public String string(int field) {
+        check(field);
+        int start = starts[field];
+        return new String(buffer, start, ends[field] - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns a field as a String, reusing the String returned for an
+     * earlier line with the same field text. Meant for keys that repeat
+     * from line to line, such as product and device ids.
+     */
+    public String intern(int field) {
+        check(field);
+        int hash = 0;
+        for (int i = starts[field]; i < ends[field]; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        if (interned == null) {
+            interned = new String[INTERN_SLOTS];
+        }
+        int slot = (hash ^ (hash >>> 16)) & (INTERN_SLOTS - 1);
+        String text = interned[slot];
+        if (text == null || !fieldEquals(field, text)) {
+            text = string(field);
+            interned[slot] = text;
+        }
+        return text;
+    }
+
+    /**
+     * Returns a field as a String with surrounding whitespace removed
+     */
+    public String trimmed(int field) {
+        check(field);
+        int start = starts[field];
+        int end = ends[field];
+        while (start < end && buffer[start] <= ' ') {
+            start++;
+        }
+        while (end > start && buffer[end - 1] <= ' ') {
+            end--;
+        }
+        return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns a view of an ASCII field as characters, valid until the next
+     * call to field or next. Non-ASCII bytes read as replacement chars.
+     */
+    public CharSequence field(int field) {
+        check(field);
+        view.start = starts[field];
+        view.end = ends[field];
+        return view;
+    }
+
+    /**
+     * Returns the current line as a String, e.g. for an error message
+     */
+    public String line() {
+        return new String(buffer, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses a field as an int, as Integer.parseInt would
+     * @throws NumberFormatException if the field is not an int
+     */
+    public int parseInt(int field) {
+        long value = parseLong(field);
+        if (value != (int) value) {
+            throw new NumberFormatException("For input string: \"" + string(field) + "\"");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses a field as a long, as Long.parseLong would
+     * @throws NumberFormatException if the field is not a long
+     */
+    public long parseLong(int field) {
+        check(field);
+        int i = starts[field];
+        int end = ends[field];
+        boolean negative = i < end && buffer[i] == '-';
+        if (negative) {
+            i++;
+        }
+        // Up to 18 digits cannot overflow
+        if (i == end || end - i > 18) {
+            return Long.parseLong(string(field));
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.parseLong(string(field));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a field as a double, as Double.parseDouble would. Plain
+     * decimals are read in place; exponents and other forms go through
+     * Double.parseDouble.
+     * @throws NumberFormatException if the field is not a number
+     */
+    public double parseDouble(int field) {
+        check(field);
+        int i = starts[field];
+        int end = ends[field];
+        boolean negative = i < end && buffer[i] == '-';
+        if (negative) {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            int c = buffer[i];
+            if (c == '.' && scale < 0) {
+                scale = 0;
+                continue;
+            }
+            int digit = c - '0';
+            if (digit < 0 || digit > 9 || mantissa >= MAX_EXACT / 10) {
+                return Double.parseDouble(string(field));
+            }
+            mantissa = mantissa * 10 + digit;
+            digits++;
+            if (scale >= 0) {
+                scale++;
+            }
+        }
+        if (digits == 0 || scale >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(string(field));
+        }
+        // Both operands are exact, so the division rounds correctly
+        double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a two-decimal amount into cents, as Money.parse would
+     * @throws NumberFormatException if the field is not an amount
+     */
+    public long parseCents(int field) {
+        return Money.parse(field(field));
+    }
+
+    /**
+     * Parses an ISO date (yyyy-MM-dd), as LocalDate.parse would
+     * @throws java.time.format.DateTimeParseException if the field is not a date
+     */
+    public LocalDate parseDate(int field) {
+        check(field);
+        int start = starts[field];
+        if (ends[field] - start == 10 && buffer[start + 4] == '-' && buffer[start + 7] == '-') {
+            int year = digits(start, 4);
+            int month = digits(start + 5, 2);
+            int day = digits(start + 8, 2);
+            if (year >= 0 && month >= 0 && day >= 0) {
+                try {
+                    return LocalDate.of(year, month, day);
+                } catch (DateTimeException e) {
+                    // Fall through for LocalDate.parse's exception
+                }
+            }
+        }
+        return LocalDate.parse(string(field));
+    }
+
+    /**
+     * Parses a date and time. yyyy-MM-dd HH:mm, with optional seconds and
+     * 'T' in place of the space, is read in place; anything else goes
+     * through the formatter.
+     * @param field Field index
+     * @param formatter Layout of the field
+     * @throws java.time.format.DateTimeParseException if the field does not match
+     */
+    public LocalDateTime parseDateTime(int field, DateTimeFormatter formatter) {
+        check(field);
+        int start = starts[field];
+        int length = ends[field] - start;
+        if ((length == 16 || length == 19 && buffer[start + 16] == ':')
+                && buffer[start + 4] == '-' && buffer[start + 7] == '-'
+                && (buffer[start + 10] == ' ' || buffer[start + 10] == 'T') && buffer[start + 13] == ':') {
+            int year = digits(start, 4);
+            int month = digits(start + 5, 2);
+            int day = digits(start + 8, 2);
+            int hour = digits(start + 11, 2);
+            int minute = digits(start + 14, 2);
+            int second = length == 19 ? digits(start + 17, 2) : 0;
+            if (year >= 0 && month >= 0 && day >= 0 && hour >= 0 && minute >= 0 && second >= 0) {
+                try {
+                    return LocalDateTime.of(year, month, day, hour, minute, second);
+                } catch (DateTimeException e) {
+                    // Fall through for the formatter's exception
+                }
+            }
+        }
+        return LocalDateTime.parse(string(field), formatter);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Reads more input after the unread bytes, moving them to the front of
+    // the buffer first and growing it if one line fills it
+    private void fill() throws IOException {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, filled - position);
+            filled -= position;
+            position = 0;
+        }
+        if (filled == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            window = ByteBuffer.wrap(buffer);
+        }
+        window.limit((int) Math.min(buffer.length, filled + remaining));
+        window.position(filled);
+        int read = window.remaining() == 0 ? -1 : channel.read(window);
+        if (read < 0) {
+            endOfInput = true;
+        } else {
+            filled += read;
+            remaining -= read;
+        }
+    }
+
+    private int indexOf(byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void split() {
+        int count = 0;
+        int start = lineStart;
+        for (int i = lineStart; i <= lineEnd; i++) {
+            if (i == lineEnd || buffer[i] == delimiter) {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                    ends = Arrays.copyOf(ends, count * 2);
+                }
+                starts[count] = start;
+                ends[count] = i;
+                count++;
+                start = i + 1;
+            }
+        }
+        // As String.split, drop trailing empty fields unless the line is empty
+        if (lineEnd > lineStart) {
+            while (count > 0 && starts[count - 1] == ends[count - 1]) {
+                count--;
+            }
+        }
+        fieldCount = count;
+    }
+
+    // Parses a fixed number of digits, or returns -1 if any is not a digit
+    private int digits(int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void check(int field) {
+        if (field < 0 || field >= fieldCount) {
+            throw new ArrayIndexOutOfBoundsException("Index " + field + " out of bounds for length " + fieldCount);
+        }
+    }
+
+    // Characters of one field in the buffer
+    private final class FieldView implements CharSequence {
+        int start;
+        int end;
+
+        public int length() {
+            return end - start;
+        }
+
+        public char charAt(int index) {
+            byte b = buffer[start + index];
+            return b >= 0 ? (char) b : '\uFFFD';
+        }
+
+        public CharSequence subSequence(int from, int to) {
+            return new String(buffer, start + from, to - from, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String toString() {
+            return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package store.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Embedded key-value backend: each dataset is a log of puts keyed by record
+ * position, e.g. ST001/leaves.kv, with its records cached in memory once
+ * read. Rewriting a dataset only logs the positions whose record changed,
+ * plus a truncation if it shrank, so the load-change-save-all pattern of
+ * the managers writes a few records instead of the whole file. The log is
+ * rewritten compactly once it is more than twice the size of its records.
+ *
+ * A dataset that only exists as text is imported on first read; the text
+ * file is left in place.
+ *
+ * @author Akhilesh Nevatia
+ */
+public class KeyValueRecordStore implements RecordStore {
+    private static final byte PUT = 1;
+    private static final byte TRUNCATE = 2;
+    // Logs smaller than this are never compacted
+    private static final long MIN_COMPACT_BYTES = 64 * 1024;
+
+    // A dataset's current records and the size of its log
+    private static final class Dataset {
+        final List<String> records = new ArrayList<>();
+        long logBytes;
+    }
+
+    private final StoreFiles files;
+    private final TextRecordStore text;
+    private final Map<String, Dataset> datasets;
+
+    public KeyValueRecordStore(StoreFiles files) {
+        this.files = files;
+        this.text = new TextRecordStore(files);
+        this.datasets = new HashMap<>();
+    }
+
+    @Override
+    public synchronized boolean exists(String dataset) {
+        return datasets.containsKey(dataset) || Files.exists(file(dataset)) || text.exists(dataset);
+    }
+
+    @Override
+    public synchronized List<String> readAll(String dataset) throws IOException {
+        Dataset data = load(dataset, false);
+        return new ArrayList<>(data.records);
+    }
+
+    @Override
+    public synchronized void append(String dataset, String record) throws IOException {
+        Dataset data = load(dataset, true);
+        ByteBuffer log = ByteBuffer.allocate(putSize(record));
+        put(log, data.records.size(), record);
+        write(dataset, data, log);
+        data.records.add(record);
+    }
+
+    @Override
+    public synchronized void writeAll(String dataset, List<String> records) throws IOException {
+        Dataset data = load(dataset, true);
+        List<String> current = data.records;
+        List<Integer> changed = new ArrayList<>();
+        int size = 0;
+        for (int i = 0; i < records.size(); i++) {
+            if (i >= current.size() || !current.get(i).equals(records.get(i))) {
+                changed.add(i);
+                size += putSize(records.get(i));
+            }
+        }
+        boolean shrunk = records.size() < current.size();
+        if (shrunk) {
+            size += 1 + Integer.BYTES;
+        }
+        if (size == 0) {
+            return;
+        }
+
+        ByteBuffer log = ByteBuffer.allocate(size);
+        for (int position : changed) {
+            put(log, position, records.get(position));
+        }
+        if (shrunk) {
+            log.put(TRUNCATE).putInt(records.size());
+        }
+        write(dataset, data, log);
+        current.clear();
+        current.addAll(records);
+        compactIfNeeded(dataset, data);
+    }
+
+    // Returns the dataset's records, replaying or importing them on first use
+    private Dataset load(String dataset, boolean create) throws IOException {
+        Dataset data = datasets.get(dataset);
+        if (data != null) {
+            return data;
+        }
+        Path file = file(dataset);
+        data = new Dataset();
+        if (Files.exists(file)) {
+            replay(file, data);
+        } else if (text.exists(dataset)) {
+            data.records.addAll(text.readAll(dataset));
+            compact(dataset, data);
+        } else if (!create) {
+            throw new NoSuchFileException(file.toString());
+        }
+        datasets.put(dataset, data);
+        return data;
+    }
+
+    private static void replay(Path file, Dataset data) throws IOException {
+        ByteBuffer log = ByteBuffer.wrap(Files.readAllBytes(file));
+        List<String> records = data.records;
+        int valid = 0;
+        while (log.hasRemaining()) {
+            byte op = log.get();
+            if (op == PUT && log.remaining() >= 2 * Integer.BYTES) {
+                int position = log.getInt();
+                int length = log.getInt();
+                if (length < 0 || length > log.remaining() || position < 0 || position > records.size()) {
+                    break;
+                }
+                String record = new String(log.array(), log.position(), length, StandardCharsets.UTF_8);
+                log.position(log.position() + length);
+                if (position == records.size()) {
+                    records.add(record);
+                } else {
+                    records.set(position, record);
+                }
+            } else if (op == TRUNCATE && log.remaining() >= Integer.BYTES) {
+                int size = log.getInt();
+                if (size < 0 || size > records.size()) {
+                    break;
+                }
+                records.subList(size, records.size()).clear();
+            } else {
+                break;
+            }
+            valid = log.position();
+        }
+        if (valid < log.capacity()) {
+            // Drop a torn entry from an interrupted write, so later entries follow valid ones
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+            }
+        }
+        data.logBytes = valid;
+    }
+
+    private void write(String dataset, Dataset data, ByteBuffer log) throws IOException {
+        files.createDirectory();
+        log.flip();
+        try (FileChannel channel = FileChannel.open(file(dataset),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (log.hasRemaining()) {
+                data.logBytes += channel.write(log);
+            }
+        }
+    }
+
+    private void compactIfNeeded(String dataset, Dataset data) throws IOException {
+        if (data.logBytes < MIN_COMPACT_BYTES) {
+            return;
+        }
+        long live = 0;
+        for (String record : data.records) {
+            live += 1 + 2 * Integer.BYTES + record.length();
+        }
+        if (data.logBytes > 2 * live) {
+            compact(dataset, data);
+        }
+    }
+
+    // Rewrites the log as one put per record
+    private void compact(String dataset, Dataset data) throws IOException {
+        files.createDirectory();
+        Path file = file(dataset);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        int size = 0;
+        for (String record : data.records) {
+            size += putSize(record);
+        }
+        ByteBuffer log = ByteBuffer.allocate(size);
+        for (int i = 0; i < data.records.size(); i++) {
+            put(log, i, data.records.get(i));
+        }
+        log.flip();
+        long bytes = 0;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (log.hasRemaining()) {
+                bytes += channel.write(log);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        data.logBytes = bytes;
+    }
+
+    private static int putSize(String record) {
+        return 1 + 2 * Integer.BYTES + record.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void put(ByteBuffer log, int position, String record) {
+        byte[] bytes = record.getBytes(StandardCharsets.UTF_8);
+        log.put(PUT).putInt(position).putInt(bytes.length).put(bytes);
+    }
+
+    private Path file(String dataset) {
+        return files.file(dataset + ".kv");
+    }
+}
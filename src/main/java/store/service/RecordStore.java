@@ -0,0 +1,49 @@
+package store.service;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Storage backend for a store's record datasets. A dataset is a named list
+ * of records, such as "leaves" or "cleaning_tasks", and a record is one
+ * line of comma-separated fields without its line break.
+ *
+ * Backends differ only in how the records are kept on disk: as text lines
+ * (TextRecordStore), as length-prefixed binary records (BinaryRecordStore)
+ * or as a log of changed positions (KeyValueRecordStore). A backend that
+ * finds only the text file of a dataset imports it on first read.
+ *
+ * @author Akhilesh Nevatia
+ */
+public interface RecordStore {
+    /**
+     * Returns true if the dataset has been written
+     * @param dataset Dataset name
+     */
+    boolean exists(String dataset);
+
+    /**
+     * Reads every record of a dataset in order
+     * @param dataset Dataset name
+     * @return The records
+     * @throws java.nio.file.NoSuchFileException if the dataset does not exist
+     * @throws IOException if reading fails
+     */
+    List<String> readAll(String dataset) throws IOException;
+
+    /**
+     * Adds a record to the end of a dataset, creating it if needed
+     * @param dataset Dataset name
+     * @param record Record to add
+     * @throws IOException if writing fails
+     */
+    void append(String dataset, String record) throws IOException;
+
+    /**
+     * Replaces the records of a dataset
+     * @param dataset Dataset name
+     * @param records New records in order
+     * @throws IOException if writing fails
+     */
+    void writeAll(String dataset, List<String> records) throws IOException;
+}
@@ -0,0 +1,90 @@
+package store.service;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Locates the data files of every store. Each store keeps its files in its
+ * own subdirectory of the data root, e.g. ST001/sales.txt, instead of one
+ * flat directory shared by all stores; files shared by all stores, such as
+ * stores.txt, stay in the root.
+ *
+ * The root defaults to src/main/java/store/data and can be moved with the
+ * store.data.root system property. The storage backend for record datasets
+ * is chosen with store.data.backend (text, binary or kv), or for a single
+ * store with store.data.backend.&lt;storeId&gt;.
+ *
+ * @author Akhilesh Nevatia
+ */
+public class StoreDataRepository {
+    public static final String ROOT_PROPERTY = "store.data.root";
+    public static final String BACKEND_PROPERTY = "store.data.backend";
+    private static final String DEFAULT_ROOT = "./src/main/java/store/data";
+
+    private static volatile StoreDataRepository instance;
+
+    private final Path root;
+    private final Map<String, StoreFiles> stores;
+
+    /**
+     * Creates a repository over a data root
+     * @param root Directory holding the store subdirectories
+     */
+    public StoreDataRepository(String root) {
+        this.root = Paths.get(root);
+        this.stores = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the process-wide repository over the configured root
+     */
+    public static StoreDataRepository getInstance() {
+        StoreDataRepository repository = instance;
+        if (repository == null) {
+            synchronized (StoreDataRepository.class) {
+                repository = instance;
+                if (repository == null) {
+                    repository = new StoreDataRepository(System.getProperty(ROOT_PROPERTY, DEFAULT_ROOT));
+                    instance = repository;
+                }
+            }
+        }
+        return repository;
+    }
+
+    /**
+     * Shorthand for getInstance().forStore(storeId)
+     */
+    public static StoreFiles store(String storeId) {
+        return getInstance().forStore(storeId);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns a file shared by all stores, such as stores.txt
+     * @param name File name within the data root
+     * @return Path of the file
+     */
+    public Path sharedFile(String name) {
+        return root.resolve(name);
+    }
+
+    /**
+     * Returns the handle for one store's files, creating it on first use
+     * @param storeId Store identifier
+     * @return The store's file handle
+     */
+    public StoreFiles forStore(String storeId) {
+        return stores.computeIfAbsent(storeId, id -> new StoreFiles(root, id, backendName(id)));
+    }
+
+    private static String backendName(String storeId) {
+        return System.getProperty(BACKEND_PROPERTY + "." + storeId,
+            System.getProperty(BACKEND_PROPERTY, StoreFiles.TEXT));
+    }
+}
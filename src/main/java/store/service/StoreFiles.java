@@ -0,0 +1,149 @@
+package store.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One store's data files, held in the store's own subdirectory of the data
+ * root. Files left over from the flat layout (root/ST001_sales.txt) are
+ * moved into the subdirectory (root/ST001/sales.txt) the first time they
+ * are asked for, so existing data keeps working.
+ *
+ * Looking a file up creates nothing, so reading a store that has no data
+ * leaves no empty directory behind. Code that writes a file asks for it
+ * with fileForWriting, or calls createDirectory before writing a file it
+ * looked up earlier.
+ *
+ * Record datasets that are read and rewritten whole, such as leaves and
+ * cleaning tasks, go through the store's RecordStore backend.
+ *
+ * @author Akhilesh Nevatia
+ */
+public class StoreFiles {
+    public static final String TEXT = "text";
+    public static final String BINARY = "binary";
+    public static final String KEY_VALUE = "kv";
+
+    private final Path root;
+    private final String storeId;
+    private final Path directory;
+    private final RecordStore records;
+    // Resolved paths by file name, so each file is checked and migrated once
+    private final Map<String, Path> files;
+    private volatile boolean directoryCreated;
+
+    StoreFiles(Path root, String storeId, String backend) {
+        this.root = root;
+        this.storeId = storeId;
+        this.directory = root.resolve(storeId);
+        this.files = new ConcurrentHashMap<>();
+        switch (backend) {
+            case BINARY:
+                this.records = new BinaryRecordStore(this);
+                break;
+            case KEY_VALUE:
+                this.records = new KeyValueRecordStore(this);
+                break;
+            default:
+                this.records = new TextRecordStore(this);
+                break;
+        }
+    }
+
+    public String getStoreId() {
+        return storeId;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the store's record storage backend
+     */
+    public RecordStore records() {
+        return records;
+    }
+
+    /**
+     * Returns the path of one of the store's files, moving a file of the
+     * same name from the flat layout into the store's directory if needed
+     * @param name File name, e.g. "sales.txt"
+     * @return Path of the file, which need not exist
+     */
+    public Path file(String name) {
+        return files.computeIfAbsent(name, this::resolve);
+    }
+
+    /**
+     * Returns the path of one of the store's files for writing, creating
+     * the store's directory first
+     * @param name File name, e.g. "sales.txt"
+     * @return Path of the file, which need not exist
+     */
+    public Path fileForWriting(String name) {
+        try {
+            createDirectory();
+        } catch (IOException e) {
+            System.err.println("Error creating data directory " + directory + ": " + e.getMessage());
+        }
+        return file(name);
+    }
+
+    /**
+     * Returns the path of one of the store's files for writing as a String
+     * @param name File name, e.g. "sales.txt"
+     * @return Path of the file, which need not exist
+     */
+    public String pathForWriting(String name) {
+        return fileForWriting(name).toString();
+    }
+
+    /**
+     * Creates the store's directory if it does not exist yet
+     * @throws IOException if the directory cannot be created
+     */
+    public void createDirectory() throws IOException {
+        if (!directoryCreated) {
+            Files.createDirectories(directory);
+            directoryCreated = true;
+        }
+    }
+
+    /**
+     * Returns the path of one of the store's files if it exists
+     * @param name File name, e.g. "employees.txt"
+     * @return Path of the file, or null if there is no such file
+     */
+    public Path find(String name) {
+        Path file = file(name);
+        return Files.exists(file) ? file : null;
+    }
+
+    /**
+     * Returns the path of one of the store's files as a String
+     * @param name File name, e.g. "sales.txt"
+     * @return Path of the file, which need not exist
+     */
+    public String path(String name) {
+        return file(name).toString();
+    }
+
+    private Path resolve(String name) {
+        Path file = directory.resolve(name);
+        try {
+            Path legacy = root.resolve(storeId + "_" + name);
+            if (!Files.exists(file) && Files.exists(legacy)) {
+                createDirectory();
+                Files.move(legacy, file, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            System.err.println("Error preparing data file " + file + ": " + e.getMessage());
+        }
+        return file;
+    }
+}
@@ -11,8 +11,10 @@ import java.util.List;
 import java.time.LocalDate;
 public class StoreManager {
     private List<Store> stores;
-    private static final String STORES_FILE = "src/main/java/store/data/stores.txt";
-    private static final String MANAGERS_FILE = "src/main/java/store/data/storemanagers.txt";
+    private static final String STORES_FILE =
+        StoreDataRepository.getInstance().sharedFile("stores.txt").toString();
+    private static final String MANAGERS_FILE =
+        StoreDataRepository.getInstance().sharedFile("storemanagers.txt").toString();
 
     public StoreManager() {
         this.stores = new ArrayList<>();
@@ -20,15 +22,13 @@ public class StoreManager {
     }
 
     private void loadStores() {
-        try (BufferedReader br = new BufferedReader(new FileReader(STORES_FILE))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length < 4) continue; // Skip invalid lines
-                String storeId = parts[0].trim();
-                String name = parts[1].trim();
-                String location = parts[2].trim();
-                LocalDate openingDate = LocalDate.parse(parts[3].trim());
+        try (CsvReader reader = CsvReader.open(STORES_FILE)) {
+            while (reader.next()) {
+                if (reader.fields() < 4) continue; // Skip invalid lines
+                String storeId = reader.trimmed(0);
+                String name = reader.trimmed(1);
+                String location = reader.trimmed(2);
+                LocalDate openingDate = LocalDate.parse(reader.trimmed(3));
                 stores.add(new Store(storeId, name, location, openingDate));
             }
         } catch (IOException e) {
@@ -94,13 +94,11 @@ public class StoreManager {
 
     // Store Managers Management
     public String getManagerByStoreId(String storeId) {
-        try (BufferedReader br = new BufferedReader(new FileReader(MANAGERS_FILE))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length < 2) continue;
-                if (parts[0].trim().equals(storeId)) {
-                    return parts[1].trim();
+        try (CsvReader reader = CsvReader.open(MANAGERS_FILE)) {
+            while (reader.next()) {
+                if (reader.fields() < 2) continue;
+                if (reader.trimmed(0).equals(storeId)) {
+                    return reader.trimmed(1);
                 }
             }
         } catch (IOException e) {
@@ -0,0 +1,61 @@
+package store.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Keeps each dataset as a text file of one record per line, e.g.
+ * ST001/leaves.txt. This is the default backend and the format every other
+ * backend imports from.
+ *
+ * @author Akhilesh Nevatia
+ */
+public class TextRecordStore implements RecordStore {
+    private final StoreFiles files;
+
+    public TextRecordStore(StoreFiles files) {
+        this.files = files;
+    }
+
+    @Override
+    public boolean exists(String dataset) {
+        return Files.exists(file(dataset));
+    }
+
+    @Override
+    public List<String> readAll(String dataset) throws IOException {
+        return Files.readAllLines(file(dataset), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void append(String dataset, String record) throws IOException {
+        files.createDirectory();
+        Files.write(file(dataset), (record + "\n").getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void writeAll(String dataset, List<String> records) throws IOException {
+        files.createDirectory();
+        Path file = file(dataset);
+        // Written aside and moved into place, so a failed write leaves the old file
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (String record : records) {
+                writer.write(record);
+                writer.write('\n');
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    Path file(String dataset) {
+        return files.file(dataset + ".txt");
+    }
+}
@@ -3,7 +3,7 @@ package supplier;
 import supplier.service.SupplierManager;
 import supplier.model.Shipment;
 import inventory.service.InventoryManager;
-import inventory.service.HeadOfficeManager;
+import inventory.service.InventoryRegistry;
 import inventory.model.Product;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -22,6 +22,8 @@ public class SupplierManagementSystem {
     private Scanner scanner;
     // Store identifier
     private String storeId;
+    // Shared inventory view for this store
+    private InventoryManager inventoryManager;
 
     /**
      * Constructor initializes the system with a specific store ID
@@ -29,8 +31,7 @@ public class SupplierManagementSystem {
      */
     public SupplierManagementSystem(String storeId) {
         this.storeId = storeId;
-        InventoryManager inventoryManager = new InventoryManager(new HeadOfficeManager());
-        inventoryManager.setCurrentStore(storeId);
+        this.inventoryManager = InventoryRegistry.getInstance().acquire(storeId);
         this.supplierManager = new SupplierManager(inventoryManager);
         this.supplierManager.setCurrentStore(storeId);
         this.scanner = new Scanner(System.in);
@@ -63,6 +64,7 @@ public class SupplierManagementSystem {
                     viewPendingShipments();
                     break;
                 case 5:
+                    close();
                     return;
                 default:
                     System.out.println("Invalid option");
@@ -207,6 +209,13 @@ public class SupplierManagementSystem {
         }
     }
 
+    /**
+     * Releases this system's shared inventory view
+     */
+    public void close() {
+        InventoryRegistry.getInstance().release(inventoryManager);
+    }
+
     private boolean simulateSupplierResponse() {
         // Simulate a supplier response with an 80% chance of success
         return Math.random() < 0.8;
@@ -10,6 +10,7 @@ import supplier.model.Supplier;
 import supplier.model.Shipment;
 import inventory.service.InventoryManager;
 import inventory.model.Product;
+import store.service.CsvReader;
 import java.io.*;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -88,11 +89,10 @@ public class SupplierManager {
     }
 
     private void loadSuppliers() {
-        try (BufferedReader reader = new BufferedReader(new FileReader("./src/main/java/supplier/data/suppliers.txt"))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                suppliers.put(parts[0], new Supplier(parts[0], parts[1], parts[2], parts[3]));
+        try (CsvReader reader = CsvReader.open("./src/main/java/supplier/data/suppliers.txt")) {
+            while (reader.next()) {
+                String id = reader.string(0);
+                suppliers.put(id, new Supplier(id, reader.string(1), reader.string(2), reader.string(3)));
             }
         } catch (IOException e) {
             System.err.println("Error loading suppliers: " + e.getMessage());
@@ -127,6 +127,7 @@ public class SupplierManager {
             // Update inventory regardless of discrepancy
             inventoryManager.restockProduct(product.getId(), receivedQty);
         }
+        inventoryManager.syncJournal();
 
         shipment.setStatus("VERIFIED");
         shipment.setDeliveryDate(LocalDateTime.now());